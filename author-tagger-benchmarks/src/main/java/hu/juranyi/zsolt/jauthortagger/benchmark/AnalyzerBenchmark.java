@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+
+/**
+ * Measures <code>JavaFileAnalyzer</code> on one file, read from the disk and
+ * from memory.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Sources.QUIET_LOG)
+@State(Scope.Benchmark)
+public class AnalyzerBenchmark {
+
+	@Param({ "50", "1000" })
+	public int bodyLines;
+
+	private final JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+	private List<String> lines;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		lines = Sources.javaFile(42, bodyLines);
+		file = File.createTempFile("Type42", ".java");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public JavaFile analyzeFile() {
+		JavaFile javaFile = new JavaFile(file);
+		analyzer.analyzeJavaFile(javaFile);
+		return javaFile;
+	}
+
+	@Benchmark
+	public JavaFile analyzeLines() {
+		JavaFile javaFile = new JavaFile(file);
+		analyzer.analyzeJavaFile(javaFile, lines);
+		return javaFile;
+	}
+
+}
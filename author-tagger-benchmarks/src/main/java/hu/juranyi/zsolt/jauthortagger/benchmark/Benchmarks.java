@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark JAR. It accepts the usual <i>JMH</i> command
+ * line options, and adds the GC profiler (allocation rate) and a JSON result
+ * file (<code>jmh-result.json</code> unless <code>-rff</code> is given), which
+ * can be kept as a baseline to compare later runs with.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cli = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(cli).addProfiler(GCProfiler.class);
+		if (!cli.getResult().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON).result("jmh-result.json");
+		}
+		new Runner(options.build()).run();
+	}
+
+}
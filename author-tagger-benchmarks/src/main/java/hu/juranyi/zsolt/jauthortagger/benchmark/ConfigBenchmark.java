@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+
+/**
+ * Measures <code>AuthorTaggerConfig.loadAndApply</code> over large sets of
+ * analyzed files: parsing the configuration, then running every rule on every
+ * file. The file set is rebuilt before every invocation, because applying the
+ * configuration modifies it.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = Sources.QUIET_LOG)
+@State(Scope.Benchmark)
+public class ConfigBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int files;
+
+	@Param({ "10", "200" })
+	public int blocks;
+
+	private File configFile;
+	private String[] typeNames;
+	private JavaFiles javaFiles;
+
+	@Setup
+	public void setup() throws IOException {
+		configFile = File.createTempFile("authors", ".cfg");
+		Sources.writeConfig(configFile, blocks);
+		typeNames = new String[files];
+		for (int i = 0; i < files; i++) {
+			typeNames[i] = Sources.fullTypeName(i);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareFiles() {
+		javaFiles = new JavaFiles(files);
+		for (int i = 0; i < files; i++) {
+			JavaFile javaFile = new JavaFile(new File(typeNames[i] + ".java"));
+			javaFile.setTypeName(typeNames[i]);
+			javaFile.getAuthors().add("Someone Else");
+			javaFiles.add(javaFile);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		configFile.delete();
+	}
+
+	@Benchmark
+	public JavaFiles loadAndApply() {
+		new AuthorTaggerConfig(configFile).loadAndApply(javaFiles);
+		return javaFiles;
+	}
+
+}
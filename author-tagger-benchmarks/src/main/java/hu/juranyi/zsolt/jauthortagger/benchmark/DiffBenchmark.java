@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.util.DiffCalculator;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+
+/**
+ * Measures <code>DiffCalculator.calculateDiff</code> on the original and the
+ * tagged content of one file, which differ in the author tags.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Sources.QUIET_LOG)
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+
+	@Param({ "50", "1000" })
+	public int bodyLines;
+
+	private File file;
+	private List<String> originalContent;
+	private List<String> modifiedContent;
+
+	@Setup
+	public void setup() throws IOException {
+		file = new File("Type42.java");
+		originalContent = Sources.javaFile(42, bodyLines);
+		JavaFile javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile, originalContent);
+		javaFile.getAuthors().remove(0);
+		javaFile.getAuthors().add("New Guy");
+		StringWriter out = new StringWriter();
+		new AuthorTagWriter(BackupMode.TEST).filterAuthorTags(javaFile, originalContent, out);
+		modifiedContent = IOUtils.lines(out.toString());
+	}
+
+	@Benchmark
+	public DiffResult calculateDiff() {
+		return new DiffCalculator(file, file, originalContent, modifiedContent).calculateDiff();
+	}
+
+}
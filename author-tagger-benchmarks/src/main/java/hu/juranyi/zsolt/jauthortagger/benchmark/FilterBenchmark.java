@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hu.juranyi.zsolt.jauthortagger.util.ClassNameFilter;
+import hu.juranyi.zsolt.jauthortagger.util.SimpleStringFilter;
+
+/**
+ * Measures <code>ClassNameFilter</code> and <code>SimpleStringFilter</code> on
+ * the kinds of filters used in configurations. The score is the number of
+ * <code>accept</code> calls.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Sources.QUIET_LOG)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+	private static final int NAMES = 1024;
+
+	@Param({ "**", "com.example.**", "com.example.*.Type*", "Test*", "*Impl" })
+	public String classFilter;
+
+	@Param({ "*", "Zsolt*", "*Else" })
+	public String authorFilter;
+
+	private ClassNameFilter classNameFilter;
+	private SimpleStringFilter simpleStringFilter;
+	private final String[] typeNames = new String[NAMES];
+	private final String[] authors = { "Zsolt Jurányi", "Someone Else", "John Doe", "Jane Roe" };
+
+	@Setup
+	public void setup() {
+		classNameFilter = new ClassNameFilter(classFilter);
+		simpleStringFilter = new SimpleStringFilter(authorFilter);
+		for (int i = 0; i < NAMES; i++) {
+			typeNames[i] = Sources.fullTypeName(i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NAMES)
+	public int classNameFilter() {
+		int accepted = 0;
+		for (String typeName : typeNames) {
+			if (classNameFilter.accept(typeName)) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NAMES)
+	public int simpleStringFilter() {
+		int accepted = 0;
+		for (int i = 0; i < NAMES; i++) {
+			if (simpleStringFilter.accept(authors[i & 3])) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+}
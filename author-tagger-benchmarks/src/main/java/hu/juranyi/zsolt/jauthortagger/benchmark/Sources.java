@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the inputs of the benchmarks: realistic <code>.java</code>
+ * contents (package, imports, javadoc with authors, annotations, methods) and
+ * type names in deep package hierarchies. The output is deterministic, so runs
+ * can be compared.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class Sources {
+
+	/**
+	 * JVM argument which turns off the trace logging of <b>JAuthorTagger</b>
+	 * in the forked benchmark JVMs, so the benchmarks don't measure logging.
+	 */
+	public static final String QUIET_LOG = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn";
+
+	private static final String[] AUTHORS = { "Zsolt Jurányi", "Someone Else", "John Doe", "Jane Roe" };
+	private static final String[] PACKAGES = { "com.example", "model", "service", "util", "io", "impl", "api" };
+
+	/**
+	 * Returns the lines of a <code>.java</code> file.
+	 *
+	 * @param index
+	 *            - Index of the file, it selects package, name and authors.
+	 * @param bodyLines
+	 *            - Approximate number of lines after the type declaration.
+	 * @return The lines.
+	 */
+	public static List<String> javaFile(int index, int bodyLines) {
+		List<String> lines = new ArrayList<String>();
+		lines.add("/*");
+		lines.add(" * Copyright header");
+		lines.add(" */");
+		lines.add("");
+		lines.add("package " + packageName(index) + ";");
+		lines.add("");
+		lines.add("import java.util.List;");
+		lines.add("import java.util.Map;");
+		lines.add("");
+		lines.add("/**");
+		lines.add(" * Type number " + index + ".");
+		lines.add(" *");
+		lines.add(" * @author " + AUTHORS[index % AUTHORS.length]);
+		if (0 == index % 3) {
+			lines.add(" * @author " + AUTHORS[(index + 1) % AUTHORS.length]);
+		}
+		lines.add(" */");
+		if (0 == index % 2) {
+			lines.add("@SuppressWarnings(\"unused\")");
+		}
+		lines.add("public class " + typeName(index) + " {");
+		int i = 0;
+		while (lines.size() < 20 + bodyLines) {
+			lines.add("");
+			lines.add("\t/**");
+			lines.add("\t * Does thing " + i + ".");
+			lines.add("\t */");
+			lines.add("\tpublic int thing" + i + "(List<String> list, Map<String, Integer> map) {");
+			lines.add("\t\treturn list.size() + map.size() + " + i + ";");
+			lines.add("\t}");
+			i++;
+		}
+		lines.add("}");
+		return lines;
+	}
+
+	/**
+	 * Returns the package of a generated file: 3 to 6 levels deep.
+	 *
+	 * @param index
+	 *            - Index of the file.
+	 * @return The package name.
+	 */
+	public static String packageName(int index) {
+		StringBuilder sb = new StringBuilder(PACKAGES[0]);
+		int depth = 2 + index % 4;
+		for (int i = 1; i <= depth; i++) {
+			sb.append('.').append(PACKAGES[(index / i + i) % PACKAGES.length]).append(index % (7 * i));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the full name of the type declared in a generated file.
+	 *
+	 * @param index
+	 *            - Index of the file.
+	 * @return The full type name.
+	 */
+	public static String fullTypeName(int index) {
+		return packageName(index) + "." + typeName(index);
+	}
+
+	/**
+	 * Returns the simple name of the type declared in a generated file.
+	 *
+	 * @param index
+	 *            - Index of the file.
+	 * @return The simple type name.
+	 */
+	public static String typeName(int index) {
+		return (0 == index % 5 ? "Test" : "Type") + index + (0 == index % 7 ? "Impl" : "");
+	}
+
+	/**
+	 * Writes a configuration file with the given number of blocks. Every
+	 * block adds and removes authors on a package, some of them skip types.
+	 *
+	 * @param file
+	 *            - The configuration file to write.
+	 * @param blocks
+	 *            - The number of blocks.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public static void writeConfig(File file, int blocks) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("$**\n\t+Zsolt Jurányi\n");
+		for (int i = 0; i < blocks; i++) {
+			sb.append("$").append(packageName(i)).append(".**\n");
+			sb.append("\t+").append(AUTHORS[i % AUTHORS.length]).append('\n');
+			sb.append("\t-*Else\n");
+			if (0 == i % 10) {
+				sb.append("$").append(fullTypeName(i)).append("\n\t!skip\n");
+			}
+		}
+		sb.append("@Jane Roe\n\t+*Impl\n");
+		Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+}
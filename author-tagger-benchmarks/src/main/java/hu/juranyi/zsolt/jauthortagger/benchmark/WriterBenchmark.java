@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+
+/**
+ * Measures <code>AuthorTagWriter</code> on one analyzed file: writing the
+ * tagged file to the disk in <code>TEST</code> mode (collecting the contents
+ * for the diff like a normal run), and tagging in memory.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Sources.QUIET_LOG)
+@State(Scope.Benchmark)
+public class WriterBenchmark {
+
+	@Param({ "50", "1000" })
+	public int bodyLines;
+
+	private final AuthorTagWriter writer = new AuthorTagWriter(BackupMode.TEST);
+	private List<String> lines;
+	private File file;
+	private JavaFile javaFile;
+
+	@Setup
+	public void setup() throws IOException {
+		lines = Sources.javaFile(42, bodyLines);
+		file = File.createTempFile("Type42", ".java");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+		javaFile.getAuthors().add("New Guy");
+	}
+
+	@TearDown
+	public void tearDown() {
+		Filenames.testFileOf(file).delete();
+		file.delete();
+	}
+
+	@Benchmark
+	public List<String> writeAuthorTags() {
+		List<String> modifiedContent = new ArrayList<String>();
+		writer.writeAuthorTags(javaFile, new ArrayList<String>(), modifiedContent);
+		return modifiedContent;
+	}
+
+	@Benchmark
+	public String filterAuthorTags() throws IOException {
+		StringWriter out = new StringWriter();
+		writer.filterAuthorTags(javaFile, lines, out);
+		return out.toString();
+	}
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.maven;
+
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.tempFileOf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import hu.juranyi.zsolt.jauthortagger.api.AuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.api.TaggedSource;
+import hu.juranyi.zsolt.jauthortagger.util.DirectoryFilter;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+import hu.juranyi.zsolt.jauthortagger.util.JavaFileFilter;
+
+/**
+ * <p>
+ * Tags the <code>.java</code> files of a module inside the Maven JVM, using
+ * the embeddable <code>AuthorTagger</code> API. The source roots of the module
+ * are taken from the reactor (compile and optionally test roots), generated
+ * sources under the build directory are left alone. Changed files are
+ * rewritten in place, atomically where the file system supports it. No
+ * backups and no report are made, the sources are expected to be under
+ * version control.
+ * </p>
+ * <p>
+ * The goal is incremental: after a run it saves a fingerprint of the
+ * configuration and of the <code>.java</code> files (paths, sizes and
+ * modification times) into the build directory, and the next run skips the
+ * module if the fingerprint is the same. Compiled configurations are cached
+ * for the whole Maven session, so modules sharing one configuration file parse
+ * it only once.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTagger
+ *
+ */
+@Mojo(name = "tag", defaultPhase = LifecyclePhase.PROCESS_SOURCES, threadSafe = true)
+public class TagMojo extends AbstractMojo {
+
+	private static final ConcurrentMap<String, AuthorTagger> TAGGERS = new ConcurrentHashMap<String, AuthorTagger>();
+
+	/**
+	 * The configuration file. Modules without it are skipped. To share one
+	 * configuration in a reactor, point it to e.g.
+	 * <code>${maven.multiModuleProjectDirectory}/.authors</code>.
+	 */
+	@Parameter(property = "authorTagger.configFile", defaultValue = "${basedir}/.authors")
+	private File configFile;
+
+	/**
+	 * The encoding of the source files.
+	 */
+	@Parameter(property = "authorTagger.encoding", defaultValue = "${project.build.sourceEncoding}")
+	private String encoding;
+
+	/**
+	 * Whether the module should be tagged even if it has not changed since the
+	 * last run.
+	 */
+	@Parameter(property = "authorTagger.force", defaultValue = "false")
+	private boolean force;
+
+	/**
+	 * Whether the test source roots should be tagged too.
+	 */
+	@Parameter(property = "authorTagger.includeTests", defaultValue = "true")
+	private boolean includeTests;
+
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
+	private MavenProject project;
+
+	/**
+	 * Whether the goal should be skipped.
+	 */
+	@Parameter(property = "authorTagger.skip", defaultValue = "false")
+	private boolean skip;
+
+	/**
+	 * The file which stores the fingerprint of the last run.
+	 */
+	@Parameter(defaultValue = "${project.build.directory}/author-tagger.state", readonly = true)
+	private File stateFile;
+
+	@Override
+	public void execute() throws MojoExecutionException {
+		if (skip) {
+			getLog().info("Skipping author tagging");
+			return;
+		}
+		if (!configFile.isFile()) {
+			getLog().info("No configuration file, skipping author tagging: " + configFile);
+			return;
+		}
+		try {
+			List<File> javaFiles = listJavaFiles();
+			String fingerprint = fingerprint(javaFiles);
+			if (!force && stateFile.isFile() && fingerprint.equals(readState())) {
+				getLog().info("Sources and configuration unchanged, skipping author tagging");
+				return;
+			}
+
+			AuthorTagger tagger = taggerFor(configFile);
+			Charset charset = Charset.forName(null == encoding ? "UTF-8" : encoding);
+			int changed = 0;
+			for (File file : javaFiles) {
+				if (tag(tagger, file, charset)) {
+					changed++;
+				}
+			}
+			getLog().info("Tagged " + javaFiles.size() + " .java files, " + changed + " changed");
+
+			writeState(fingerprint(javaFiles));
+		} catch (IOException e) {
+			throw new MojoExecutionException("Author tagging failed", e);
+		}
+	}
+
+	private void collectJavaFiles(File dir, List<File> javaFiles) {
+		File[] files = dir.listFiles(new JavaFileFilter());
+		if (null != files) {
+			for (File file : files) {
+				javaFiles.add(file);
+			}
+		}
+		File[] dirs = dir.listFiles(new DirectoryFilter());
+		if (null != dirs) {
+			for (File subDir : dirs) {
+				collectJavaFiles(subDir, javaFiles);
+			}
+		}
+	}
+
+	private String fingerprint(List<File> javaFiles) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		digest.update(Files.readAllBytes(configFile.toPath()));
+		for (File file : javaFiles) {
+			digest.update((file.getAbsolutePath() + "\t" + file.length() + "\t" + file.lastModified() + "\n")
+					.getBytes("UTF-8"));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private List<File> listJavaFiles() {
+		List<String> roots = new ArrayList<String>(project.getCompileSourceRoots());
+		if (includeTests) {
+			roots.addAll(project.getTestCompileSourceRoots());
+		}
+		String buildPath = new File(project.getBuild().getDirectory()).getAbsolutePath() + File.separator;
+		List<File> javaFiles = new ArrayList<File>();
+		for (String root : roots) {
+			File dir = new File(root);
+			if (dir.isDirectory() && !(dir.getAbsolutePath() + File.separator).startsWith(buildPath)) {
+				collectJavaFiles(dir, javaFiles);
+			}
+		}
+		Collections.sort(javaFiles);
+		return javaFiles;
+	}
+
+	private String readState() throws IOException {
+		return new String(Files.readAllBytes(stateFile.toPath()), "UTF-8").trim();
+	}
+
+	private boolean tag(AuthorTagger tagger, File file, Charset charset) throws IOException {
+		String content = new String(Files.readAllBytes(file.toPath()), charset);
+		TaggedSource result = tagger.tag(file.getPath(), content);
+		if (!result.isChanged()) {
+			return false;
+		}
+		getLog().debug("Tagged " + result.getTypeName() + " with " + result.getAuthors());
+		File temp = tempFileOf(file);
+		Files.write(temp.toPath(), result.getContent().getBytes(charset));
+		IOUtils.moveAtomically(temp, file);
+		return true;
+	}
+
+	private AuthorTagger taggerFor(File configFile) {
+		String key = configFile.getAbsolutePath() + "\t" + configFile.length() + "\t" + configFile.lastModified();
+		AuthorTagger tagger = TAGGERS.get(key);
+		if (null == tagger) {
+			tagger = AuthorTagger.builder().config(configFile).build();
+			AuthorTagger existing = TAGGERS.putIfAbsent(key, tagger);
+			if (null != existing) {
+				tagger = existing;
+			}
+		}
+		return tagger;
+	}
+
+	private void writeState(String fingerprint) throws IOException {
+		stateFile.getParentFile().mkdirs();
+		Files.write(stateFile.toPath(), fingerprint.getBytes("UTF-8"));
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.maven.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.project.MavenProject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.maven.TagMojo;
+
+/**
+ * Tests the <code>tag</code> goal on a module in the build directory, without
+ * a Maven session.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class TagMojoTest {
+
+	private static final File MODULE_DIR = new File("target/tag-mojo-test");
+	private static final String SOURCE = "package a;\n\n/**\n * Foo.\n */\npublic class Foo {\n}\n";
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (null != files) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+
+	private static void set(TagMojo mojo, String name, Object value) throws Exception {
+		Field field = TagMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes("UTF-8"));
+	}
+
+	private File configFile;
+	private File javaFile;
+	private File stateFile;
+
+	@Before
+	@After
+	public void cleanup() {
+		delete(MODULE_DIR);
+		configFile = new File(MODULE_DIR, ".authors");
+		javaFile = new File(MODULE_DIR, "src/main/java/a/Foo.java");
+		stateFile = new File(MODULE_DIR, "target/author-tagger.state");
+	}
+
+	private TagMojo mojo() throws Exception {
+		MavenProject project = new MavenProject();
+		project.getModel().setBuild(new Build());
+		project.getBuild().setDirectory(new File(MODULE_DIR, "target").getAbsolutePath());
+		project.addCompileSourceRoot(new File(MODULE_DIR, "src/main/java").getAbsolutePath());
+		TagMojo mojo = new TagMojo();
+		set(mojo, "configFile", configFile);
+		set(mojo, "encoding", "UTF-8");
+		set(mojo, "force", false);
+		set(mojo, "includeTests", true);
+		set(mojo, "project", project);
+		set(mojo, "skip", false);
+		set(mojo, "stateFile", stateFile);
+		return mojo;
+	}
+
+	@Test
+	public void skip() throws Exception {
+		write(configFile, "$**\n\t+Test Man\n");
+		write(javaFile, SOURCE);
+		TagMojo mojo = mojo();
+		set(mojo, "skip", true);
+		mojo.execute();
+		assertEquals(SOURCE, read(javaFile));
+		assertFalse(stateFile.exists());
+	}
+
+	@Test
+	public void skipWithoutConfig() throws Exception {
+		write(javaFile, SOURCE);
+		mojo().execute();
+		assertEquals(SOURCE, read(javaFile));
+		assertFalse(stateFile.exists());
+	}
+
+	@Test
+	public void tagOnlyWhenChanged() throws Exception {
+		write(configFile, "$**\n\t+Test Man\n");
+		write(javaFile, SOURCE);
+		mojo().execute();
+		String tagged = read(javaFile);
+		assertTrue(tagged.contains("@author Test Man"));
+		assertTrue(stateFile.isFile());
+
+		// unchanged sources: the state is not even rewritten
+		assertTrue(stateFile.setLastModified(0));
+		mojo().execute();
+		assertEquals(0, stateFile.lastModified());
+
+		// changed sources: tagged again
+		write(javaFile, SOURCE);
+		mojo().execute();
+		assertEquals(tagged, read(javaFile));
+		assertTrue(0 != stateFile.lastModified());
+
+		// forced run
+		assertTrue(stateFile.setLastModified(0));
+		TagMojo mojo = mojo();
+		set(mojo, "force", true);
+		mojo.execute();
+		assertTrue(0 != stateFile.lastModified());
+		assertEquals(tagged, read(javaFile));
+	}
+
+}
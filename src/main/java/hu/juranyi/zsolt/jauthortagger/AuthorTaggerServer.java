@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+
+/**
+ * <p>
+ * Long-lived server which processes <b>JAuthorTagger</b> commands in one JVM,
+ * so JVM startup, class loading (e.g. <i>Velocity</i>) and JIT warm-up are
+ * paid only once, and compiled configurations stay cached between commands.
+ * It listens on a TCP port of the loopback interface only.
+ * </p>
+ * <p>
+ * Every connection carries one command: the command line arguments in UTF-8,
+ * one per line, terminated by an empty line. Anything after the empty line is
+ * the standard input of the command (used by <code>filter</code>). The server
+ * answers with the standard output of the command (e.g. the path of the
+ * report), followed by a last line <code>exit: N</code> holding the exit code,
+ * then closes the connection. Commands on different projects run in parallel,
+ * commands on the same project one after another, also when a batch command
+ * lists the project. The command <code>--stop</code> stops the server.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see JAuthorTagger#run(String[], InputStream, PrintStream)
+ * @see AuthorTaggerConfig#forFile(File)
+ *
+ */
+public class AuthorTaggerServer {
+
+	/**
+	 * The default port.
+	 */
+	public static final int DEFAULT_PORT = 4791;
+
+	private static final int READ_TIMEOUT = 60 * 1000;
+	private static final Logger LOG = Log.forClass(AuthorTaggerServer.class);
+
+	private final int port;
+	private final ConcurrentMap<String, Lock> projectLocks = new ConcurrentHashMap<String, Lock>();
+	private volatile ServerSocket serverSocket;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param port
+	 *            - The port to listen on, or 0 to choose a free one.
+	 */
+	public AuthorTaggerServer(int port) {
+		this.port = port;
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 *
+	 * @return The port, or -1 if the server is not listening.
+	 */
+	public int getPort() {
+		ServerSocket ss = serverSocket;
+		return null == ss ? -1 : ss.getLocalPort();
+	}
+
+	/**
+	 * Opens the port, then accepts and processes commands until it is stopped.
+	 * Every connection is handled on a pooled thread. A client which sends
+	 * nothing for a minute is disconnected.
+	 *
+	 * @throws IOException
+	 *             If the port cannot be opened.
+	 */
+	public void serve() throws IOException {
+		ExecutorService executor = Executors.newCachedThreadPool();
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		LOG.info("JAuthorTagger server listening on {}:{}", serverSocket.getInetAddress().getHostAddress(),
+				serverSocket.getLocalPort());
+		try {
+			while (!serverSocket.isClosed()) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					if (serverSocket.isClosed()) {
+						break;
+					}
+					throw e;
+				}
+				executor.execute(new Runnable() {
+
+					@Override
+					public void run() {
+						handle(socket);
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			LOG.info("JAuthorTagger server stopped");
+		}
+	}
+
+	/**
+	 * Stops the server. Commands being processed are finished.
+	 */
+	public void stop() {
+		ServerSocket ss = serverSocket;
+		if (null != ss) {
+			try {
+				ss.close();
+			} catch (IOException e) {
+				LOG.warn("Error when closing server socket", e);
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try {
+			socket.setSoTimeout(READ_TIMEOUT);
+			InputStream in = socket.getInputStream();
+			PrintStream out = new PrintStream(socket.getOutputStream(), false, "UTF-8");
+			try {
+				List<String> args = new ArrayList<String>();
+				String arg;
+				while (null != (arg = readLine(in)) && !arg.isEmpty()) {
+					args.add(arg);
+				}
+				if (1 == args.size() && "--stop".equalsIgnoreCase(args.get(0))) {
+					out.println("exit: 0");
+					out.flush();
+					stop();
+					return;
+				}
+
+				long start = System.currentTimeMillis();
+				int exitCode;
+				String[] argArray = args.toArray(new String[args.size()]);
+				List<Lock> locks = args.isEmpty() ? Collections.<Lock> emptyList()
+						: locksOf(args.get(0));
+				for (Lock lock : locks) {
+					lock.lock();
+				}
+				try {
+					exitCode = JAuthorTagger.run(argArray, in, out);
+				} finally {
+					for (int i = locks.size() - 1; i >= 0; i--) {
+						locks.get(i).unlock();
+					}
+				}
+				out.println("exit: " + exitCode);
+				out.flush();
+				LOG.info("Processed {} in {} ms, exit code: {}", args, System.currentTimeMillis() - start, exitCode);
+			} finally {
+				socket.close();
+			}
+		} catch (Exception e) {
+			LOG.error("Error when processing command", e);
+		}
+	}
+
+	/**
+	 * Returns the locks of the projects named by the first argument of a
+	 * command (one project, a list or a workspace file), sorted by path, so
+	 * commands taking several of them cannot deadlock.
+	 */
+	private List<Lock> locksOf(String projectsArg) {
+		List<File> projectDirs = JAuthorTagger.projectDirsOf(projectsArg);
+		if (null == projectDirs) {
+			return Collections.emptyList(); // the command fails anyway
+		}
+		Set<String> keys = new TreeSet<String>();
+		for (File dir : projectDirs) {
+			try {
+				keys.add(dir.getCanonicalPath());
+			} catch (IOException e) {
+				keys.add(dir.getAbsolutePath());
+			}
+		}
+		List<Lock> locks = new ArrayList<Lock>(keys.size());
+		for (String key : keys) {
+			Lock lock = projectLocks.get(key);
+			if (null == lock) {
+				Lock newLock = new ReentrantLock();
+				lock = projectLocks.putIfAbsent(key, newLock);
+				if (null == lock) {
+					lock = newLock;
+				}
+			}
+			locks.add(lock);
+		}
+		return locks;
+	}
+
+	/**
+	 * Reads one UTF-8 line byte by byte, so nothing is read beyond the line
+	 * terminator, and the rest of the stream can be passed to the command.
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while (-1 != (b = in.read())) {
+			if ('\n' == b) {
+				break;
+			}
+			line.write(b);
+		}
+		if (-1 == b && 0 == line.size()) {
+			return null;
+		}
+		String s = line.toString("UTF-8");
+		return s.endsWith("\r") ? s.substring(0, s.length() - 1) : s;
+	}
+
+}
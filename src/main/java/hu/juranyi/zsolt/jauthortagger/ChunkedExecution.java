@@ -0,0 +1,238 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.runRecordOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shardRecordOf;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.ANALYZE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.APPLY;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.DIFF;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.DiffReportWriter;
+import hu.juranyi.zsolt.jauthortagger.output.RunRecordWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.Sink;
+
+/**
+ * Processes the files in chunks of <code>RunOptions.getChunkSize()</code>
+ * files: the enumerated files are collected until a chunk is full, then the
+ * stages run over the chunk one after another, like in <code>SEQUENTIAL</code>
+ * mode. The results needed by the diff report are spilled into a run record,
+ * and the chunk is dropped, so memory use does not depend on the size of the
+ * project (except the checkpoint, which keeps the files of the run).
+ *
+ * @author Zsolt Jurányi
+ * @see RunOptions#setChunkSize(int)
+ * @see RunRecordWriter
+ *
+ */
+class ChunkedExecution implements Execution {
+
+	private static final Logger LOG = Log.forClass(ChunkedExecution.class);
+
+	private final TaggingStep step;
+	private final JAuthorTagger tagger;
+	private RunRecordWriter spill;
+	private File spillFile;
+	private int fileCount;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param step
+	 *            - The step to run on the files.
+	 */
+	public ChunkedExecution(TaggingStep step) {
+		this.step = step;
+		this.tagger = step.getTagger();
+	}
+
+	/**
+	 * Processes the files chunk by chunk.
+	 *
+	 * @param diff
+	 *            - Whether diffs should be calculated.
+	 * @return An empty list, the processed files are in the run record.
+	 */
+	@Override
+	public JavaFiles execute(boolean diff) {
+		RunOptions options = tagger.getOptions();
+		final int chunkSize = options.getChunkSize();
+		LOG.info("Processing .java files in project directory in chunks of {}: {}", chunkSize,
+				tagger.getProjectDir().getAbsolutePath());
+		if (diff) {
+			spillFile = 1 < options.getShardCount() ? shardRecordOf(tagger.getProjectDir(), options.getShardIndex(),
+					options.getShardCount()) : runRecordOf(tagger.getReportFile().getParentFile());
+			try {
+				spill = new RunRecordWriter(spillFile, tagger.getProjectDir(), tagger.getBackupMode());
+			} catch (IOException e) {
+				LOG.error("Cannot create run record, no report will be generated", e);
+				diff = false;
+			}
+		}
+
+		final boolean spilled = diff;
+		final JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+		final AuthorTaggerConfig config = step.loadConfig();
+		final AuthorTagWriter w = tagger.createWriter();
+		final JavaFiles chunk = new JavaFiles(chunkSize);
+		step.enumerateJavaFiles(new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				chunk.add(javaFile);
+				if (chunkSize == chunk.size()) {
+					fileCount += processChunk(analyzer, config, w, chunk, spilled);
+					chunk.clear();
+				}
+			}
+		});
+		fileCount += processChunk(analyzer, config, w, chunk, spilled);
+		step.planComplete();
+		LOG.info("Processed {} .java files", fileCount);
+		return new JavaFiles();
+	}
+
+	/**
+	 * Returns the number of files written by <code>execute()</code>.
+	 *
+	 * @return The number of files written.
+	 */
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Tells whether the results are spilled into a run record.
+	 *
+	 * @return <code>true</code> if the diff report is generated from the run
+	 *         record.
+	 */
+	public boolean isSpilling() {
+		return null != spill;
+	}
+
+	/**
+	 * Closes the run record, and generates the diff report from it, or leaves
+	 * it as the partial report of a shard.
+	 */
+	public void report() {
+		try {
+			spill.finish();
+		} catch (IOException e) {
+			LOG.error("Error when writing run record: " + spillFile.getAbsolutePath(), e);
+			return;
+		}
+		if (1 < tagger.getOptions().getShardCount()) {
+			LOG.info("Partial report written into file: {}", spillFile.getAbsolutePath());
+		} else {
+			LOG.info("Generating diff report from run record");
+			File projectDir = tagger.getProjectDir();
+			new DiffReportWriter(projectDir, tagger.getBackupMode(), RunRecordReader.records(
+					Collections.singletonList(spillFile), projectDir), tagger.getReportFile()).writeDiffReport();
+			spillFile.delete();
+		}
+	}
+
+	/**
+	 * Writes the given file into the run record if it has changes, and drops
+	 * its diff result from memory.
+	 *
+	 * @param javaFile
+	 *            - The processed <code>JavaFile</code> object.
+	 */
+	public void spill(JavaFile javaFile) {
+		DiffResult diffResult = javaFile.getDiffResult();
+		if (null != diffResult && !diffResult.isEmpty()) {
+			try {
+				spill.write(javaFile);
+			} catch (IOException e) {
+				LOG.error("Error when writing run record: " + spillFile.getAbsolutePath(), e);
+			}
+		}
+		if (null == step.getCheckpoint()) {
+			javaFile.setDiffResult(null);
+		}
+	}
+
+	/**
+	 * Runs the stages over one chunk of files, and spills the diffs.
+	 *
+	 * @return The number of files written.
+	 */
+	private int processChunk(JavaFileAnalyzer analyzer, AuthorTaggerConfig config, AuthorTagWriter w,
+			JavaFiles chunk, boolean diff) {
+		Metrics metrics = tagger.getMetrics();
+		JavaFiles kept = chunk;
+		if (RESTORE != tagger.getBackupMode()) {
+			long started = System.nanoTime();
+			JavaFiles analyzed = new JavaFiles(chunk.size());
+			for (JavaFile javaFile : chunk) {
+				if (!step.needsAnalysis(javaFile) || step.analyze(analyzer, javaFile)) {
+					analyzed.add(javaFile);
+				}
+			}
+			metrics.stage(ANALYZE, started);
+
+			started = System.nanoTime();
+			kept = new JavaFiles(analyzed.size());
+			for (JavaFile javaFile : analyzed) {
+				if (!step.needsAnalysis(javaFile) || step.apply(config, javaFile)) {
+					kept.add(javaFile);
+				}
+			}
+			metrics.stage(APPLY, started);
+		}
+
+		long started = System.nanoTime();
+		long diffNanos = 0;
+		for (JavaFile javaFile : kept) {
+			TaggingJob job = new TaggingJob(javaFile);
+			step.writeAuthorTags(w, job, diff);
+			if (diff) {
+				long diffStarted = System.nanoTime();
+				step.calculateDiff(job);
+				spill(javaFile);
+				diffNanos += System.nanoTime() - diffStarted;
+			}
+		}
+		metrics.stage(WRITE, started + diffNanos);
+		if (diff) {
+			metrics.stage(DIFF, System.nanoTime() - diffNanos);
+		}
+		return kept.size();
+	}
+
+}
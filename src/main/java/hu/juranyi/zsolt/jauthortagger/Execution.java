@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+
+/**
+ * Schedules the work of a run on the files: it decides the order and the
+ * threads of the steps, while the steps themselves are done by a
+ * <code>TaggingStep</code>.
+ *
+ * @author Zsolt Jurányi
+ * @see ExecutionMode
+ * @see TaggingStep
+ *
+ */
+public interface Execution {
+
+	/**
+	 * Processes the files of the project.
+	 *
+	 * @param diff
+	 *            - Whether diffs should be calculated.
+	 * @return The processed <code>JavaFile</code> objects, in enumeration
+	 *         order.
+	 */
+	JavaFiles execute(boolean diff);
+
+}
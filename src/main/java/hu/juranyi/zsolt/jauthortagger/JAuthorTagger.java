@@ -19,34 +19,91 @@ package hu.juranyi.zsolt.jauthortagger;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.SHADOW;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.TEST;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.backupFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.backupStoreOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.checkpointOf;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.configFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.diffReportOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.isShardRecord;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.journalOf;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.logFileOf;
-import static hu.juranyi.zsolt.jauthortagger.model.Filenames.testFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.manifestOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.profileFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.runRecordOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shadowDirOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shadowMarkerOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shardRecordOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.tempFileOf;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.REPORT;
 
 import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 
 import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
 import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
 import hu.juranyi.zsolt.jauthortagger.input.JavaFileEnumerator;
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
 import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.ColumnarJavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
 import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Checkpoint;
+import hu.juranyi.zsolt.jauthortagger.output.ConsoleProgressWriter;
+import hu.juranyi.zsolt.jauthortagger.output.ContentTagger;
 import hu.juranyi.zsolt.jauthortagger.output.DiffReportWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Journal;
+import hu.juranyi.zsolt.jauthortagger.output.RunRecordWriter;
+import hu.juranyi.zsolt.jauthortagger.util.ArtifactCleaner;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
 import hu.juranyi.zsolt.jauthortagger.util.DiffCalculator;
 import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Manifest;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressListener;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressReporter;
+import hu.juranyi.zsolt.jauthortagger.util.ShardFilter;
+import hu.juranyi.zsolt.jauthortagger.util.Sink;
 
 /**
  * The main class of <b>JAuthorTagger</b>. This contains the simple CLI and the
- * main script.
+ * main script. The script prepares the run (recovery, backups, checkpoint,
+ * journal) and generates the report, while the files are processed by an
+ * <code>Execution</code> of the chosen execution mode, which runs a shared
+ * <code>TaggingStep</code> on them.
  *
  * @author Zsolt Jurányi
+ * @see Execution
+ * @see TaggingStep
  *
  */
 public class JAuthorTagger {
@@ -58,30 +115,101 @@ public class JAuthorTagger {
 		// Log.setLogLevel(AuthorTagWriter.class, Log.Level.WARN);
 	}
 
-	private static Logger LOG;
+	private static final Logger LOG = Log.forClass(JAuthorTagger.class);
 	private static BackupMode DEFAULT_BACKUPING_MODE = BACKUP;
 
 	/**
 	 * Implements CLI and when appropriate parameters are received, creates an
 	 * instance of <code>JAuthorTagger</code> and calls its <code>start()</code>
 	 * method. The first argument must be the path of the project to work on,
-	 * the second optional argument can override the default backup mode.
+	 * the second optional argument can override the default backup mode. Run
+	 * options can follow as arguments starting with <code>--</code>. With
+	 * <code>--server</code> as the first argument it starts the server
+	 * instead. The log of a single project is written into its log file
+	 * asynchronously, on <code>INFO</code> level by default.
 	 *
 	 * @param args
 	 *            - Command line arguments.
 	 * @see BackupMode
-	 * @see #start()
+	 * @see RunOptions
+	 * @see AuthorTaggerServer
+	 * @see #run(String[], InputStream, PrintStream)
 	 */
 	public static void main(String[] args) {
-		File projectDir = null;
+		Log.setLevel(Log.Level.INFO);
+		if (1 <= args.length
+				&& ("--server".equalsIgnoreCase(args[0]) || null != optionValue(args[0], "--server"))) {
+			String port = optionValue(args[0], "--server");
+			for (int i = 1; i < args.length; i++) {
+				String level = optionValue(args[i], "--log");
+				if (null != level && !"summary".equalsIgnoreCase(level)) {
+					try {
+						Log.setLevel(Log.Level.valueOf(level.toUpperCase()));
+					} catch (IllegalArgumentException e) {
+						System.err.println("Invalid option: " + args[i]);
+						System.exit(1);
+					}
+				}
+			}
+			try {
+				new AuthorTaggerServer(null == port ? AuthorTaggerServer.DEFAULT_PORT : Integer.parseInt(port))
+						.serve();
+			} catch (IOException e) {
+				System.err.println("Cannot start server: " + e.getMessage());
+				System.exit(1);
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid port: " + port);
+				System.exit(1);
+			}
+			return;
+		}
+
+		// init log here because log file will be project specific
+		List<File> projectDirs = 1 <= args.length ? projectDirsOf(args[0]) : null;
+		if (null != projectDirs && 1 == projectDirs.size()) {
+			Log.setLogFile(logFileOf(projectDirs.get(0)).getAbsolutePath());
+		}
+		int exitCode;
+		try {
+			exitCode = run(args, System.in, System.out);
+		} finally {
+			Log.close();
+		}
+		if (0 != exitCode) {
+			System.exit(exitCode);
+		}
+	}
+
+	/**
+	 * Processes one command line: parses the arguments like
+	 * <code>main(String[])</code> does and performs the requested operation.
+	 * It does not exit the JVM, so it can be called more times in one process
+	 * (e.g. by the server).
+	 *
+	 * @param args
+	 *            - Command line arguments.
+	 * @param in
+	 *            - The standard input of the command, used by
+	 *            <code>filter</code>.
+	 * @param out
+	 *            - The standard output of the command.
+	 * @return The exit code: 1 if the check or the filter failed, 0
+	 *         otherwise.
+	 * @see #main(String[])
+	 */
+	public static int run(String[] args, InputStream in, PrintStream out) {
+		int exitCode = 0;
+		List<File> projectDirs = null;
 		BackupMode backupMode = DEFAULT_BACKUPING_MODE;
+		String command = null;
+		String filterPath = null;
+		RunOptions options = new RunOptions();
+		Metrics metrics = new Metrics(Metrics.global());
+		Log.Level logLevel = null;
 
-		// receive project dir as 1st arg
+		// receive project dir(s) as 1st arg
 		if (args.length >= 1) {
-			projectDir = new File(args[0]);
-			if (!projectDir.exists() || !projectDir.isDirectory()) {
-				projectDir = null;
-			}
+			projectDirs = projectDirsOf(args[0]);
 		}
 
 		// receive backup mode as 2nd arg
@@ -92,33 +220,378 @@ public class JAuthorTagger {
 				backupMode = RESTORE;
 			} else if ("test".equalsIgnoreCase(args[1])) {
 				backupMode = TEST;
+			} else if ("shadow".equalsIgnoreCase(args[1])) {
+				backupMode = SHADOW;
+			} else if ("merge".equalsIgnoreCase(args[1])) {
+				command = "merge";
+			} else if ("clean".equalsIgnoreCase(args[1])) {
+				command = "clean";
+			} else if ("check".equalsIgnoreCase(args[1])) {
+				command = "check";
+			} else if ("filter".equalsIgnoreCase(args[1]) && args.length >= 3) {
+				command = "filter";
+				filterPath = args[2];
+			}
+		}
+
+		// receive run options
+		for (int i = 1; i < args.length; i++) {
+			String value;
+			try {
+				if ("--no-report".equalsIgnoreCase(args[i])) {
+					options.setDiffReport(false);
+				} else if ("--backup-store".equalsIgnoreCase(args[i])) {
+					options.setBackupStore(true);
+				} else if ("--fsync".equalsIgnoreCase(args[i])) {
+					options.setFsync(true);
+				} else if ("--checkpoint".equalsIgnoreCase(args[i])) {
+					options.setCheckpoint(true);
+				} else if ("--resume".equalsIgnoreCase(args[i])) {
+					options.setResume(true);
+				} else if ("--dry-run".equalsIgnoreCase(args[i])) {
+					options.setDryRun(true);
+				} else if ("--fail-fast".equalsIgnoreCase(args[i])) {
+					options.setFailFast(true);
+				} else if ("--profile".equalsIgnoreCase(args[i])) {
+					options.setProfile(true);
+				} else if ("--progress".equalsIgnoreCase(args[i])) {
+					options.setProgress(true);
+				} else if (null != (value = optionValue(args[i], "--progress"))) {
+					options.setProgress(true);
+					options.setProgressInterval(Math.round(Double.parseDouble(value) * 1000));
+				} else if (null != (value = optionValue(args[i], "--log"))) {
+					if ("summary".equalsIgnoreCase(value)) {
+						logLevel = Log.Level.WARN;
+						options.setLogSummary(true);
+					} else {
+						logLevel = Log.Level.valueOf(value.toUpperCase());
+					}
+				} else if (null != (value = optionValue(args[i], "--metrics"))) {
+					options.setMetricsFile(new File(value));
+				} else if (null != (value = optionValue(args[i], "--output"))) {
+					options.setOutputDir(new File(value));
+				} else if (null != (value = optionValue(args[i], "--chunk-size"))) {
+					options.setChunkSize(Integer.parseInt(value));
+				} else if (null != (value = optionValue(args[i], "--batch-size"))) {
+					options.setBatchSize(Integer.parseInt(value));
+				} else if (null != (value = optionValue(args[i], "--exec"))) {
+					options.setExecutionMode(ExecutionMode.valueOf(value.toUpperCase().replace('-', '_')));
+				} else if (null != (value = optionValue(args[i], "--threads"))) {
+					options.setThreads(Integer.parseInt(value));
+				} else if (null != (value = optionValue(args[i], "--max-open-files"))) {
+					options.setMaxOpenFiles(Integer.parseInt(value));
+				} else if (null != (value = optionValue(args[i], "--shard"))
+						|| ("--shard".equalsIgnoreCase(args[i]) && i + 1 < args.length
+								&& null != (value = args[++i]))) {
+					String[] shard = value.split("/");
+					if (2 != shard.length) {
+						throw new IllegalArgumentException();
+					}
+					options.setShard(Integer.parseInt(shard[0]), Integer.parseInt(shard[1]));
+				}
+			} catch (IllegalArgumentException e) {
+				out.println("Invalid option: " + args[i]);
+				projectDirs = null;
+			}
+		}
+		if (null != projectDirs && 1 < projectDirs.size() && null != filterPath) {
+			out.println("Filter works on one project only");
+			projectDirs = null;
+		}
+
+		// the log level of this run, other runs of the process are not affected
+		Log.Level previousLevel = null == logLevel ? null : Log.setRunLevel(logLevel);
+		try {
+			// project dir is necessary
+			if (null == projectDirs) {
+				out.println("JAuthorTagger  by  Zsolt Juranyi");
+				out.println("github.com/juzraai/author-tagger");
+				out.println("\nUsage:\n\t<project-dir> [nobackup|test|shadow|restore] [options]");
+				out.println("\t<project-dir>" + File.pathSeparator
+						+ "<project-dir>... [nobackup|test|shadow|restore|check|clean] [options]");
+				out.println("\t@<workspace-file> [nobackup|test|shadow|restore|check|clean] [options]");
+				out.println("\t<project-dir> merge");
+				out.println("\t<project-dir> clean [--dry-run] [--threads=N]");
+				out.println("\t<project-dir> check [--fail-fast] [--shard=I/N]");
+				out.println("\t<project-dir> filter <path>  < input  > output");
+				out.println("\t--server[=PORT]");
+				out.println("\nJAuthorTagger will create backup files unless you provide the 2nd argument.");
+				out.println("More projects can be processed in one run, listed in the 1st argument or in a");
+				out.println("workspace file (one directory per line), in parallel (see --threads).");
+				out.println("\nWhen 'nobackup' is present, previous backup files will be deleted.");
+				out.println("When 'test' is present, no modification will be made to your files, new ones");
+				out.println("will be created instead.");
+				out.println("When 'shadow' is present, no modification will be made to your files, modified");
+				out.println("files will be written into a separate output directory (see --output).");
+				out.println("When 'restore' is present, backups from the previous run will be restored.");
+				out.println("When 'merge' is present, the partial reports of a sharded run will be merged.");
+				out.println("When 'clean' is present, every file made by JAuthorTagger will be deleted,");
+				out.println("including backups, except the configuration, the log and the report.");
+				out.println("When 'check' is present, nothing will be written, the exit code will be 1 if");
+				out.println("the authors of any file differ from the configuration.");
+				out.println("When 'filter' is present, the content of the file at the given path (relative");
+				out.println("to the project) is read from stdin, and the tagged content is written to stdout.");
+				out.println("When '--server' is present, commands are received on a local TCP port (default");
+				out.println(AuthorTaggerServer.DEFAULT_PORT + "), one per connection, and processed in this JVM.");
+				out.println("\nOptions:");
+				out.println("\t--no-report           no diff calculation and no report");
+				out.println("\t--backup-store        backup changed files into one compressed store");
+				out.println("\t--output=DIR          output directory of shadow mode");
+				out.println("\t--log=LEVEL           log level: trace, debug, info (default), warn, error");
+				out.println("\t--log=summary         log only warnings, errors and a summary at the end");
+				out.println("\t--metrics=FILE        export metrics of the run as a Prometheus textfile");
+				out.println("\t--exec=pipeline       run the stages overlapped, in a pipeline");
+				out.println("\t--exec=per-file       process every file on its own (virtual) thread");
+				out.println("\t--threads=N           worker threads per stage in pipeline mode");
+				out.println("\t--max-open-files=N    files processed at the same time in per-file mode");
+				out.println("\t--shard=I/N           process only the I-th of N disjoint parts of the files");
+				out.println("\t--chunk-size=N        bounded memory: process N files at a time, spill results");
+				out.println("\t--batch-size=N        files committed together by the journal");
+				out.println("\t--fsync               force written files to the disk at every commit");
+				out.println("\t--dry-run             clean: only count the files to delete");
+				out.println("\t--fail-fast           check: stop at the first file tagged incorrectly");
+				out.println("\t--checkpoint          save progress, so an interrupted run can be resumed");
+				out.println("\t--resume              continue the interrupted run from its checkpoint");
+				out.println("\t--profile             record the run with Java Flight Recorder");
+				out.println("\t--progress[=SECONDS]  print progress, throughput and ETA (default: every 5 s)");
+				out.println("\nSee full documentation on GitHub!");
+			} else {
+				// the output of filter is the content, messages go to stderr
+				PrintStream messages = "filter".equals(command) ? System.err : out;
+				Profiler.Recording recording = null;
+				if (options.isProfile()) {
+					recording = Profiler.record();
+					if (null == recording) {
+						messages.println("Profiling needs Java Flight Recorder (JDK 11+), continuing without it");
+					}
+				}
+				ProgressReporter reporter = null;
+				if (null == command && options.isProgress()) {
+					reporter = new ProgressReporter(metrics, options.getProgressInterval(),
+							Collections.<ProgressListener> singletonList(new ConsoleProgressWriter(out)));
+					reporter.start();
+				}
+				File profileDir;
+				try {
+					if (1 == projectDirs.size()) {
+						// do the magic
+						exitCode = runProject(projectDirs.get(0), command, filterPath, backupMode, options, metrics, in,
+								out);
+						profileDir = projectDirs.get(0);
+					} else {
+						exitCode = runBatch(projectDirs, command, backupMode, options, metrics, out);
+						profileDir = new File(".");
+					}
+				} finally {
+					if (null != reporter) {
+						reporter.close();
+					}
+				}
+				if (null != recording) {
+					File profileFile = profileFileOf(profileDir);
+					try {
+						recording.dump(profileFile);
+						messages.println("Profile: " + profileFile.getAbsolutePath());
+					} catch (IOException e) {
+						LOG.error("Cannot write flight recording: " + profileFile.getAbsolutePath(), e);
+					}
+				}
+			}
+			if (null != projectDirs && null == command && options.isLogSummary()) {
+				logSummary(metrics);
+			}
+			if (null != projectDirs && null == command && null != options.getMetricsFile()) {
+				try {
+					metrics.writeTextFile(options.getMetricsFile(), backupMode.name().toLowerCase());
+				} catch (IOException e) {
+					LOG.error("Cannot write metrics file: " + options.getMetricsFile().getAbsolutePath(), e);
+				}
 			}
+		} finally {
+			if (null != logLevel) {
+				Log.restoreRunLevel(previousLevel);
+			}
+		}
+		out.flush();
+		return exitCode;
+	}
+
+	/**
+	 * Logs the counters of the run and the files and wall time of its stages,
+	 * one line each, regardless of the log level.
+	 */
+	private static void logSummary(Metrics metrics) {
+		for (Metrics.Counter counter : Metrics.Counter.values()) {
+			Log.summary(LOG, String.format(Locale.ROOT, "Summary: %s = %d", counter.name().toLowerCase(), metrics.get(counter)));
 		}
+		for (Metrics.Stage stage : Metrics.Stage.values()) {
+			Log.summary(LOG, String.format(Locale.ROOT, "Summary: %s stage, %d files, %.3f s", stage.name().toLowerCase(),
+					metrics.getFileCount(stage), metrics.getStageNanos(stage) / 1e9));
+		}
+	}
 
-		// project dir is necessary
-		if (null == projectDir) {
-			System.out.println("JAuthorTagger  by  Zsolt Juranyi");
-			System.out.println("github.com/juzraai/author-tagger");
-			System.out.println("\nUsage:\n\t<project-dir> [nobackup|test|restore]");
-			System.out.println("\nJAuthorTagger will create backup files unless you provide the 2nd argument.");
-			System.out.println("\nWhen 'nobackup' is present, previous backup files will be deleted.");
-			System.out.println("When 'test' is present, no modification will be made to your files, new ones");
-			System.out.println("will be created instead.");
-			System.out.println("When 'restore' is present, backups from the previous run will be restored.");
-			System.out.println("\nSee full documentation on GitHub!");
+	/**
+	 * Parses the first command line argument: a project directory, more
+	 * project directories separated by the path separator of the platform, or
+	 * <code>@</code> and the path of a workspace file. The workspace file
+	 * lists the project directories one per line, relative paths are resolved
+	 * against the directory of the workspace file, empty lines and lines
+	 * starting with <code>#</code> are skipped.
+	 *
+	 * @param arg
+	 *            - The first command line argument.
+	 * @return The project directories, or <code>null</code> if any of them is
+	 *         not an existing directory.
+	 */
+	static List<File> projectDirsOf(String arg) {
+		List<File> projectDirs = new ArrayList<File>();
+		if (arg.startsWith("@")) {
+			File workspaceFile = new File(arg.substring(1));
+			try {
+				for (String line : Files.readAllLines(workspaceFile.toPath(), StandardCharsets.UTF_8)) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#")) {
+						File dir = new File(line);
+						projectDirs.add(dir.isAbsolute() ? dir : new File(workspaceFile.getAbsoluteFile()
+								.getParentFile(), line));
+					}
+				}
+			} catch (IOException e) {
+				return null;
+			}
+		} else if (new File(arg).isDirectory()) {
+			projectDirs.add(new File(arg));
 		} else {
+			for (String path : arg.split(Pattern.quote(File.pathSeparator))) {
+				if (!path.isEmpty()) {
+					projectDirs.add(new File(path));
+				}
+			}
+		}
+		for (File dir : projectDirs) {
+			if (!dir.isDirectory()) {
+				return null;
+			}
+		}
+		return projectDirs.isEmpty() ? null : projectDirs;
+	}
 
-			// init log here because log file will be project specific
-			Log.setLogFile(logFileOf(projectDir).getAbsolutePath());
-			LOG = Log.forClass(JAuthorTagger.class);
+	/**
+	 * Processes more projects in one JVM, in parallel on a shared pool of
+	 * worker threads (see <code>RunOptions.getThreads()</code>). Compiled
+	 * configurations, filters and author names are shared between the
+	 * projects. The logs go to the standard error instead of the project
+	 * directories. The metrics of the projects are recorded together.
+	 *
+	 * @return The highest exit code of the projects.
+	 * @see #runProject(File, String, String, BackupMode, RunOptions, Metrics,
+	 *      InputStream, PrintStream)
+	 */
+	private static int runBatch(List<File> projectDirs, final String command, final BackupMode backupMode,
+			final RunOptions options, final Metrics metrics, final PrintStream out) {
+		LOG.info("Processing {} projects on {} threads", projectDirs.size(), options.getThreads());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(options.getThreads(), projectDirs.size()));
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		for (final File projectDir : projectDirs) {
+			results.add(executor.submit(new Callable<Integer>() {
 
-			// do the magic
-			new JAuthorTagger(projectDir, backupMode).start();
+				@Override
+				public Integer call() {
+					try {
+						return runProject(projectDir, command, null, backupMode, options, metrics, null, out);
+					} catch (RuntimeException e) {
+						LOG.error("Error when processing project: " + projectDir.getAbsolutePath(), e);
+						out.println("Failed: " + projectDir.getAbsolutePath());
+						return 1;
+					}
+				}
+			}));
 		}
+		executor.shutdown();
+		int exitCode = 0;
+		for (Future<Integer> result : results) {
+			try {
+				exitCode = Math.max(exitCode, result.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return 1;
+			} catch (ExecutionException e) {
+				exitCode = 1;
+			}
+		}
+		return exitCode;
+	}
+
+	/**
+	 * Performs the requested operation on one project.
+	 *
+	 * @param command
+	 *            - <code>merge</code>, <code>filter</code>, <code>check</code>,
+	 *            <code>clean</code>, or <code>null</code> to run the tagger in
+	 *            the given backup mode.
+	 * @param metrics
+	 *            - The metrics to record the tagging run into.
+	 * @return The exit code.
+	 * @see #run(String[], InputStream, PrintStream)
+	 */
+	private static int runProject(File projectDir, String command, String filterPath, BackupMode backupMode,
+			RunOptions options, Metrics metrics, InputStream in, PrintStream out) {
+		if ("merge".equals(command)) {
+			new JAuthorTagger(projectDir).mergeShardRecords();
+		} else if ("filter".equals(command)) {
+			File file = new File(filterPath);
+			if (!file.isAbsolute()) {
+				file = new File(projectDir, filterPath);
+			}
+			if (!new JAuthorTagger(projectDir, DEFAULT_BACKUPING_MODE, options).filter(file, in, out)) {
+				return 1;
+			}
+		} else if ("check".equals(command)) {
+			JavaFiles mismatches = new JAuthorTagger(projectDir, DEFAULT_BACKUPING_MODE, options).check();
+			for (JavaFile javaFile : mismatches) {
+				out.println("Not tagged correctly: " + javaFile.getFile().getPath() + " (expected: "
+						+ javaFile.getAuthors() + ")");
+			}
+			if (!mismatches.isEmpty()) {
+				return 1;
+			}
+		} else if ("clean".equals(command)) {
+			ArtifactCleaner c = new JAuthorTagger(projectDir, DEFAULT_BACKUPING_MODE, options).clean();
+			out.println((c.isDryRun() ? "Would delete " : "Deleted ") + c.getCount() + " files (" + c.getBytes()
+					+ " bytes)" + (0 < c.getFailed() ? ", " + c.getFailed() + " failed" : ""));
+		} else {
+			JAuthorTagger tagger = new JAuthorTagger(projectDir, backupMode, options, metrics);
+			tagger.start();
+			File reportFile = tagger.getReportFile();
+			if (null != reportFile && reportFile.exists()) {
+				out.println("Report: " + reportFile.getAbsolutePath());
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the value of a <code>--name=value</code> style command line
+	 * argument.
+	 *
+	 * @param arg
+	 *            - The command line argument.
+	 * @param name
+	 *            - The name of the option, with leading dashes.
+	 * @return The value if the argument is the given option,
+	 *         <code>null</code> otherwise.
+	 */
+	private static String optionValue(String arg, String name) {
+		String prefix = name + "=";
+		return arg.toLowerCase().startsWith(prefix) ? arg.substring(prefix.length()) : null;
 	}
 
 	private final File projectDir;
 	private final BackupMode backupMode;
+	private final RunOptions options;
+	private final Metrics metrics;
+	private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<ProgressListener>();
+	private BackupStore backupStore;
 
 	/**
 	 * Creates an instance.
@@ -140,11 +613,59 @@ public class JAuthorTagger {
 	 * @see BackupMode
 	 */
 	public JAuthorTagger(File projectDir, BackupMode backupMode) {
+		this(projectDir, backupMode, new RunOptions());
+	}
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param projectDir
+	 *            - The directory of the project to work on.
+	 * @param backupMode
+	 *            - The backup mode.
+	 * @param options
+	 *            - The run options.
+	 * @see BackupMode
+	 * @see RunOptions
+	 */
+	public JAuthorTagger(File projectDir, BackupMode backupMode, RunOptions options) {
+		this(projectDir, backupMode, options, new Metrics(Metrics.global()));
+	}
+
+	/**
+	 * Creates an instance which records its metrics into the given object,
+	 * e.g. one shared by more runs.
+	 *
+	 * @param projectDir
+	 *            - The directory of the project to work on.
+	 * @param backupMode
+	 *            - The backup mode.
+	 * @param options
+	 *            - The run options.
+	 * @param metrics
+	 *            - The metrics to record into.
+	 * @see BackupMode
+	 * @see RunOptions
+	 * @see Metrics
+	 */
+	public JAuthorTagger(File projectDir, BackupMode backupMode, RunOptions options, Metrics metrics) {
 		this.projectDir = projectDir;
 		this.backupMode = backupMode;
-		if (null == LOG) {
-			LOG = Log.forClass(JAuthorTagger.class);
-		}
+		this.options = options;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Adds a listener which receives the progress of <code>start()</code>
+	 * periodically (see <code>RunOptions.getProgressInterval()</code>) and
+	 * its final state at the end.
+	 *
+	 * @param listener
+	 *            - The listener.
+	 * @see ProgressReporter
+	 */
+	public void addProgressListener(ProgressListener listener) {
+		progressListeners.add(listener);
 	}
 
 	/**
@@ -156,6 +677,48 @@ public class JAuthorTagger {
 		return backupMode;
 	}
 
+	/**
+	 * Returns the metrics recorded by <code>start()</code>.
+	 *
+	 * @return The metrics.
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the run options.
+	 *
+	 * @return The run options.
+	 */
+	public RunOptions getOptions() {
+		return options;
+	}
+
+	/**
+	 * Returns the output directory of <code>SHADOW</code> mode: the one given
+	 * in the run options, or the default one inside the project directory.
+	 *
+	 * @return The output directory.
+	 * @see RunOptions#getOutputDir()
+	 */
+	public File getOutputDir() {
+		return null == options.getOutputDir() ? shadowDirOf(projectDir) : options.getOutputDir();
+	}
+
+	/**
+	 * Returns the diff report file written by <code>start()</code>.
+	 *
+	 * @return The report file, or <code>null</code> if no report is written
+	 *         by this run.
+	 */
+	public File getReportFile() {
+		if (RESTORE == backupMode || !options.isDiffReport() || 1 < options.getShardCount()) {
+			return null;
+		}
+		return diffReportOf(SHADOW == backupMode ? getOutputDir() : projectDir);
+	}
+
 	/**
 	 * Returns the project directory.
 	 *
@@ -171,56 +734,594 @@ public class JAuthorTagger {
 	 * <code>RESTORE</code>, analyzes the files by parsing existing author tags,
 	 * then loads and applies the configuration on them. After that, it calls
 	 * the tagger magic to inject new authors (or restore backups), and
-	 * calculates diff on-the-fly. Finally it exports the diff report.
+	 * calculates diff on-the-fly from the lines the tagger read and wrote.
+	 * Finally it exports the diff report. Diff calculation and the report are
+	 * skipped in <code>RESTORE</code> mode and when they are turned off in the
+	 * run options. Depending on the execution mode, the stages run one after
+	 * another or overlapped in a pipeline. In a sharded run only a part of the
+	 * files is processed, and a partial report is written instead, which can
+	 * be merged with the others later. In <code>SHADOW</code> mode the
+	 * modified files and the report go into the output directory. In
+	 * <code>RESTORE</code> mode the files are restored in parallel from the
+	 * backup store and the manifest of the project if they exist, without
+	 * enumerating the source tree. When checkpointing is turned on, the
+	 * progress is saved at every journal commit, and a resumed run continues
+	 * from the saved progress. In bounded-memory mode the files are processed
+	 * in chunks, and the results are spilled into a run record, which the
+	 * report is generated from. The progress is reported to the progress
+	 * listeners while it runs.
 	 *
 	 * @see BackupMode
+	 * @see ExecutionMode
+	 * @see RunOptions
 	 * @see JavaFile
 	 * @see JavaFileEnumerator
 	 * @see JavaFileAnalyzer
 	 * @see AuthorTaggerConfig
 	 * @see DiffCalculator
 	 * @see DiffReportWriter
+	 * @see #mergeShardRecords()
+	 * @see #addProgressListener(ProgressListener)
 	 */
 	public void start() {
+		ProgressReporter reporter = null;
+		if (!progressListeners.isEmpty()) {
+			reporter = new ProgressReporter(metrics, options.getProgressInterval(), progressListeners);
+			reporter.start();
+		}
+		try {
+			tag();
+		} finally {
+			if (null != reporter) {
+				reporter.close();
+			}
+		}
+	}
+
+	private void tag() {
 		LOG.info("JAuthorTagger running in {} mode", backupMode);
+		long started = System.nanoTime();
+		Profiler.Span span = Profiler.stage("run");
+		boolean diff = RESTORE != backupMode && options.isDiffReport();
+
+		final List<File> recovered = new ArrayList<File>();
+		if (Journal.exists(projectDir) && !Journal.recover(projectDir, new Journal.Listener() {
+
+			@Override
+			public void committed(List<File> files) {
+				recovered.addAll(files);
+			}
+		})) {
+			LOG.error("Cannot recover from the interrupted previous run, nothing has been modified");
+			return;
+		}
+		if (RESTORE == backupMode && (BackupStore.exists(projectDir) || Manifest.exists(projectDir))) {
+			if (BackupStore.exists(projectDir)) {
+				restoreFromBackupStore();
+			}
+			if (Manifest.exists(projectDir)) {
+				restoreFromManifest();
+			}
+			metrics.run(started);
+			LOG.info("Done!");
+			return;
+		}
+		Manifest manifest = null;
+		Checkpoint checkpoint = null;
+		Journal journal = null;
+		if (BACKUP == backupMode && options.isBackupStore()) {
+			try {
+				backupStore = new BackupStore(projectDir);
+			} catch (IOException e) {
+				LOG.error("Cannot open backup store, nothing has been modified", e);
+				return;
+			}
+		} else if (BACKUP == backupMode) {
+			manifest = new Manifest(projectDir);
+		} else if (NO_BACKUP == backupMode) {
+			manifestOf(projectDir).delete(); // backups are deleted
+			BackupStore.drop(projectDir);
+		}
+		if (SHADOW == backupMode && !prepareOutputDir()) {
+			return;
+		}
+		if (SHADOW == backupMode && (options.isCheckpoint() || options.isResume())) {
+			LOG.warn("Checkpoints are not used in SHADOW mode, the output directory is rewritten anyway");
+		} else if (RESTORE != backupMode && (options.isCheckpoint() || options.isResume())) {
+			try {
+				checkpoint = new Checkpoint(projectDir, backupMode, options.isResume(), recovered);
+			} catch (IOException e) {
+				LOG.error("Cannot open checkpoint, nothing has been modified", e);
+				return;
+			}
+		}
+		if (RESTORE != backupMode && SHADOW != backupMode) {
+			try {
+				journal = new Journal(projectDir, createWriter(),
+						options.getBatchSize(), options.isFsync(), checkpoint);
+			} catch (IOException e) {
+				LOG.error("Cannot create journal, nothing has been modified", e);
+				return;
+			}
+		}
+
+		TaggingStep step = createStep(backupStore, manifest, journal, checkpoint);
+		ChunkedExecution chunked = 0 < options.getChunkSize() ? new ChunkedExecution(step) : null;
+		JavaFiles javaFiles = (null != chunked ? chunked : createExecution(step)).execute(diff);
+		boolean spilled = null != chunked && chunked.isSpilling();
 
-		LOG.info("Enumerating .java files in project directory: {}", projectDir.getAbsolutePath());
-		JavaFiles javaFiles = new JavaFileEnumerator().enumerateJavaFiles(new File(projectDir, "src"));
+		if (null != journal) {
+			try {
+				journal.finish();
+				if (null != checkpoint) {
+					JavaFiles all = new JavaFiles();
+					for (JavaFile javaFile : checkpoint.getDone()) {
+						if (diff && null == javaFile.getDiffResult()) {
+							step.recalculateDiff(javaFile); // rolled forward by recovery
+						}
+						if (spilled) {
+							chunked.spill(javaFile);
+						} else if (null != javaFile.getDiffResult()) {
+							all.add(javaFile); // done by the interrupted run
+						}
+					}
+					all.addAll(javaFiles);
+					javaFiles = all;
+					checkpoint.delete();
+				}
+			} catch (IOException e) {
+				LOG.error("Error when committing the last files, they will be committed by the next run", e);
+			}
+		}
 
-		if (RESTORE != backupMode) {
-			LOG.info("Analyzing {} .java files", javaFiles.size());
-			new JavaFileAnalyzer().analyzeJavaFiles(javaFiles);
+		if (null != backupStore) {
+			try {
+				backupStore.close();
+			} catch (IOException e) {
+				LOG.error("Error when closing backup store", e);
+			}
+		}
+		if (null != manifest) {
+			try {
+				manifest.close();
+			} catch (IOException e) {
+				LOG.error("Error when closing manifest", e);
+			}
+		}
 
-			LOG.info("Reading project configuration and tagging (in memory)");
-			new AuthorTaggerConfig(configFileOf(projectDir)).loadAndApply(javaFiles);
+		long reporting = System.nanoTime();
+		if (spilled) {
+			chunked.report();
+		} else if (diff && 1 < options.getShardCount()) {
+			writeShardRecord(javaFiles);
+		} else if (diff) {
+			LOG.info("Generating diff report");
+			new DiffReportWriter(projectDir, backupMode, javaFiles, getReportFile()).writeDiffReport();
+		}
+		if (diff) {
+			metrics.stage(REPORT, reporting);
+		}
 
-			LOG.info("Writing to disk");
-		} else {
-			LOG.info("Restoring backup files");
+		metrics.run(started);
+		span.finish(projectDir.getPath(), null != chunked ? chunked.getFileCount() : javaFiles.size());
+		LOG.info("Done!");
+	}
+
+	/**
+	 * Merges the partial run records written by the shards of a sharded run
+	 * and generates the diff report from them. Records are merged in shard
+	 * order, and streamed into the report one by one. All records must come
+	 * from a run with the same shard count and backup mode.
+	 *
+	 * @return <code>true</code> if the report was generated.
+	 * @see RunOptions#setShard(int, int)
+	 * @see RunRecordReader
+	 * @see DiffReportWriter
+	 */
+	public boolean mergeShardRecords() {
+		File[] recordFiles = projectDir.listFiles(new FileFilter() {
+
+			@Override
+			public boolean accept(File f) {
+				return f.isFile() && isShardRecord(f);
+			}
+		});
+		if (null == recordFiles || 0 == recordFiles.length) {
+			LOG.error("No partial reports found in project directory: {}", projectDir.getAbsolutePath());
+			return false;
+		}
+		Arrays.sort(recordFiles, new Comparator<File>() {
+
+			@Override
+			public int compare(File f1, File f2) {
+				return Integer.compare(shardIndexOf(f1), shardIndexOf(f2));
+			}
+		});
+
+		int shardCount = shardCountOf(recordFiles[0]);
+		BackupMode mergedMode = null;
+		for (File recordFile : recordFiles) {
+			if (shardCount != shardCountOf(recordFile)) {
+				LOG.error("Partial reports of runs with different shard counts found, delete the stale ones");
+				return false;
+			}
+			try (RunRecordReader r = new RunRecordReader(recordFile, projectDir)) {
+				if (null != mergedMode && mergedMode != r.getBackupMode()) {
+					LOG.error("Partial reports of runs with different backup modes found");
+					return false;
+				}
+				mergedMode = r.getBackupMode();
+			} catch (IOException e) {
+				LOG.error("Error when reading partial report: " + recordFile.getAbsolutePath(), e);
+				return false;
+			}
+		}
+		if (shardCount != recordFiles.length) {
+			LOG.warn("Only {} of {} partial reports found, the report will be incomplete", recordFiles.length,
+					shardCount);
 		}
 
-		AuthorTagWriter w = new AuthorTagWriter(backupMode);
+		LOG.info("Generating diff report from {} partial reports", recordFiles.length);
+		new DiffReportWriter(projectDir, mergedMode, RunRecordReader.records(Arrays.asList(recordFiles),
+				projectDir), diffReportOf(projectDir)).writeDiffReport();
+		return true;
+	}
+
+	/**
+	 * Tags the content of one <code>.java</code> file read from the given
+	 * input stream, and writes the result into the given output stream. No
+	 * file is read or written except the configuration. Both streams use
+	 * UTF-8 encoding.
+	 *
+	 * @param file
+	 *            - The logical path of the content, used for naming.
+	 * @param in
+	 *            - The input stream of the original content.
+	 * @param out
+	 *            - The output stream of the modified content.
+	 * @return <code>true</code> if the content was processed successfully.
+	 * @see ContentTagger
+	 */
+	public boolean filter(File file, InputStream in, OutputStream out) {
+		try {
+			ContentTagger tagger = new ContentTagger(AuthorTaggerConfig.forFile(configFileOf(projectDir)));
+			tagger.tag(file, new InputStreamReader(in, StandardCharsets.UTF_8),
+					new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			return true;
+		} catch (IOException e) {
+			LOG.error("Error while filtering content of file: " + file.getPath(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * Checks whether the project is tagged according to its configuration,
+	 * without writing anything. Every file is analyzed, the configuration is
+	 * applied on it, and the resulting author list is compared with the one
+	 * found in the file. Only the author lists are compared, the layout of the
+	 * javadoc is not. The check stops at the first mismatch when fail-fast is
+	 * turned on in the run options. In a sharded run only the files of the
+	 * current shard are checked.
+	 *
+	 * @return The <code>JavaFile</code> objects whose authors differ, with the
+	 *         expected authors.
+	 * @see RunOptions#setFailFast(boolean)
+	 */
+	public JavaFiles check() {
+		LOG.info("Checking .java files in project directory: {}", projectDir.getAbsolutePath());
+		final ColumnarJavaFiles javaFiles = new ColumnarJavaFiles(); // compact until checked
+		createEnumerator().enumerateJavaFiles(new File(projectDir, "src"), new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				javaFiles.add(javaFile);
+			}
+		});
+		JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+		AuthorTaggerConfig config = AuthorTaggerConfig.forFile(configFileOf(projectDir));
+		config.load();
+
+		JavaFiles mismatches = new JavaFiles();
+		int checked = 0;
 		for (JavaFile javaFile : javaFiles) {
+			if (!analyzer.analyzeJavaFile(javaFile)) {
+				continue;
+			}
+			List<String> found = new ArrayList<String>(javaFile.getAuthors());
+			if (!config.apply(javaFile)) {
+				continue;
+			}
+			checked++;
+			if (!found.equals(javaFile.getAuthors())) {
+				LOG.warn("Not tagged correctly: {} has {} instead of {}", javaFile.getTypeName(), found,
+						javaFile.getAuthors());
+				mismatches.add(javaFile);
+				if (options.isFailFast()) {
+					break;
+				}
+			}
+		}
+		LOG.info("Checked {} .java files, {} not tagged correctly", checked, mismatches.size());
+		return mismatches;
+	}
 
-			// pre-read original content for diff calculation
-			List<String> originalContent = IOUtils.fileToStringList(javaFile.getFile());
+	/**
+	 * Deletes every file made by <b>JAuthorTagger</b> in the project: the
+	 * sidecar files in the source tree (orphans included), the backup store,
+	 * the manifest, the checkpoint, partial reports and the default output
+	 * directory of <code>SHADOW</code> mode. The configuration, the log and
+	 * the diff report are kept. The source tree is walked in parallel. An
+	 * interrupted run is recovered from its journal first, so no temporary
+	 * file is deleted which is still needed. In dry-run mode nothing is
+	 * deleted or recovered, the files are only counted.
+	 *
+	 * @return The cleaner holding the counters.
+	 * @see ArtifactCleaner
+	 * @see RunOptions#setDryRun(boolean)
+	 */
+	public ArtifactCleaner clean() {
+		ArtifactCleaner cleaner = new ArtifactCleaner(options.getThreads(), options.isDryRun());
+		if (!cleaner.isDryRun() && Journal.exists(projectDir) && !Journal.recover(projectDir, null)) {
+			LOG.error("Cannot recover from the interrupted previous run, nothing has been deleted");
+			return cleaner;
+		}
 
-			// do magic (author tagging or restoring)
-			w.writeAuthorTags(javaFile);
+		LOG.info("Cleaning source tree{}: {}", cleaner.isDryRun() ? " (dry run)" : "", projectDir.getAbsolutePath());
+		cleaner.clean(new File(projectDir, "src"));
+		File[] shardRecords = projectDir.listFiles(new FileFilter() {
 
-			// read output and calculate diff
-			File originalFile = (BACKUP == backupMode) ? backupFileOf(javaFile.getFile()) : javaFile.getFile();
-			File modifiedFile = (TEST == backupMode) ? testFileOf(javaFile.getFile()) : javaFile.getFile();
-			List<String> modifiedContent = IOUtils.fileToStringList(modifiedFile);
-			DiffCalculator dc = new DiffCalculator(originalFile, modifiedFile, originalContent, modifiedContent);
-			javaFile.setDiffResult(dc.calculateDiff());
+			@Override
+			public boolean accept(File f) {
+				return f.isFile() && isShardRecord(f);
+			}
+		});
+		for (File f : null == shardRecords ? new File[0] : shardRecords) {
+			cleaner.remove(f);
 		}
+		for (File f : new File[] { backupStoreOf(projectDir), manifestOf(projectDir), journalOf(projectDir),
+				checkpointOf(projectDir, "plan"), checkpointOf(projectDir, "done"),
+				tempFileOf(checkpointOf(projectDir, "done")), runRecordOf(projectDir), shadowDirOf(projectDir) }) {
+			cleaner.remove(f);
+		}
+		LOG.info("{} {} files ({} bytes){}", cleaner.isDryRun() ? "Would delete" : "Deleted", cleaner.getCount(),
+				cleaner.getBytes(), 0 < cleaner.getFailed() ? ", " + cleaner.getFailed() + " failed" : "");
+		return cleaner;
+	}
 
-		if (RESTORE != backupMode) {
-			LOG.info("Generating diff report");
-			new DiffReportWriter(projectDir, backupMode, javaFiles).writeDiffReport();
+	private static int shardCountOf(File recordFile) {
+		String name = recordFile.getName();
+		return Integer.parseInt(name.substring(name.lastIndexOf('-') + 1));
+	}
+
+	private static int shardIndexOf(File recordFile) {
+		String[] parts = recordFile.getName().split("-");
+		return Integer.parseInt(parts[parts.length - 3]);
+	}
+
+	/**
+	 * Prepares the output directory of <code>SHADOW</code> mode. The output of
+	 * a previous run is deleted with the directory at once, and a marker file
+	 * is created in the new one. A directory which has other contents or lies
+	 * inside the source tree is refused.
+	 *
+	 * @return <code>true</code> if the output directory is ready.
+	 */
+	protected boolean prepareOutputDir() {
+		File outputDir = getOutputDir();
+		String srcPath = new File(projectDir, "src").getAbsolutePath();
+		if ((outputDir.getAbsolutePath() + File.separator).startsWith(srcPath + File.separator)) {
+			LOG.error("Output directory cannot be inside the source tree: {}", outputDir.getAbsolutePath());
+			return false;
+		}
+		String[] names = outputDir.list();
+		if (null != names && 0 < names.length && !shadowMarkerOf(outputDir).exists()) {
+			LOG.error("Output directory is not empty: {}", outputDir.getAbsolutePath());
+			return false;
 		}
+		try {
+			IOUtils.deleteRecursively(outputDir);
+			outputDir.mkdirs();
+			if (!shadowMarkerOf(outputDir).createNewFile()) {
+				throw new IOException("Cannot create marker file in output directory");
+			}
+		} catch (IOException e) {
+			LOG.error("Cannot prepare output directory: " + outputDir.getAbsolutePath(), e);
+			return false;
+		}
+		LOG.info("Writing modified files into output directory: {}", outputDir.getAbsolutePath());
+		return true;
+	}
 
-		LOG.info("Done!");
+	/**
+	 * Restores all files from the backup store of the project in parallel,
+	 * then deletes the store. Only the files in the store are touched, the
+	 * source tree is not enumerated.
+	 *
+	 * @see BackupStore
+	 */
+	protected void restoreFromBackupStore() {
+		try {
+			final BackupStore store = new BackupStore(projectDir);
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (final BackupStore.Entry entry : store.getEntries()) {
+				tasks.add(new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						store.restore(entry);
+						return null;
+					}
+				});
+			}
+			LOG.info("Restoring {} files from backup store", tasks.size());
+			int failed = runInParallel(tasks);
+			if (0 == failed) {
+				store.delete();
+			} else {
+				LOG.warn("{} files could not be restored, backup store is kept", failed);
+				store.close();
+			}
+		} catch (IOException e) {
+			LOG.error("Error when reading backup store", e);
+		}
+	}
+
+	/**
+	 * Restores the <code>.at-save</code> files listed in the manifest of the
+	 * project in parallel, then deletes the manifest. The source tree is not
+	 * enumerated. Files whose backup has already been deleted are skipped.
+	 *
+	 * @see Manifest
+	 */
+	protected void restoreFromManifest() {
+		try {
+			Manifest m = new Manifest(projectDir);
+			final AuthorTagWriter w = new AuthorTagWriter(RESTORE);
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (final File file : m.read()) {
+				tasks.add(new Callable<Void>() {
+
+					@Override
+					public Void call() throws IOException {
+						if (!w.writeAuthorTags(new JavaFile(file)) && backupFileOf(file).exists()) {
+							throw new IOException("Cannot restore file: " + file.getAbsolutePath());
+						}
+						return null;
+					}
+				});
+			}
+			LOG.info("Restoring {} files listed in manifest", tasks.size());
+			int failed = runInParallel(tasks);
+			if (0 == failed) {
+				m.delete();
+			} else {
+				LOG.warn("{} files could not be restored, manifest is kept", failed);
+			}
+		} catch (IOException e) {
+			LOG.error("Error when reading manifest", e);
+		}
+	}
+
+	/**
+	 * Runs the given tasks on a thread pool of the configured size and waits
+	 * for them.
+	 *
+	 * @param tasks
+	 *            - The tasks to run.
+	 * @return The number of failed tasks.
+	 * @see RunOptions#getThreads()
+	 */
+	protected int runInParallel(List<Callable<Void>> tasks) {
+		int failed = 0;
+		ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+		try {
+			for (Future<Void> f : executor.invokeAll(tasks)) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					LOG.error("Task failed", e.getCause());
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while waiting for the tasks", e);
+			failed = tasks.size();
+		} finally {
+			executor.shutdown();
+		}
+		return failed;
 	}
+
+	/**
+	 * Creates the execution of the execution mode set in the run options. In
+	 * bounded-memory mode the files are processed in chunks instead, see
+	 * <code>RunOptions.setChunkSize()</code>.
+	 *
+	 * @param step
+	 *            - The step to run on the files.
+	 * @return The execution.
+	 * @see ExecutionMode
+	 */
+	protected Execution createExecution(TaggingStep step) {
+		if (ExecutionMode.PIPELINE == options.getExecutionMode()) {
+			return new PipelineExecution(step);
+		} else if (ExecutionMode.PER_FILE == options.getExecutionMode()) {
+			return new PerFileExecution(step);
+		}
+		return new SequentialExecution(step);
+	}
+
+	/**
+	 * Creates the step which processes the files of the run.
+	 *
+	 * @param backupStore
+	 *            - The backup store of the run, or <code>null</code>.
+	 * @param manifest
+	 *            - The manifest of the run, or <code>null</code>.
+	 * @param journal
+	 *            - The journal of the run, or <code>null</code>.
+	 * @param checkpoint
+	 *            - The checkpoint of the run, or <code>null</code>.
+	 * @return The step.
+	 */
+	protected TaggingStep createStep(BackupStore backupStore, Manifest manifest, Journal journal,
+			Checkpoint checkpoint) {
+		return new TaggingStep(this, backupStore, manifest, journal, checkpoint);
+	}
+
+	/**
+	 * Creates the writer for the backup mode.
+	 *
+	 * @return The writer.
+	 */
+	protected AuthorTagWriter createWriter() {
+		if (SHADOW == backupMode) {
+			return new AuthorTagWriter(projectDir, getOutputDir());
+		}
+		return new AuthorTagWriter(backupMode, backupStore);
+	}
+
+	/**
+	 * Creates the enumerator of <code>.java</code> files. In a sharded run it
+	 * only enumerates the files of the current shard.
+	 *
+	 * @return The enumerator.
+	 * @see ShardFilter
+	 */
+	protected JavaFileEnumerator createEnumerator() {
+		if (1 < options.getShardCount()) {
+			LOG.info("Processing shard {} of {}", options.getShardIndex(), options.getShardCount());
+			return new JavaFileEnumerator(new ShardFilter(projectDir, options.getShardIndex(),
+					options.getShardCount()));
+		}
+		return new JavaFileEnumerator();
+	}
+
+	/**
+	 * Writes the partial run record of this shard, which contains the files
+	 * with changes. The report can be generated from the records of all
+	 * shards with <code>mergeShardRecords()</code>.
+	 *
+	 * @param javaFiles
+	 *            - The processed <code>JavaFile</code> objects with calculated
+	 *            diffs.
+	 * @see #mergeShardRecords()
+	 * @see RunRecordWriter
+	 */
+	protected void writeShardRecord(JavaFiles javaFiles) {
+		File recordFile = shardRecordOf(projectDir, options.getShardIndex(), options.getShardCount());
+		LOG.info("Writing partial report into file: {}", recordFile.getAbsolutePath());
+		try (RunRecordWriter w = new RunRecordWriter(recordFile, projectDir, backupMode)) {
+			for (JavaFile javaFile : javaFiles) {
+				if (null != javaFile.getDiffResult() && !javaFile.getDiffResult().isEmpty()) {
+					w.write(javaFile);
+				}
+			}
+			w.finish();
+		} catch (IOException e) {
+			LOG.error("Error when writing partial report", e);
+		}
+	}
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_FAILED;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.VirtualThreads;
+
+/**
+ * Processes every file as a separate task, from analysis to diff calculation.
+ * Tasks run on virtual threads when the JRE supports them, otherwise on a
+ * thread pool. A semaphore limits the number of tasks which read or write
+ * files at the same time, so the number of open file handles stays bounded
+ * even with a huge number of threads.
+ *
+ * @author Zsolt Jurányi
+ * @see ExecutionMode#PER_FILE
+ * @see VirtualThreads
+ *
+ */
+class PerFileExecution implements Execution {
+
+	private static final Logger LOG = Log.forClass(PerFileExecution.class);
+
+	private final TaggingStep step;
+	private final JAuthorTagger tagger;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param step
+	 *            - The step to run on the files.
+	 */
+	public PerFileExecution(TaggingStep step) {
+		this.step = step;
+		this.tagger = step.getTagger();
+	}
+
+	@Override
+	public JavaFiles execute(final boolean diff) {
+		LOG.info("Enumerating .java files in project directory: {}", tagger.getProjectDir().getAbsolutePath());
+		final JavaFiles javaFiles = step.enumerateJavaFiles();
+
+		final JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+		final AuthorTaggerConfig config = step.loadConfig();
+		final AuthorTagWriter w = tagger.createWriter();
+		int maxOpenFiles = tagger.getOptions().getMaxOpenFiles();
+		final Semaphore openFiles = new Semaphore(maxOpenFiles);
+		final CountDownLatch done = new CountDownLatch(javaFiles.size());
+		final boolean[] kept = new boolean[javaFiles.size()];
+		final AtomicInteger unplanned = new AtomicInteger(javaFiles.size() + 1);
+		step.settled(unplanned); // enumeration is over
+
+		LOG.info("Processing {} .java files on {} threads, at most {} at a time", javaFiles.size(),
+				VirtualThreads.isAvailable() ? "virtual" : "pooled", maxOpenFiles);
+		ExecutorService executor = VirtualThreads.newExecutor(maxOpenFiles);
+		for (int i = 0; i < javaFiles.size(); i++) {
+			final int index = i;
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					TaggingJob job = new TaggingJob(javaFiles.get(index));
+					try {
+						openFiles.acquire();
+						try {
+							boolean analyzed = !step.needsAnalysis(job.getJavaFile())
+									|| (step.analyze(analyzer, job.getJavaFile())
+											&& step.apply(config, job.getJavaFile()));
+							step.settled(unplanned);
+							if (!analyzed) {
+								return;
+							}
+							step.writeAuthorTags(w, job, diff);
+						} finally {
+							openFiles.release();
+						}
+						if (diff) {
+							step.calculateDiff(job);
+						}
+						kept[index] = true;
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (RuntimeException e) {
+						tagger.getMetrics().count(FILES_FAILED, 1);
+						LOG.error("Error while processing .java file: " + job.getJavaFile().getFile(), e);
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while waiting for the tasks", e);
+		}
+		executor.shutdown();
+
+		JavaFiles processed = new JavaFiles(javaFiles.size());
+		for (int i = 0; i < javaFiles.size(); i++) {
+			if (kept[i]) {
+				processed.add(javaFiles.get(i));
+			}
+		}
+		LOG.info("Processed {} .java files", processed.size());
+		return processed;
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Pipeline;
+import hu.juranyi.zsolt.jauthortagger.util.Pipeline.Stage;
+import hu.juranyi.zsolt.jauthortagger.util.Sink;
+
+/**
+ * Runs the stages in a pipeline: enumeration feeds the analyzer, which feeds
+ * the configuration, the writer and the diff calculation, each stage working
+ * on its own threads. The stages are connected with bounded queues, so the
+ * number of files in flight is limited.
+ *
+ * @author Zsolt Jurányi
+ * @see ExecutionMode#PIPELINE
+ * @see Pipeline
+ *
+ */
+class PipelineExecution implements Execution {
+
+	private static final Logger LOG = Log.forClass(PipelineExecution.class);
+
+	private final TaggingStep step;
+	private final JAuthorTagger tagger;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param step
+	 *            - The step to run on the files.
+	 */
+	public PipelineExecution(TaggingStep step) {
+		this.step = step;
+		this.tagger = step.getTagger();
+	}
+
+	@Override
+	public JavaFiles execute(final boolean diff) {
+		int threads = tagger.getOptions().getThreads();
+		LOG.info("Processing .java files in project directory in a pipeline ({} threads per stage): {}", threads,
+				tagger.getProjectDir().getAbsolutePath());
+
+		final Pipeline<TaggingJob> pipeline = new Pipeline<TaggingJob>("tagger",
+				tagger.getOptions().getQueueCapacity());
+		final AtomicInteger unplanned = new AtomicInteger(1);
+		if (RESTORE != tagger.getBackupMode()) {
+			final JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+			pipeline.addStage("analyze", threads, new Stage<TaggingJob>() {
+
+				@Override
+				public boolean process(TaggingJob job) {
+					if (!step.needsAnalysis(job.getJavaFile()) || step.analyze(analyzer, job.getJavaFile())) {
+						return true;
+					}
+					step.settled(unplanned);
+					return false;
+				}
+			});
+
+			final AuthorTaggerConfig config = step.loadConfig();
+			pipeline.addStage("apply", threads, new Stage<TaggingJob>() {
+
+				@Override
+				public boolean process(TaggingJob job) {
+					boolean applied = !step.needsAnalysis(job.getJavaFile()) || step.apply(config, job.getJavaFile());
+					step.settled(unplanned);
+					return applied;
+				}
+			});
+		}
+
+		final AuthorTagWriter w = tagger.createWriter();
+		pipeline.addStage("write", threads, new Stage<TaggingJob>() {
+
+			@Override
+			public boolean process(TaggingJob job) {
+				step.writeAuthorTags(w, job, diff);
+				return true;
+			}
+		});
+
+		if (diff) {
+			pipeline.addStage("diff", threads, new Stage<TaggingJob>() {
+
+				@Override
+				public boolean process(TaggingJob job) {
+					step.calculateDiff(job);
+					return true;
+				}
+			});
+		}
+
+		pipeline.start();
+		step.enumerateJavaFiles(new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				unplanned.incrementAndGet();
+				pipeline.put(new TaggingJob(javaFile));
+			}
+		});
+		step.settled(unplanned); // enumeration is over
+
+		JavaFiles javaFiles = new JavaFiles();
+		try {
+			for (TaggingJob job : pipeline.finish()) {
+				javaFiles.add(job.getJavaFile());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while waiting for the pipeline", e);
+		}
+		LOG.info("Processed {} .java files", javaFiles.size());
+		return javaFiles;
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.ANALYZE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.APPLY;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.DIFF;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.WRITE;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+
+/**
+ * Runs the stages one after another, each over the full list of files.
+ *
+ * @author Zsolt Jurányi
+ * @see ExecutionMode#SEQUENTIAL
+ *
+ */
+class SequentialExecution implements Execution {
+
+	private static final Logger LOG = Log.forClass(SequentialExecution.class);
+
+	private final TaggingStep step;
+	private final JAuthorTagger tagger;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param step
+	 *            - The step to run on the files.
+	 */
+	public SequentialExecution(TaggingStep step) {
+		this.step = step;
+		this.tagger = step.getTagger();
+	}
+
+	@Override
+	public JavaFiles execute(boolean diff) {
+		LOG.info("Enumerating .java files in project directory: {}", tagger.getProjectDir().getAbsolutePath());
+		JavaFiles javaFiles = step.enumerateJavaFiles();
+		Metrics metrics = tagger.getMetrics();
+
+		if (RESTORE != tagger.getBackupMode()) {
+			JavaFiles analyzed = new JavaFiles(javaFiles.size());
+			for (JavaFile javaFile : javaFiles) {
+				if (step.needsAnalysis(javaFile)) {
+					analyzed.add(javaFile);
+				}
+			}
+
+			LOG.info("Analyzing {} .java files", analyzed.size());
+			long started = System.nanoTime();
+			JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+			JavaFiles remaining = new JavaFiles(analyzed.size());
+			for (JavaFile javaFile : analyzed) {
+				if (step.analyze(analyzer, javaFile)) {
+					remaining.add(javaFile);
+				}
+			}
+			metrics.stage(ANALYZE, started);
+
+			LOG.info("Reading project configuration and tagging (in memory)");
+			started = System.nanoTime();
+			AuthorTaggerConfig config = step.loadConfig();
+			analyzed = new JavaFiles(remaining.size());
+			for (JavaFile javaFile : remaining) {
+				if (step.apply(config, javaFile)) {
+					analyzed.add(javaFile);
+				}
+			}
+			metrics.stage(APPLY, started);
+			step.planComplete();
+
+			if (analyzed.size() < javaFiles.size()) {
+				Set<JavaFile> kept = Collections.newSetFromMap(new IdentityHashMap<JavaFile, Boolean>());
+				kept.addAll(analyzed);
+				JavaFiles merged = new JavaFiles(javaFiles.size());
+				for (JavaFile javaFile : javaFiles) {
+					if (!step.needsAnalysis(javaFile) || kept.contains(javaFile)) {
+						merged.add(javaFile);
+					}
+				}
+				javaFiles = merged;
+			}
+
+			LOG.info("Writing to disk");
+		} else {
+			LOG.info("Restoring backup files");
+		}
+
+		long started = System.nanoTime();
+		long diffNanos = 0;
+		AuthorTagWriter w = tagger.createWriter();
+		for (JavaFile javaFile : javaFiles) {
+			TaggingJob job = new TaggingJob(javaFile);
+			step.writeAuthorTags(w, job, diff);
+			if (diff) {
+				long diffStarted = System.nanoTime();
+				step.calculateDiff(job);
+				diffNanos += System.nanoTime() - diffStarted;
+			}
+		}
+		metrics.stage(WRITE, started + diffNanos); // diff is interleaved, measured apart
+		if (diff) {
+			metrics.stage(DIFF, System.nanoTime() - diffNanos);
+		}
+		return javaFiles;
+	}
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.SHADOW;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.TEST;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.backupFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.configFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shadowFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.tempFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.testFileOf;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_READ;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_WRITTEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_CHANGED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_FAILED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SEEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SKIPPED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.ANALYZE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.APPLY;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.DIFF;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.ENUMERATE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.WRITE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Checkpoint;
+import hu.juranyi.zsolt.jauthortagger.output.Journal;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
+import hu.juranyi.zsolt.jauthortagger.util.DiffCalculator;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Manifest;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.Sink;
+
+/**
+ * The work done on one file by every execution mode of a run: enumeration,
+ * analysis, configuration, writing and diff calculation, with the metrics,
+ * the checkpoint, the journal and the manifest of the run. The execution
+ * modes only decide the order and the threads of these steps. Methods may be
+ * called from more threads at the same time.
+ *
+ * @author Zsolt Jurányi
+ * @see Execution
+ * @see JAuthorTagger
+ *
+ */
+public class TaggingStep {
+
+	private static final Logger LOG = Log.forClass(TaggingStep.class);
+
+	private final JAuthorTagger tagger;
+	private final File projectDir;
+	private final BackupMode backupMode;
+	private final Metrics metrics;
+	private final BackupStore backupStore;
+	private final Manifest manifest;
+	private final Journal journal;
+	private final Checkpoint checkpoint;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param tagger
+	 *            - The run this step belongs to.
+	 * @param backupStore
+	 *            - The backup store of the run, or <code>null</code>.
+	 * @param manifest
+	 *            - The manifest of the run, or <code>null</code>.
+	 * @param journal
+	 *            - The journal of the run, or <code>null</code>.
+	 * @param checkpoint
+	 *            - The checkpoint of the run, or <code>null</code>.
+	 */
+	public TaggingStep(JAuthorTagger tagger, BackupStore backupStore, Manifest manifest, Journal journal,
+			Checkpoint checkpoint) {
+		this.tagger = tagger;
+		this.projectDir = tagger.getProjectDir();
+		this.backupMode = tagger.getBackupMode();
+		this.metrics = tagger.getMetrics();
+		this.backupStore = backupStore;
+		this.manifest = manifest;
+		this.journal = journal;
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Returns the checkpoint of the run.
+	 *
+	 * @return The checkpoint, or <code>null</code> if checkpointing is turned
+	 *         off.
+	 */
+	public Checkpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Returns the run this step belongs to.
+	 *
+	 * @return The run.
+	 */
+	public JAuthorTagger getTagger() {
+		return tagger;
+	}
+
+	/**
+	 * Analyzes the given file, and records the time spent on it.
+	 *
+	 * @param analyzer
+	 *            - The analyzer to use.
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 * @return <code>false</code> if the file should be dropped.
+	 */
+	protected boolean analyze(JavaFileAnalyzer analyzer, JavaFile javaFile) {
+		long started = System.nanoTime();
+		boolean kept = analyzer.analyzeJavaFile(javaFile);
+		metrics.file(ANALYZE, started);
+		if (!kept) {
+			metrics.count(FILES_SKIPPED, 1);
+		}
+		return kept;
+	}
+
+	/**
+	 * Applies the configuration on the given file, and records the time spent
+	 * on it. A kept file is recorded in the checkpoint, if checkpointing is
+	 * turned on.
+	 *
+	 * @param config
+	 *            - The loaded configuration.
+	 * @param javaFile
+	 *            - The analyzed <code>JavaFile</code> object.
+	 * @return <code>false</code> if the file should be skipped.
+	 */
+	protected boolean apply(AuthorTaggerConfig config, JavaFile javaFile) {
+		long started = System.nanoTime();
+		boolean kept = config.apply(javaFile);
+		metrics.file(APPLY, started);
+		if (!kept) {
+			metrics.count(FILES_SKIPPED, 1);
+		} else {
+			planned(javaFile, false);
+		}
+		return kept;
+	}
+
+	/**
+	 * Calculates the diff from the contents collected by the tagger, stores it
+	 * in the <code>JavaFile</code> object and releases the contents. Does
+	 * nothing if the contents have already been released.
+	 *
+	 * @param job
+	 *            - The job holding the <code>JavaFile</code> and its contents.
+	 * @see DiffCalculator
+	 */
+	protected void calculateDiff(TaggingJob job) {
+		if (null == job.getOriginalContent()) {
+			return; // already calculated for the checkpoint
+		}
+		long started = System.nanoTime();
+		JavaFile javaFile = job.getJavaFile();
+		File originalFile = (BACKUP == backupMode) ? backupFileOf(javaFile.getFile()) : javaFile.getFile();
+		File modifiedFile = modifiedFileOf(javaFile.getFile());
+		DiffCalculator dc = new DiffCalculator(originalFile, modifiedFile, job.getOriginalContent(),
+				job.getModifiedContent());
+		javaFile.setDiffResult(dc.calculateDiff());
+		metrics.file(DIFF, started);
+		job.setOriginalContent(null);
+		job.setModifiedContent(null);
+	}
+
+	/**
+	 * Enumerates the <code>.java</code> files to process. When resuming, the
+	 * files already written are left out, and the planned files are replaced
+	 * with their saved analysis results. If the saved plan is complete, the
+	 * source tree is not enumerated at all.
+	 *
+	 * @return The <code>JavaFile</code> objects to process.
+	 * @see Checkpoint
+	 */
+	protected JavaFiles enumerateJavaFiles() {
+		long started = System.nanoTime();
+		final JavaFiles javaFiles = new JavaFiles();
+		enumerateJavaFiles(new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				javaFiles.add(javaFile);
+			}
+		});
+		metrics.stage(ENUMERATE, started);
+		return javaFiles;
+	}
+
+	/**
+	 * Enumerates the <code>.java</code> files to process into the given sink,
+	 * like <code>enumerateJavaFiles()</code> does.
+	 *
+	 * @param sink
+	 *            - The sink to put the <code>JavaFile</code> objects into.
+	 * @see #enumerateJavaFiles()
+	 */
+	protected void enumerateJavaFiles(Sink<JavaFile> sink) {
+		final Sink<JavaFile> counted = countingSink(sink);
+		if (null == checkpoint) {
+			tagger.createEnumerator().enumerateJavaFiles(new File(projectDir, "src"), counted);
+		} else if (checkpoint.isPlanComplete()) {
+			LOG.info("Continuing with the files planned by the interrupted run");
+			for (JavaFile javaFile : checkpoint.getRemaining()) {
+				counted.put(javaFile);
+			}
+		} else {
+			tagger.createEnumerator().enumerateJavaFiles(new File(projectDir, "src"), new Sink<JavaFile>() {
+
+				@Override
+				public void put(JavaFile javaFile) {
+					javaFile = checkpoint.resumed(javaFile);
+					if (null != javaFile) {
+						counted.put(javaFile);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the configuration of the project, loaded unless the files are
+	 * only restored.
+	 *
+	 * @return The configuration.
+	 */
+	protected AuthorTaggerConfig loadConfig() {
+		AuthorTaggerConfig config = AuthorTaggerConfig.forFile(configFileOf(projectDir));
+		if (RESTORE != backupMode) {
+			config.load();
+		}
+		return config;
+	}
+
+	/**
+	 * Tells whether the given file has to be analyzed and configured, or its
+	 * results are already saved in the checkpoint.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 * @return <code>true</code> if the file has to be analyzed.
+	 */
+	protected boolean needsAnalysis(JavaFile javaFile) {
+		return RESTORE != backupMode && (null == checkpoint || !checkpoint.isPreAnalyzed(javaFile));
+	}
+
+	/**
+	 * Marks the plan complete in the checkpoint, if checkpointing is turned
+	 * on: every file has been analyzed and configured.
+	 */
+	protected void planComplete() {
+		planned(null, true);
+	}
+
+	/**
+	 * Calculates the diff of an already written file from the disk, if both
+	 * the original and the modified content are still there, i.e. in
+	 * <code>BACKUP</code> mode without backup store and in <code>TEST</code>
+	 * mode.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 */
+	protected void recalculateDiff(JavaFile javaFile) {
+		File originalFile = (BACKUP == backupMode) ? backupFileOf(javaFile.getFile()) : javaFile.getFile();
+		File modifiedFile = modifiedFileOf(javaFile.getFile());
+		if (null != backupStore || NO_BACKUP == backupMode || !originalFile.isFile() || !modifiedFile.isFile()) {
+			return;
+		}
+		TaggingJob job = new TaggingJob(javaFile);
+		try {
+			job.setOriginalContent(Files.readAllLines(originalFile.toPath(), StandardCharsets.UTF_8));
+			job.setModifiedContent(Files.readAllLines(modifiedFile.toPath(), StandardCharsets.UTF_8));
+			calculateDiff(job);
+		} catch (IOException e) {
+			LOG.warn("Cannot calculate diff of file: " + javaFile.getFile().getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Counts down the files which are enumerated but not planned yet, and
+	 * marks the plan complete when the count reaches zero. The count starts
+	 * at one for the enumeration itself, so the plan cannot be completed
+	 * before every file has been enumerated.
+	 *
+	 * @param unplanned
+	 *            - The number of files not planned yet, plus one while
+	 *            enumerating.
+	 */
+	protected void settled(AtomicInteger unplanned) {
+		if (0 == unplanned.decrementAndGet()) {
+			planComplete();
+		}
+	}
+
+	/**
+	 * Calls the tagger magic (author tagging or restoring) on the job's
+	 * <code>JavaFile</code>. When diff is needed, the original and modified
+	 * contents are collected into the job. Except in <code>RESTORE</code>
+	 * mode the file is written in two phases through the journal. In
+	 * <code>BACKUP</code> mode a changed file is recorded in the manifest
+	 * before it is backed up. When checkpointing, the diff is calculated before
+	 * the file is handed to the journal, so the checkpoint can save it when the
+	 * batch is committed.
+	 *
+	 * @param w
+	 *            - The writer to use.
+	 * @param job
+	 *            - The job holding the <code>JavaFile</code>.
+	 * @param diff
+	 *            - Whether diffs should be calculated.
+	 * @see AuthorTagWriter
+	 */
+	protected void writeAuthorTags(AuthorTagWriter w, TaggingJob job, boolean diff) {
+		if (diff) {
+			job.setOriginalContent(new ArrayList<String>());
+			job.setModifiedContent(new ArrayList<String>());
+		}
+		long started = System.nanoTime();
+		File file = job.getJavaFile().getFile();
+		if (RESTORE != backupMode) {
+			metrics.count(BYTES_READ, file.length());
+		}
+		if (null == journal) {
+			if (w.writeAuthorTags(job.getJavaFile(), job.getOriginalContent(), job.getModifiedContent())) {
+				metrics.count(FILES_CHANGED, 1);
+				metrics.count(BYTES_WRITTEN, w.outputFileOf(file).length());
+			}
+		} else {
+			try {
+				Journal.Batch batch = journal.begin(file);
+				try {
+					boolean changed = w.prepareAuthorTags(job.getJavaFile(), job.getOriginalContent(),
+							job.getModifiedContent());
+					if (changed) {
+						metrics.count(FILES_CHANGED, 1);
+						metrics.count(BYTES_WRITTEN, tempFileOf(w.outputFileOf(file)).length());
+					}
+					if (changed && null != manifest) {
+						manifest.add(file);
+					}
+					if (null != checkpoint) {
+						if (diff) {
+							calculateDiff(job);
+						}
+						checkpoint.prepared(job.getJavaFile());
+					}
+					journal.prepared(batch, file, changed);
+				} catch (IOException e) {
+					metrics.count(FILES_FAILED, 1);
+					LOG.error("Error while writing author tags: " + file.getAbsolutePath(), e);
+					journal.failed(batch);
+				}
+			} catch (IOException e) {
+				metrics.count(FILES_FAILED, 1);
+				LOG.error("Error when writing journal", e);
+			}
+		}
+		metrics.file(WRITE, started);
+	}
+
+	/**
+	 * Wraps the given sink to count the enumerated files.
+	 *
+	 * @param sink
+	 *            - The sink to wrap.
+	 * @return The counting sink.
+	 */
+	private Sink<JavaFile> countingSink(final Sink<JavaFile> sink) {
+		return new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				metrics.count(FILES_SEEN, 1);
+				sink.put(javaFile);
+			}
+		};
+	}
+
+	/**
+	 * Returns the file which holds the modified content of the given file
+	 * according to the backup mode.
+	 *
+	 * @param file
+	 *            - The <code>.java</code> file.
+	 * @return The modified file.
+	 */
+	private File modifiedFileOf(File file) {
+		if (TEST == backupMode) {
+			return testFileOf(file);
+		} else if (SHADOW == backupMode) {
+			return shadowFileOf(projectDir, tagger.getOutputDir(), file);
+		}
+		return file;
+	}
+
+	/**
+	 * Records the analysis results of the given file in the checkpoint, if
+	 * checkpointing is turned on.
+	 *
+	 * @param javaFile
+	 *            - The analyzed and configured <code>JavaFile</code> object,
+	 *            or <code>null</code> to only mark the plan complete.
+	 * @param complete
+	 *            - Whether every file has been analyzed.
+	 */
+	private void planned(JavaFile javaFile, boolean complete) {
+		if (null != checkpoint) {
+			try {
+				checkpoint.planned(javaFile, complete);
+			} catch (IOException e) {
+				LOG.error("Error when writing checkpoint", e);
+			}
+		}
+	}
+
+}
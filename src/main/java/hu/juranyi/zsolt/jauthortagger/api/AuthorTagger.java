@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.model.ConfigRule;
+import hu.juranyi.zsolt.jauthortagger.output.ContentTagger;
+
+/**
+ * <p>
+ * Embeddable entry point of <b>JAuthorTagger</b>. It tags in-memory sources
+ * with compiled rules, using the same analyzer, rules and writer as a normal
+ * run, but it does not read or write any file and does not generate a report.
+ * </p>
+ * <p>
+ * Instances are created with a <code>Builder</code> and are immutable, so one
+ * instance can be shared by any number of threads:
+ * </p>
+ *
+ * <pre>
+ * AuthorTagger tagger = AuthorTagger.builder().add("**", "John Doe").skip("*.generated.**").build();
+ * TaggedSource result = tagger.tag("src/a/Foo.java", content);
+ * </pre>
+ *
+ * @author Zsolt Jurányi
+ * @see TaggedSource
+ * @see ContentTagger
+ * @see ConfigRule
+ *
+ */
+public class AuthorTagger {
+
+	/**
+	 * Collects the rules of an <code>AuthorTagger</code>. Rules are applied in
+	 * the order they were added, like the lines of a configuration file. A
+	 * builder is not thread-safe, but the built instances are.
+	 */
+	public static class Builder {
+
+		private final List<ConfigRule> rules = new ArrayList<ConfigRule>();
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a rule which adds the given author to the classes matching the
+		 * class name filter.
+		 *
+		 * @param classFilter
+		 *            - Class name filter to select classes.
+		 * @param author
+		 *            - Author to be added.
+		 * @return This builder.
+		 * @see ConfigRule#add(String, String)
+		 */
+		public Builder add(String classFilter, String author) {
+			return rule(ConfigRule.add(classFilter, author));
+		}
+
+		/**
+		 * Creates the <code>AuthorTagger</code> with the rules added so far.
+		 *
+		 * @return The new instance.
+		 */
+		public AuthorTagger build() {
+			return new AuthorTagger(new AuthorTaggerConfig(rules));
+		}
+
+		/**
+		 * Adds the rules of the given configuration file, e.g. the
+		 * <code>.authors</code> file of a project.
+		 *
+		 * @param configFile
+		 *            - The configuration file.
+		 * @return This builder.
+		 * @see AuthorTaggerConfig
+		 */
+		public Builder config(File configFile) {
+			rules.addAll(new AuthorTaggerConfig(configFile).load());
+			return this;
+		}
+
+		/**
+		 * Adds a rule which removes the authors matching the author filter
+		 * from the classes matching the class name filter.
+		 *
+		 * @param classFilter
+		 *            - Class name filter to select classes.
+		 * @param authorFilter
+		 *            - Simple filter to apply on authors.
+		 * @return This builder.
+		 * @see ConfigRule#delete(String, String)
+		 */
+		public Builder delete(String classFilter, String authorFilter) {
+			return rule(ConfigRule.delete(classFilter, authorFilter));
+		}
+
+		/**
+		 * Adds a compiled rule.
+		 *
+		 * @param rule
+		 *            - The rule to add.
+		 * @return This builder.
+		 */
+		public Builder rule(ConfigRule rule) {
+			rules.add(rule);
+			return this;
+		}
+
+		/**
+		 * Adds a rule which skips the classes matching the class name filter.
+		 *
+		 * @param classFilter
+		 *            - Class name filter to select classes.
+		 * @return This builder.
+		 * @see ConfigRule#skip(String)
+		 */
+		public Builder skip(String classFilter) {
+			return rule(ConfigRule.skip(classFilter));
+		}
+	}
+
+	/**
+	 * Creates a new builder without rules.
+	 *
+	 * @return The new builder.
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private final AuthorTaggerConfig config;
+	private final ContentTagger tagger;
+
+	private AuthorTagger(AuthorTaggerConfig config) {
+		this.config = config;
+		this.tagger = new ContentTagger(config);
+	}
+
+	/**
+	 * Returns the rules of this instance.
+	 *
+	 * @return The unmodifiable list of rules in the order they are applied.
+	 */
+	public List<ConfigRule> getRules() {
+		return config.load();
+	}
+
+	/**
+	 * Tags the given source. Sources which cannot be analyzed or are skipped
+	 * by the rules are returned unchanged. Lines of tagged sources are
+	 * terminated by the line separator of the platform.
+	 *
+	 * @param path
+	 *            - The logical path of the source, used for naming.
+	 * @param content
+	 *            - The content of the source.
+	 * @return The result.
+	 */
+	public TaggedSource tag(String path, String content) {
+		return tagger.tag(path, content);
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The immutable result of tagging one in-memory source with
+ * <code>AuthorTagger</code>.
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTagger#tag(String, String)
+ *
+ */
+public class TaggedSource {
+
+	private final String path;
+	private final String typeName;
+	private final List<String> authors;
+	private final String content;
+	private final boolean changed;
+	private final boolean skipped;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param path
+	 *            - The logical path of the source.
+	 * @param typeName
+	 *            - The name of the type, can be <code>null</code>.
+	 * @param authors
+	 *            - The authors of the type.
+	 * @param content
+	 *            - The tagged or the original content.
+	 * @param changed
+	 *            - Whether the content has changed.
+	 * @param skipped
+	 *            - Whether the source was skipped.
+	 */
+	public TaggedSource(String path, String typeName, List<String> authors, String content, boolean changed,
+			boolean skipped) {
+		this.path = path;
+		this.typeName = typeName;
+		this.authors = Collections.unmodifiableList(authors);
+		this.content = content;
+		this.changed = changed;
+		this.skipped = skipped;
+	}
+
+	/**
+	 * Returns the authors of the type after applying the rules. For skipped
+	 * sources these are the authors found in the source.
+	 *
+	 * @return The unmodifiable list of authors.
+	 */
+	public List<String> getAuthors() {
+		return authors;
+	}
+
+	/**
+	 * Returns the tagged content. For skipped sources it is the original
+	 * content.
+	 *
+	 * @return The tagged content.
+	 */
+	public String getContent() {
+		return content;
+	}
+
+	/**
+	 * Returns the logical path of the source.
+	 *
+	 * @return The logical path of the source.
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the full name of the public type declared in the source.
+	 *
+	 * @return The full name of the type, or <code>null</code> if the source
+	 *         could not be analyzed.
+	 */
+	public String getTypeName() {
+		return typeName;
+	}
+
+	/**
+	 * Tells whether the tagged content differs from the original one.
+	 *
+	 * @return <code>true</code> if the content has changed.
+	 */
+	public boolean isChanged() {
+		return changed;
+	}
+
+	/**
+	 * Tells whether the source was left untouched, because it could not be
+	 * analyzed or it was skipped by the rules.
+	 *
+	 * @return <code>true</code> if the source was skipped.
+	 */
+	public boolean isSkipped() {
+		return skipped;
+	}
+
+	@Override
+	public String toString() {
+		return "TaggedSource [path=" + path + ", typeName=" + typeName + ", authors=" + authors + ", changed="
+				+ changed + ", skipped=" + skipped + "]";
+	}
+
+}
@@ -16,18 +16,30 @@
 
 package hu.juranyi.zsolt.jauthortagger.input;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 
+import hu.juranyi.zsolt.jauthortagger.model.ConfigRule;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFileTable;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
 import hu.juranyi.zsolt.jauthortagger.util.ClassNameFilter;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
 import hu.juranyi.zsolt.jauthortagger.util.SimpleStringFilter;
 
 /**
@@ -73,6 +85,7 @@ import hu.juranyi.zsolt.jauthortagger.util.SimpleStringFilter;
  * </ul>
  *
  * @author Zsolt Jurányi
+ * @see ConfigRule
  * @see JavaFiles
  * @see ClassNameFilter
  * @see SimpleStringFilter
@@ -82,7 +95,38 @@ public class AuthorTaggerConfig {
 
 	private static final Logger LOG = Log.forClass(AuthorTaggerConfig.class);
 	private static final Pattern CONF_LINE_PATTERN = Pattern.compile("^\\s*(?<a>[$@!\\-+])\\s*(?<p>.*)\\s*$");
+	private static final ConcurrentMap<String, AuthorTaggerConfig> CACHE = new ConcurrentHashMap<String, AuthorTaggerConfig>();
 	private final File configFile;
+	private final byte[] content;
+	private volatile List<ConfigRule> rules;
+
+	/**
+	 * Returns the configuration of the given file. Configurations are
+	 * cached in the JVM by path and content, so a long-lived process (e.g. the
+	 * server) parses a configuration file only once, and again only when its
+	 * content has changed.
+	 *
+	 * @param configFile
+	 *            - A <code>File</code> object pointing to a project
+	 *            configuration file e.g. "path/to/project/.authors".
+	 * @return The configuration, which is loaded at its first use.
+	 */
+	public static AuthorTaggerConfig forFile(File configFile) {
+		byte[] content;
+		try {
+			content = Files.readAllBytes(configFile.toPath());
+		} catch (IOException e) {
+			// not cached, load() will report it
+			return new AuthorTaggerConfig(configFile);
+		}
+		String key = configFile.getAbsolutePath();
+		AuthorTaggerConfig config = CACHE.get(key);
+		if (null == config || !Arrays.equals(content, config.content)) {
+			config = new AuthorTaggerConfig(configFile, content);
+			CACHE.put(key, config);
+		}
+		return config;
+	}
 
 	/**
 	 * Creates an instance.
@@ -92,7 +136,26 @@ public class AuthorTaggerConfig {
 	 *            configuration file e.g. "path/to/project/.authors".
 	 */
 	public AuthorTaggerConfig(File configFile) {
+		this(configFile, null);
+	}
+
+	private AuthorTaggerConfig(File configFile, byte[] content) {
 		this.configFile = configFile;
+		this.content = content;
+	}
+
+	/**
+	 * Creates an instance from already compiled rules, without a configuration
+	 * file.
+	 *
+	 * @param rules
+	 *            - The rules in the order they should be applied.
+	 * @see ConfigRule
+	 */
+	public AuthorTaggerConfig(List<ConfigRule> rules) {
+		this.configFile = null;
+		this.content = null;
+		this.rules = Collections.unmodifiableList(new ArrayList<ConfigRule>(rules));
 	}
 
 	/**
@@ -100,28 +163,70 @@ public class AuthorTaggerConfig {
 	 * configuration file.
 	 *
 	 * @return The <code>File</code> object pointing to the project
-	 *         configuration file.
+	 *         configuration file, or <code>null</code> if the instance was
+	 *         created from compiled rules.
 	 */
 	public File getConfigFile() {
 		return configFile;
 	}
 
 	/**
-	 * Loads, interprets and applies the configuration on the given
-	 * <code>JavaFiles</code> object. Adds or removes authors using the filters
-	 * defined in the configuration file. Skipping is also handled here: skipped
-	 * <code>JavaFile</code> objects will be removed from the memory so they
-	 * won't reach the tagging procedure.
+	 * Applies the loaded configuration on the given <code>JavaFile</code>
+	 * object: runs all rules on it in the order they were defined. The
+	 * configuration will be loaded first if it was not loaded yet.
 	 *
-	 * @param javaFiles
-	 *            - A <code>JavaFiles</code> to work on.
-	 * @see JavaFile
-	 * @see JavaFiles
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object to work on.
+	 * @return <code>false</code> if the file is skipped by the configuration,
+	 *         <code>true</code> otherwise.
+	 * @see ConfigRule#apply(JavaFile)
+	 */
+	public boolean apply(JavaFile javaFile) {
+		Profiler.Span span = Profiler.file("apply");
+		try {
+			for (ConfigRule rule : load()) {
+				if (!rule.apply(javaFile)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			span.finish(javaFile.getFile());
+		}
+	}
+
+	/**
+	 * Loads and interprets the configuration file, and compiles it into a list
+	 * of <code>ConfigRule</code> objects. The file is only read at the first
+	 * call, later calls return the same rules. Only the first call takes a
+	 * lock, the compiled rules are read without locking, so threads applying
+	 * the configuration on different files don't wait for each other.
+	 *
+	 * @return The compiled rules in the order they were defined.
+	 * @see ConfigRule
+	 */
+	public List<ConfigRule> load() {
+		List<ConfigRule> loaded = rules;
+		if (null != loaded) {
+			return loaded;
+		}
+		synchronized (this) {
+			if (null == rules) {
+				rules = compile();
+			}
+			return rules;
+		}
+	}
+
+	/**
+	 * Reads the configuration file and compiles its rules.
 	 */
-	public void loadAndApply(JavaFiles javaFiles) {
+	private List<ConfigRule> compile() {
+		List<ConfigRule> rules = new ArrayList<ConfigRule>();
 		Scanner s = null;
 		try {
-			s = new Scanner(configFile, "UTF-8");
+			s = null == content ? new Scanner(configFile, "UTF-8")
+					: new Scanner(new ByteArrayInputStream(content), "UTF-8");
 			String classFilter = null;
 			String author = null;
 			while (s.hasNextLine()) {
@@ -143,25 +248,25 @@ public class AuthorTaggerConfig {
 						// special action
 						if ("skip".equalsIgnoreCase(param) && null != classFilter) {
 							LOG.trace("SKIP :: {}", classFilter);
-							javaFiles.skip(classFilter);
+							rules.add(ConfigRule.skip(classFilter));
 						}
 					} else if ("+".equals(action)) {
 						// addition
 						if (null != classFilter) {
 							LOG.trace("{} >> {}", param, classFilter);
-							javaFiles.addAuthor(classFilter, param);
+							rules.add(ConfigRule.add(classFilter, param));
 						} else if (null != author) {
 							LOG.trace("{} >> {}", author, param);
-							javaFiles.addAuthor(param, author);
+							rules.add(ConfigRule.add(param, author));
 						}
 					} else if ("-".equals(action)) {
 						// deletion
 						if (null != classFilter) {
 							LOG.trace("{} << {}", param, classFilter);
-							javaFiles.delAuthor(classFilter, param);
+							rules.add(ConfigRule.delete(classFilter, param));
 						} else if (null != author) {
 							LOG.trace("{} << {}", author, param);
-							javaFiles.delAuthor(param, author);
+							rules.add(ConfigRule.delete(param, author));
 						}
 					}
 				} // conf line
@@ -173,8 +278,38 @@ public class AuthorTaggerConfig {
 				s.close();
 			}
 		}
-		for (JavaFile javaFile : javaFiles) {
-			LOG.trace("{}", javaFile);
+		return Collections.unmodifiableList(rules);
+	}
+
+	/**
+	 * Loads, interprets and applies the configuration on the given
+	 * <code>JavaFileTable</code> object. Adds or removes authors using the
+	 * filters defined in the configuration file. Skipping is also handled here:
+	 * skipped <code>JavaFile</code> objects will be removed from the memory so
+	 * they won't reach the tagging procedure. The table is compacted in one
+	 * pass.
+	 *
+	 * @param javaFiles
+	 *            - A <code>JavaFiles</code> or another
+	 *            <code>JavaFileTable</code> to work on.
+	 * @see #apply(JavaFile)
+	 * @see JavaFile
+	 * @see JavaFileTable
+	 */
+	public void loadAndApply(JavaFileTable javaFiles) {
+		load();
+		int kept = 0;
+		for (int i = 0; i < javaFiles.size(); i++) {
+			JavaFile javaFile = javaFiles.get(i);
+			if (apply(javaFile)) {
+				javaFiles.update(kept++, javaFile); // kept rows are moved down
+			}
+		}
+		javaFiles.truncate(kept);
+		if (LOG.isTraceEnabled()) {
+			for (JavaFile javaFile : javaFiles) {
+				LOG.trace("{}", javaFile);
+			}
 		}
 	}
 
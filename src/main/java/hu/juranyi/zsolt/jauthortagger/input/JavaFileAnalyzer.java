@@ -22,6 +22,7 @@ import static hu.juranyi.zsolt.jauthortagger.model.JavaFilePatterns.PACKAGE_PATT
 import static hu.juranyi.zsolt.jauthortagger.model.JavaFilePatterns.TYPE_DECLARATION_PATTERN;
 
 import java.io.FileNotFoundException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Matcher;
@@ -29,7 +30,9 @@ import java.util.regex.Matcher;
 import org.slf4j.Logger;
 
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
 
 /**
  * Analyzes <code>JavaFile</code> objects by reading the physical file line by
@@ -80,77 +83,101 @@ public class JavaFileAnalyzer {
 	 * @see JavaFile
 	 */
 	public boolean analyzeJavaFile(JavaFile javaFile) {
-		boolean success = false;
-
-		LOG.trace("Analyzing .java file: {}", javaFile.getFile().getAbsoluteFile());
+		if (LOG.isTraceEnabled()) {
+			LOG.trace("Analyzing .java file: {}", javaFile.getFile().getAbsoluteFile());
+		}
+		Profiler.Span span = Profiler.file("analyze");
 		Scanner s = null;
 		try {
 			s = new Scanner(javaFile.getFile(), "UTF-8");
-			int ln = -1;
-			int packageLine = -1, annotationLine = -1, typeLine = -1;
-			String packageName = "";
-			while (null == javaFile.getTypeName() && s.hasNextLine()) {
-				ln++;
-				String line = s.nextLine();
-
-				Matcher packageMatcher = PACKAGE_PATTERN.matcher(line);
-				Matcher authorMatcher = AUTHOR_PATTERN.matcher(line);
-				Matcher annotationMatcher = ANNOTATION_PATTERN.matcher(line);
-				Matcher typeMatcher = TYPE_DECLARATION_PATTERN.matcher(line);
-
-				if (packageMatcher.find()) {
-					// package declaration
-					if (-1 == packageLine) {
-						packageLine = ln;
-					}
-					packageName = packageMatcher.group(1).trim() + ".";
-				} else if (authorMatcher.find()) {
-					// @author line
-					String author = authorMatcher.group(1).trim();
-					if (!javaFile.getAuthors().contains(author)) {
-						javaFile.getAuthors().add(author);
-					}
-				} else if (annotationMatcher.find()) {
-					// @Annotation on the type
-					if (-1 == annotationLine) {
-						annotationLine = ln;
-					}
-				} else if (typeMatcher.find()) {
-					// type declaration
-					if (-1 == typeLine) {
-						typeLine = ln;
-					}
-					String typeName = typeMatcher.group("n");
-					javaFile.setTypeName(packageName + typeName);
-				}
-			}
-
-			if (-1 < annotationLine) {
-				// type w/ annotations or package-info with annotations
-				javaFile.setTypeDeclarationStartLine(annotationLine);
-			} else if (-1 < typeLine) {
-				// type w/o annotations
-				javaFile.setTypeDeclarationStartLine(typeLine);
-			} else if (-1 < packageLine) {
-				// package-info w/o annotation
-				javaFile.setTypeDeclarationStartLine(packageLine);
-			}
-
-			if (null == javaFile.getTypeName()) {
-				// package-info
-				javaFile.setTypeName(packageName + javaFile.getFile().getName().replaceAll("\\..*$", ""));
-			}
-
-			LOG.trace("{} ", javaFile);
-			success = null != javaFile.getTypeName();
+			return analyzeLines(javaFile, IOUtils.lines(s));
 		} catch (FileNotFoundException e) {
 			LOG.error("Error while analyzing .java file", e);
+			return false;
 		} finally {
 			if (null != s) {
 				s.close();
 			}
+			span.finish(javaFile.getFile());
+		}
+	}
+
+	/**
+	 * Analyzes the given <code>JavaFile</code> object the same way as
+	 * <code>analyzeJavaFile(JavaFile)</code> does, but reads the content from
+	 * the given lines instead of the physical file. The <code>File</code>
+	 * object inside is only used as the logical name of the content.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object to be analyzed.
+	 * @param lines
+	 *            - The lines of the content.
+	 * @return <code>true</code> if analyzation succeded, <code>false</code> if
+	 *         there were any errors.
+	 * @see #analyzeJavaFile(JavaFile)
+	 */
+	public boolean analyzeJavaFile(JavaFile javaFile, List<String> lines) {
+		return analyzeLines(javaFile, lines.iterator());
+	}
+
+	private boolean analyzeLines(JavaFile javaFile, Iterator<String> s) {
+		int ln = -1;
+		int packageLine = -1, annotationLine = -1, typeLine = -1;
+		String packageName = "";
+		while (null == javaFile.getTypeName() && s.hasNext()) {
+			ln++;
+			String line = s.next();
+
+			Matcher packageMatcher = PACKAGE_PATTERN.matcher(line);
+			Matcher authorMatcher = AUTHOR_PATTERN.matcher(line);
+			Matcher annotationMatcher = ANNOTATION_PATTERN.matcher(line);
+			Matcher typeMatcher = TYPE_DECLARATION_PATTERN.matcher(line);
+
+			if (packageMatcher.find()) {
+				// package declaration
+				if (-1 == packageLine) {
+					packageLine = ln;
+				}
+				packageName = packageMatcher.group(1).trim() + ".";
+			} else if (authorMatcher.find()) {
+				// @author line
+				String author = JavaFile.AUTHORS.intern(authorMatcher.group(1).trim());
+				if (!javaFile.getAuthors().contains(author)) {
+					javaFile.getAuthors().add(author);
+				}
+			} else if (annotationMatcher.find()) {
+				// @Annotation on the type
+				if (-1 == annotationLine) {
+					annotationLine = ln;
+				}
+			} else if (typeMatcher.find()) {
+				// type declaration
+				if (-1 == typeLine) {
+					typeLine = ln;
+				}
+				String typeName = typeMatcher.group("n");
+				javaFile.setTypeName(packageName + typeName);
+			}
+		}
+
+		if (-1 < annotationLine) {
+			// type w/ annotations or package-info with annotations
+			javaFile.setTypeDeclarationStartLine(annotationLine);
+		} else if (-1 < typeLine) {
+			// type w/o annotations
+			javaFile.setTypeDeclarationStartLine(typeLine);
+		} else if (-1 < packageLine) {
+			// package-info w/o annotation
+			javaFile.setTypeDeclarationStartLine(packageLine);
+		}
+
+		if (null == javaFile.getTypeName()) {
+			// package-info
+			javaFile.setTypeName(packageName + javaFile.getFile().getName().replaceAll("\\..*$", ""));
 		}
-		return success;
+
+		LOG.trace("{} ", javaFile);
+		return null != javaFile.getTypeName();
 	}
 
 	/**
@@ -17,8 +17,7 @@
 package hu.juranyi.zsolt.jauthortagger.input;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.FileFilter;
 
 import org.slf4j.Logger;
 
@@ -27,6 +26,8 @@ import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
 import hu.juranyi.zsolt.jauthortagger.util.DirectoryFilter;
 import hu.juranyi.zsolt.jauthortagger.util.JavaFileFilter;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
+import hu.juranyi.zsolt.jauthortagger.util.Sink;
 
 /**
  * Utility for enumerating <code>.java</code> files in a given directory
@@ -41,6 +42,27 @@ public class JavaFileEnumerator {
 
 	private static final Logger LOG = Log.forClass(JavaFileEnumerator.class);
 
+	private final FileFilter filter;
+
+	/**
+	 * Creates an instance which enumerates all <code>.java</code> files.
+	 */
+	public JavaFileEnumerator() {
+		this(null);
+	}
+
+	/**
+	 * Creates an instance which enumerates only those <code>.java</code> files
+	 * which are accepted by the given filter.
+	 *
+	 * @param filter
+	 *            - Additional filter to apply on <code>.java</code> files, or
+	 *            <code>null</code> to accept all of them.
+	 */
+	public JavaFileEnumerator(FileFilter filter) {
+		this.filter = filter;
+	}
+
 	/**
 	 * <p>
 	 * Enumerates <code>.java</code> files in the given directory recursively
@@ -72,6 +94,37 @@ public class JavaFileEnumerator {
 		return enumerateJavaFilesImpl(dir);
 	}
 
+	/**
+	 * Enumerates <code>.java</code> files in the given directory recursively,
+	 * and passes them to the given <code>Sink</code> one by one, as soon as
+	 * they are found. The order is the same as in the <code>JavaFiles</code>
+	 * object returned by <code>enumerateJavaFiles(File)</code>.
+	 *
+	 * @param dir
+	 *            - The directory to be searched for <code>.java</code> files.
+	 * @param sink
+	 *            - Receiver of the found <code>JavaFile</code> objects.
+	 * @see #enumerateJavaFiles(File)
+	 * @see Sink
+	 */
+	public void enumerateJavaFiles(File dir, final Sink<JavaFile> sink) {
+		if (!dir.exists() || !dir.isDirectory()) {
+			LOG.error("Something's wrong, it is not an existing directory: {}", dir.getAbsolutePath());
+			return;
+		}
+		Profiler.Span span = Profiler.stage("enumerate");
+		final long[] count = new long[1];
+		enumerateJavaFilesImpl(dir, new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				count[0]++;
+				sink.put(javaFile);
+			}
+		});
+		span.finish(dir.getPath(), count[0]);
+	}
+
 	/**
 	 * Enumerates <code>.java</code> files in the given directory recursively
 	 * and return a <code>JavaFiles</code> object. The <code>file</code> fields
@@ -87,18 +140,45 @@ public class JavaFileEnumerator {
 	 * @see DirectoryFilter
 	 */
 	protected JavaFiles enumerateJavaFilesImpl(File dir) {
-		List<JavaFile> javaFiles = new ArrayList<JavaFile>();
+		final JavaFiles javaFiles = new JavaFiles();
+		enumerateJavaFilesImpl(dir, new Sink<JavaFile>() {
+
+			@Override
+			public void put(JavaFile javaFile) {
+				javaFiles.add(javaFile);
+			}
+		});
+		return javaFiles;
+	}
+
+	/**
+	 * Enumerates <code>.java</code> files in the given directory recursively
+	 * and passes the created <code>JavaFile</code> objects to the given
+	 * <code>Sink</code>.
+	 *
+	 * @param dir
+	 *            - The directory to be searched for <code>.java</code> files.
+	 * @param sink
+	 *            - Receiver of the found <code>JavaFile</code> objects.
+	 * @see JavaFileFilter
+	 * @see DirectoryFilter
+	 */
+	protected void enumerateJavaFilesImpl(File dir, Sink<JavaFile> sink) {
 		if (null != dir && dir.exists() && dir.isDirectory()) {
-			LOG.trace("Enumerating .java files in directory: {}", dir.getAbsolutePath());
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("Enumerating .java files in directory: {}", dir.getAbsolutePath());
+			}
 			for (File javaFile : dir.listFiles(new JavaFileFilter())) {
+				if (null != filter && !filter.accept(javaFile)) {
+					continue;
+				}
 				LOG.trace("Found .java file: {}", javaFile.getName());
-				javaFiles.add(new JavaFile(javaFile));
+				sink.put(new JavaFile(javaFile));
 			}
 			for (File subDir : dir.listFiles(new DirectoryFilter())) {
-				javaFiles.addAll(enumerateJavaFilesImpl(subDir));
+				enumerateJavaFilesImpl(subDir, sink);
 			}
 		}
-		return new JavaFiles(javaFiles);
 	}
 
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.input;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.output.RunRecordWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+
+/**
+ * Reads <code>JavaFile</code> objects from a run record file written by
+ * <code>RunRecordWriter</code>. Paths are resolved against the given project
+ * directory. Records can also be streamed one by one, so a report can be
+ * generated from records bigger than the heap.
+ *
+ * @author Zsolt Jurányi
+ * @see RunRecordWriter
+ *
+ */
+public class RunRecordReader implements Closeable {
+
+	private static final Logger LOG = Log.forClass(RunRecordReader.class);
+
+	/**
+	 * Streams the records of the given files, one file after another. Every
+	 * iterator opens the files again, and holds only one record in memory. A
+	 * file which cannot be read is logged, and the iteration continues with
+	 * the next one.
+	 *
+	 * @param recordFiles
+	 *            - The record files to read.
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return The records, which can be iterated more times.
+	 */
+	public static Iterable<JavaFile> records(final List<File> recordFiles, final File projectDir) {
+		return new Iterable<JavaFile>() {
+
+			@Override
+			public Iterator<JavaFile> iterator() {
+				return new RecordIterator(recordFiles, projectDir);
+			}
+		};
+	}
+
+	private final File projectDir;
+	private final DataInputStream in;
+	private final BackupMode backupMode;
+
+	/**
+	 * Creates an instance, opens the record file and reads its header.
+	 *
+	 * @param recordFile
+	 *            - The record file to read.
+	 * @param projectDir
+	 *            - The project directory.
+	 * @throws IOException
+	 *             If the file cannot be read or it is not a run record.
+	 */
+	public RunRecordReader(File recordFile, File projectDir) throws IOException {
+		this.projectDir = projectDir;
+		this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(recordFile)));
+		if (RunRecordWriter.MAGIC != in.readInt() || RunRecordWriter.VERSION != in.readInt()) {
+			in.close();
+			throw new IOException("Not a run record file: " + recordFile.getAbsolutePath());
+		}
+		this.backupMode = BackupMode.valueOf(in.readUTF());
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Returns the backup mode of the recorded run.
+	 *
+	 * @return The backup mode of the recorded run.
+	 */
+	public BackupMode getBackupMode() {
+		return backupMode;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return The next <code>JavaFile</code> object or <code>null</code> if
+	 *         the end mark was reached.
+	 * @throws IOException
+	 *             If reading fails or the file ends without end mark.
+	 */
+	public JavaFile read() throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		JavaFile javaFile = new JavaFile(new File(projectDir, in.readUTF()));
+		String typeName = in.readUTF();
+		javaFile.setTypeName(typeName.isEmpty() ? null : typeName);
+		javaFile.setTypeDeclarationStartLine(in.readInt());
+		for (int i = in.readInt(); i > 0; i--) {
+			javaFile.getAuthors().add(JavaFile.AUTHORS.intern(in.readUTF()));
+		}
+		if (in.readBoolean()) {
+			javaFile.setDiffResult(DiffResult.read(in));
+		}
+		return javaFile;
+	}
+
+	/**
+	 * Reads all remaining records.
+	 *
+	 * @return The <code>JavaFile</code> objects.
+	 * @throws IOException
+	 *             If reading fails or the file ends without end mark.
+	 */
+	public JavaFiles readAll() throws IOException {
+		JavaFiles javaFiles = new JavaFiles();
+		JavaFile javaFile;
+		while (null != (javaFile = read())) {
+			javaFiles.add(javaFile);
+		}
+		return javaFiles;
+	}
+
+	/**
+	 * Iterator over the records of more files, reading ahead one record.
+	 */
+	private static class RecordIterator implements Iterator<JavaFile> {
+
+		private final Iterator<File> files;
+		private final File projectDir;
+		private RunRecordReader reader;
+		private File file;
+		private JavaFile next;
+
+		RecordIterator(List<File> recordFiles, File projectDir) {
+			this.files = recordFiles.iterator();
+			this.projectDir = projectDir;
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (null == next) {
+				try {
+					if (null == reader) {
+						if (!files.hasNext()) {
+							return;
+						}
+						file = files.next();
+						reader = new RunRecordReader(file, projectDir);
+					}
+					next = reader.read();
+				} catch (IOException e) {
+					LOG.error("Error when reading run record: " + file.getAbsolutePath(), e);
+				}
+				if (null == next && null != reader) {
+					try {
+						reader.close();
+					} catch (IOException e) {
+						LOG.warn("Cannot close run record: " + file.getAbsolutePath(), e);
+					}
+					reader = null;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return null != next;
+		}
+
+		@Override
+		public JavaFile next() {
+			if (null == next) {
+				throw new NoSuchElementException();
+			}
+			JavaFile javaFile = next;
+			advance();
+			return javaFile;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -17,20 +17,22 @@
 package hu.juranyi.zsolt.jauthortagger.model;
 
 /**
- * <b>JAuthorTagger</b> has 4 choices on how to handle backups of your original
+ * <b>JAuthorTagger</b> has 5 choices on how to handle backups of your original
  * <code>.java</code> files. At least one of them should suit your needs. :)
  *
  * @author Zsolt Jurányi
  * @see #BACKUP
  * @see #NO_BACKUP
  * @see #RESTORE
+ * @see #SHADOW
  * @see #TEST
  */
 public enum BackupMode {
 
 	/**
 	 * A backup will be created of every <code>.java</code> file in your
-	 * project, before modifying the original ones.
+	 * project which changes, before modifying the original. Unchanged files
+	 * are neither backed up nor rewritten.
 	 */
 	BACKUP, //
 	/**
@@ -42,6 +44,12 @@ public enum BackupMode {
 	 * undo modifications.
 	 */
 	RESTORE, //
+	/**
+	 * Your <code>.java</code> files will remain unmodified, the modified files
+	 * will be written into a separate output directory which mirrors the
+	 * project's directory structure.
+	 */
+	SHADOW, //
 	/**
 	 * Your <code>.java</code> files will remain unmodified, new test files will
 	 * be created instead.
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import hu.juranyi.zsolt.jauthortagger.util.SegmentTrie;
+import hu.juranyi.zsolt.jauthortagger.util.SymbolTable;
+
+/**
+ * <p>
+ * Compact, column oriented <code>JavaFileTable</code> for very large projects.
+ * Instead of a <code>JavaFile</code>, a <code>File</code>, a type name
+ * <code>String</code> and an author list per file, every field is stored in
+ * its own array:
+ * </p>
+ * <ul>
+ * <li>directories as nodes of a shared path trie, so they are stored once,
+ * </li>
+ * <li>type names as a node of a package name trie plus the simple name,</li>
+ * <li>file names only if they cannot be derived from the simple name,</li>
+ * <li>authors as arrays of IDs in an author symbol table, equal arrays are
+ * shared,</li>
+ * <li>declaration lines and diff results as plain arrays.</li>
+ * </ul>
+ * <p>
+ * <code>get(int)</code> and the iterator build a new <code>JavaFile</code>
+ * object on every call, changes made on it are kept only if they are stored
+ * back with <code>update(int, JavaFile)</code>. Trie nodes and symbols are
+ * never removed, even if no row refers to them anymore. Instances are not
+ * thread safe.
+ * </p>
+ * <p>
+ * Currently only <code>JAuthorTagger.check()</code> uses it. Tagging runs keep
+ * <code>JavaFiles</code>, as their stages change the <code>JavaFile</code>
+ * objects in place, and the checkpoint recognizes resumed files by identity.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see JavaFileTable
+ * @see SegmentTrie
+ * @see SymbolTable
+ *
+ */
+public class ColumnarJavaFiles implements JavaFileTable {
+
+	private static final String JAVA_EXTENSION = ".java";
+
+	private final SegmentTrie paths = new SegmentTrie(File.separatorChar);
+	private final SegmentTrie packages = new SegmentTrie('.');
+	private final SymbolTable authors = new SymbolTable();
+	private final Map<AuthorIds, int[]> authorIdArrays = new HashMap<AuthorIds, int[]>();
+	private int size;
+	private int[] dirNodes; // -1 if the path has no parent
+	private String[] fileNames; // null if derived from the simple name
+	private int[] packageNodes; // -1 if there is no type name
+	private String[] simpleNames;
+	private int[][] authorIds;
+	private int[] typeDeclarationStartLines;
+	private DiffResult[] diffResults;
+
+	/**
+	 * Creates an empty table with an initial capacity of ten rows.
+	 */
+	public ColumnarJavaFiles() {
+		this(10);
+	}
+
+	/**
+	 * Creates a table containing the given <code>JavaFile</code> objects, in
+	 * the order they are returned by the iterator.
+	 *
+	 * @param javaFiles
+	 *            - The <code>JavaFile</code> objects to store.
+	 */
+	public ColumnarJavaFiles(Iterable<? extends JavaFile> javaFiles) {
+		this(10);
+		for (JavaFile javaFile : javaFiles) {
+			add(javaFile);
+		}
+	}
+
+	/**
+	 * Creates an empty table with the given initial capacity.
+	 *
+	 * @param initialCapacity
+	 *            - The initial capacity in rows.
+	 */
+	public ColumnarJavaFiles(int initialCapacity) {
+		int capacity = Math.max(1, initialCapacity);
+		dirNodes = new int[capacity];
+		fileNames = new String[capacity];
+		packageNodes = new int[capacity];
+		simpleNames = new String[capacity];
+		authorIds = new int[capacity][];
+		typeDeclarationStartLines = new int[capacity];
+		diffResults = new DiffResult[capacity];
+	}
+
+	@Override
+	public boolean add(JavaFile javaFile) {
+		if (size == dirNodes.length) {
+			resize(size + (size >> 1) + 1);
+		}
+		store(size, javaFile);
+		size++;
+		return true;
+	}
+
+	@Override
+	public void addAuthor(String classFilter, String author) {
+		apply(ConfigRule.add(classFilter, author));
+	}
+
+	@Override
+	public void delAuthor(String classFilter, String authorFilter) {
+		apply(ConfigRule.delete(classFilter, authorFilter));
+	}
+
+	@Override
+	public JavaFile get(int index) {
+		checkIndex(index);
+		JavaFile javaFile = new JavaFile(getFile(index));
+		javaFile.setTypeName(getTypeName(index));
+		for (int id : authorIds[index]) {
+			javaFile.getAuthors().add(authors.get(id));
+		}
+		javaFile.setTypeDeclarationStartLine(typeDeclarationStartLines[index]);
+		javaFile.setDiffResult(diffResults[index]);
+		return javaFile;
+	}
+
+	@Override
+	public List<String> getAuthors(int index) {
+		checkIndex(index);
+		final int[] ids = authorIds[index];
+		return new AbstractList<String>() {
+
+			@Override
+			public String get(int i) {
+				return authors.get(ids[i]);
+			}
+
+			@Override
+			public int size() {
+				return ids.length;
+			}
+		};
+	}
+
+	@Override
+	public DiffResult getDiffResult(int index) {
+		checkIndex(index);
+		return diffResults[index];
+	}
+
+	@Override
+	public File getFile(int index) {
+		checkIndex(index);
+		String fileName = fileNames[index];
+		if (null == fileName) {
+			fileName = simpleNames[index] + JAVA_EXTENSION;
+		}
+		int dirNode = dirNodes[index];
+		return -1 == dirNode ? new File(fileName) : new File(paths.toString(dirNode), fileName);
+	}
+
+	/**
+	 * Returns the number of nodes in the path trie, which is the number of
+	 * distinct directories referred by the rows, and their parents.
+	 *
+	 * @return The number of nodes in the path trie.
+	 */
+	public int getPathNodeCount() {
+		return paths.size();
+	}
+
+	@Override
+	public int getTypeDeclarationStartLine(int index) {
+		checkIndex(index);
+		return typeDeclarationStartLines[index];
+	}
+
+	@Override
+	public String getTypeName(int index) {
+		checkIndex(index);
+		int packageNode = packageNodes[index];
+		if (-1 == packageNode) {
+			return null;
+		}
+		String simpleName = simpleNames[index];
+		return SegmentTrie.ROOT == packageNode ? simpleName : packages.toString(packageNode) + "." + simpleName;
+	}
+
+	@Override
+	public Iterator<JavaFile> iterator() {
+		return new Iterator<JavaFile>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public JavaFile next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return get(next++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public JavaFile remove(int index) {
+		JavaFile javaFile = get(index);
+		int moved = size - index - 1;
+		System.arraycopy(dirNodes, index + 1, dirNodes, index, moved);
+		System.arraycopy(fileNames, index + 1, fileNames, index, moved);
+		System.arraycopy(packageNodes, index + 1, packageNodes, index, moved);
+		System.arraycopy(simpleNames, index + 1, simpleNames, index, moved);
+		System.arraycopy(authorIds, index + 1, authorIds, index, moved);
+		System.arraycopy(typeDeclarationStartLines, index + 1, typeDeclarationStartLines, index, moved);
+		System.arraycopy(diffResults, index + 1, diffResults, index, moved);
+		truncate(size - 1);
+		return javaFile;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void skip(String classFilter) {
+		apply(ConfigRule.skip(classFilter));
+	}
+
+	/**
+	 * Shrinks the arrays to the number of rows.
+	 */
+	public void trimToSize() {
+		resize(Math.max(1, size));
+	}
+
+	@Override
+	public void truncate(int newSize) {
+		if (0 > newSize || newSize > size) {
+			throw new IndexOutOfBoundsException("New size: " + newSize + ", Size: " + size);
+		}
+		for (int i = newSize; i < size; i++) {
+			fileNames[i] = null;
+			simpleNames[i] = null;
+			authorIds[i] = null;
+			diffResults[i] = null;
+		}
+		size = newSize;
+	}
+
+	@Override
+	public void update(int index, JavaFile javaFile) {
+		checkIndex(index);
+		store(index, javaFile);
+	}
+
+	/**
+	 * Applies the rule on the rows matching its class name filter, and
+	 * removes the rows to be skipped in one pass.
+	 */
+	private void apply(ConfigRule rule) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (rule.getClassFilter().accept(getTypeName(i))) {
+				JavaFile javaFile = get(i);
+				if (!rule.apply(javaFile)) {
+					continue;
+				}
+				update(i, javaFile);
+			}
+			if (kept != i) {
+				dirNodes[kept] = dirNodes[i];
+				fileNames[kept] = fileNames[i];
+				packageNodes[kept] = packageNodes[i];
+				simpleNames[kept] = simpleNames[i];
+				authorIds[kept] = authorIds[i];
+				typeDeclarationStartLines[kept] = typeDeclarationStartLines[i];
+				diffResults[kept] = diffResults[i];
+			}
+			kept++;
+		}
+		truncate(kept);
+	}
+
+	private void checkIndex(int index) {
+		if (0 > index || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void resize(int capacity) {
+		dirNodes = Arrays.copyOf(dirNodes, capacity);
+		fileNames = Arrays.copyOf(fileNames, capacity);
+		packageNodes = Arrays.copyOf(packageNodes, capacity);
+		simpleNames = Arrays.copyOf(simpleNames, capacity);
+		authorIds = Arrays.copyOf(authorIds, capacity);
+		typeDeclarationStartLines = Arrays.copyOf(typeDeclarationStartLines, capacity);
+		diffResults = Arrays.copyOf(diffResults, capacity);
+	}
+
+	/**
+	 * Encodes the fields of the <code>JavaFile</code> object into the given
+	 * row of the arrays.
+	 */
+	private void store(int index, JavaFile javaFile) {
+		File file = javaFile.getFile();
+		String dir = file.getParent();
+		dirNodes[index] = null == dir ? -1 : paths.add(dir);
+
+		String typeName = javaFile.getTypeName();
+		String simpleName = typeName;
+		int dot = null == typeName ? -1 : typeName.lastIndexOf('.');
+		if (null == typeName) {
+			packageNodes[index] = -1;
+		} else if (0 < dot) {
+			packageNodes[index] = packages.add(typeName.substring(0, dot));
+			simpleName = typeName.substring(dot + 1);
+		} else {
+			packageNodes[index] = SegmentTrie.ROOT;
+		}
+		simpleNames[index] = simpleName;
+		String fileName = file.getName();
+		if (null != simpleName && fileName.length() == simpleName.length() + JAVA_EXTENSION.length()
+				&& fileName.startsWith(simpleName) && fileName.endsWith(JAVA_EXTENSION)) {
+			fileName = null; // derived from the simple name
+		}
+		fileNames[index] = fileName;
+
+		List<String> names = javaFile.getAuthors();
+		int[] ids = new int[names.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = authors.idOf(names.get(i));
+		}
+		AuthorIds key = new AuthorIds(ids);
+		int[] shared = authorIdArrays.get(key);
+		if (null == shared) {
+			authorIdArrays.put(key, ids);
+			shared = ids;
+		}
+		authorIds[index] = shared;
+		typeDeclarationStartLines[index] = javaFile.getTypeDeclarationStartLine();
+		diffResults[index] = javaFile.getDiffResult();
+	}
+
+	/**
+	 * Key of an author ID array, to share equal arrays between rows.
+	 */
+	private static class AuthorIds {
+
+		private final int[] ids;
+
+		private AuthorIds(int[] ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof AuthorIds && Arrays.equals(ids, ((AuthorIds) obj).ids);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(ids);
+		}
+	}
+
+}
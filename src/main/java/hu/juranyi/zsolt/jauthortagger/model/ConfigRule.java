@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.util.ClassNameFilter;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.SimpleStringFilter;
+
+/**
+ * One compiled operation of the project configuration. The filters are
+ * compiled once when the rule is created, and the rule can be applied on
+ * <code>JavaFile</code> objects one by one, so the configuration can be
+ * applied on a file without seeing the others. Rules are immutable, so they
+ * can be shared between threads.
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTaggerConfig
+ * @see JavaFile
+ *
+ */
+public class ConfigRule {
+
+	/**
+	 * The operations a rule can perform.
+	 */
+	public enum Action {
+		/**
+		 * Adds an author to the matching classes.
+		 */
+		ADD, //
+		/**
+		 * Removes matching authors from the matching classes.
+		 */
+		DELETE, //
+		/**
+		 * Removes the matching classes from the procedure.
+		 */
+		SKIP;
+	}
+
+	private static final Logger LOG = Log.forClass(ConfigRule.class);
+	private static final ConcurrentMap<String, ClassNameFilter> CLASS_FILTERS = new ConcurrentHashMap<String, ClassNameFilter>();
+	private static final ConcurrentMap<String, SimpleStringFilter> AUTHOR_FILTERS = new ConcurrentHashMap<String, SimpleStringFilter>();
+
+	/**
+	 * Creates a rule which adds the given author to the classes matching the
+	 * class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to select <code>JavaFile</code> objects.
+	 * @param author
+	 *            - Author to be added.
+	 * @return The rule.
+	 * @see ClassNameFilter
+	 */
+	public static ConfigRule add(String classFilter, String author) {
+		return new ConfigRule(Action.ADD, classFilterOf(classFilter), JavaFile.AUTHORS.intern(author), null);
+	}
+
+	/**
+	 * Creates a rule which removes the authors matching the author filter from
+	 * the classes matching the class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to select <code>JavaFile</code> objects.
+	 * @param authorFilter
+	 *            - Simple filter to apply on authors.
+	 * @return The rule.
+	 * @see ClassNameFilter
+	 * @see SimpleStringFilter
+	 */
+	public static ConfigRule delete(String classFilter, String authorFilter) {
+		return new ConfigRule(Action.DELETE, classFilterOf(classFilter), null, authorFilterOf(authorFilter));
+	}
+
+	/**
+	 * Creates a rule which skips the classes matching the class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to select <code>JavaFile</code> objects.
+	 * @return The rule.
+	 * @see ClassNameFilter
+	 */
+	public static ConfigRule skip(String classFilter) {
+		return new ConfigRule(Action.SKIP, classFilterOf(classFilter), null, null);
+	}
+
+	/**
+	 * Returns the compiled author filter. Filters are immutable, so they are
+	 * compiled once and shared by all configurations loaded in the JVM.
+	 */
+	private static SimpleStringFilter authorFilterOf(String filter) {
+		SimpleStringFilter f = AUTHOR_FILTERS.get(filter);
+		if (null == f) {
+			f = new SimpleStringFilter(filter);
+			SimpleStringFilter existing = AUTHOR_FILTERS.putIfAbsent(filter, f);
+			if (null != existing) {
+				f = existing;
+			}
+		}
+		return f;
+	}
+
+	/**
+	 * Returns the compiled class name filter, shared like author filters.
+	 */
+	private static ClassNameFilter classFilterOf(String filter) {
+		ClassNameFilter f = CLASS_FILTERS.get(filter);
+		if (null == f) {
+			f = new ClassNameFilter(filter);
+			ClassNameFilter existing = CLASS_FILTERS.putIfAbsent(filter, f);
+			if (null != existing) {
+				f = existing;
+			}
+		}
+		return f;
+	}
+
+	private final Action action;
+	private final ClassNameFilter classFilter;
+	private final String author;
+	private final SimpleStringFilter authorFilter;
+
+	private ConfigRule(Action action, ClassNameFilter classFilter, String author, SimpleStringFilter authorFilter) {
+		this.action = action;
+		this.classFilter = classFilter;
+		this.author = author;
+		this.authorFilter = authorFilter;
+	}
+
+	/**
+	 * Applies the rule on the given <code>JavaFile</code> object if its type
+	 * name matches the class name filter.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object to work on.
+	 * @return <code>false</code> if the file should be skipped,
+	 *         <code>true</code> otherwise.
+	 */
+	public boolean apply(JavaFile javaFile) {
+		if (!classFilter.accept(javaFile.getTypeName())) {
+			return true;
+		}
+		List<String> authors = javaFile.getAuthors();
+		if (Action.ADD == action) {
+			LOG.trace("{} >> {}", author, javaFile.getTypeName());
+			if (!authors.contains(author)) {
+				authors.add(author);
+			}
+		} else if (Action.DELETE == action) {
+			int i = 0;
+			while (i < authors.size()) {
+				if (authorFilter.accept(authors.get(i))) {
+					LOG.trace("{} << {}", authors.get(i), javaFile.getTypeName());
+					authors.remove(i);
+				} else {
+					i++;
+				}
+			}
+		} else if (Action.SKIP == action) {
+			LOG.trace("DELETE :: {}", javaFile.getTypeName());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the action.
+	 *
+	 * @return The action.
+	 */
+	public Action getAction() {
+		return action;
+	}
+
+	/**
+	 * Returns the author to be added, used by <code>ADD</code> rules.
+	 *
+	 * @return The author to be added.
+	 */
+	public String getAuthor() {
+		return author;
+	}
+
+	/**
+	 * Returns the author filter, used by <code>DELETE</code> rules.
+	 *
+	 * @return The author filter.
+	 */
+	public SimpleStringFilter getAuthorFilter() {
+		return authorFilter;
+	}
+
+	/**
+	 * Returns the class name filter.
+	 *
+	 * @return The class name filter.
+	 */
+	public ClassNameFilter getClassFilter() {
+		return classFilter;
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigRule [action=" + action + ", classFilter=" + classFilter.getFilter() + ", author=" + author
+				+ ", authorFilter=" + (null == authorFilter ? null : authorFilter.getFilter()) + "]";
+	}
+
+}
@@ -16,52 +16,304 @@
 
 package hu.juranyi.zsolt.jauthortagger.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+import difflib.ChangeDelta;
+import difflib.Chunk;
+import difflib.DeleteDelta;
+import difflib.Delta;
+import difflib.DiffUtils;
+import difflib.InsertDelta;
 import difflib.Patch;
 
 /**
- * A simple POJO to store the calculated diff result of the original and
- * modified <code>.java</code> files. It is needed to generate a diff report to
- * the user.
+ * <p>
+ * Stores the calculated diff result of the original and modified
+ * <code>.java</code> files. It is needed to generate a diff report to the user.
+ * </p>
+ * <p>
+ * The result is stored in a compact form: deltas are kept as line ranges in an
+ * <code>int</code> array, and only those lines are stored which are needed to
+ * reproduce the deltas and their context (the changed lines and the context
+ * lines around them). These lines are concatenated into one shared
+ * <code>String</code> buffer and addressed by offsets. The
+ * <code>difflib.Patch</code> object and the unified diff are rebuilt on demand,
+ * when the report asks for them. The compact form can also be written to and
+ * read from a binary stream.
+ * </p>
  *
  * @author Zsolt Jurányi
  *
  */
 public class DiffResult {
 
-	private final Patch<String> patch;
-	private final List<String> unifiedDiff;
+	/**
+	 * Number of unchanged lines shown around changes in the unified diff.
+	 */
+	public static final int CONTEXT_SIZE = 3;
 
 	/**
-	 * Creates an instance.
+	 * Number of <code>int</code> values stored per delta: type, original
+	 * position, original size, revised position, revised size.
+	 */
+	private static final int DELTA_FIELDS = 5;
+
+	private final String originalName;
+	private final String revisedName;
+	private final int originalSize;
+	private final int[] deltas;
+	private final int[] ranges;
+	private final String buffer;
+	private final int[] offsets;
+
+	/**
+	 * Creates an instance from the calculated patch. Only the lines needed to
+	 * reproduce the patch and the unified diff will be kept from the original
+	 * content.
 	 *
+	 * @param originalName
+	 *            - The original file's name to use in the unified diff.
+	 * @param revisedName
+	 *            - The modified file's name to use in the unified diff.
+	 * @param originalContent
+	 *            - Lines of the original content.
 	 * @param patch
 	 *            - A <code>difflib.Patch</code> object which stores deltas.
-	 * @param unifiedDiff
-	 *            - Lines of a unified diff generated from the patch.
 	 */
-	public DiffResult(Patch<String> patch, List<String> unifiedDiff) {
-		this.patch = patch;
-		this.unifiedDiff = unifiedDiff;
+	public DiffResult(String originalName, String revisedName, List<String> originalContent, Patch<String> patch) {
+		List<Delta<String>> patchDeltas = patch.getDeltas();
+		this.originalName = originalName;
+		this.revisedName = revisedName;
+		this.originalSize = originalContent.size();
+		this.deltas = new int[patchDeltas.size() * DELTA_FIELDS];
+
+		// collect deltas and the original line ranges to keep (with context)
+		int[] r = new int[patchDeltas.size() * 2];
+		int rc = 0;
+		int d = 0;
+		for (Delta<String> delta : patchDeltas) {
+			deltas[d++] = delta.getType().ordinal();
+			deltas[d++] = delta.getOriginal().getPosition();
+			deltas[d++] = delta.getOriginal().size();
+			deltas[d++] = delta.getRevised().getPosition();
+			deltas[d++] = delta.getRevised().size();
+
+			int from = Math.max(0, delta.getOriginal().getPosition() - CONTEXT_SIZE);
+			int to = Math.min(originalSize, delta.getOriginal().last() + 1 + CONTEXT_SIZE);
+			if (0 < rc && r[rc - 1] >= from) {
+				r[rc - 1] = Math.max(r[rc - 1], to); // merge overlapping ranges
+			} else {
+				r[rc++] = from;
+				r[rc++] = to;
+			}
+		}
+		this.ranges = Arrays.copyOf(r, rc);
+
+		// build shared buffer: kept original lines, then revised lines
+		int lineCount = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			lineCount += ranges[i + 1] - ranges[i];
+		}
+		for (Delta<String> delta : patchDeltas) {
+			lineCount += delta.getRevised().size();
+		}
+		StringBuilder sb = new StringBuilder();
+		this.offsets = new int[lineCount + 1];
+		int l = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			for (int j = ranges[i]; j < ranges[i + 1]; j++) {
+				offsets[l++] = sb.length();
+				sb.append(originalContent.get(j));
+			}
+		}
+		for (Delta<String> delta : patchDeltas) {
+			for (String line : delta.getRevised().getLines()) {
+				offsets[l++] = sb.length();
+				sb.append(line);
+			}
+		}
+		offsets[l] = sb.length();
+		this.buffer = sb.toString();
+	}
+
+	private DiffResult(String originalName, String revisedName, int originalSize, int[] deltas, int[] ranges,
+			String buffer, int[] offsets) {
+		this.originalName = originalName;
+		this.revisedName = revisedName;
+		this.originalSize = originalSize;
+		this.deltas = deltas;
+		this.ranges = ranges;
+		this.buffer = buffer;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Reads a diff result written by <code>write(DataOutput)</code>.
+	 *
+	 * @param in
+	 *            - The input to read from.
+	 * @return The diff result.
+	 * @throws IOException
+	 *             If reading fails.
+	 * @see #write(DataOutput)
+	 */
+	public static DiffResult read(DataInput in) throws IOException {
+		String originalName = in.readUTF();
+		String revisedName = in.readUTF();
+		int originalSize = in.readInt();
+		int[] deltas = readInts(in);
+		int[] ranges = readInts(in);
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		int[] offsets = readInts(in);
+		return new DiffResult(originalName, revisedName, originalSize, deltas, ranges, new String(bytes, "UTF-8"),
+				offsets);
+	}
+
+	private static int[] readInts(DataInput in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private static void writeInts(DataOutput out, int[] values) throws IOException {
+		out.writeInt(values.length);
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	/**
+	 * Returns the original file's name used in the unified diff.
+	 *
+	 * @return The original file's name used in the unified diff.
+	 */
+	public String getOriginalName() {
+		return originalName;
 	}
 
 	/**
-	 * Returns the <code>difflib.Patch</code> object which stores deltas.
+	 * Rebuilds the <code>difflib.Patch</code> object which stores deltas. A new
+	 * object is created on every call.
 	 *
 	 * @return The <code>difflib.Patch</code> object which stores deltas.
 	 */
 	public Patch<String> getPatch() {
+		Patch<String> patch = new Patch<String>();
+		int revisedLine = offsets.length - 1;
+		for (int d = 0; d < deltas.length; d += DELTA_FIELDS) {
+			revisedLine -= deltas[d + 4];
+		}
+		List<String> original = new SparseOriginalLines();
+		for (int d = 0; d < deltas.length; d += DELTA_FIELDS) {
+			Chunk<String> o = new Chunk<String>(deltas[d + 1], original.subList(deltas[d + 1], deltas[d + 1]
+					+ deltas[d + 2]));
+			Chunk<String> r = new Chunk<String>(deltas[d + 3], Arrays.asList(lines(revisedLine, deltas[d + 4])));
+			revisedLine += deltas[d + 4];
+			Delta.TYPE type = Delta.TYPE.values()[deltas[d]];
+			if (Delta.TYPE.INSERT == type) {
+				patch.addDelta(new InsertDelta<String>(o, r));
+			} else if (Delta.TYPE.DELETE == type) {
+				patch.addDelta(new DeleteDelta<String>(o, r));
+			} else {
+				patch.addDelta(new ChangeDelta<String>(o, r));
+			}
+		}
 		return patch;
 	}
 
 	/**
-	 * Returns the lines of the unified diff generated from the patch.
+	 * Returns the modified file's name used in the unified diff.
+	 *
+	 * @return The modified file's name used in the unified diff.
+	 */
+	public String getRevisedName() {
+		return revisedName;
+	}
+
+	/**
+	 * Renders the lines of the unified diff generated from the patch. The lines
+	 * are generated on every call, they are not stored.
 	 *
 	 * @return The lines of the unified diff generated from the patch.
 	 */
 	public List<String> getUnifiedDiff() {
-		return unifiedDiff;
+		return DiffUtils.generateUnifiedDiff(originalName, revisedName, new SparseOriginalLines(), getPatch(),
+				CONTEXT_SIZE);
+	}
+
+	/**
+	 * Tells whether the original and the modified contents are identical.
+	 *
+	 * @return <code>true</code> if there are no deltas.
+	 */
+	public boolean isEmpty() {
+		return 0 == deltas.length;
+	}
+
+	/**
+	 * Writes the compact form of this diff result to the given output.
+	 *
+	 * @param out
+	 *            - The output to write to.
+	 * @throws IOException
+	 *             If writing fails.
+	 * @see #read(DataInput)
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(originalName);
+		out.writeUTF(revisedName);
+		out.writeInt(originalSize);
+		writeInts(out, deltas);
+		writeInts(out, ranges);
+		byte[] bytes = buffer.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		writeInts(out, offsets);
+	}
+
+	private String line(int index) {
+		return buffer.substring(offsets[index], offsets[index + 1]);
+	}
+
+	private String[] lines(int from, int count) {
+		String[] lines = new String[count];
+		for (int i = 0; i < count; i++) {
+			lines[i] = line(from + i);
+		}
+		return lines;
 	}
 
+	/**
+	 * View of the original content which serves the kept lines from the shared
+	 * buffer. Lines outside of the kept ranges are not available.
+	 */
+	private class SparseOriginalLines extends AbstractList<String> {
+
+		@Override
+		public String get(int index) {
+			int bufferIndex = 0;
+			for (int i = 0; i < ranges.length; i += 2) {
+				if (index < ranges[i]) {
+					break;
+				} else if (index < ranges[i + 1]) {
+					return line(bufferIndex + index - ranges[i]);
+				}
+				bufferIndex += ranges[i + 1] - ranges[i];
+			}
+			throw new IndexOutOfBoundsException("Line is not stored: " + index);
+		}
+
+		@Override
+		public int size() {
+			return originalSize;
+		}
+	}
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+/**
+ * Tells <b>JAuthorTagger</b> how to schedule the work on the files.
+ *
+ * @author Zsolt Jurányi
+ * @see #SEQUENTIAL
+ * @see #PIPELINE
+ * @see #PER_FILE
+ */
+public enum ExecutionMode {
+
+	/**
+	 * Stages run one after another, each over the full list of files, on the
+	 * main thread.
+	 */
+	SEQUENTIAL, //
+	/**
+	 * Stages run at the same time on their own threads, connected with bounded
+	 * queues: enumeration, analysis, configuration, writing and diff
+	 * calculation overlap.
+	 */
+	PIPELINE, //
+	/**
+	 * Every file is processed on its own thread (a virtual thread when the JRE
+	 * supports it), from analysis to diff calculation. The number of files
+	 * being read or written at the same time is capped.
+	 */
+	PER_FILE;
+
+}
@@ -18,6 +18,8 @@ package hu.juranyi.zsolt.jauthortagger.model;
 
 import java.io.File;
 
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+
 /**
  * Constants of filenames, filename parts and related helper functions brought
  * to one place.
@@ -32,6 +34,16 @@ public class Filenames {
 	 */
 	private static final String BACKUP_FILE_SUFFIX = ".at-save";
 
+	/**
+	 * Name of the backup store directory: <code>.authors-backup</code>
+	 */
+	private static final String BACKUP_STORE_DIR = ".authors-backup";
+
+	/**
+	 * Filename prefix of the checkpoint files: <code>.authors-checkpoint-</code>
+	 */
+	private static final String CHECKPOINT_PREFIX = ".authors-checkpoint-";
+
 	/**
 	 * Filename of the generated diff report:
 	 * <code>.authors-diff-report.html</code>
@@ -44,6 +56,23 @@ public class Filenames {
 	 */
 	public static final String DIFF_REPORT_TEMPLATE = "authors-diff-report.vm";
 
+	/**
+	 * Filename of the write-ahead journal: <code>.authors-journal</code>
+	 */
+	private static final String JOURNAL_FILE = ".authors-journal";
+
+	/**
+	 * Filename of the manifest of backed up files:
+	 * <code>.authors-manifest</code>
+	 */
+	private static final String MANIFEST_FILE = ".authors-manifest";
+
+	/**
+	 * Filename of the flight recording written with the <code>--profile</code>
+	 * option: <code>.authors-profile.jfr</code>
+	 */
+	private static final String PROFILE_FILE = ".authors-profile.jfr";
+
 	/**
 	 * The configuration file's name: <code>.authors</code>
 	 */
@@ -54,6 +83,30 @@ public class Filenames {
 	 */
 	private static final String PROJECT_LOG_FILE = ".authors-log";
 
+	/**
+	 * Filename of the run record spilled by a run in chunks:
+	 * <code>.authors-run-record</code>
+	 */
+	private static final String RUN_RECORD_FILE = ".authors-run-record";
+
+	/**
+	 * Default name of the output directory of <code>SHADOW</code> mode:
+	 * <code>.authors-shadow</code>
+	 */
+	private static final String SHADOW_DIR = ".authors-shadow";
+
+	/**
+	 * Filename of the file marking an output directory created by
+	 * <code>SHADOW</code> mode: <code>.authors-shadow-root</code>
+	 */
+	private static final String SHADOW_MARKER_FILE = ".authors-shadow-root";
+
+	/**
+	 * Filename prefix of partial run records written by shards:
+	 * <code>.authors-shard-</code>
+	 */
+	private static final String SHARD_RECORD_PREFIX = ".authors-shard-";
+
 	/**
 	 * Additional file extension for temporary files: <code>.at-temp</code>
 	 */
@@ -79,6 +132,38 @@ public class Filenames {
 		return new File(javaFile.getAbsolutePath() + BACKUP_FILE_SUFFIX);
 	}
 
+	/**
+	 * Creates a new <code>File</code> object that points to the backup store
+	 * directory of the given project directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return A new <code>File</code> object that points to the backup store
+	 *         directory of the given project directory.
+	 * @see #BACKUP_STORE_DIR
+	 */
+	public static File backupStoreOf(File projectDir) {
+		return new File(projectDir, BACKUP_STORE_DIR);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to a checkpoint file
+	 * of the given project directory, e.g.
+	 * <code>.authors-checkpoint-done</code>.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param part
+	 *            - The part of the checkpoint, appended to
+	 *            <code>CHECKPOINT_PREFIX</code>.
+	 * @return A new <code>File</code> object that points to the checkpoint
+	 *         file.
+	 * @see #CHECKPOINT_PREFIX
+	 */
+	public static File checkpointOf(File projectDir, String part) {
+		return new File(projectDir, CHECKPOINT_PREFIX + part);
+	}
+
 	/**
 	 * Creates a new <code>File</code> object that points to the configuration
 	 * file of the given project directory. Basically it appends
@@ -127,6 +212,173 @@ public class Filenames {
 		return new File(projectDir, PROJECT_LOG_FILE);
 	}
 
+	/**
+	 * Creates a new <code>File</code> object that points to the flight
+	 * recording of the given project directory. Basically it appends
+	 * <code>PROFILE_FILE</code> to the given path as a file inside the
+	 * directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return A new <code>File</code> object that points to the flight
+	 *         recording of the given project directory.
+	 * @see #PROFILE_FILE
+	 */
+	public static File profileFileOf(File projectDir) {
+		return new File(projectDir, PROFILE_FILE);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the run record
+	 * which a run in chunks spills its results into, in the given directory.
+	 * Basically it appends <code>RUN_RECORD_FILE</code> to the given path as a
+	 * file inside the directory.
+	 *
+	 * @param dir
+	 *            - The directory of the diff report.
+	 * @return A new <code>File</code> object that points to the run record.
+	 * @see #RUN_RECORD_FILE
+	 */
+	public static File runRecordOf(File dir) {
+		return new File(dir, RUN_RECORD_FILE);
+	}
+
+	/**
+	 * Tells whether the given file is a partial run record written by a shard.
+	 *
+	 * @param file
+	 *            - The file to check.
+	 * @return <code>true</code> if the filename starts with
+	 *         <code>SHARD_RECORD_PREFIX</code>.
+	 * @see #SHARD_RECORD_PREFIX
+	 */
+	public static boolean isShardRecord(File file) {
+		return file.getName().startsWith(SHARD_RECORD_PREFIX);
+	}
+
+	/**
+	 * Tells whether the given file is a sidecar file created by
+	 * <b>JAuthorTagger</b> next to a <code>.java</code> file: a backup, a
+	 * temporary or a test file.
+	 *
+	 * @param file
+	 *            - The file.
+	 * @return <code>true</code> if the file is a sidecar file.
+	 * @see #BACKUP_FILE_SUFFIX
+	 * @see #TEMP_FILE_SUFFIX
+	 * @see #TEST_FILE_SUFFIX
+	 */
+	public static boolean isSidecar(File file) {
+		String name = file.getName();
+		return name.endsWith(BACKUP_FILE_SUFFIX) || name.endsWith(TEMP_FILE_SUFFIX)
+				|| name.endsWith(TEST_FILE_SUFFIX);
+	}
+
+	/**
+	 * Tells whether the given file is a temporary file created by
+	 * <b>JAuthorTagger</b>.
+	 *
+	 * @param file
+	 *            - The file.
+	 * @return <code>true</code> if the file is a temporary file.
+	 * @see #TEMP_FILE_SUFFIX
+	 */
+	public static boolean isTempFile(File file) {
+		return file.getName().endsWith(TEMP_FILE_SUFFIX);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the write-ahead
+	 * journal in the given project directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return A new <code>File</code> object that points to the journal.
+	 * @see #JOURNAL_FILE
+	 */
+	public static File journalOf(File projectDir) {
+		return new File(projectDir, JOURNAL_FILE);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the manifest of
+	 * backed up files in the given project directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return A new <code>File</code> object that points to the manifest.
+	 * @see #MANIFEST_FILE
+	 */
+	public static File manifestOf(File projectDir) {
+		return new File(projectDir, MANIFEST_FILE);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the partial run
+	 * record of the given shard in the given project directory, e.g.
+	 * <code>.authors-shard-2-of-4</code>.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param shardIndex
+	 *            - The index of the shard, starting from 1.
+	 * @param shardCount
+	 *            - The number of shards.
+	 * @return A new <code>File</code> object that points to the partial run
+	 *         record of the shard.
+	 * @see #SHARD_RECORD_PREFIX
+	 */
+	public static File shardRecordOf(File projectDir, int shardIndex, int shardCount) {
+		return new File(projectDir, SHARD_RECORD_PREFIX + shardIndex + "-of-" + shardCount);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the default output
+	 * directory of <code>SHADOW</code> mode inside the given project
+	 * directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return A new <code>File</code> object that points to the default output
+	 *         directory.
+	 * @see #SHADOW_DIR
+	 */
+	public static File shadowDirOf(File projectDir) {
+		return new File(projectDir, SHADOW_DIR);
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the copy of the
+	 * given file in the output directory of <code>SHADOW</code> mode. Its path
+	 * inside the output directory is the same as the path of the original
+	 * file inside the project directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param outputDir
+	 *            - The output directory.
+	 * @param javaFile
+	 *            - The original file.
+	 * @return A new <code>File</code> object that points to the copy in the
+	 *         output directory.
+	 */
+	public static File shadowFileOf(File projectDir, File outputDir, File javaFile) {
+		return new File(outputDir, IOUtils.relativePath(projectDir.getAbsolutePath(), javaFile));
+	}
+
+	/**
+	 * Creates a new <code>File</code> object that points to the marker file of
+	 * the given output directory of <code>SHADOW</code> mode.
+	 *
+	 * @param outputDir
+	 *            - The output directory.
+	 * @return A new <code>File</code> object that points to the marker file.
+	 * @see #SHADOW_MARKER_FILE
+	 */
+	public static File shadowMarkerOf(File outputDir) {
+		return new File(outputDir, SHADOW_MARKER_FILE);
+	}
+
 	/**
 	 * Creates a new <code>File</code> object that points to the temporary file
 	 * used for the given file. Basically it appends
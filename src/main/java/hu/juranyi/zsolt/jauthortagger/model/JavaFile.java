@@ -23,6 +23,7 @@ import java.util.List;
 import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
 import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
 import hu.juranyi.zsolt.jauthortagger.output.DiffReportWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Interner;
 
 /**
  * Model class representing a <code>.java</code> file. It stores a
@@ -39,6 +40,12 @@ import hu.juranyi.zsolt.jauthortagger.output.DiffReportWriter;
  */
 public class JavaFile {
 
+	/**
+	 * Canonical author names, shared by all files and projects processed in
+	 * the JVM.
+	 */
+	public static final Interner<String> AUTHORS = new Interner<String>();
+
 	private final File file;
 	private String typeName;
 	private final List<String> authors = new ArrayList<String>();
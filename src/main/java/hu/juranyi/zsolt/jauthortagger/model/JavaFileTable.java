@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import java.io.File;
+import java.util.List;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+
+/**
+ * <p>
+ * An indexed collection of <code>.java</code> files, which can be stored row
+ * by row (<code>JavaFiles</code>) or column by column
+ * (<code>ColumnarJavaFiles</code>). Code written against this interface
+ * works with both.
+ * </p>
+ * <p>
+ * The <code>JavaFile</code> object returned by <code>get(int)</code> may be a
+ * copy built from the stored fields, so changes made on it must be stored
+ * back with <code>update(int, JavaFile)</code>. The fields of a row can also
+ * be read one by one, without creating a <code>JavaFile</code> object.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTaggerConfig#loadAndApply(JavaFileTable)
+ * @see ColumnarJavaFiles
+ * @see JavaFiles
+ *
+ */
+public interface JavaFileTable extends Iterable<JavaFile> {
+
+	/**
+	 * Appends a row holding the fields of the given <code>JavaFile</code>
+	 * object.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 * @return <code>true</code>
+	 */
+	boolean add(JavaFile javaFile);
+
+	/**
+	 * Adds the given author to the rows whose type name matches the given
+	 * class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to apply on the rows.
+	 * @param author
+	 *            - Author to be added.
+	 * @see ConfigRule#add(String, String)
+	 */
+	void addAuthor(String classFilter, String author);
+
+	/**
+	 * Deletes the authors matching the given author filter from the rows
+	 * whose type name matches the given class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to apply on the rows.
+	 * @param authorFilter
+	 *            - Simple filter to apply on authors.
+	 * @see ConfigRule#delete(String, String)
+	 */
+	void delAuthor(String classFilter, String authorFilter);
+
+	/**
+	 * Returns the <code>JavaFile</code> object of the given row. It may be a
+	 * copy, see <code>update(int, JavaFile)</code>.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The <code>JavaFile</code> object.
+	 */
+	JavaFile get(int index);
+
+	/**
+	 * Returns the authors of the given row. The list must not be modified.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The authors.
+	 */
+	List<String> getAuthors(int index);
+
+	/**
+	 * Returns the diff result of the given row.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The diff result or <code>null</code>.
+	 */
+	DiffResult getDiffResult(int index);
+
+	/**
+	 * Returns the <code>File</code> object of the given row.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The <code>File</code> object.
+	 */
+	File getFile(int index);
+
+	/**
+	 * Returns the line index of the type declaration's first line in the
+	 * given row.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The line index or -1.
+	 */
+	int getTypeDeclarationStartLine(int index);
+
+	/**
+	 * Returns the type name of the given row.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The type name or <code>null</code>.
+	 */
+	String getTypeName(int index);
+
+	/**
+	 * Removes the given row, the following rows are shifted down.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @return The <code>JavaFile</code> object of the removed row.
+	 */
+	JavaFile remove(int index);
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return The number of rows.
+	 */
+	int size();
+
+	/**
+	 * Removes the rows whose type name matches the given class name filter.
+	 *
+	 * @param classFilter
+	 *            - Class name filter to select the rows to remove.
+	 * @see ConfigRule#skip(String)
+	 */
+	void skip(String classFilter);
+
+	/**
+	 * Removes the rows from the given index on, the rows before it are kept.
+	 *
+	 * @param newSize
+	 *            - The number of rows to keep.
+	 */
+	void truncate(int newSize);
+
+	/**
+	 * Stores the fields of the given <code>JavaFile</code> object into the
+	 * given row.
+	 *
+	 * @param index
+	 *            - The row index.
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object, usually the one returned
+	 *            by <code>get(int)</code>.
+	 */
+	void update(int index, JavaFile javaFile);
+
+}
@@ -16,26 +16,27 @@
 
 package hu.juranyi.zsolt.jauthortagger.model;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import org.slf4j.Logger;
-
 import hu.juranyi.zsolt.jauthortagger.util.ClassNameFilter;
-import hu.juranyi.zsolt.jauthortagger.util.Log;
 import hu.juranyi.zsolt.jauthortagger.util.SimpleStringFilter;
 
 /**
  * Extends <code>ArrayList&lt;JavaFile&gt;</code> with some useful methods like
- * add/remove an author from some classes using a filter.
+ * add/remove an author from some classes using a filter. It is the row
+ * oriented <code>JavaFileTable</code>: <code>get(int)</code> returns the
+ * stored <code>JavaFile</code> object itself.
  *
  * @author Zsolt Jurányi
+ * @see ColumnarJavaFiles
+ * @see ConfigRule
  *
  */
-public class JavaFiles extends ArrayList<JavaFile> {
+public class JavaFiles extends ArrayList<JavaFile> implements JavaFileTable {
 
-	private static final Logger LOG = Log.forClass(JavaFiles.class);
 	private static final long serialVersionUID = 1L;
 
 	/**
@@ -79,15 +80,11 @@ public class JavaFiles extends ArrayList<JavaFile> {
 	 *            objects.
 	 * @see ClassNameFilter
 	 */
+	@Override
 	public void addAuthor(String classFilter, String author) {
-		ClassNameFilter filter = new ClassNameFilter(classFilter);
+		ConfigRule rule = ConfigRule.add(classFilter, author);
 		for (JavaFile javaFile : this) {
-			if (filter.accept(javaFile.getTypeName())) {
-				LOG.trace("{} >> {}", author, javaFile.getTypeName());
-				if (!javaFile.getAuthors().contains(author)) {
-					javaFile.getAuthors().add(author);
-				}
-			}
+			rule.apply(javaFile);
 		}
 	}
 
@@ -103,26 +100,39 @@ public class JavaFiles extends ArrayList<JavaFile> {
 	 * @see ClassNameFilter
 	 * @see SimpleStringFilter
 	 */
+	@Override
 	public void delAuthor(String classFilterStr, String authorFilterStr) {
-		ClassNameFilter classFilter = new ClassNameFilter(classFilterStr);
-		SimpleStringFilter authorFilter = new SimpleStringFilter(authorFilterStr);
+		ConfigRule rule = ConfigRule.delete(classFilterStr, authorFilterStr);
 		for (JavaFile javaFile : this) {
-			if (classFilter.accept(javaFile.getTypeName())) {
-				int i = 0;
-				List<String> authors = javaFile.getAuthors();
-				while (i < authors.size()) {
-					String author = authors.get(i);
-					if (authorFilter.accept(author)) {
-						LOG.trace("{} << {}", author, javaFile.getTypeName());
-						authors.remove(i);
-					} else {
-						i++;
-					}
-				}
-			}
+			rule.apply(javaFile);
 		}
 	}
 
+	@Override
+	public List<String> getAuthors(int index) {
+		return get(index).getAuthors();
+	}
+
+	@Override
+	public DiffResult getDiffResult(int index) {
+		return get(index).getDiffResult();
+	}
+
+	@Override
+	public File getFile(int index) {
+		return get(index).getFile();
+	}
+
+	@Override
+	public int getTypeDeclarationStartLine(int index) {
+		return get(index).getTypeDeclarationStartLine();
+	}
+
+	@Override
+	public String getTypeName(int index) {
+		return get(index).getTypeName();
+	}
+
 	/**
 	 * Removes <code>JavaFile</code> objects that match the given class name
 	 * filter.
@@ -131,13 +141,12 @@ public class JavaFiles extends ArrayList<JavaFile> {
 	 *            - Class name filter to select <code>JavaFile</code> objects to
 	 *            remove.
 	 */
+	@Override
 	public void skip(String classFilter) {
-		ClassNameFilter filter = new ClassNameFilter(classFilter);
+		ConfigRule rule = ConfigRule.skip(classFilter);
 		int i = 0;
 		while (i < size()) {
-			JavaFile javaFile = get(i);
-			if (filter.accept(javaFile.getTypeName())) {
-				LOG.trace("DELETE :: {}", javaFile.getTypeName());
+			if (!rule.apply(get(i))) {
 				remove(i);
 			} else {
 				i++;
@@ -145,4 +154,16 @@ public class JavaFiles extends ArrayList<JavaFile> {
 		}
 	}
 
+	@Override
+	public void truncate(int newSize) {
+		removeRange(newSize, size());
+	}
+
+	@Override
+	public void update(int index, JavaFile javaFile) {
+		if (get(index) != javaFile) {
+			set(index, javaFile);
+		}
+	}
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressReporter;
+
+/**
+ * An immutable snapshot of the progress of one stage of a run, created
+ * periodically by the progress reporter from the metrics of the run. Rates are
+ * averages since the stage started.
+ *
+ * @author Zsolt Jurányi
+ * @see ProgressReporter
+ *
+ */
+public class ProgressEvent {
+
+	private final Metrics.Stage stage;
+	private final long files;
+	private final long totalFiles;
+	private final long bytes;
+	private final long elapsedNanos;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param files
+	 *            - The number of files processed by the stage.
+	 * @param totalFiles
+	 *            - The number of files the stage is expected to process, or
+	 *            -1 if it is unknown.
+	 * @param bytes
+	 *            - The number of bytes read and written by the stage.
+	 * @param elapsedNanos
+	 *            - The time since the stage started in nanoseconds.
+	 */
+	public ProgressEvent(Metrics.Stage stage, long files, long totalFiles, long bytes, long elapsedNanos) {
+		this.stage = stage;
+		this.files = files;
+		this.totalFiles = totalFiles;
+		this.bytes = bytes;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of bytes read and written by the stage. Only the
+	 * writing stage counts bytes, it is 0 for the others.
+	 *
+	 * @return The number of bytes read and written by the stage.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the average throughput of the stage in bytes per second.
+	 *
+	 * @return Bytes per second.
+	 */
+	public double getBytesPerSecond() {
+		return perSecond(bytes);
+	}
+
+	/**
+	 * Returns the time since the stage started in nanoseconds.
+	 *
+	 * @return The time since the stage started.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Estimates the remaining time of the stage from its average throughput.
+	 *
+	 * @return The remaining time in seconds, or -1 if it cannot be estimated
+	 *         (the total is unknown or nothing has been processed yet).
+	 */
+	public long getEtaSeconds() {
+		if (0 > totalFiles || 0 == files || 0 == elapsedNanos) {
+			return -1;
+		}
+		return Math.round((totalFiles - files) / getFilesPerSecond());
+	}
+
+	/**
+	 * Returns the number of files processed by the stage.
+	 *
+	 * @return The number of files processed by the stage.
+	 */
+	public long getFiles() {
+		return files;
+	}
+
+	/**
+	 * Returns the average throughput of the stage in files per second.
+	 *
+	 * @return Files per second.
+	 */
+	public double getFilesPerSecond() {
+		return perSecond(files);
+	}
+
+	/**
+	 * Returns the stage.
+	 *
+	 * @return The stage.
+	 */
+	public Metrics.Stage getStage() {
+		return stage;
+	}
+
+	/**
+	 * Returns the number of files the stage is expected to process. While the
+	 * enumeration is running it only counts the files found so far.
+	 *
+	 * @return The expected number of files, or -1 if it is unknown.
+	 */
+	public long getTotalFiles() {
+		return totalFiles;
+	}
+
+	private double perSecond(long value) {
+		return 0 == elapsedNanos ? 0 : value * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "ProgressEvent [stage=" + stage + ", files=" + files + ", totalFiles=" + totalFiles + ", bytes="
+				+ bytes + ", elapsedNanos=" + elapsedNanos + "]";
+	}
+
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import java.io.File;
+
+/**
+ * A simple POJO to store the optional settings of a <b>JAuthorTagger</b> run.
+ * The default values reproduce the original behaviour of the program.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class RunOptions {
+
+	private boolean backupStore = false;
+	private int batchSize = 256;
+	private boolean checkpoint = false;
+	private int chunkSize = 0;
+	private boolean diffReport = true;
+	private boolean dryRun = false;
+	private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+	private boolean failFast = false;
+	private boolean fsync = false;
+	private boolean logSummary = false;
+	private int maxOpenFiles = 64;
+	private File metricsFile = null;
+	private File outputDir = null;
+	private boolean profile = false;
+	private boolean progress = false;
+	private long progressInterval = 5000;
+	private int queueCapacity = 256;
+	private boolean resume = false;
+	private int shardCount = 1;
+	private int shardIndex = 1;
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Returns the number of files committed together by the journal. The
+	 * default value is 256.
+	 *
+	 * @return The number of files committed together.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Returns the number of files processed together in bounded-memory mode.
+	 * The default value is 0, which means that every file is kept in memory
+	 * for the whole run.
+	 *
+	 * @return The number of files processed together, or 0.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Returns the execution mode. The default value is
+	 * <code>SEQUENTIAL</code>.
+	 *
+	 * @return The execution mode.
+	 * @see ExecutionMode
+	 */
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	/**
+	 * Returns the maximum number of files processed with open file handles at
+	 * the same time in <code>PER_FILE</code> execution mode. The default value
+	 * is 64.
+	 *
+	 * @return The maximum number of files with open handles.
+	 */
+	public int getMaxOpenFiles() {
+		return maxOpenFiles;
+	}
+
+	/**
+	 * Returns the file to export the metrics of the run into. The default
+	 * value is <code>null</code>, which means no export.
+	 *
+	 * @return The metrics file or <code>null</code>.
+	 */
+	public File getMetricsFile() {
+		return metricsFile;
+	}
+
+	/**
+	 * Returns the output directory of <code>SHADOW</code> mode. The default
+	 * value is <code>null</code>, which means the
+	 * <code>.authors-shadow</code> directory inside the project directory.
+	 *
+	 * @return The output directory or <code>null</code>.
+	 * @see BackupMode#SHADOW
+	 */
+	public File getOutputDir() {
+		return outputDir;
+	}
+
+	/**
+	 * Returns the time between two progress reports in milliseconds. The
+	 * default value is 5000.
+	 *
+	 * @return The time between two progress reports.
+	 */
+	public long getProgressInterval() {
+		return progressInterval;
+	}
+
+	/**
+	 * Returns the capacity of the queues between pipeline stages. The default
+	 * value is 256.
+	 *
+	 * @return The capacity of the queues between pipeline stages.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Returns the number of shards the run is split into. The default value is
+	 * 1, which means no sharding.
+	 *
+	 * @return The number of shards.
+	 */
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	/**
+	 * Returns the index of the shard to process, starting from 1. The default
+	 * value is 1.
+	 *
+	 * @return The index of the shard to process.
+	 */
+	public int getShardIndex() {
+		return shardIndex;
+	}
+
+	/**
+	 * Returns the number of worker threads per stage used by the
+	 * <code>PIPELINE</code> execution mode. The default value is the number of
+	 * available processors.
+	 *
+	 * @return The number of worker threads per stage.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns whether backups should be saved into the backup store of the
+	 * project instead of <code>.at-save</code> files. The default value is
+	 * <code>false</code>.
+	 *
+	 * @return Whether the backup store should be used.
+	 */
+	public boolean isBackupStore() {
+		return backupStore;
+	}
+
+	/**
+	 * Returns whether the progress of the run should be saved into a
+	 * checkpoint. The default value is <code>false</code>.
+	 *
+	 * @return Whether the progress should be saved.
+	 */
+	public boolean isCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * Returns whether the <code>clean</code> command should only count the
+	 * files instead of deleting them. The default value is <code>false</code>.
+	 *
+	 * @return Whether files should only be counted.
+	 */
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	/**
+	 * Returns whether the <code>check</code> command should stop at the first
+	 * file which is not tagged correctly. The default value is
+	 * <code>false</code>.
+	 *
+	 * @return Whether the check should stop at the first mismatch.
+	 */
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	/**
+	 * Returns whether written files should be forced to the disk when the
+	 * journal commits a batch. The default value is <code>false</code>.
+	 *
+	 * @return Whether files should be forced to the disk.
+	 */
+	public boolean isFsync() {
+		return fsync;
+	}
+
+	/**
+	 * Returns whether diffs should be calculated and the diff report should be
+	 * generated. The default value is <code>true</code>.
+	 *
+	 * @return Whether diffs should be calculated and the diff report should be
+	 *         generated.
+	 */
+	public boolean isDiffReport() {
+		return diffReport;
+	}
+
+	/**
+	 * Returns whether a summary of the metrics should be logged at the end of
+	 * the run. The default value is <code>false</code>.
+	 *
+	 * @return Whether a summary should be logged.
+	 */
+	public boolean isLogSummary() {
+		return logSummary;
+	}
+
+	/**
+	 * Returns whether the run should be recorded with <i>Java Flight
+	 * Recorder</i>. The default value is <code>false</code>.
+	 *
+	 * @return Whether the run should be recorded.
+	 */
+	public boolean isProfile() {
+		return profile;
+	}
+
+	/**
+	 * Returns whether the progress should be printed to the console. The
+	 * default value is <code>false</code>.
+	 *
+	 * @return Whether the progress should be printed.
+	 */
+	public boolean isProgress() {
+		return progress;
+	}
+
+	/**
+	 * Returns whether the run should continue from the checkpoint of an
+	 * interrupted run. The default value is <code>false</code>.
+	 *
+	 * @return Whether the run should be resumed.
+	 */
+	public boolean isResume() {
+		return resume;
+	}
+
+	/**
+	 * Sets whether backups should be saved into the backup store of the
+	 * project instead of <code>.at-save</code> files. Only the files which
+	 * actually change are backed up and rewritten.
+	 *
+	 * @param backupStore
+	 *            - Whether the backup store should be used.
+	 */
+	public void setBackupStore(boolean backupStore) {
+		this.backupStore = backupStore;
+	}
+
+	/**
+	 * Sets the number of files committed together by the journal.
+	 *
+	 * @param batchSize
+	 *            - The number of files committed together.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets whether the progress of the run should be saved into a checkpoint:
+	 * the analysis results of the files and the files written with their diff
+	 * results. An interrupted run can be continued from it with the
+	 * <code>resume</code> option.
+	 *
+	 * @param checkpoint
+	 *            - Whether the progress should be saved.
+	 */
+	public void setCheckpoint(boolean checkpoint) {
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Sets the number of files processed together in bounded-memory mode. When
+	 * it is positive, the enumerated files are processed in chunks of this
+	 * size, one stage after another, and the results needed by the diff
+	 * report are spilled into a run record instead of kept in memory. The
+	 * report is generated from the record at the end. The execution mode is
+	 * ignored in this mode.
+	 *
+	 * @param chunkSize
+	 *            - The number of files processed together, or 0.
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets whether diffs should be calculated and the diff report should be
+	 * generated. Unattended runs can turn it off to skip diff calculation and
+	 * report generation entirely.
+	 *
+	 * @param diffReport
+	 *            - Whether diffs should be calculated and the diff report
+	 *            should be generated.
+	 */
+	public void setDiffReport(boolean diffReport) {
+		this.diffReport = diffReport;
+	}
+
+	/**
+	 * Sets whether the <code>clean</code> command should only count the files
+	 * instead of deleting them.
+	 *
+	 * @param dryRun
+	 *            - Whether files should only be counted.
+	 */
+	public void setDryRun(boolean dryRun) {
+		this.dryRun = dryRun;
+	}
+
+	/**
+	 * Sets the execution mode.
+	 *
+	 * @param executionMode
+	 *            - The execution mode.
+	 * @see ExecutionMode
+	 */
+	public void setExecutionMode(ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+	}
+
+	/**
+	 * Sets whether the <code>check</code> command should stop at the first
+	 * file which is not tagged correctly.
+	 *
+	 * @param failFast
+	 *            - Whether the check should stop at the first mismatch.
+	 */
+	public void setFailFast(boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Sets whether written files should be forced to the disk when the
+	 * journal commits a batch. It makes the run safe against power loss too,
+	 * not only against the interruption of the process.
+	 *
+	 * @param fsync
+	 *            - Whether files should be forced to the disk.
+	 */
+	public void setFsync(boolean fsync) {
+		this.fsync = fsync;
+	}
+
+	/**
+	 * Sets whether a summary of the metrics (counters, and files and wall time
+	 * per stage) should be logged at the end of the run. The summary is logged
+	 * regardless of the log level, so the per-file lines can be turned off.
+	 *
+	 * @param logSummary
+	 *            - Whether a summary should be logged.
+	 */
+	public void setLogSummary(boolean logSummary) {
+		this.logSummary = logSummary;
+	}
+
+	/**
+	 * Sets the maximum number of files processed with open file handles at the
+	 * same time in <code>PER_FILE</code> execution mode.
+	 *
+	 * @param maxOpenFiles
+	 *            - The maximum number of files with open handles.
+	 * @throws IllegalArgumentException
+	 *             If the number is less than 1.
+	 */
+	public void setMaxOpenFiles(int maxOpenFiles) {
+		if (maxOpenFiles < 1) {
+			throw new IllegalArgumentException("Invalid maximum number of open files: " + maxOpenFiles);
+		}
+		this.maxOpenFiles = maxOpenFiles;
+	}
+
+	/**
+	 * Sets the file to export the metrics of the run into, in the text format
+	 * of <i>Prometheus</i>. It is rewritten at the end of every run, so it can
+	 * be placed into the directory of the textfile collector of the node
+	 * exporter.
+	 *
+	 * @param metricsFile
+	 *            - The metrics file.
+	 */
+	public void setMetricsFile(File metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
+	/**
+	 * Sets the output directory of <code>SHADOW</code> mode. It can be on a
+	 * different (e.g. faster) storage than the project. An existing directory
+	 * is only accepted if it is empty or was created by a previous
+	 * <code>SHADOW</code> run, in the latter case it is emptied first.
+	 *
+	 * @param outputDir
+	 *            - The output directory.
+	 * @see BackupMode#SHADOW
+	 */
+	public void setOutputDir(File outputDir) {
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Sets the capacity of the queues between pipeline stages.
+	 *
+	 * @param queueCapacity
+	 *            - The capacity of the queues between pipeline stages.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Sets whether the run should be recorded with <i>Java Flight
+	 * Recorder</i>. The recording is written next to the log file of the
+	 * project, and it contains the events of every file and stage.
+	 *
+	 * @param profile
+	 *            - Whether the run should be recorded.
+	 */
+	public void setProfile(boolean profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Sets whether the progress (files and bytes per second and the estimated
+	 * remaining time of the stages) should be printed to the console
+	 * periodically by the CLI.
+	 *
+	 * @param progress
+	 *            - Whether the progress should be printed.
+	 */
+	public void setProgress(boolean progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Sets the time between two progress reports, used by the console and by
+	 * the progress listeners of the API.
+	 *
+	 * @param progressInterval
+	 *            - The time between two progress reports in milliseconds.
+	 * @throws IllegalArgumentException
+	 *             If the time is less than 1 millisecond.
+	 */
+	public void setProgressInterval(long progressInterval) {
+		if (progressInterval < 1) {
+			throw new IllegalArgumentException("Invalid progress interval: " + progressInterval);
+		}
+		this.progressInterval = progressInterval;
+	}
+
+	/**
+	 * Sets whether the run should continue from the checkpoint of an
+	 * interrupted run. The files already written are skipped, and the saved
+	 * analysis results are reused. A resumed run saves checkpoints too.
+	 *
+	 * @param resume
+	 *            - Whether the run should be resumed.
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume;
+	}
+
+	/**
+	 * Sets which part of the files this run should process. Files are assigned
+	 * to shards by a stable hash of their path, so runs with the same shard
+	 * count and different indexes process disjoint sets of files.
+	 *
+	 * @param shardIndex
+	 *            - The index of the shard to process, starting from 1.
+	 * @param shardCount
+	 *            - The number of shards.
+	 * @throws IllegalArgumentException
+	 *             If the index is not between 1 and the shard count.
+	 */
+	public void setShard(int shardIndex, int shardCount) {
+		if (shardCount < 1 || shardIndex < 1 || shardIndex > shardCount) {
+			throw new IllegalArgumentException("Invalid shard: " + shardIndex + "/" + shardCount);
+		}
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Sets the number of worker threads per stage used by the
+	 * <code>PIPELINE</code> execution mode.
+	 *
+	 * @param threads
+	 *            - The number of worker threads per stage.
+	 * @throws IllegalArgumentException
+	 *             If the number is less than 1.
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid number of threads: " + threads);
+		}
+		this.threads = threads;
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.model;
+
+import java.util.List;
+
+/**
+ * A simple POJO which carries a <code>JavaFile</code> through the stages of a
+ * pipelined run. Besides the <code>JavaFile</code>, it holds the original and
+ * modified contents between the writing and the diff calculation stages.
+ *
+ * @author Zsolt Jurányi
+ * @see JavaFile
+ *
+ */
+public class TaggingJob {
+
+	private final JavaFile javaFile;
+	private List<String> originalContent;
+	private List<String> modifiedContent;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> to process.
+	 */
+	public TaggingJob(JavaFile javaFile) {
+		this.javaFile = javaFile;
+	}
+
+	/**
+	 * Returns the <code>JavaFile</code> object.
+	 *
+	 * @return The <code>JavaFile</code> object.
+	 */
+	public JavaFile getJavaFile() {
+		return javaFile;
+	}
+
+	/**
+	 * Returns the lines of the modified content.
+	 *
+	 * @return The lines of the modified content.
+	 */
+	public List<String> getModifiedContent() {
+		return modifiedContent;
+	}
+
+	/**
+	 * Returns the lines of the original content.
+	 *
+	 * @return The lines of the original content.
+	 */
+	public List<String> getOriginalContent() {
+		return originalContent;
+	}
+
+	/**
+	 * Sets the lines of the modified content.
+	 *
+	 * @param modifiedContent
+	 *            - The lines of the modified content.
+	 */
+	public void setModifiedContent(List<String> modifiedContent) {
+		this.modifiedContent = modifiedContent;
+	}
+
+	/**
+	 * Sets the lines of the original content.
+	 *
+	 * @param originalContent
+	 *            - The lines of the original content.
+	 */
+	public void setOriginalContent(List<String> originalContent) {
+		this.originalContent = originalContent;
+	}
+
+}
@@ -19,8 +19,10 @@ package hu.juranyi.zsolt.jauthortagger.output;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.RESTORE;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.SHADOW;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.TEST;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.backupFileOf;
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.shadowFileOf;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.tempFileOf;
 import static hu.juranyi.zsolt.jauthortagger.model.Filenames.testFileOf;
 import static hu.juranyi.zsolt.jauthortagger.model.JavaFilePatterns.AUTHOR_PATTERN;
@@ -30,6 +32,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
 
 import org.slf4j.Logger;
@@ -37,7 +43,10 @@ import org.slf4j.Logger;
 import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
 import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
 
 /**
  * This class does the real magic: the injecting of <code>@author</code> tags
@@ -52,6 +61,9 @@ public class AuthorTagWriter {
 
 	private static final Logger LOG = Log.forClass(AuthorTagWriter.class);
 	private final BackupMode backupMode;
+	private final BackupStore backupStore;
+	private final File projectDir;
+	private final File outputDir;
 
 	/**
 	 * Creates an instance.
@@ -61,7 +73,45 @@ public class AuthorTagWriter {
 	 * @see BackupMode
 	 */
 	public AuthorTagWriter(BackupMode backupMode) {
+		this(backupMode, null);
+	}
+
+	/**
+	 * Creates an instance which saves backups into the given backup store
+	 * instead of <code>.at-save</code> files in <code>BACKUP</code> mode. In
+	 * this case files whose content would not change are left untouched.
+	 *
+	 * @param backupMode
+	 *            - The <code>BackupMode</code> object.
+	 * @param backupStore
+	 *            - The backup store, or <code>null</code> to use
+	 *            <code>.at-save</code> files.
+	 * @see BackupMode
+	 * @see BackupStore
+	 */
+	public AuthorTagWriter(BackupMode backupMode, BackupStore backupStore) {
 		this.backupMode = backupMode;
+		this.backupStore = backupStore;
+		this.projectDir = null;
+		this.outputDir = null;
+	}
+
+	/**
+	 * Creates an instance which works in <code>SHADOW</code> mode: it writes
+	 * the modified files and their temporary files into the given output
+	 * directory, and leaves the project directory untouched.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param outputDir
+	 *            - The output directory.
+	 * @see BackupMode#SHADOW
+	 */
+	public AuthorTagWriter(File projectDir, File outputDir) {
+		this.backupMode = SHADOW;
+		this.backupStore = null;
+		this.projectDir = projectDir;
+		this.outputDir = outputDir;
 	}
 
 	/**
@@ -79,129 +129,329 @@ public class AuthorTagWriter {
 	 *
 	 * @param javaFile
 	 *            - The <code>JavaFile</code> to process.
+	 * @return <code>true</code> if the content of the file has changed (or a
+	 *         backup has been restored in <code>RESTORE</code> mode).
 	 * @see BackupMode
 	 * @see JavaFile
 	 * @see JavaFileAnalyzer#analyzeJavaFile(JavaFile)
 	 */
-	public void writeAuthorTags(JavaFile javaFile) {
+	public boolean writeAuthorTags(JavaFile javaFile) {
+		return writeAuthorTags(javaFile, null, null);
+	}
+
+	/**
+	 * Injects the <code>@author</code> tags into the <code>.java</code> file
+	 * the same way as <code>writeAuthorTags(JavaFile)</code> does, and also
+	 * collects the lines read and the lines written during the copying. This
+	 * way the diff can be calculated without reading the files again.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> to process.
+	 * @param originalContent
+	 *            - List to collect the lines of the original content into, can
+	 *            be <code>null</code>.
+	 * @param modifiedContent
+	 *            - List to collect the lines of the modified content into, can
+	 *            be <code>null</code>.
+	 * @return <code>true</code> if the content of the file has changed (or a
+	 *         backup has been restored in <code>RESTORE</code> mode).
+	 * @see #writeAuthorTags(JavaFile)
+	 */
+	public boolean writeAuthorTags(JavaFile javaFile, List<String> originalContent, List<String> modifiedContent) {
 		if (null == javaFile || null == javaFile.getFile()) {
-			return;
+			return false;
 		}
 
-		// I/O init
-		File inputFile = javaFile.getFile();
-		File testFile = testFileOf(javaFile.getFile());
-		File outputFile = (TEST == backupMode) ? testFile : javaFile.getFile();
-		File backupFile = backupFileOf(javaFile.getFile());
-		File tempFile = tempFileOf(javaFile.getFile());
-
 		// restoring
 		if (RESTORE == backupMode) {
+			File backupFile = backupFileOf(javaFile.getFile());
 			if (backupFile.exists()) {
-				outputFile.delete();
-				backupFile.renameTo(outputFile);
+				javaFile.getFile().delete();
+				return backupFile.renameTo(javaFile.getFile());
 			}
-			return;
+			return false;
 		}
 
+		try {
+			boolean changed = prepareAuthorTags(javaFile, originalContent, modifiedContent);
+			return commitAuthorTags(javaFile.getFile(), changed) && changed;
+		} catch (IOException e) {
+			LOG.error("Error while writing author tags", e);
+			return false;
+		}
+	}
+
+	/**
+	 * First phase of the writing: copies the <code>.java</code> file into its
+	 * temporary file, injecting the <code>@author</code> tags. The original
+	 * file is not modified, the temporary file has to be moved to its place
+	 * with <code>commitAuthorTags</code>. If copying fails, the temporary file
+	 * is deleted.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> to process.
+	 * @param originalContent
+	 *            - List to collect the lines of the original content into, can
+	 *            be <code>null</code>.
+	 * @param modifiedContent
+	 *            - List to collect the lines of the modified content into, can
+	 *            be <code>null</code>.
+	 * @return <code>true</code> if the content has changed.
+	 * @throws IOException
+	 *             If reading the file or writing the temporary file fails.
+	 * @see #commitAuthorTags(File, boolean)
+	 */
+	public boolean prepareAuthorTags(JavaFile javaFile, List<String> originalContent, List<String> modifiedContent)
+			throws IOException {
+		File inputFile = javaFile.getFile();
+		File tempFile = tempFileOf(outputFileOf(inputFile));
+
 		// previous test files should be deleted
-		if (TEST != backupMode) {
-			testFile.delete();
+		if (TEST != backupMode && SHADOW != backupMode) {
+			testFileOf(inputFile).delete();
+		}
+
+		// the output directory mirrors the project
+		if (SHADOW == backupMode) {
+			tempFile.getParentFile().mkdirs();
 		}
 
 		// and backups is sometimes
 		if (NO_BACKUP == backupMode) {
-			backupFile.delete();
+			backupFileOf(inputFile).delete();
 		}
 
-		LOG.info("Processing type: {}", javaFile.getTypeName());
+		LOG.debug("Processing type: {}", javaFile.getTypeName());
 
 		// let's roll
+		Profiler.Span span = Profiler.file("write");
 		Scanner s = null;
 		BufferedWriter w = null;
+		boolean completed = false;
 		try {
 			s = new Scanner(inputFile, "UTF-8");
 			w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF8"));
-			int ln = -1;
-			boolean javadocFound = false;
-			boolean authorsWritten = false;
-
-			// copy first part - till the type declaration
-			// replace author list during copying
-			while (ln <= javaFile.getTypeDeclarationStartLine() && s.hasNextLine()) {
-				ln++;
-				String line = s.nextLine();
-				boolean atJavadocStart = line.startsWith("/**");
-				boolean atJavadocEnd = javadocFound && line.trim().equals("*/");
-				boolean atTypeDeclaration = ln == javaFile.getTypeDeclarationStartLine();
-				boolean isAuthorLine = javadocFound && AUTHOR_PATTERN.matcher(line).find();
-				boolean noJavadoc = atTypeDeclaration && !javadocFound;
-
-				if (atJavadocStart) {
-					javadocFound = true;
-
-				} else if (!authorsWritten) {
-
-					if (noJavadoc) {
-						w.write("/**");
-						w.newLine();
-					}
+			boolean changed = copyWithAuthorTags(javaFile, IOUtils.lines(s), w, originalContent, modifiedContent);
+			w.close();
+			completed = true;
+			span.finish(inputFile.getPath(), span.isEnabled() ? tempFile.length() : 0);
+			return changed;
+		} finally {
+			if (null != s) {
+				s.close();
+			}
+			if (!completed) {
+				if (null != w) {
+					w.close();
+				}
+				tempFile.delete();
+			}
+		}
+	}
 
-					if (noJavadoc || atJavadocEnd || isAuthorLine) {
-						for (String author : javaFile.getAuthors()) {
-							w.write(" * @author " + author);
-							w.newLine();
-						}
-						authorsWritten = true;
-					}
+	/**
+	 * Injects the <code>@author</code> tags into the given content and writes
+	 * the result into the given writer, without touching any file. The
+	 * <code>File</code> object of the <code>JavaFile</code> is only used as
+	 * the logical name of the content. It is used by editor integrations,
+	 * which pipe one buffer through the tagger.
+	 *
+	 * @param javaFile
+	 *            - The analyzed <code>JavaFile</code> object.
+	 * @param lines
+	 *            - The lines of the original content.
+	 * @param out
+	 *            - The writer to write the modified content into. It is
+	 *            flushed, but not closed.
+	 * @return <code>true</code> if the content has changed.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public boolean filterAuthorTags(JavaFile javaFile, List<String> lines, Writer out) throws IOException {
+		BufferedWriter w = new BufferedWriter(out);
+		boolean changed = copyWithAuthorTags(javaFile, lines.iterator(), w, null, null);
+		w.flush();
+		return changed;
+	}
 
-					if (noJavadoc) {
-						w.write(" */");
-						w.newLine();
+	/**
+	 * Copies the content, injecting the <code>@author</code> tags.
+	 *
+	 * @return <code>true</code> if the content has changed.
+	 */
+	private boolean copyWithAuthorTags(JavaFile javaFile, Iterator<String> s, BufferedWriter w,
+			List<String> originalContent, List<String> modifiedContent) throws IOException {
+		int ln = -1;
+		boolean javadocFound = false;
+		boolean authorsWritten = false;
+		List<String> headerRead = new ArrayList<String>();
+		List<String> headerWritten = new ArrayList<String>();
+
+		// copy first part - till the type declaration
+		// replace author list during copying
+		while (ln <= javaFile.getTypeDeclarationStartLine() && s.hasNext()) {
+			ln++;
+			String line = readLine(s, headerRead);
+			boolean atJavadocStart = line.startsWith("/**");
+			boolean atJavadocEnd = javadocFound && line.trim().equals("*/");
+			boolean atTypeDeclaration = ln == javaFile.getTypeDeclarationStartLine();
+			boolean isAuthorLine = javadocFound && AUTHOR_PATTERN.matcher(line).find();
+			boolean noJavadoc = atTypeDeclaration && !javadocFound;
+
+			if (atJavadocStart) {
+				javadocFound = true;
+
+			} else if (!authorsWritten) {
+
+				if (noJavadoc) {
+					writeLine(w, "/**", headerWritten);
+				}
+
+				if (noJavadoc || atJavadocEnd || isAuthorLine) {
+					for (String author : javaFile.getAuthors()) {
+						writeLine(w, " * @author " + author, headerWritten);
 					}
+					authorsWritten = true;
 				}
 
-				// print the current line except its an old author tag
-				// (we printed merged old authors above)
-				if (!isAuthorLine) {
-					w.write(line);
-					w.newLine();
+				if (noJavadoc) {
+					writeLine(w, " */", headerWritten);
 				}
 			}
 
-			// copy the rest of the file
-			while (s.hasNextLine()) {
-				w.write(s.nextLine());
-				w.newLine();
+			// print the current line except its an old author tag
+			// (we printed merged old authors above)
+			if (!isAuthorLine) {
+				writeLine(w, line, headerWritten);
 			}
+		}
 
-			w.flush();
-		} catch (IOException e) {
-			LOG.error("Error while writing author tags", e);
-		} finally {
-			if (null != s) {
-				s.close();
-			}
-			if (null != w) {
-				try {
-					w.close();
+		// only the first part can change
+		boolean changed = !headerRead.equals(headerWritten);
+		if (null != originalContent) {
+			originalContent.addAll(headerRead);
+		}
+		if (null != modifiedContent) {
+			modifiedContent.addAll(headerWritten);
+		}
 
-					// save backup if needed
-					if (BACKUP == backupMode) {
-						LOG.trace("Backuping to: {}", backupFile.getAbsolutePath());
-						backupFile.delete();
-						outputFile.renameTo(backupFile);
-					}
+		// copy the rest of the file
+		while (s.hasNext()) {
+			writeLine(w, readLine(s, originalContent), modifiedContent);
+		}
+		return changed;
+	}
+
+	/**
+	 * Second phase of the writing: moves the temporary file written by
+	 * <code>prepareAuthorTags</code> to its place according to the backup mode,
+	 * saving the backup first in <code>BACKUP</code> mode. In
+	 * <code>BACKUP</code> mode unchanged files are left alone, they are neither
+	 * backed up nor rewritten. Files are moved atomically where the file system
+	 * supports it. The method can be called again after an interruption: it
+	 * does nothing if the temporary file is already gone, and it does not
+	 * backup the same file twice.
+	 *
+	 * @param file
+	 *            - The <code>.java</code> file.
+	 * @param changed
+	 *            - Whether the content has changed, as returned by
+	 *            <code>prepareAuthorTags</code>.
+	 * @return <code>true</code> if the temporary file was found and handled.
+	 * @throws IOException
+	 *             If saving the backup or moving the file fails.
+	 * @see #prepareAuthorTags(JavaFile, List, List)
+	 */
+	public boolean commitAuthorTags(File file, boolean changed) throws IOException {
+		File outputFile = outputFileOf(file);
+		File tempFile = tempFileOf(outputFile);
+		if (!tempFile.exists()) {
+			return false;
+		}
+
+		// backup: touch only the changed files, unchanged ones need no backup
+		if (BACKUP == backupMode && !changed) {
+			tempFile.delete();
+			return true;
+		}
 
-					// place the file to the right place
-					LOG.trace("Writing {}", outputFile.getAbsolutePath());
-					outputFile.delete();
-					tempFile.renameTo(outputFile);
-				} catch (IOException e) {
-					LOG.error("Error when closing temp file", e);
+		// backup store
+		if (BACKUP == backupMode && null != backupStore) {
+			if (file.exists()) {
+				if (LOG.isTraceEnabled()) {
+					LOG.trace("Backuping to store: {}", file.getAbsolutePath());
 				}
+				backupStore.put(file);
 			}
 		}
+
+		// save backup if needed
+		else if (BACKUP == backupMode && file.exists()) {
+			File backupFile = backupFileOf(file);
+			if (LOG.isTraceEnabled()) {
+				LOG.trace("Backuping to: {}", backupFile.getAbsolutePath());
+			}
+			IOUtils.moveAtomically(file, backupFile);
+		}
+
+		// place the file to the right place
+		if (LOG.isTraceEnabled()) {
+			LOG.trace("Writing {}", outputFile.getAbsolutePath());
+		}
+		IOUtils.moveAtomically(tempFile, outputFile);
+		return true;
+	}
+
+	/**
+	 * Returns the file where the modified content of the given file is placed
+	 * according to the backup mode.
+	 *
+	 * @param file
+	 *            - The <code>.java</code> file.
+	 * @return The file to write.
+	 */
+	public File outputFileOf(File file) {
+		if (TEST == backupMode) {
+			return testFileOf(file);
+		} else if (SHADOW == backupMode) {
+			return shadowFileOf(projectDir, outputDir, file);
+		}
+		return file;
+	}
+
+	/**
+	 * Returns the backup mode.
+	 *
+	 * @return The backup mode.
+	 */
+	public BackupMode getBackupMode() {
+		return backupMode;
+	}
+
+	/**
+	 * Returns the backup store.
+	 *
+	 * @return The backup store, or <code>null</code> if <code>.at-save</code>
+	 *         files are used.
+	 */
+	public BackupStore getBackupStore() {
+		return backupStore;
+	}
+
+	private String readLine(Iterator<String> s, List<String> sink) {
+		String line = s.next();
+		if (null != sink) {
+			sink.add(line);
+		}
+		return line;
+	}
+
+	private void writeLine(BufferedWriter w, String line, List<String> sink) throws IOException {
+		w.write(line);
+		w.newLine();
+		if (null != sink) {
+			sink.add(line);
+		}
 	}
 
 }
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.output;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+
+/**
+ * <p>
+ * Saves the progress of a tagging run, so an interrupted run can be resumed.
+ * The checkpoint consists of two run record files in the project directory:
+ * </p>
+ * <ul>
+ * <li><code>.authors-checkpoint-plan</code> - the files to process with their
+ * analysis results (type name, declaration line and the authors after
+ * applying the configuration); it has an end mark only if it lists every
+ * file,</li>
+ * <li><code>.authors-checkpoint-done</code> - the files which have been
+ * written, with their diff results.</li>
+ * </ul>
+ * <p>
+ * Written files are recorded when the journal commits their batch, so the
+ * checkpoint is saved periodically and never lists a file whose writing could
+ * be rolled back. A resumed run skips the files already done, and reuses the
+ * analysis results of the planned ones. If the plan is complete, enumeration
+ * is skipped too. Instances are thread safe.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see Journal
+ * @see RunRecordWriter
+ *
+ */
+public class Checkpoint implements Journal.Listener {
+
+	private static final Logger LOG = Log.forClass(Checkpoint.class);
+
+	/**
+	 * Tells whether the given project directory has a checkpoint.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return <code>true</code> if the checkpoint exists.
+	 */
+	public static boolean exists(File projectDir) {
+		return Filenames.checkpointOf(projectDir, "plan").isFile();
+	}
+
+	private final File projectDir;
+	private final String basePath;
+	private final BackupMode backupMode;
+	private final Map<String, JavaFile> planned = new LinkedHashMap<String, JavaFile>();
+	private final Map<String, JavaFile> done = new LinkedHashMap<String, JavaFile>();
+	private final Map<String, JavaFile> prepared = new HashMap<String, JavaFile>();
+	private final Set<JavaFile> preAnalyzed = Collections.newSetFromMap(new IdentityHashMap<JavaFile, Boolean>());
+	private final JavaFiles resumedDone;
+	private boolean planComplete;
+	private RunRecordWriter planWriter;
+	private RunRecordWriter doneWriter;
+
+	/**
+	 * Creates an instance. If <code>resume</code> is <code>true</code> and
+	 * the project has a checkpoint, it is loaded, and the files which have
+	 * been rolled forward by the journal recovery are considered done too.
+	 * Otherwise a new checkpoint is started.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param backupMode
+	 *            - The backup mode of the run.
+	 * @param resume
+	 *            - Whether the existing checkpoint should be loaded.
+	 * @param recovered
+	 *            - Files rolled forward by the journal recovery.
+	 * @throws IOException
+	 *             If the checkpoint cannot be read or written, or it was made
+	 *             by a run with a different backup mode.
+	 */
+	public Checkpoint(File projectDir, BackupMode backupMode, boolean resume, Collection<File> recovered)
+			throws IOException {
+		this.projectDir = projectDir;
+		this.basePath = projectDir.getAbsolutePath();
+		this.backupMode = backupMode;
+		if (resume && exists(projectDir)) {
+			try {
+				load(recovered);
+			} catch (EOFException e) {
+				LOG.warn("Checkpoint is empty, starting from the beginning");
+				planComplete = false;
+				planned.clear();
+				preAnalyzed.clear();
+				done.clear();
+			}
+		} else if (resume) {
+			LOG.warn("No checkpoint found, starting from the beginning");
+		}
+		if (!planComplete) {
+			planWriter = new RunRecordWriter(Filenames.checkpointOf(projectDir, "plan"), projectDir, backupMode);
+			for (JavaFile javaFile : planned.values()) {
+				planWriter.write(javaFile);
+			}
+		}
+
+		resumedDone = new JavaFiles(done.values());
+
+		// rewrite done records into a new file, then continue it
+		File doneFile = Filenames.checkpointOf(projectDir, "done");
+		File tempFile = Filenames.tempFileOf(doneFile);
+		RunRecordWriter w = new RunRecordWriter(tempFile, projectDir, backupMode);
+		for (JavaFile javaFile : done.values()) {
+			w.write(javaFile);
+		}
+		w.close();
+		IOUtils.moveAtomically(tempFile, doneFile);
+		doneWriter = new RunRecordWriter(doneFile, projectDir, backupMode, true);
+	}
+
+	private void load(Collection<File> recovered) throws IOException {
+		try (RunRecordReader r = new RunRecordReader(Filenames.checkpointOf(projectDir, "plan"), projectDir)) {
+			if (backupMode != r.getBackupMode()) {
+				throw new IOException("Checkpoint was made in " + r.getBackupMode() + " mode");
+			}
+			planComplete = readTolerantly(r, planned);
+		}
+		File doneFile = Filenames.checkpointOf(projectDir, "done");
+		if (doneFile.isFile()) {
+			try (RunRecordReader r = new RunRecordReader(doneFile, projectDir)) {
+				readTolerantly(r, done);
+			}
+		}
+		for (File file : recovered) {
+			String path = IOUtils.relativePath(basePath, file);
+			if (!done.containsKey(path)) {
+				JavaFile javaFile = planned.containsKey(path) ? planned.get(path) : new JavaFile(file);
+				done.put(path, javaFile);
+			}
+		}
+		preAnalyzed.addAll(planned.values());
+		LOG.info("Resuming from checkpoint: {} files planned{}, {} done", planned.size(), planComplete ? ""
+				: " so far", done.size());
+	}
+
+	private boolean readTolerantly(RunRecordReader r, Map<String, JavaFile> into) throws IOException {
+		try {
+			JavaFile javaFile;
+			while (null != (javaFile = r.read())) {
+				into.put(IOUtils.relativePath(basePath, javaFile.getFile()), javaFile);
+			}
+			return true;
+		} catch (EOFException e) {
+			return false; // written until the interruption
+		}
+	}
+
+	@Override
+	public void committed(List<File> files) throws IOException {
+		synchronized (this) {
+			for (File file : files) {
+				String path = IOUtils.relativePath(basePath, file);
+				JavaFile javaFile = prepared.remove(path);
+				if (null != javaFile) {
+					doneWriter.write(javaFile);
+					done.put(path, javaFile);
+				}
+			}
+			if (null != planWriter) {
+				planWriter.flush();
+			}
+			doneWriter.flush();
+		}
+	}
+
+	/**
+	 * Deletes the checkpoint, called when the run has finished.
+	 *
+	 * @throws IOException
+	 *             If closing the files fails.
+	 */
+	public synchronized void delete() throws IOException {
+		if (null != planWriter) {
+			planWriter.close();
+		}
+		doneWriter.close();
+		Filenames.checkpointOf(projectDir, "plan").delete();
+		Filenames.checkpointOf(projectDir, "done").delete();
+	}
+
+	/**
+	 * Returns the files done by the interrupted run, with their diff results.
+	 * Files rolled forward by the journal recovery have no diff result.
+	 *
+	 * @return The files done before resuming.
+	 */
+	public JavaFiles getDone() {
+		return new JavaFiles(resumedDone);
+	}
+
+	/**
+	 * Returns the files of the complete plan which are not done yet, with
+	 * their analysis results.
+	 *
+	 * @return The files to be processed.
+	 * @see #isPlanComplete()
+	 */
+	public synchronized JavaFiles getRemaining() {
+		JavaFiles remaining = new JavaFiles();
+		for (Map.Entry<String, JavaFile> e : planned.entrySet()) {
+			if (!done.containsKey(e.getKey())) {
+				remaining.add(e.getValue());
+			}
+		}
+		return remaining;
+	}
+
+	/**
+	 * Tells whether the given <code>JavaFile</code> object comes from the
+	 * plan, so it should not be analyzed and configured again.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 * @return <code>true</code> if the object comes from the plan.
+	 */
+	public synchronized boolean isPreAnalyzed(JavaFile javaFile) {
+		return preAnalyzed.contains(javaFile);
+	}
+
+	/**
+	 * Tells whether the loaded plan lists every file to process, so the
+	 * enumeration can be skipped.
+	 *
+	 * @return <code>true</code> if the loaded plan is complete.
+	 */
+	public boolean isPlanComplete() {
+		return planComplete;
+	}
+
+	/**
+	 * Records that the given file has been analyzed and configured. If the
+	 * plan is complete, all files have been recorded.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 * @param complete
+	 *            - Whether this was the last file of the plan.
+	 * @throws IOException
+	 *             If the plan cannot be written.
+	 */
+	public synchronized void planned(JavaFile javaFile, boolean complete) throws IOException {
+		if (null != planWriter) {
+			if (null != javaFile) {
+				planWriter.write(javaFile);
+			}
+			if (complete) {
+				planWriter.finish();
+				planWriter = null;
+			}
+		}
+	}
+
+	/**
+	 * Registers the given file as written into its temporary file, with its
+	 * diff result calculated. It is recorded as done when its batch is
+	 * committed.
+	 *
+	 * @param javaFile
+	 *            - The <code>JavaFile</code> object.
+	 */
+	public synchronized void prepared(JavaFile javaFile) {
+		prepared.put(IOUtils.relativePath(basePath, javaFile.getFile()), javaFile);
+	}
+
+	/**
+	 * Returns the object to process instead of the enumerated one: the
+	 * planned object with its analysis results if the file is in the plan,
+	 * <code>null</code> if the file is done.
+	 *
+	 * @param javaFile
+	 *            - The enumerated <code>JavaFile</code> object.
+	 * @return The object to process or <code>null</code> to skip the file.
+	 */
+	public synchronized JavaFile resumed(JavaFile javaFile) {
+		String path = IOUtils.relativePath(basePath, javaFile.getFile());
+		if (done.containsKey(path)) {
+			return null;
+		}
+		return planned.containsKey(path) ? planned.get(path) : javaFile;
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.output;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+import hu.juranyi.zsolt.jauthortagger.model.ProgressEvent;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressListener;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressReporter;
+
+/**
+ * Prints the progress of a run to the console, one compact line per report,
+ * e.g.:
+ *
+ * <pre>
+ * Progress: enumerate 10000 1900/s | analyze 4200/10000 1350/s ETA 0:04 | write 1200/9500 400/s 1.2 MB/s ETA 0:21
+ * </pre>
+ *
+ * @author Zsolt Jurányi
+ * @see ProgressReporter
+ *
+ */
+public class ConsoleProgressWriter implements ProgressListener {
+
+	private final PrintStream out;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param out
+	 *            - The stream to print to.
+	 */
+	public ConsoleProgressWriter(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Formats the state of the stages into one line.
+	 *
+	 * @param events
+	 *            - The state of the stages.
+	 * @param finished
+	 *            - Whether the run has finished, in this case the time of the
+	 *            stages is shown instead of the estimations.
+	 * @return The line.
+	 */
+	public static String format(List<ProgressEvent> events, boolean finished) {
+		StringBuilder sb = new StringBuilder(finished ? "Finished:" : "Progress:");
+		String separator = " ";
+		for (ProgressEvent e : events) {
+			sb.append(separator).append(e.getStage().name().toLowerCase(Locale.ROOT)).append(' ');
+			separator = " | ";
+			sb.append(e.getFiles());
+			if (!finished && 0 <= e.getTotalFiles()) {
+				sb.append('/').append(e.getTotalFiles());
+			}
+			sb.append(String.format(Locale.ROOT, " %.0f/s", e.getFilesPerSecond()));
+			if (0 < e.getBytes()) {
+				sb.append(String.format(Locale.ROOT, " %.1f MB/s", e.getBytesPerSecond() / (1 << 20)));
+			}
+			if (finished) {
+				sb.append(String.format(Locale.ROOT, " in %.1f s", e.getElapsedNanos() / 1e9));
+			} else if (0 <= e.getEtaSeconds() && e.getFiles() < e.getTotalFiles()) {
+				sb.append(String.format(Locale.ROOT, " ETA %d:%02d", e.getEtaSeconds() / 60, e.getEtaSeconds() % 60));
+			}
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public void finished(List<ProgressEvent> events) {
+		if (!events.isEmpty()) {
+			out.println(format(events, true));
+		}
+	}
+
+	@Override
+	public void progress(List<ProgressEvent> events) {
+		if (!events.isEmpty()) {
+			out.println(format(events, false));
+		}
+	}
+
+}
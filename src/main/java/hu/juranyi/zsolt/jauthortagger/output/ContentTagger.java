@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+
+import hu.juranyi.zsolt.jauthortagger.api.AuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.api.TaggedSource;
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+
+/**
+ * Tags the content of one <code>.java</code> file in memory, e.g. an editor
+ * buffer piped through <b>JAuthorTagger</b>. It uses the same analyzer,
+ * configuration and writer logic as a normal run, but it does not touch any
+ * file: there are no temporary files, backups or report. The logical path of
+ * the content is only used for naming (e.g. <code>package-info.java</code>).
+ * Content which cannot be analyzed or is skipped by the configuration is
+ * passed through unchanged. The configuration is loaded once, and an instance
+ * can be reused for any number of files, from several threads. The embedding
+ * API (<code>AuthorTagger</code>) tags through this class too.
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTagger
+ * @see JavaFileAnalyzer#analyzeJavaFile(JavaFile, List)
+ * @see AuthorTaggerConfig
+ * @see AuthorTagWriter#filterAuthorTags(JavaFile, List, Writer)
+ *
+ */
+public class ContentTagger {
+
+	private final JavaFileAnalyzer analyzer = new JavaFileAnalyzer();
+	private final AuthorTaggerConfig config;
+	private final AuthorTagWriter writer = new AuthorTagWriter(BackupMode.TEST);
+
+	/**
+	 * Creates an instance and loads the configuration.
+	 *
+	 * @param config
+	 *            - The project configuration.
+	 */
+	public ContentTagger(AuthorTaggerConfig config) {
+		this.config = config;
+		config.load();
+	}
+
+	/**
+	 * Reads the content from the given reader, tags it and writes the result
+	 * into the given writer.
+	 *
+	 * @param file
+	 *            - The logical path of the content.
+	 * @param in
+	 *            - The reader of the original content. It is read till the
+	 *            end, but not closed.
+	 * @param out
+	 *            - The writer of the modified content. It is flushed, but not
+	 *            closed.
+	 * @return <code>true</code> if the content has changed.
+	 * @throws IOException
+	 *             If reading or writing fails.
+	 */
+	public boolean tag(File file, Reader in, Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+		int n;
+		while (-1 != (n = in.read(buffer))) {
+			sb.append(buffer, 0, n);
+		}
+		TaggedSource result = tag(file.getPath(), sb.toString());
+		out.write(result.getContent());
+		out.flush();
+		return result.isChanged();
+	}
+
+	/**
+	 * Tags the given content. Content which cannot be analyzed or is skipped
+	 * by the configuration is returned unchanged. Lines of tagged content are
+	 * terminated by the line separator of the platform.
+	 *
+	 * @param path
+	 *            - The logical path of the content.
+	 * @param content
+	 *            - The original content.
+	 * @return The result.
+	 */
+	public TaggedSource tag(String path, String content) {
+		List<String> lines = IOUtils.lines(content);
+		JavaFile javaFile = new JavaFile(new File(path));
+		if (analyzer.analyzeJavaFile(javaFile, lines) && config.apply(javaFile)) {
+			StringWriter out = new StringWriter(content.length() + 64);
+			try {
+				boolean changed = writer.filterAuthorTags(javaFile, lines, out);
+				return new TaggedSource(path, javaFile.getTypeName(), javaFile.getAuthors(), out.toString(),
+						changed, false);
+			} catch (IOException e) {
+				// StringWriter does not throw
+				throw new IllegalStateException(e);
+			}
+		}
+		return new TaggedSource(path, javaFile.getTypeName(), javaFile.getAuthors(), content, false, true);
+	}
+
+}
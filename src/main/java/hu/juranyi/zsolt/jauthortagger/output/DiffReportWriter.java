@@ -27,6 +27,7 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.velocity.VelocityContext;
@@ -34,11 +35,13 @@ import org.apache.velocity.app.Velocity;
 import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
 import org.slf4j.Logger;
 
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
 import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
 import hu.juranyi.zsolt.jauthortagger.model.Filenames;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
 import hu.juranyi.zsolt.jauthortagger.util.DiffCalculator;
 import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
 
 /**
  * Used for generating the sexy diff report. Basically this class only receives
@@ -64,7 +67,8 @@ public class DiffReportWriter {
 
 	private final File projectDir;
 	private final BackupMode backupMode;
-	private final List<JavaFile> javaFiles;
+	private final Iterable<JavaFile> javaFiles;
+	private final File reportFile;
 
 	/**
 	 * Creates an instance.
@@ -81,9 +85,48 @@ public class DiffReportWriter {
 	 * @see JavaFile
 	 */
 	public DiffReportWriter(File projectDir, BackupMode backupMode, List<JavaFile> javaFiles) {
+		this(projectDir, backupMode, javaFiles, diffReportOf(projectDir));
+	}
+
+	/**
+	 * Creates an instance which writes the report into the given file instead
+	 * of the project directory.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param backupMode
+	 *            - The backup mode.
+	 * @param javaFiles
+	 *            - The <code>JavaFile</code> objects with calculated diffs
+	 *            inside.
+	 * @param reportFile
+	 *            - The file to write the report into.
+	 */
+	public DiffReportWriter(File projectDir, BackupMode backupMode, List<JavaFile> javaFiles, File reportFile) {
+		this(projectDir, backupMode, (Iterable<JavaFile>) javaFiles, reportFile);
+	}
+
+	/**
+	 * Creates an instance which reads the <code>JavaFile</code> objects while
+	 * it writes the report, e.g. streamed from a run record, so they do not
+	 * have to fit into memory together.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param backupMode
+	 *            - The backup mode.
+	 * @param javaFiles
+	 *            - The <code>JavaFile</code> objects with calculated diffs
+	 *            inside, iterated once.
+	 * @param reportFile
+	 *            - The file to write the report into.
+	 * @see RunRecordReader#records(List, File)
+	 */
+	public DiffReportWriter(File projectDir, BackupMode backupMode, Iterable<JavaFile> javaFiles, File reportFile) {
 		this.projectDir = projectDir;
 		this.backupMode = backupMode;
 		this.javaFiles = javaFiles;
+		this.reportFile = reportFile;
 	}
 
 	/**
@@ -100,7 +143,7 @@ public class DiffReportWriter {
 	 *
 	 * @return The <code>JavaFile</code> objects.
 	 */
-	public List<JavaFile> getJavaFiles() {
+	public Iterable<JavaFile> getJavaFiles() {
 		return javaFiles;
 	}
 
@@ -113,22 +156,51 @@ public class DiffReportWriter {
 		return projectDir;
 	}
 
+	/**
+	 * Returns the file the report is written into.
+	 *
+	 * @return The report file.
+	 */
+	public File getReportFile() {
+		return reportFile;
+	}
+
 	/**
 	 * Does the real thing: builds up the <code>VelocityContext</code> by
 	 * putting in all fields an the timestamp, then kindly asks <i>Velocity</i>
 	 * to merge the template with the values and spit out the HTML file into the
-	 * project directory.
+	 * project directory (or the given report file).
 	 *
 	 * @see Filenames#diffReportOf(File)
 	 */
 	public void writeDiffReport() {
-		File outputFile = diffReportOf(projectDir);
+		File outputFile = reportFile;
+		Profiler.Span span = Profiler.stage("report");
 
 		VelocityContext vc = new VelocityContext();
 		vc.put("timestamp", new SimpleDateFormat("yyyy-MM-dd @ HH:mm.ss").format(new Date()));
 		vc.put("projectDir", projectDir.getAbsolutePath());
 		vc.put("backupMode", backupMode);
-		vc.put("javaFiles", javaFiles);
+		final int[] count = { 0 };
+		final Iterator<JavaFile> i = javaFiles.iterator();
+		vc.put("javaFiles", new Iterator<JavaFile>() { // read while rendering
+
+			@Override
+			public boolean hasNext() {
+				return i.hasNext();
+			}
+
+			@Override
+			public JavaFile next() {
+				count[0]++;
+				return i.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		});
 
 		try (Writer w = new OutputStreamWriter(new FileOutputStream(outputFile), Charset.forName("UTF-8"))) {
 			Velocity.mergeTemplate(DIFF_REPORT_TEMPLATE, "UTF-8", vc, w);
@@ -136,6 +208,7 @@ public class DiffReportWriter {
 		} catch (IOException e) {
 			LOG.error("Error when writing diff report", e);
 		}
+		span.finish(outputFile.getPath(), count[0]);
 	}
 
 }
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.output;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+
+/**
+ * <p>
+ * Write-ahead journal which makes a tagging run crash-safe. Files are written
+ * in two phases by <code>AuthorTagWriter</code>: first into temporary files,
+ * then they are moved to their place. The journal records the intent before
+ * a temporary file is created, and commits the moves in batches:
+ * </p>
+ * <ol>
+ * <li><code>W batch temp</code> - the given temporary file is going to be
+ * written (its path depends on the backup mode),</li>
+ * <li><code>P batch changed path</code> - the temporary file is ready,</li>
+ * <li><code>C batch</code> - all files of the batch are ready, the moves are
+ * starting,</li>
+ * <li><code>D batch</code> - all moves of the batch are done.</li>
+ * </ol>
+ * <p>
+ * The first line (<code>B mode store</code>) records the backup mode and
+ * whether the backup store is used. If a run is interrupted, the next run
+ * calls <code>recover</code>, which rolls back the batches without
+ * <code>C</code> record (deleting their temporary files, the sources are
+ * untouched) and rolls forward the batches with <code>C</code> but without
+ * <code>D</code> record (finishing the moves), using only the journal, without
+ * scanning the source tree. With <code>fsync</code> turned on, the temporary
+ * files of a batch are forced to the disk before the <code>C</code> record,
+ * and the directories after the moves. Instances are thread safe.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see AuthorTagWriter
+ *
+ */
+public class Journal {
+
+	/**
+	 * A group of files committed together.
+	 */
+	public static class Batch {
+
+		private final int id;
+		private int intents;
+		private int settled;
+		private boolean closed;
+		private final List<File> files = new ArrayList<File>();
+		private final List<Boolean> changes = new ArrayList<Boolean>();
+
+		private Batch(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Receives the files which have been moved to their place.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when the files of a batch have been moved to their place,
+		 * before the batch is recorded as done.
+		 *
+		 * @param files
+		 *            - The committed <code>.java</code> files.
+		 * @throws IOException
+		 *             If the listener fails, in this case the batch is not
+		 *             recorded as done.
+		 */
+		void committed(List<File> files) throws IOException;
+	}
+
+	private static final Logger LOG = Log.forClass(Journal.class);
+
+	/**
+	 * Tells whether the given project directory has a journal, which means
+	 * that the last run was interrupted.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return <code>true</code> if the journal exists.
+	 */
+	public static boolean exists(File projectDir) {
+		return Filenames.journalOf(projectDir).isFile();
+	}
+
+	/**
+	 * Finishes the work of an interrupted run using its journal: rolls back
+	 * uncommitted batches and rolls forward committed ones, then deletes the
+	 * journal.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param listener
+	 *            - Receiver of the files which have been rolled forward, can
+	 *            be <code>null</code>.
+	 * @return <code>true</code> if the recovery succeeded and the journal has
+	 *         been deleted.
+	 */
+	public static boolean recover(File projectDir, Listener listener) {
+		File journalFile = Filenames.journalOf(projectDir);
+		BackupMode backupMode = null;
+		boolean useStore = false;
+		Map<String, List<String>> intents = new LinkedHashMap<String, List<String>>();
+		Map<String, Map<String, Boolean>> prepared = new HashMap<String, Map<String, Boolean>>();
+		Set<String> committed = new HashSet<String>();
+		Set<String> done = new HashSet<String>();
+		try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"))) {
+			String line;
+			while (null != (line = r.readLine())) {
+				String[] f = line.split(" ", 3); // type, batch, rest
+				if (2 > f.length) {
+					continue; // incomplete line, the last one before the crash
+				} else if ("B".equals(f[0]) && 3 == f.length) {
+					backupMode = BackupMode.valueOf(f[1]);
+					useStore = "1".equals(f[2]);
+				} else if ("W".equals(f[0]) && 3 == f.length) {
+					if (!intents.containsKey(f[1])) {
+						intents.put(f[1], new ArrayList<String>());
+						prepared.put(f[1], new LinkedHashMap<String, Boolean>());
+					}
+					intents.get(f[1]).add(f[2]);
+				} else if ("P".equals(f[0]) && 3 == f.length && prepared.containsKey(f[1]) && 2 < f[2].length()) {
+					prepared.get(f[1]).put(f[2].substring(2), f[2].startsWith("1"));
+				} else if ("C".equals(f[0])) {
+					committed.add(f[1]);
+				} else if ("D".equals(f[0])) {
+					done.add(f[1]);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			LOG.error("Cannot read journal: " + journalFile.getAbsolutePath(), e);
+			return false;
+		}
+		if (null == backupMode) {
+			journalFile.delete(); // nothing was written
+			return true;
+		}
+
+		LOG.warn("Previous run was interrupted, recovering from journal");
+		boolean ok = true;
+		BackupStore store = null;
+		try {
+			store = useStore ? new BackupStore(projectDir) : null;
+			AuthorTagWriter w = new AuthorTagWriter(backupMode, store);
+			int rolledBack = 0;
+			int rolledForward = 0;
+			for (String batch : intents.keySet()) {
+				if (done.contains(batch)) {
+					continue;
+				}
+				if (committed.contains(batch)) {
+					List<File> files = new ArrayList<File>();
+					for (Map.Entry<String, Boolean> e : prepared.get(batch).entrySet()) {
+						File file = new File(projectDir, e.getKey());
+						w.commitAuthorTags(file, e.getValue());
+						files.add(file);
+					}
+					if (null != listener) {
+						listener.committed(files);
+					}
+					rolledForward += files.size();
+				} else {
+					for (String path : intents.get(batch)) {
+						File tempFile = new File(projectDir, path);
+						if (!Filenames.isTempFile(tempFile)) {
+							tempFile = Filenames.tempFileOf(tempFile); // journal of an older version
+						}
+						if (tempFile.delete()) {
+							rolledBack++;
+						}
+					}
+				}
+			}
+			LOG.info("Recovery finished: {} files rolled forward, {} temporary files rolled back", rolledForward,
+					rolledBack);
+		} catch (IOException e) {
+			LOG.error("Error when recovering from journal, it is kept for the next run", e);
+			ok = false;
+		} finally {
+			if (null != store) {
+				try {
+					store.close();
+				} catch (IOException e) {
+					LOG.error("Error when closing backup store", e);
+				}
+			}
+		}
+		return ok && journalFile.delete();
+	}
+
+	private final String basePath;
+	private final File journalFile;
+	private final AuthorTagWriter writer;
+	private final int batchSize;
+	private final boolean fsync;
+	private final Listener listener;
+	private final Writer out;
+	private final FileOutputStream outStream;
+	private Batch current;
+	private int nextId = 1;
+	private int openBatches;
+
+	/**
+	 * Creates an instance and starts the journal file.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param writer
+	 *            - The writer which commits the files.
+	 * @param batchSize
+	 *            - Number of files committed together.
+	 * @param fsync
+	 *            - Whether files should be forced to the disk when a batch is
+	 *            committed.
+	 * @param listener
+	 *            - Receiver of the committed files, can be <code>null</code>.
+	 * @throws IOException
+	 *             If the journal cannot be created.
+	 */
+	public Journal(File projectDir, AuthorTagWriter writer, int batchSize, boolean fsync, Listener listener)
+			throws IOException {
+		this.basePath = projectDir.getAbsolutePath();
+		this.journalFile = Filenames.journalOf(projectDir);
+		this.writer = writer;
+		this.batchSize = Math.max(1, batchSize);
+		this.fsync = fsync;
+		this.listener = listener;
+		this.outStream = new FileOutputStream(journalFile);
+		this.out = new OutputStreamWriter(outStream, "UTF-8");
+		record("B " + writer.getBackupMode() + " " + (null == writer.getBackupStore() ? 0 : 1), fsync);
+	}
+
+	/**
+	 * Records that a temporary file is going to be written for the given
+	 * file. Must be called before <code>prepareAuthorTags</code>.
+	 *
+	 * @param file
+	 *            - The <code>.java</code> file.
+	 * @return The batch the file belongs to.
+	 * @throws IOException
+	 *             If the journal cannot be written.
+	 */
+	public synchronized Batch begin(File file) throws IOException {
+		if (null == current || current.closed) {
+			current = new Batch(nextId++);
+			openBatches++;
+		}
+		current.intents++;
+		current.closed = current.intents == batchSize;
+		record("W " + current.id + " " + IOUtils.relativePath(basePath, tempFileOf(file)), false);
+		return current;
+	}
+
+	/**
+	 * Records that the temporary file of the given file is ready. When all
+	 * files of a full batch are ready, the batch is committed by the calling
+	 * thread.
+	 *
+	 * @param batch
+	 *            - The batch returned by <code>begin</code>.
+	 * @param file
+	 *            - The <code>.java</code> file.
+	 * @param changed
+	 *            - Whether the content has changed.
+	 * @throws IOException
+	 *             If the journal cannot be written or the commit fails.
+	 */
+	public void prepared(Batch batch, File file, boolean changed) throws IOException {
+		boolean ready;
+		synchronized (this) {
+			record("P " + batch.id + " " + (changed ? 1 : 0) + " " + IOUtils.relativePath(basePath, file), false);
+			batch.files.add(file);
+			batch.changes.add(changed);
+			ready = settle(batch);
+		}
+		if (ready) {
+			commit(batch);
+		}
+	}
+
+	/**
+	 * Records that the temporary file of the given file could not be written,
+	 * so it will not be committed.
+	 *
+	 * @param batch
+	 *            - The batch returned by <code>begin</code>.
+	 * @throws IOException
+	 *             If the commit of the batch fails.
+	 */
+	public void failed(Batch batch) throws IOException {
+		boolean ready;
+		synchronized (this) {
+			ready = settle(batch);
+		}
+		if (ready) {
+			commit(batch);
+		}
+	}
+
+	/**
+	 * Commits the last batch and deletes the journal. Must be called after all
+	 * files have been prepared.
+	 *
+	 * @throws IOException
+	 *             If the commit fails, in this case the journal is kept.
+	 */
+	public void finish() throws IOException {
+		Batch last = null;
+		synchronized (this) {
+			if (null != current && !current.closed) {
+				current.closed = true;
+				if (current.settled == current.intents) {
+					last = current;
+				}
+			}
+		}
+		if (null != last) {
+			commit(last);
+		}
+		synchronized (this) {
+			out.close();
+			if (0 == openBatches) {
+				journalFile.delete();
+			} else {
+				LOG.warn("{} batches are not committed, journal is kept", openBatches);
+			}
+		}
+	}
+
+	private void commit(Batch batch) throws IOException {
+		if (fsync) {
+			for (int i = 0; i < batch.files.size(); i++) {
+				force(tempFileOf(batch.files.get(i)));
+			}
+		}
+		synchronized (this) {
+			record("C " + batch.id, fsync);
+		}
+		Set<File> dirs = new HashSet<File>();
+		for (int i = 0; i < batch.files.size(); i++) {
+			writer.commitAuthorTags(batch.files.get(i), batch.changes.get(i));
+			dirs.add(batch.files.get(i).getAbsoluteFile().getParentFile());
+		}
+		if (fsync) {
+			for (File dir : dirs) {
+				force(dir);
+			}
+		}
+		if (null != listener) {
+			listener.committed(batch.files);
+		}
+		synchronized (this) {
+			record("D " + batch.id, false);
+			openBatches--;
+		}
+	}
+
+	private void force(File file) {
+		try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ch.force(true);
+		} catch (IOException e) {
+			LOG.trace("Cannot force to disk: {}", file); // e.g. directories on some platforms
+		}
+	}
+
+	private void record(String line, boolean sync) throws IOException {
+		out.write(line);
+		out.write('\n');
+		out.flush();
+		if (sync) {
+			outStream.getFD().sync();
+		}
+	}
+
+	private boolean settle(Batch batch) {
+		batch.settled++;
+		return batch.closed && batch.settled == batch.intents;
+	}
+
+	/**
+	 * Returns the temporary file the writer creates for the given file.
+	 */
+	private File tempFileOf(File file) {
+		return Filenames.tempFileOf(writer.outputFileOf(file));
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.output;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.util.IOUtils;
+
+/**
+ * Writes processed <code>JavaFile</code> objects into a binary run record
+ * file, one by one. A run record holds everything the diff report needs, so
+ * the report can be generated later from one or more records, e.g. when a
+ * project was processed in several shards. File paths are stored relative to
+ * the project directory.
+ *
+ * @author Zsolt Jurányi
+ * @see RunRecordReader
+ *
+ */
+public class RunRecordWriter implements Closeable {
+
+	/**
+	 * Magic number at the beginning of run record files.
+	 */
+	public static final int MAGIC = 0x41545252; // "ATRR"
+
+	/**
+	 * Version of the run record format.
+	 */
+	public static final int VERSION = 1;
+
+	private final String basePath;
+	private final DataOutputStream out;
+
+	/**
+	 * Creates an instance, creates the record file and writes the header into
+	 * it.
+	 *
+	 * @param recordFile
+	 *            - The file to write the records into.
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param backupMode
+	 *            - The backup mode of the run.
+	 * @throws IOException
+	 *             If the file cannot be created.
+	 */
+	public RunRecordWriter(File recordFile, File projectDir, BackupMode backupMode) throws IOException {
+		this(recordFile, projectDir, backupMode, false);
+	}
+
+	/**
+	 * Creates an instance. In append mode the records are appended to the
+	 * existing record file, which must not have an end mark yet, otherwise the
+	 * file is created and the header is written into it.
+	 *
+	 * @param recordFile
+	 *            - The file to write the records into.
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param backupMode
+	 *            - The backup mode of the run.
+	 * @param append
+	 *            - Whether the records should be appended to an existing file.
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	public RunRecordWriter(File recordFile, File projectDir, BackupMode backupMode, boolean append)
+			throws IOException {
+		this.basePath = projectDir.getAbsolutePath();
+		append = append && 0 < recordFile.length();
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordFile, append)));
+		if (!append) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(backupMode.name());
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Flushes the buffered records into the file.
+	 *
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Writes one record: the path of the file, the type name, the line of the
+	 * type declaration, the authors and the diff result, if any.
+	 *
+	 * @param javaFile
+	 *            - The processed <code>JavaFile</code> object.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public synchronized void write(JavaFile javaFile) throws IOException {
+		out.writeBoolean(true);
+		out.writeUTF(IOUtils.relativePath(basePath, javaFile.getFile()));
+		out.writeUTF(null == javaFile.getTypeName() ? "" : javaFile.getTypeName());
+		out.writeInt(javaFile.getTypeDeclarationStartLine());
+		out.writeInt(javaFile.getAuthors().size());
+		for (String author : javaFile.getAuthors()) {
+			out.writeUTF(author);
+		}
+		out.writeBoolean(null != javaFile.getDiffResult());
+		if (null != javaFile.getDiffResult()) {
+			javaFile.getDiffResult().write(out);
+		}
+	}
+
+	/**
+	 * Writes the end mark and closes the file. A record file without end mark
+	 * is considered incomplete by the reader.
+	 *
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public synchronized void finish() throws IOException {
+		out.writeBoolean(false);
+		close();
+	}
+
+}
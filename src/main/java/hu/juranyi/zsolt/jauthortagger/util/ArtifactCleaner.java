@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+
+/**
+ * Removes the sidecar files of <b>JAuthorTagger</b> (backup, temporary and
+ * test files) from a directory tree, including the orphans whose
+ * <code>.java</code> file has been renamed, deleted or skipped. The tree is
+ * walked in parallel on a fork/join pool, one task per directory. In dry-run
+ * mode nothing is deleted, the files are only counted. Symbolic links to
+ * directories are not followed.
+ *
+ * @author Zsolt Jurányi
+ * @see Filenames#isSidecar(File)
+ *
+ */
+public class ArtifactCleaner {
+
+	private static final Logger LOG = Log.forClass(ArtifactCleaner.class);
+
+	private final int threads;
+	private final boolean dryRun;
+	private final AtomicInteger count = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param threads
+	 *            - The number of threads walking the tree.
+	 * @param dryRun
+	 *            - Whether the files should only be counted.
+	 */
+	public ArtifactCleaner(int threads, boolean dryRun) {
+		this.threads = Math.max(1, threads);
+		this.dryRun = dryRun;
+	}
+
+	/**
+	 * Removes (or counts) the sidecar files in the given directory tree. Can
+	 * be called several times, the counters are summed up.
+	 *
+	 * @param dir
+	 *            - The root of the tree.
+	 */
+	public void clean(File dir) {
+		if (!dir.isDirectory()) {
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new CleanTask(dir));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Removes (or counts) the given file or directory tree, which is an
+	 * artifact as a whole, e.g. a project level file of <b>JAuthorTagger</b>.
+	 * Symbolic links are not followed, the link itself is removed.
+	 *
+	 * @param artifact
+	 *            - The file or directory.
+	 */
+	public void remove(File artifact) {
+		if (!Files.exists(artifact.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+		if (Files.isDirectory(artifact.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+			for (File f : listFiles(artifact, null)) {
+				remove(f);
+			}
+		}
+		removeFile(artifact);
+	}
+
+	/**
+	 * Returns the number of files removed (or to be removed in dry-run mode),
+	 * directories are not counted.
+	 *
+	 * @return The number of files.
+	 */
+	public int getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Returns the total size of the files removed (or to be removed in
+	 * dry-run mode).
+	 *
+	 * @return The total size in bytes.
+	 */
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Returns the number of files which could not be removed.
+	 *
+	 * @return The number of files.
+	 */
+	public int getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Tells whether the files are only counted.
+	 *
+	 * @return <code>true</code> in dry-run mode.
+	 */
+	public boolean isDryRun() {
+		return dryRun;
+	}
+
+	private static File[] listFiles(File dir, FileFilter filter) {
+		File[] files = dir.listFiles(filter);
+		return null == files ? new File[0] : files;
+	}
+
+	private void removeFile(File file) {
+		boolean isFile = !Files.isDirectory(file.toPath(), LinkOption.NOFOLLOW_LINKS);
+		long length = Files.isRegularFile(file.toPath(), LinkOption.NOFOLLOW_LINKS) ? file.length() : 0;
+		if (dryRun) {
+			LOG.trace("Would delete: {}", file.getAbsolutePath());
+		} else {
+			try {
+				Files.delete(file.toPath());
+				LOG.trace("Deleted: {}", file.getAbsolutePath());
+			} catch (IOException e) {
+				LOG.warn("Cannot delete file: " + file.getAbsolutePath(), e);
+				failed.incrementAndGet();
+				return;
+			}
+		}
+		if (isFile) {
+			count.incrementAndGet();
+			bytes.addAndGet(length);
+		}
+	}
+
+	/**
+	 * Cleans one directory and forks a task for every subdirectory.
+	 */
+	private class CleanTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File dir;
+
+		CleanTask(File dir) {
+			this.dir = dir;
+		}
+
+		@Override
+		protected void compute() {
+			List<CleanTask> subTasks = new ArrayList<CleanTask>();
+			for (File f : listFiles(dir, null)) {
+				if (Files.isDirectory(f.toPath(), LinkOption.NOFOLLOW_LINKS)) {
+					subTasks.add(new CleanTask(f));
+				} else if (Filenames.isSidecar(f)) {
+					removeFile(f);
+				}
+			}
+			invokeAll(subTasks);
+		}
+	}
+
+}
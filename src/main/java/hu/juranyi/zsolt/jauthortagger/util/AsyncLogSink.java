@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes log lines into a file on a background thread. The logging threads
+ * only put the formatted message into a bounded queue (and wait if it is
+ * full), the background thread adds the timestamp and the level, writes the
+ * lines through a buffer, and flushes it when the queue is empty. The lines
+ * look like the ones of <i>SLF4J's Simple Logger</i>. If writing fails, the
+ * following lines are dropped.
+ *
+ * @author Zsolt Jurányi
+ * @see Log#setLogFile(String)
+ *
+ */
+public class AsyncLogSink implements Closeable {
+
+	private static final int CAPACITY = 8192;
+	private static final Entry END = new Entry(0, null, null, null, null);
+
+	/**
+	 * One log line waiting to be written.
+	 */
+	private static class Entry {
+		final long time;
+		final String level;
+		final String name;
+		final String message;
+		final Throwable throwable;
+
+		Entry(long time, String level, String name, String message, Throwable throwable) {
+			this.time = time;
+			this.level = level;
+			this.name = name;
+			this.message = message;
+			this.throwable = throwable;
+		}
+	}
+
+	private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>(CAPACITY);
+	private final Writer writer;
+	private final Thread thread;
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private volatile boolean failed = false;
+
+	/**
+	 * Creates the file (an existing one is overwritten) and starts the
+	 * background thread.
+	 *
+	 * @param file
+	 *            - The log file.
+	 * @throws IOException
+	 *             If the file cannot be created.
+	 */
+	public AsyncLogSink(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+		thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "jauthortagger-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Writes the waiting lines, then stops the background thread and closes
+	 * the file.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (!failed) {
+				queue.put(END);
+			}
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Puts a log line into the queue. It waits if the queue is full.
+	 *
+	 * @param level
+	 *            - The level, e.g. <code>INFO</code>.
+	 * @param name
+	 *            - The name of the logger.
+	 * @param message
+	 *            - The formatted message.
+	 * @param throwable
+	 *            - The exception to log with its stack trace, can be
+	 *            <code>null</code>.
+	 */
+	public void log(String level, String name, String message, Throwable throwable) {
+		if (failed) {
+			return;
+		}
+		try {
+			queue.put(new Entry(System.currentTimeMillis(), level, name, message, throwable));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain() {
+		List<Entry> batch = new ArrayList<Entry>();
+		try {
+			while (true) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				for (Entry entry : batch) {
+					if (END == entry) {
+						writer.close();
+						return;
+					}
+					write(entry);
+				}
+				batch.clear();
+				if (queue.isEmpty()) {
+					writer.flush();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			System.err.println("Cannot write log file: " + e.getMessage());
+			failed = true;
+			queue.clear(); // do not block the loggers
+		}
+	}
+
+	private void write(Entry entry) throws IOException {
+		writer.write(dateFormat.format(new Date(entry.time)));
+		writer.write(" [");
+		writer.write(entry.level);
+		writer.write("] ");
+		writer.write(entry.name);
+		writer.write(" - ");
+		writer.write(entry.message);
+		writer.write(System.lineSeparator());
+		if (null != entry.throwable) {
+			PrintWriter pw = new PrintWriter(writer);
+			entry.throwable.printStackTrace(pw);
+			pw.flush();
+		}
+	}
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+
+/**
+ * <p>
+ * Stores backups of <code>.java</code> files in one place under the project
+ * directory, instead of <code>.at-save</code> files next to the sources. The
+ * store is a directory with two files:
+ * </p>
+ * <ul>
+ * <li><code>pack</code> - the deflate compressed contents, appended one after
+ * another,</li>
+ * <li><code>index</code> - a text file with one line per backup:
+ * <code>SHA-1, offset, length, relative path</code>, separated by tabs.</li>
+ * </ul>
+ * <p>
+ * Contents are addressed by their SHA-1 hash, so identical files are stored
+ * only once. Both files are append-only. The first backup of a file is kept
+ * until the store is deleted, so after several runs the store still holds the
+ * contents from before the first one. Only files which are actually changed
+ * are put into the store, so its cost is proportional to the changes.
+ * Instances are thread safe.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see Filenames#backupStoreOf(File)
+ *
+ */
+public class BackupStore implements Closeable {
+
+	/**
+	 * One backup in the store.
+	 */
+	public static class Entry {
+
+		private final String hash;
+		private final long offset;
+		private final int length;
+		private final String path;
+
+		private Entry(String hash, long offset, int length, String path) {
+			this.hash = hash;
+			this.offset = offset;
+			this.length = length;
+			this.path = path;
+		}
+
+		/**
+		 * Returns the SHA-1 hash of the original content.
+		 *
+		 * @return The SHA-1 hash of the original content.
+		 */
+		public String getHash() {
+			return hash;
+		}
+
+		/**
+		 * Returns the path of the file relative to the project directory.
+		 *
+		 * @return The relative path of the file.
+		 */
+		public String getPath() {
+			return path;
+		}
+	}
+
+	private static final Logger LOG = Log.forClass(BackupStore.class);
+	private static final String INDEX_FILE = "index";
+	private static final String PACK_FILE = "pack";
+
+	/**
+	 * Tells whether the given project directory has a backup store.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return <code>true</code> if the backup store index exists.
+	 */
+	public static boolean exists(File projectDir) {
+		return new File(Filenames.backupStoreOf(projectDir), INDEX_FILE).isFile();
+	}
+
+	/**
+	 * Deletes the backup store of the given project directory from the disk,
+	 * if it exists. The index is not read.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 */
+	public static void drop(File projectDir) {
+		deleteFiles(Filenames.backupStoreOf(projectDir));
+	}
+
+	private static void deleteFiles(File storeDir) {
+		new File(storeDir, INDEX_FILE).delete();
+		new File(storeDir, PACK_FILE).delete();
+		storeDir.delete();
+	}
+
+	private final File projectDir;
+	private final String basePath;
+	private final File storeDir;
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+	private final Map<String, Entry> blobs = new HashMap<String, Entry>();
+	private OutputStream pack;
+	private BufferedWriter index;
+	private long packSize;
+
+	/**
+	 * Creates an instance and loads the index of the store of the given
+	 * project directory, if it exists.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @throws IOException
+	 *             If the index cannot be read.
+	 */
+	public BackupStore(File projectDir) throws IOException {
+		this.projectDir = projectDir;
+		this.basePath = projectDir.getAbsolutePath();
+		this.storeDir = Filenames.backupStoreOf(projectDir);
+		File indexFile = new File(storeDir, INDEX_FILE);
+		if (indexFile.isFile()) {
+			try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile),
+					"UTF-8"))) {
+				String line;
+				while (null != (line = r.readLine())) {
+					String[] f = line.split("\t", 4);
+					if (4 != f.length) {
+						continue; // incomplete line, e.g. after a crash
+					}
+					Entry e = new Entry(f[0], Long.parseLong(f[1]), Integer.parseInt(f[2]), f[3]);
+					if (!entries.containsKey(e.path)) {
+						entries.put(e.path, e);
+					}
+					blobs.put(e.hash, e);
+				}
+			}
+		}
+		this.packSize = new File(storeDir, PACK_FILE).length();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (null != index) {
+			index.close();
+			index = null;
+		}
+		if (null != pack) {
+			pack.close();
+			pack = null;
+		}
+	}
+
+	/**
+	 * Deletes the whole store from the disk.
+	 *
+	 * @throws IOException
+	 *             If closing the files fails.
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+		deleteFiles(storeDir);
+		entries.clear();
+		blobs.clear();
+		packSize = 0;
+	}
+
+	/**
+	 * Returns the backups currently in the store.
+	 *
+	 * @return The list of backups.
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<Entry>(entries.values());
+	}
+
+	/**
+	 * Tells whether the store holds a backup of the given file.
+	 *
+	 * @param file
+	 *            - The file.
+	 * @return <code>true</code> if the store holds a backup of the file.
+	 */
+	public synchronized boolean contains(File file) {
+		return entries.containsKey(IOUtils.relativePath(basePath, file));
+	}
+
+	/**
+	 * Saves the current content of the given file into the store, unless the
+	 * store already holds a backup of the file. If the same content is already
+	 * stored, only the index is updated.
+	 *
+	 * @param file
+	 *            - The file to backup.
+	 * @throws IOException
+	 *             If the file cannot be read or the store cannot be written.
+	 */
+	public void put(File file) throws IOException {
+		String path = IOUtils.relativePath(basePath, file);
+		synchronized (this) {
+			if (entries.containsKey(path)) {
+				return;
+			}
+		}
+		byte[] content = Files.readAllBytes(file.toPath());
+		String hash = sha1(content);
+		boolean known;
+		synchronized (this) {
+			known = blobs.containsKey(hash);
+		}
+		byte[] compressed = known ? null : deflate(content); // outside of the lock
+		synchronized (this) {
+			if (entries.containsKey(path)) {
+				return;
+			}
+			open();
+			Entry e = blobs.get(hash);
+			if (null == e) {
+				if (null == compressed) {
+					compressed = deflate(content);
+				}
+				pack.write(compressed);
+				pack.flush();
+				e = new Entry(hash, packSize, compressed.length, path);
+				packSize += compressed.length;
+				blobs.put(hash, e);
+			}
+			e = new Entry(hash, e.offset, e.length, path);
+			entries.put(path, e);
+			writeIndexLine(e.hash, e.offset, e.length, path);
+		}
+	}
+
+	/**
+	 * Writes back the stored content of the given backup to its original
+	 * place. The content is written to a temporary file first, then moved over
+	 * the original atomically, so the original is never missing.
+	 *
+	 * @param entry
+	 *            - The backup to restore.
+	 * @throws IOException
+	 *             If the store cannot be read or the file cannot be written.
+	 */
+	public void restore(Entry entry) throws IOException {
+		File file = new File(projectDir, entry.path);
+		File tempFile = Filenames.tempFileOf(file);
+		byte[] compressed = new byte[entry.length];
+		try (RandomAccessFile raf = new RandomAccessFile(new File(storeDir, PACK_FILE), "r")) {
+			raf.seek(entry.offset);
+			raf.readFully(compressed);
+		}
+		try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+				OutputStream out = new FileOutputStream(tempFile)) {
+			byte[] buffer = new byte[8192];
+			int n;
+			while (-1 != (n = in.read(buffer))) {
+				out.write(buffer, 0, n);
+			}
+		}
+		LOG.trace("Restoring {}", file.getAbsolutePath());
+		IOUtils.moveAtomically(tempFile, file);
+	}
+
+	private byte[] deflate(byte[] content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3 + 16);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+	private void open() throws IOException {
+		if (null == pack) {
+			storeDir.mkdirs();
+			pack = new FileOutputStream(new File(storeDir, PACK_FILE), true);
+			index = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(storeDir, INDEX_FILE),
+					true), "UTF-8"));
+		}
+	}
+
+	private String sha1(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+			StringBuilder sb = new StringBuilder(40);
+			for (byte b : digest) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JRE has SHA-1
+		}
+	}
+
+	private void writeIndexLine(String hash, long offset, int length, String path) throws IOException {
+		index.write(hash + "\t" + offset + "\t" + length + "\t" + path);
+		index.newLine();
+		index.flush();
+	}
+
+}
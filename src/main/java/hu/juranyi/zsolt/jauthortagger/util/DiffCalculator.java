@@ -28,8 +28,8 @@ import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
  * This class is used to calculate diff between the <code>.java</code> file's
  * original and modified versions. It uses the <i>Java DiffUtils</i> library and
  * produces <code>DiffResult</code> object to be stored in a
- * <code>JavaFile</code>, which contains the <code>Patch</code> object and the
- * unified diff as well.
+ * <code>JavaFile</code>, which can reproduce the <code>Patch</code> object and
+ * the unified diff as well.
  *
  * @author Zsolt Jurányi
  * @see DiffResult
@@ -63,18 +63,27 @@ public class DiffCalculator {
 	}
 
 	/**
-	 * Calculates the diff and stores <code>difflib.Patch</code> object and
-	 * lines of the unified diff in a <code>DiffResult</code> object.
+	 * Calculates the diff and stores it in a compact <code>DiffResult</code>
+	 * object, which can reproduce the <code>difflib.Patch</code> object and the
+	 * lines of the unified diff.
 	 *
-	 * @return A <code>DiffResult</code> object containing a
-	 *         <code>difflib.Patch</code> object and lines of the unified diff.
+	 * @return A <code>DiffResult</code> object containing the deltas and the
+	 *         lines needed to render the unified diff.
 	 */
 	public DiffResult calculateDiff() {
+		Profiler.Span span = Profiler.file("diff");
 		Patch<String> patch = DiffUtils.diff(originalContent, modifiedContent);
-		List<String> unifiedDiff = DiffUtils.generateUnifiedDiff(originalFile.getName(), modifiedFile.getName(),
-				originalContent, patch, 3);
-		return new DiffResult(patch, unifiedDiff);
+		DiffResult result = new DiffResult(originalFile.getName(), modifiedFile.getName(), originalContent, patch);
+		span.finish(originalFile.getPath(), span.isEnabled() ? length(originalContent) + length(modifiedContent) : 0);
+		return result;
+	}
 
+	private static long length(List<String> lines) {
+		long length = 0;
+		for (String line : lines) {
+			length += line.length() + 1;
+		}
+		return length;
 	}
 
 	/**
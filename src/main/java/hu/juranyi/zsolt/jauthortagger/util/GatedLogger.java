@@ -0,0 +1,316 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import org.slf4j.Logger;
+import org.slf4j.helpers.FormattingTuple;
+import org.slf4j.helpers.MarkerIgnoringBase;
+import org.slf4j.helpers.MessageFormatter;
+
+/**
+ * The logger returned by <code>Log.forClass</code>. It checks the threshold
+ * and the level of its class first, which costs a few field reads (and a
+ * thread local lookup while a run level is set), so disabled log calls in hot
+ * loops pay nothing else: the message is not formatted and nothing is
+ * allocated (when called with at most two arguments). Enabled messages are
+ * written into the asynchronous log file when there is one, or passed to the
+ * <i>SLF4J</i> logger of the class otherwise.
+ *
+ * @author Zsolt Jurányi
+ * @see Log
+ * @see AsyncLogSink
+ *
+ */
+class GatedLogger extends MarkerIgnoringBase {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Logger delegate;
+	private final String shortName;
+	private volatile int classLevel = Log.Level.TRACE.severity;
+
+	GatedLogger(String name, Logger delegate) {
+		this.name = name;
+		this.delegate = delegate;
+		this.shortName = name.substring(name.lastIndexOf('.') + 1);
+	}
+
+	void setClassLevel(Log.Level level) {
+		classLevel = level.severity;
+	}
+
+	/**
+	 * Logs an <code>INFO</code> message regardless of the thresholds.
+	 */
+	void summary(String message) {
+		AsyncLogSink sink = Log.sink;
+		if (null == sink) {
+			delegate.info(message);
+		} else {
+			sink.log(Log.Level.INFO.name(), shortName, message, null);
+		}
+	}
+
+	private boolean enabled(Log.Level level) {
+		if (level.severity < Log.threshold() || level.severity < classLevel) {
+			return false;
+		} else if (null != Log.sink) {
+			return true;
+		}
+		switch (level) {
+		case TRACE:
+			return delegate.isTraceEnabled();
+		case DEBUG:
+			return delegate.isDebugEnabled();
+		case INFO:
+			return delegate.isInfoEnabled();
+		case WARN:
+			return delegate.isWarnEnabled();
+		default:
+			return delegate.isErrorEnabled();
+		}
+	}
+
+	private void log(Log.Level level, FormattingTuple t) {
+		log(level, t.getMessage(), t.getThrowable());
+	}
+
+	private void log(Log.Level level, String message, Throwable throwable) {
+		AsyncLogSink sink = Log.sink;
+		if (null != sink) {
+			sink.log(level.name(), shortName, message, throwable);
+			return;
+		}
+		switch (level) {
+		case TRACE:
+			delegate.trace(message, throwable);
+			break;
+		case DEBUG:
+			delegate.debug(message, throwable);
+			break;
+		case INFO:
+			delegate.info(message, throwable);
+			break;
+		case WARN:
+			delegate.warn(message, throwable);
+			break;
+		default:
+			delegate.error(message, throwable);
+		}
+	}
+
+	@Override
+	public boolean isTraceEnabled() {
+		return enabled(Log.Level.TRACE);
+	}
+
+	@Override
+	public void trace(String msg) {
+		if (enabled(Log.Level.TRACE)) {
+			log(Log.Level.TRACE, msg, null);
+		}
+	}
+
+	@Override
+	public void trace(String format, Object arg) {
+		if (enabled(Log.Level.TRACE)) {
+			log(Log.Level.TRACE, MessageFormatter.format(format, arg));
+		}
+	}
+
+	@Override
+	public void trace(String format, Object arg1, Object arg2) {
+		if (enabled(Log.Level.TRACE)) {
+			log(Log.Level.TRACE, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	@Override
+	public void trace(String format, Object... arguments) {
+		if (enabled(Log.Level.TRACE)) {
+			log(Log.Level.TRACE, MessageFormatter.arrayFormat(format, arguments));
+		}
+	}
+
+	@Override
+	public void trace(String msg, Throwable t) {
+		if (enabled(Log.Level.TRACE)) {
+			log(Log.Level.TRACE, msg, t);
+		}
+	}
+
+	@Override
+	public boolean isDebugEnabled() {
+		return enabled(Log.Level.DEBUG);
+	}
+
+	@Override
+	public void debug(String msg) {
+		if (enabled(Log.Level.DEBUG)) {
+			log(Log.Level.DEBUG, msg, null);
+		}
+	}
+
+	@Override
+	public void debug(String format, Object arg) {
+		if (enabled(Log.Level.DEBUG)) {
+			log(Log.Level.DEBUG, MessageFormatter.format(format, arg));
+		}
+	}
+
+	@Override
+	public void debug(String format, Object arg1, Object arg2) {
+		if (enabled(Log.Level.DEBUG)) {
+			log(Log.Level.DEBUG, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	@Override
+	public void debug(String format, Object... arguments) {
+		if (enabled(Log.Level.DEBUG)) {
+			log(Log.Level.DEBUG, MessageFormatter.arrayFormat(format, arguments));
+		}
+	}
+
+	@Override
+	public void debug(String msg, Throwable t) {
+		if (enabled(Log.Level.DEBUG)) {
+			log(Log.Level.DEBUG, msg, t);
+		}
+	}
+
+	@Override
+	public boolean isInfoEnabled() {
+		return enabled(Log.Level.INFO);
+	}
+
+	@Override
+	public void info(String msg) {
+		if (enabled(Log.Level.INFO)) {
+			log(Log.Level.INFO, msg, null);
+		}
+	}
+
+	@Override
+	public void info(String format, Object arg) {
+		if (enabled(Log.Level.INFO)) {
+			log(Log.Level.INFO, MessageFormatter.format(format, arg));
+		}
+	}
+
+	@Override
+	public void info(String format, Object arg1, Object arg2) {
+		if (enabled(Log.Level.INFO)) {
+			log(Log.Level.INFO, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	@Override
+	public void info(String format, Object... arguments) {
+		if (enabled(Log.Level.INFO)) {
+			log(Log.Level.INFO, MessageFormatter.arrayFormat(format, arguments));
+		}
+	}
+
+	@Override
+	public void info(String msg, Throwable t) {
+		if (enabled(Log.Level.INFO)) {
+			log(Log.Level.INFO, msg, t);
+		}
+	}
+
+	@Override
+	public boolean isWarnEnabled() {
+		return enabled(Log.Level.WARN);
+	}
+
+	@Override
+	public void warn(String msg) {
+		if (enabled(Log.Level.WARN)) {
+			log(Log.Level.WARN, msg, null);
+		}
+	}
+
+	@Override
+	public void warn(String format, Object arg) {
+		if (enabled(Log.Level.WARN)) {
+			log(Log.Level.WARN, MessageFormatter.format(format, arg));
+		}
+	}
+
+	@Override
+	public void warn(String format, Object arg1, Object arg2) {
+		if (enabled(Log.Level.WARN)) {
+			log(Log.Level.WARN, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	@Override
+	public void warn(String format, Object... arguments) {
+		if (enabled(Log.Level.WARN)) {
+			log(Log.Level.WARN, MessageFormatter.arrayFormat(format, arguments));
+		}
+	}
+
+	@Override
+	public void warn(String msg, Throwable t) {
+		if (enabled(Log.Level.WARN)) {
+			log(Log.Level.WARN, msg, t);
+		}
+	}
+
+	@Override
+	public boolean isErrorEnabled() {
+		return enabled(Log.Level.ERROR);
+	}
+
+	@Override
+	public void error(String msg) {
+		if (enabled(Log.Level.ERROR)) {
+			log(Log.Level.ERROR, msg, null);
+		}
+	}
+
+	@Override
+	public void error(String format, Object arg) {
+		if (enabled(Log.Level.ERROR)) {
+			log(Log.Level.ERROR, MessageFormatter.format(format, arg));
+		}
+	}
+
+	@Override
+	public void error(String format, Object arg1, Object arg2) {
+		if (enabled(Log.Level.ERROR)) {
+			log(Log.Level.ERROR, MessageFormatter.format(format, arg1, arg2));
+		}
+	}
+
+	@Override
+	public void error(String format, Object... arguments) {
+		if (enabled(Log.Level.ERROR)) {
+			log(Log.Level.ERROR, MessageFormatter.arrayFormat(format, arguments));
+		}
+	}
+
+	@Override
+	public void error(String msg, Throwable t) {
+		if (enabled(Log.Level.ERROR)) {
+			log(Log.Level.ERROR, msg, t);
+		}
+	}
+
+}
@@ -17,7 +17,16 @@
 package hu.juranyi.zsolt.jauthortagger.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 
@@ -29,6 +38,136 @@ import java.util.Scanner;
  */
 public class IOUtils {
 
+	/**
+	 * Deletes the given directory with everything in it. Symbolic links are
+	 * deleted, not followed.
+	 *
+	 * @param dir
+	 *            - The directory to delete.
+	 * @throws IOException
+	 *             If something cannot be deleted.
+	 */
+	public static void deleteRecursively(File dir) throws IOException {
+		if (!dir.exists()) {
+			return;
+		}
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+				if (null != e) {
+					throw e;
+				}
+				Files.delete(d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/**
+	 * Returns an iterator over the remaining lines of the given scanner.
+	 *
+	 * @param s
+	 *            - The scanner.
+	 * @return The iterator of lines.
+	 */
+	public static Iterator<String> lines(final Scanner s) {
+		return new Iterator<String>() {
+
+			@Override
+			public boolean hasNext() {
+				return s.hasNextLine();
+			}
+
+			@Override
+			public String next() {
+				return s.nextLine();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Splits the given content into lines the same way as
+	 * <code>BufferedReader.readLine()</code> does: lines can be terminated by
+	 * <code>\n</code>, <code>\r</code> or <code>\r\n</code>, and a line
+	 * terminator at the end of the content does not start a new line.
+	 *
+	 * @param content
+	 *            - The content to split.
+	 * @return The lines of the content, without line terminators.
+	 */
+	public static List<String> lines(String content) {
+		List<String> lines = new ArrayList<String>();
+		int start = 0;
+		int i = 0;
+		while (i < content.length()) {
+			char c = content.charAt(i);
+			if ('\n' == c || '\r' == c) {
+				lines.add(content.substring(start, i));
+				if ('\r' == c && i + 1 < content.length() && '\n' == content.charAt(i + 1)) {
+					i++;
+				}
+				start = i + 1;
+			}
+			i++;
+		}
+		if (start < content.length()) {
+			lines.add(content.substring(start));
+		}
+		return lines;
+	}
+
+	/**
+	 * Moves a file to the given place, replacing the target if it exists. The
+	 * move is atomic where the file system supports it, so the target is
+	 * never seen missing or half written.
+	 *
+	 * @param from
+	 *            - The file to move.
+	 * @param to
+	 *            - The target.
+	 * @throws IOException
+	 *             If the file cannot be moved.
+	 */
+	public static void moveAtomically(File from, File to) throws IOException {
+		try {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Returns the path of the given file relative to the given base directory
+	 * path, with <code>/</code> as separator on every platform. If the file is
+	 * not inside the base directory, its absolute path is returned.
+	 *
+	 * @param basePath
+	 *            - The absolute path of the base directory.
+	 * @param f
+	 *            - The file.
+	 * @return The relative path.
+	 */
+	public static String relativePath(String basePath, File f) {
+		String path = f.getAbsolutePath();
+		if (path.startsWith(basePath + File.separator)) {
+			path = path.substring(basePath.length() + 1);
+		}
+		return path.replace(File.separatorChar, '/');
+	}
+
 	/**
 	 * Reads an UTF-8 encoded text file and returns its lines as list of
 	 * <code>String</code> objects.
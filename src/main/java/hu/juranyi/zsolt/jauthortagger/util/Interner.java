@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe pool of canonical instances: equal values are replaced by the
+ * same instance, so values repeated in many files and projects (e.g. author
+ * names) are stored only once in the JVM. Values are kept until the JVM
+ * exits, so it should only be used for values from a small domain.
+ *
+ * @author Zsolt Jurányi
+ *
+ * @param <T>
+ *            - Type of the values.
+ */
+public class Interner<T> {
+
+	private final ConcurrentMap<T, T> values = new ConcurrentHashMap<T, T>();
+
+	/**
+	 * Returns the canonical instance of the given value. The first instance
+	 * received becomes the canonical one.
+	 *
+	 * @param value
+	 *            - The value, or <code>null</code>.
+	 * @return The canonical instance equal to the value, or <code>null</code>.
+	 */
+	public T intern(T value) {
+		if (null == value) {
+			return null;
+		}
+		T canonical = values.putIfAbsent(value, value);
+		return null == canonical ? value : canonical;
+	}
+
+	/**
+	 * Returns the number of canonical instances.
+	 *
+	 * @return The number of canonical instances.
+	 */
+	public int size() {
+		return values.size();
+	}
+
+}
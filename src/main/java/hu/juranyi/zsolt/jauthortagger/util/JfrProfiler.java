@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Implementation of <code>Profiler</code> with custom <i>Java Flight
+ * Recorder</i> events. It is only loaded (via reflection) when the running JRE
+ * has JFR.
+ *
+ * @author Zsolt Jurányi
+ * @see Profiler
+ *
+ */
+class JfrProfiler implements Profiler.Backend {
+
+	/**
+	 * The work done on one file by a stage.
+	 */
+	@Name("hu.juranyi.zsolt.jauthortagger.File")
+	@Label("File")
+	@Category("JAuthorTagger")
+	@Description("Work done on one file by a stage")
+	@StackTrace(false)
+	static class FileEvent extends Event implements Profiler.Span {
+
+		@Label("Stage")
+		String stage;
+
+		@Label("Path")
+		String path;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+		@Override
+		public void finish(File file) {
+			end();
+			if (shouldCommit()) {
+				path = file.getPath();
+				bytes = file.length();
+				commit();
+			}
+		}
+
+		@Override
+		public void finish(String path, long value) {
+			end();
+			if (shouldCommit()) {
+				this.path = path;
+				this.bytes = value;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * A whole stage of a run.
+	 */
+	@Name("hu.juranyi.zsolt.jauthortagger.Stage")
+	@Label("Stage")
+	@Category("JAuthorTagger")
+	@Description("A whole stage of a run")
+	@StackTrace(false)
+	static class StageEvent extends Event implements Profiler.Span {
+
+		@Label("Stage")
+		String stage;
+
+		@Label("Path")
+		String path;
+
+		@Label("Files")
+		long files;
+
+		@Override
+		public void finish(File file) {
+			finish(file.getPath(), 0);
+		}
+
+		@Override
+		public void finish(String path, long value) {
+			end();
+			if (shouldCommit()) {
+				this.path = path;
+				this.files = value;
+				commit();
+			}
+		}
+	}
+
+	@Override
+	public Profiler.Span file(String stage) {
+		FileEvent event = new FileEvent();
+		event.stage = stage;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public Profiler.Recording record() {
+		final jdk.jfr.Recording recording;
+		try {
+			recording = new jdk.jfr.Recording(Configuration.getConfiguration("profile"));
+		} catch (IOException | ParseException e) {
+			throw new IllegalStateException("Cannot load JFR settings", e);
+		}
+		recording.enable(FileEvent.class);
+		recording.enable(StageEvent.class);
+		recording.start();
+		return new Profiler.Recording() {
+
+			@Override
+			public void dump(File file) throws IOException {
+				try {
+					recording.stop();
+					recording.dump(file.toPath());
+				} finally {
+					recording.close();
+				}
+			}
+		};
+	}
+
+	@Override
+	public Profiler.Span stage(String stage) {
+		StageEvent event = new StageEvent();
+		event.stage = stage;
+		event.begin();
+		return event;
+	}
+
+}
@@ -16,33 +16,96 @@
 
 package hu.juranyi.zsolt.jauthortagger.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.impl.SimpleLogger;
 
 /**
+ * <p>
  * Small utility class to use <i>SLF4J's Simple Logger</i>.
- * 
+ * </p>
+ * <p>
+ * The loggers returned by <code>forClass</code> check the threshold
+ * (<code>setLevel</code>, or <code>setRunLevel</code> within a run) and the
+ * level of their class (<code>setLogLevel</code>) before anything else, so
+ * disabled log calls cost nothing in hot loops. When a log file is set, the
+ * enabled lines are written into it by an <code>AsyncLogSink</code> on a
+ * background thread, otherwise they go to the <i>Simple Logger</i> (standard
+ * error by default).
+ * </p>
+ *
  * @author Zsolt Jurányi
+ * @see AsyncLogSink
  *
  */
 public class Log {
 
 	public enum Level {
-		DEBUG, ERROR, INFO, TRACE, WARN;
+		DEBUG(10), ERROR(40), INFO(20), TRACE(0), WARN(30);
+
+		final int severity;
+
+		private Level(int severity) {
+			this.severity = severity;
+		}
 	}
 
+	static volatile int threshold = Level.TRACE.severity;
+	static volatile AsyncLogSink sink = null;
+	private static final InheritableThreadLocal<Level> RUN_LEVEL = new InheritableThreadLocal<Level>();
+	private static final AtomicInteger RUN_LEVELS = new AtomicInteger();
+	private static final ConcurrentMap<String, GatedLogger> LOGGERS = new ConcurrentHashMap<String, GatedLogger>();
+	private static final ConcurrentMap<String, Level> CLASS_LEVELS = new ConcurrentHashMap<String, Level>();
+
 	static {
-		setDateTimeFormat("yyyy-MM-dd HH:mm:ss");
-		setDefaultLogLevel(Level.TRACE);
-		setLevelInBrackets(true);
-		setShowDateTime(true);
-		setShowShortLogName(true);
-		setShowThreadName(false);
+		// only defaults, settings made before (e.g. by an embedding tool) win
+		setDefault(SimpleLogger.DATE_TIME_FORMAT_KEY, "yyyy-MM-dd HH:mm:ss");
+		setDefault(SimpleLogger.DEFAULT_LOG_LEVEL_KEY, Level.TRACE.name().toLowerCase());
+		setDefault(SimpleLogger.LEVEL_IN_BRACKETS_KEY, Boolean.toString(true));
+		setDefault(SimpleLogger.SHOW_DATE_TIME_KEY, Boolean.toString(true));
+		setDefault(SimpleLogger.SHOW_SHORT_LOG_NAME_KEY, Boolean.toString(true));
+		setDefault(SimpleLogger.SHOW_THREAD_NAME_KEY, Boolean.toString(false));
+	}
+
+	private static void setDefault(String key, String value) {
+		if (null == System.getProperty(key)) {
+			System.getProperties().setProperty(key, value);
+		}
+	}
+
+	/**
+	 * Writes the waiting lines into the log file and closes it. Following log
+	 * lines go to the <i>Simple Logger</i> again.
+	 */
+	public static synchronized void close() {
+		AsyncLogSink s = sink;
+		sink = null;
+		if (null != s) {
+			s.close();
+		}
 	}
 
 	public static Logger forClass(Class<?> clazz) {
-		return LoggerFactory.getLogger(clazz);
+		String name = clazz.getName();
+		GatedLogger logger = LOGGERS.get(name);
+		if (null == logger) {
+			logger = new GatedLogger(name, LoggerFactory.getLogger(clazz));
+			GatedLogger existing = LOGGERS.putIfAbsent(name, logger);
+			if (null != existing) {
+				logger = existing;
+			}
+			Level level = CLASS_LEVELS.get(name);
+			if (null != level) {
+				logger.setClassLevel(level);
+			}
+		}
+		return logger;
 	}
 
 	public static void setDateTimeFormat(String format) {
@@ -57,12 +120,95 @@ public class Log {
 		System.getProperties().setProperty(SimpleLogger.LEVEL_IN_BRACKETS_KEY, Boolean.toString(b));
 	}
 
-	public static void setLogFile(String path) {
-		System.getProperties().setProperty(SimpleLogger.LOG_FILE_KEY, path);
+	/**
+	 * Sets the run-level threshold: messages below it are dropped by all
+	 * loggers before they are formatted. The default is <code>TRACE</code>,
+	 * which leaves the decision to the <i>Simple Logger</i>.
+	 *
+	 * @param level
+	 *            - The lowest level to log.
+	 */
+	public static void setLevel(Level level) {
+		threshold = level.severity;
+	}
+
+	/**
+	 * Restores the threshold of the current thread saved by
+	 * <code>setRunLevel</code>.
+	 *
+	 * @param previous
+	 *            - The value returned by <code>setRunLevel</code>.
+	 * @see #setRunLevel(Level)
+	 */
+	public static void restoreRunLevel(Level previous) {
+		if (null == previous && null != RUN_LEVEL.get()) {
+			RUN_LEVEL.remove();
+			RUN_LEVELS.decrementAndGet();
+		} else if (null != previous) {
+			RUN_LEVEL.set(previous);
+		}
+	}
+
+	/**
+	 * Sets the threshold of one run, e.g. one request of the server: it
+	 * overrides the one set by <code>setLevel</code> in the current thread and
+	 * in the threads started by it from now on, so concurrent runs don't
+	 * affect each other. It must be restored with <code>restoreRunLevel</code>
+	 * at the end of the run.
+	 *
+	 * @param level
+	 *            - The lowest level to log in the run.
+	 * @return The previous run level of the current thread, or
+	 *         <code>null</code>.
+	 * @see #restoreRunLevel(Level)
+	 */
+	public static Level setRunLevel(Level level) {
+		Level previous = RUN_LEVEL.get();
+		if (null == previous) {
+			RUN_LEVELS.incrementAndGet();
+		}
+		RUN_LEVEL.set(level);
+		return previous;
+	}
+
+	/**
+	 * Opens the given file (an existing one is overwritten) and writes the log
+	 * lines into it asynchronously until <code>close</code> is called. A
+	 * previously opened log file is closed first.
+	 *
+	 * @param path
+	 *            - The path of the log file.
+	 */
+	public static synchronized void setLogFile(String path) {
+		close();
+		try {
+			sink = new AsyncLogSink(new File(path));
+		} catch (IOException e) {
+			System.err.println("Cannot open log file: " + e.getMessage());
+		}
 	}
 
 	public static void setLogLevel(Class<?> clazz, Level level) {
 		System.getProperties().setProperty(SimpleLogger.LOG_KEY_PREFIX + clazz.getName(), level.name().toLowerCase());
+		CLASS_LEVELS.put(clazz.getName(), level);
+		GatedLogger logger = LOGGERS.get(clazz.getName());
+		if (null != logger) {
+			logger.setClassLevel(level);
+		}
+	}
+
+	/**
+	 * Returns the threshold in effect in the current thread. The thread local
+	 * run level is only looked up while a run has set one.
+	 */
+	static int threshold() {
+		if (0 < RUN_LEVELS.get()) {
+			Level level = RUN_LEVEL.get();
+			if (null != level) {
+				return level.severity;
+			}
+		}
+		return threshold;
 	}
 
 	public static void setShowDateTime(boolean b) {
@@ -80,4 +226,21 @@ public class Log {
 	public static void setShowThreadName(boolean b) {
 		System.getProperties().setProperty(SimpleLogger.SHOW_THREAD_NAME_KEY, Boolean.toString(b));
 	}
+
+	/**
+	 * Logs a summary line on <code>INFO</code> level regardless of the
+	 * threshold, so a run can log only its summary and the problems.
+	 *
+	 * @param logger
+	 *            - A logger returned by <code>forClass</code>.
+	 * @param message
+	 *            - The summary line.
+	 */
+	public static void summary(Logger logger, String message) {
+		if (logger instanceof GatedLogger) {
+			((GatedLogger) logger).summary(message);
+		} else {
+			logger.info(message);
+		}
+	}
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+
+/**
+ * The list of files which have been backed up into <code>.at-save</code>
+ * files, stored as a text file in the project directory with one relative
+ * path per line. It is appended while the files are written, so
+ * <code>RESTORE</code> mode can work from it alone, without enumerating the
+ * source tree. Only changed files are backed up, so it lists every backup
+ * made. Instances are thread safe.
+ *
+ * @author Zsolt Jurányi
+ * @see Filenames#manifestOf(File)
+ *
+ */
+public class Manifest implements Closeable {
+
+	/**
+	 * Tells whether the given project directory has a manifest.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @return <code>true</code> if the manifest exists.
+	 */
+	public static boolean exists(File projectDir) {
+		return Filenames.manifestOf(projectDir).isFile();
+	}
+
+	private final File projectDir;
+	private final String basePath;
+	private final File manifestFile;
+	private BufferedWriter w;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 */
+	public Manifest(File projectDir) {
+		this.projectDir = projectDir;
+		this.basePath = projectDir.getAbsolutePath();
+		this.manifestFile = Filenames.manifestOf(projectDir);
+	}
+
+	/**
+	 * Appends the given file to the manifest. The line is flushed right away,
+	 * so the files backed up by a killed run can be restored too.
+	 *
+	 * @param file
+	 *            - The file which is going to be backed up.
+	 * @throws IOException
+	 *             If the manifest cannot be written.
+	 */
+	public synchronized void add(File file) throws IOException {
+		if (null == w) {
+			w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifestFile, true), "UTF-8"));
+		}
+		w.write(IOUtils.relativePath(basePath, file));
+		w.newLine();
+		w.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (null != w) {
+			w.close();
+			w = null;
+		}
+	}
+
+	/**
+	 * Deletes the manifest file.
+	 *
+	 * @throws IOException
+	 *             If closing the file fails.
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+		manifestFile.delete();
+	}
+
+	/**
+	 * Reads the files listed in the manifest. Every file is returned once,
+	 * even if it was added in several runs.
+	 *
+	 * @return The listed files.
+	 * @throws IOException
+	 *             If the manifest cannot be read.
+	 */
+	public synchronized List<File> read() throws IOException {
+		Set<String> paths = new LinkedHashSet<String>();
+		if (manifestFile.isFile()) {
+			try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile),
+					"UTF-8"))) {
+				String line;
+				while (null != (line = r.readLine())) {
+					if (!line.isEmpty()) {
+						paths.add(line);
+					}
+				}
+			}
+		}
+		List<File> files = new ArrayList<File>(paths.size());
+		for (String path : paths) {
+			files.add(new File(projectDir, path));
+		}
+		return files;
+	}
+
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import static hu.juranyi.zsolt.jauthortagger.model.Filenames.tempFileOf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * <p>
+ * Thread-safe registry of the metrics of <b>JAuthorTagger</b> runs: counters
+ * of files and bytes, the wall time of the stages, and histograms of the time
+ * spent on single files per stage. Recording is a few atomic increments, so
+ * it is always on.
+ * </p>
+ * <p>
+ * Every run records into its own instance, which forwards everything to its
+ * parent, usually the JVM-wide instance returned by <code>global()</code>. The
+ * JVM-wide instance is exposed over JMX (see <code>MetricsMXBean</code>), and
+ * any instance can be exported as a <i>Prometheus</i> textfile, to be
+ * collected by the textfile collector of the node exporter.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see MetricsMXBean
+ *
+ */
+public class Metrics implements MetricsMXBean {
+
+	/**
+	 * The counters.
+	 */
+	public enum Counter {
+		/**
+		 * Files enumerated.
+		 */
+		FILES_SEEN("files_seen_total", "Files enumerated."), //
+		/**
+		 * Files dropped by the analyzer or skipped by the configuration.
+		 */
+		FILES_SKIPPED("files_skipped_total", "Files dropped by the analyzer or skipped by the configuration."), //
+		/**
+		 * Files whose content has changed.
+		 */
+		FILES_CHANGED("files_changed_total", "Files whose content has changed."), //
+		/**
+		 * Files which could not be processed because of an error.
+		 */
+		FILES_FAILED("files_failed_total", "Files which could not be processed because of an error."), //
+		/**
+		 * Bytes of the files read by the writer.
+		 */
+		BYTES_READ("read_bytes_total", "Bytes of the files read by the writer."), //
+		/**
+		 * Bytes of the files written by the writer.
+		 */
+		BYTES_WRITTEN("written_bytes_total", "Bytes of the changed files written by the writer.");
+
+		private final String metricName;
+		private final String help;
+
+		private Counter(String metricName, String help) {
+			this.metricName = metricName;
+			this.help = help;
+		}
+	}
+
+	/**
+	 * The stages of a run.
+	 */
+	public enum Stage {
+		ENUMERATE, ANALYZE, APPLY, WRITE, DIFF, REPORT;
+
+		private String label() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	/**
+	 * The name of the JVM-wide instance in the platform MBean server.
+	 */
+	public static final String OBJECT_NAME = "hu.juranyi.zsolt.jauthortagger:type=Metrics";
+
+	/**
+	 * Upper bounds of the histogram buckets in nanoseconds, from 10
+	 * microseconds to 10 seconds. The last bucket (+Inf) is implicit.
+	 */
+	private static final long[] BUCKETS = { 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+			10000000000L };
+	private static final String PREFIX = "jauthortagger_";
+	private static final Logger LOG = Log.forClass(Metrics.class);
+	private static Metrics global;
+
+	/**
+	 * Returns the JVM-wide instance, which collects the metrics of every run.
+	 * It is registered in the platform MBean server at the first call.
+	 *
+	 * @return The JVM-wide instance.
+	 */
+	public static synchronized Metrics global() {
+		if (null == global) {
+			global = new Metrics(null);
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(global, new ObjectName(OBJECT_NAME));
+			} catch (JMException e) {
+				LOG.warn("Cannot register metrics MBean", e);
+			}
+		}
+		return global;
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / 1e9;
+	}
+
+	private final Metrics parent;
+	private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+	private final AtomicLongArray stageNanos = new AtomicLongArray(Stage.values().length);
+	private final AtomicLongArray fileCounts = new AtomicLongArray(Stage.values().length);
+	private final AtomicLongArray fileNanos = new AtomicLongArray(Stage.values().length);
+	private final AtomicLongArray fileBuckets = new AtomicLongArray(Stage.values().length * BUCKETS.length);
+	private final AtomicLong runs = new AtomicLong();
+	private final AtomicLong runNanos = new AtomicLong();
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param parent
+	 *            - The instance to forward everything to, can be
+	 *            <code>null</code>.
+	 */
+	public Metrics(Metrics parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Increments a counter.
+	 *
+	 * @param counter
+	 *            - The counter.
+	 * @param delta
+	 *            - The value to add.
+	 */
+	public void count(Counter counter, long delta) {
+		counters.addAndGet(counter.ordinal(), delta);
+		if (null != parent) {
+			parent.count(counter, delta);
+		}
+	}
+
+	/**
+	 * Records the time spent on one file in a stage.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param startNanos
+	 *            - The value of <code>System.nanoTime()</code> when the stage
+	 *            started working on the file.
+	 */
+	public void file(Stage stage, long startNanos) {
+		observe(stage, System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Returns the value of a counter.
+	 *
+	 * @param counter
+	 *            - The counter.
+	 * @return The value of the counter.
+	 */
+	public long get(Counter counter) {
+		return counters.get(counter.ordinal());
+	}
+
+	@Override
+	public Map<String, Long> getCounters() {
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Counter counter : Counter.values()) {
+			values.put(counter.metricName, get(counter));
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the number of files processed by a stage.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @return The number of files processed by the stage.
+	 */
+	public long getFileCount(Stage stage) {
+		return fileCounts.get(stage.ordinal());
+	}
+
+	@Override
+	public Map<String, Long> getFileCounts() {
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.label(), getFileCount(stage));
+		}
+		return values;
+	}
+
+	@Override
+	public Map<String, Double> getFileSeconds() {
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.label(), seconds(fileNanos.get(stage.ordinal())));
+		}
+		return values;
+	}
+
+	@Override
+	public long getRuns() {
+		return runs.get();
+	}
+
+	@Override
+	public double getRunSeconds() {
+		return seconds(runNanos.get());
+	}
+
+	/**
+	 * Returns the wall time of a stage in nanoseconds.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @return The wall time of the stage.
+	 */
+	public long getStageNanos(Stage stage) {
+		return stageNanos.get(stage.ordinal());
+	}
+
+	@Override
+	public Map<String, Double> getStageSeconds() {
+		Map<String, Double> values = new LinkedHashMap<String, Double>();
+		for (Stage stage : Stage.values()) {
+			values.put(stage.label(), seconds(getStageNanos(stage)));
+		}
+		return values;
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+		for (int i = 0; i < stageNanos.length(); i++) {
+			stageNanos.set(i, 0);
+			fileCounts.set(i, 0);
+			fileNanos.set(i, 0);
+		}
+		for (int i = 0; i < fileBuckets.length(); i++) {
+			fileBuckets.set(i, 0);
+		}
+		runs.set(0);
+		runNanos.set(0);
+	}
+
+	/**
+	 * Records a finished run.
+	 *
+	 * @param startNanos
+	 *            - The value of <code>System.nanoTime()</code> when the run
+	 *            started.
+	 */
+	public void run(long startNanos) {
+		recordRun(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Records the wall time of a stage. In the <code>PIPELINE</code> and
+	 * <code>PER_FILE</code> execution modes the stages overlap, only the
+	 * per-file times are recorded for them.
+	 *
+	 * @param stage
+	 *            - The stage.
+	 * @param startNanos
+	 *            - The value of <code>System.nanoTime()</code> when the stage
+	 *            started.
+	 */
+	public void stage(Stage stage, long startNanos) {
+		recordStage(stage, System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Writes the metrics in the text format of <i>Prometheus</i>. The file is
+	 * written into a temporary file first and then moved to its place, so the
+	 * collector never reads a partial file.
+	 *
+	 * @param file
+	 *            - The file to write, e.g.
+	 *            <code>/var/lib/node_exporter/jauthortagger.prom</code>.
+	 * @param mode
+	 *            - The value of the <code>mode</code> label.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void writeTextFile(File file, String mode) throws IOException {
+		File tempFile = tempFileOf(file);
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8")) {
+			writeText(w, mode);
+		}
+		IOUtils.moveAtomically(tempFile, file);
+	}
+
+	/**
+	 * Writes the metrics in the text format of <i>Prometheus</i>.
+	 *
+	 * @param w
+	 *            - The writer to write into.
+	 * @param mode
+	 *            - The value of the <code>mode</code> label.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void writeText(Writer w, String mode) throws IOException {
+		String labels = "mode=\"" + mode + "\"";
+		for (Counter counter : Counter.values()) {
+			header(w, counter.metricName, counter.help, "counter");
+			w.write(PREFIX + counter.metricName + "{" + labels + "} " + get(counter) + "\n");
+		}
+
+		header(w, "run_seconds", "Wall time of the runs.", "counter");
+		w.write(PREFIX + "run_seconds{" + labels + "} " + getRunSeconds() + "\n");
+		header(w, "runs_total", "Finished runs.", "counter");
+		w.write(PREFIX + "runs_total{" + labels + "} " + getRuns() + "\n");
+
+		header(w, "stage_seconds", "Wall time of the stages which run one after another.", "counter");
+		for (Stage stage : Stage.values()) {
+			w.write(PREFIX + "stage_seconds{" + labels + ",stage=\"" + stage.label() + "\"} "
+					+ seconds(getStageNanos(stage)) + "\n");
+		}
+
+		header(w, "file_seconds", "Time spent on one file by the stages.", "histogram");
+		for (Stage stage : Stage.values()) {
+			String stageLabels = labels + ",stage=\"" + stage.label() + "\"";
+			for (int b = 0; b < BUCKETS.length; b++) {
+				w.write(PREFIX + "file_seconds_bucket{" + stageLabels + ",le=\"" + seconds(BUCKETS[b]) + "\"} "
+						+ fileBuckets.get(stage.ordinal() * BUCKETS.length + b) + "\n");
+			}
+			w.write(PREFIX + "file_seconds_bucket{" + stageLabels + ",le=\"+Inf\"} " + getFileCount(stage) + "\n");
+			w.write(PREFIX + "file_seconds_sum{" + stageLabels + "} " + seconds(fileNanos.get(stage.ordinal()))
+					+ "\n");
+			w.write(PREFIX + "file_seconds_count{" + stageLabels + "} " + getFileCount(stage) + "\n");
+		}
+	}
+
+	private void header(Writer w, String name, String help, String type) throws IOException {
+		w.write("# HELP " + PREFIX + name + " " + help + "\n");
+		w.write("# TYPE " + PREFIX + name + " " + type + "\n");
+	}
+
+	private void observe(Stage stage, long nanos) {
+		int s = stage.ordinal();
+		fileCounts.incrementAndGet(s);
+		fileNanos.addAndGet(s, nanos);
+		for (int b = BUCKETS.length - 1; b >= 0 && nanos <= BUCKETS[b]; b--) {
+			fileBuckets.incrementAndGet(s * BUCKETS.length + b); // buckets are cumulative
+		}
+		if (null != parent) {
+			parent.observe(stage, nanos);
+		}
+	}
+
+	private void recordRun(long nanos) {
+		runs.incrementAndGet();
+		runNanos.addAndGet(nanos);
+		if (null != parent) {
+			parent.recordRun(nanos);
+		}
+	}
+
+	private void recordStage(Stage stage, long nanos) {
+		stageNanos.addAndGet(stage.ordinal(), nanos);
+		if (null != parent) {
+			parent.recordStage(stage, nanos);
+		}
+	}
+
+}
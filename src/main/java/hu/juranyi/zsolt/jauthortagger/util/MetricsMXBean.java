@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.Map;
+
+/**
+ * Management interface of <code>Metrics</code>. The JVM-wide metrics are
+ * registered in the platform MBean server under
+ * <code>hu.juranyi.zsolt.jauthortagger:type=Metrics</code>, so they can be
+ * watched with <i>JConsole</i>, <i>VisualVM</i> or a JMX exporter while the
+ * tagger (e.g. the server) is running.
+ *
+ * @author Zsolt Jurányi
+ * @see Metrics
+ *
+ */
+public interface MetricsMXBean {
+
+	/**
+	 * Returns the values of the counters by name.
+	 *
+	 * @return The values of the counters by name.
+	 */
+	Map<String, Long> getCounters();
+
+	/**
+	 * Returns the number of files processed by the stages, by stage name.
+	 *
+	 * @return The number of files processed by the stages.
+	 */
+	Map<String, Long> getFileCounts();
+
+	/**
+	 * Returns the time spent on single files by the stages in seconds, by
+	 * stage name.
+	 *
+	 * @return The time spent on single files by the stages.
+	 */
+	Map<String, Double> getFileSeconds();
+
+	/**
+	 * Returns the number of finished runs.
+	 *
+	 * @return The number of finished runs.
+	 */
+	long getRuns();
+
+	/**
+	 * Returns the wall time of the finished runs in seconds.
+	 *
+	 * @return The wall time of the finished runs.
+	 */
+	double getRunSeconds();
+
+	/**
+	 * Returns the wall time of the stages in seconds, by stage name.
+	 *
+	 * @return The wall time of the stages.
+	 */
+	Map<String, Double> getStageSeconds();
+
+	/**
+	 * Sets every value to zero.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+
+/**
+ * <p>
+ * Executes a sequence of stages on a stream of items, in a pipelined manner.
+ * Every stage has its own worker threads, and stages are connected with
+ * bounded queues, so while one stage works on an item, the previous stage can
+ * already work on the next one. When a queue is full, the previous stage (or
+ * the producer) waits, so the number of items in flight stays bounded.
+ * </p>
+ * <p>
+ * Usage: add the stages, call <code>start()</code>, feed the items via
+ * <code>put()</code> (the pipeline is a <code>Sink</code>), then call
+ * <code>finish()</code> which waits for the stages and returns the items which
+ * passed all of them, in the order they were put in.
+ * </p>
+ * <p>
+ * If a stage throws an <code>Error</code> (e.g. <code>OutOfMemoryError</code>
+ * or <code>StackOverflowError</code>), the rest of the items are dropped by
+ * all stages, the end signal still goes through, and <code>finish()</code>
+ * rethrows the error.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ *
+ * @param <T>
+ *            - Type of the items.
+ */
+public class Pipeline<T> implements Sink<T> {
+
+	/**
+	 * One step of the processing.
+	 *
+	 * @param <T>
+	 *            - Type of the items.
+	 */
+	public interface Stage<T> {
+
+		/**
+		 * Processes the given item. Items can be dropped by returning
+		 * <code>false</code>, then they won't reach the next stages.
+		 *
+		 * @param item
+		 *            - The item to process.
+		 * @return <code>true</code> if the item should be passed to the next
+		 *         stage, <code>false</code> if it should be dropped.
+		 * @throws Exception
+		 *             If processing failed, the item will be dropped.
+		 */
+		boolean process(T item) throws Exception;
+	}
+
+	private static class Item<T> {
+
+		private final long seq;
+		private final T value;
+
+		public Item(long seq, T value) {
+			this.seq = seq;
+			this.value = value;
+		}
+	}
+
+	private static final Logger LOG = Log.forClass(Pipeline.class);
+	private static final Item<Object> END = new Item<Object>(-1, null);
+
+	private final String name;
+	private final int queueCapacity;
+	private final List<String> stageNames = new ArrayList<String>();
+	private final List<Stage<T>> stages = new ArrayList<Stage<T>>();
+	private final List<Integer> stageWorkers = new ArrayList<Integer>();
+	private final List<Thread> threads = new ArrayList<Thread>();
+	private final List<Item<T>> results = new ArrayList<Item<T>>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private BlockingQueue<Item<T>> input;
+	private long seq = 0;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param name
+	 *            - Name of the pipeline, used in thread names.
+	 * @param queueCapacity
+	 *            - Capacity of the queues between the stages.
+	 */
+	public Pipeline(String name, int queueCapacity) {
+		this.name = name;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Appends a stage to the pipeline. Must be called before
+	 * <code>start()</code>.
+	 *
+	 * @param stageName
+	 *            - Name of the stage, used in thread names and log messages.
+	 * @param workers
+	 *            - Number of threads working on this stage.
+	 * @param stage
+	 *            - The stage implementation, it must be thread-safe when more
+	 *            than one worker is used.
+	 * @return This pipeline.
+	 */
+	public Pipeline<T> addStage(String stageName, int workers, Stage<T> stage) {
+		stageNames.add(stageName);
+		stages.add(stage);
+		stageWorkers.add(Math.max(1, workers));
+		return this;
+	}
+
+	/**
+	 * Sends the end signal through the stages, waits for them to finish, and
+	 * returns the items which passed all stages.
+	 *
+	 * @return The items which passed all stages, in the order they were put in.
+	 * @throws InterruptedException
+	 *             If the current thread was interrupted while waiting.
+	 * @throws Error
+	 *             The first error thrown by a stage.
+	 */
+	public List<T> finish() throws InterruptedException {
+		input.put(end());
+		for (Thread t : threads) {
+			t.join();
+		}
+		Throwable t = failure.get();
+		if (t instanceof Error) {
+			throw (Error) t;
+		} else if (null != t) {
+			throw new IllegalStateException("Pipeline failed", t);
+		}
+		Collections.sort(results, new Comparator<Item<T>>() {
+
+			@Override
+			public int compare(Item<T> a, Item<T> b) {
+				return Long.compare(a.seq, b.seq);
+			}
+		});
+		List<T> values = new ArrayList<T>(results.size());
+		for (Item<T> item : results) {
+			values.add(item.value);
+		}
+		return values;
+	}
+
+	/**
+	 * Feeds the next item into the first stage. It blocks while the first
+	 * queue is full.
+	 *
+	 * @param item
+	 *            - The item.
+	 */
+	@Override
+	public void put(T item) {
+		try {
+			input.put(new Item<T>(seq++, item));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while feeding pipeline", e);
+		}
+	}
+
+	/**
+	 * Creates the queues and starts the worker threads of all stages.
+	 *
+	 * @return This pipeline.
+	 */
+	public Pipeline<T> start() {
+		input = new ArrayBlockingQueue<Item<T>>(queueCapacity);
+		BlockingQueue<Item<T>> in = input;
+		for (int i = 0; i < stages.size(); i++) {
+			BlockingQueue<Item<T>> out = new ArrayBlockingQueue<Item<T>>(queueCapacity);
+			int workers = stageWorkers.get(i);
+			AtomicInteger running = new AtomicInteger(workers);
+			for (int w = 0; w < workers; w++) {
+				startThread(name + "-" + stageNames.get(i) + "-" + w,
+						worker(stageNames.get(i), stages.get(i), in, out, running));
+			}
+			in = out;
+		}
+		startThread(name + "-collector", collector(in));
+		return this;
+	}
+
+	private Runnable collector(final BlockingQueue<Item<T>> in) {
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					for (Item<T> item = in.take(); END != item; item = in.take()) {
+						if (null == failure.get()) {
+							try {
+								results.add(item);
+							} catch (Error e) {
+								fail("collector", e);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private Item<T> end() {
+		return (Item<T>) END;
+	}
+
+	private void fail(String stageName, Throwable t) {
+		if (failure.compareAndSet(null, t)) {
+			LOG.error("Fatal error in stage '" + stageName + "', the rest of the items are dropped", t);
+		}
+	}
+
+	private void startThread(String threadName, Runnable runnable) {
+		Thread t = new Thread(runnable, threadName);
+		t.setDaemon(true);
+		threads.add(t);
+		t.start();
+	}
+
+	private Runnable worker(final String stageName, final Stage<T> stage, final BlockingQueue<Item<T>> in,
+			final BlockingQueue<Item<T>> out, final AtomicInteger running) {
+		return new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Item<T> item = in.take();
+					while (END != item) {
+						boolean pass = false;
+						if (null == failure.get()) {
+							try {
+								pass = stage.process(item.value);
+							} catch (Exception e) {
+								LOG.error("Error in stage '" + stageName + "', item dropped: " + item.value, e);
+							} catch (Error e) {
+								fail(stageName, e);
+							}
+						}
+						if (pass) {
+							out.put(item);
+						}
+						item = in.take();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (RuntimeException | Error e) {
+					fail(stageName, e);
+					throw e;
+				} finally {
+					// let the other workers of this stage see the end signal,
+					// the last one passes it to the next stage
+					try {
+						if (0 == running.decrementAndGet()) {
+							out.put(end());
+						} else {
+							in.put(end());
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+
+/**
+ * <p>
+ * Access to <i>Java Flight Recorder</i> without raising the source level of
+ * the project. The stages of <b>JAuthorTagger</b> report what they do on a
+ * file or a whole stage as spans. When the running JRE has JFR (JDK 11+), the
+ * spans are custom JFR events (see <code>JfrProfiler</code>), which appear in
+ * any recording, e.g. one started with <code>-XX:StartFlightRecording</code>
+ * or with the <code>--profile</code> option. On older JREs the spans do
+ * nothing.
+ * </p>
+ * <p>
+ * JFR is looked up via reflection, so the event classes are never loaded on
+ * older JREs.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see JfrProfiler
+ *
+ */
+public class Profiler {
+
+	/**
+	 * The work done on one file or in one stage. It measures the time between
+	 * its creation and <code>finish</code>.
+	 */
+	public interface Span {
+
+		/**
+		 * Finishes the span with the path and the length of the given file.
+		 * The length is only read if the span is recorded.
+		 *
+		 * @param file
+		 *            - The file.
+		 */
+		void finish(File file);
+
+		/**
+		 * Finishes the span.
+		 *
+		 * @param path
+		 *            - The path of the file, or of the project directory for
+		 *            stages.
+		 * @param value
+		 *            - The number of bytes for files, the number of files for
+		 *            stages.
+		 */
+		void finish(String path, long value);
+
+		/**
+		 * Tells whether the span will be recorded, so the caller can skip
+		 * calculating expensive values.
+		 *
+		 * @return <code>true</code> if the span will be recorded.
+		 */
+		boolean isEnabled();
+	}
+
+	/**
+	 * A recording started by <code>record()</code>.
+	 */
+	public interface Recording {
+
+		/**
+		 * Stops the recording and writes it into the given file.
+		 *
+		 * @param file
+		 *            - The file to write (<code>.jfr</code>).
+		 * @throws IOException
+		 *             If writing fails.
+		 */
+		void dump(File file) throws IOException;
+	}
+
+	/**
+	 * The implementation of the spans and recordings.
+	 */
+	interface Backend {
+
+		Span file(String stage);
+
+		Recording record();
+
+		Span stage(String stage);
+	}
+
+	private static final Logger LOG = Log.forClass(Profiler.class);
+	private static final Span NOOP = new Span() {
+
+		@Override
+		public void finish(File file) {
+		}
+
+		@Override
+		public void finish(String path, long value) {
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+	};
+	private static final Backend BACKEND = lookup();
+
+	/**
+	 * Starts a span of the work done on one file.
+	 *
+	 * @param stage
+	 *            - The name of the stage.
+	 * @return The span.
+	 */
+	public static Span file(String stage) {
+		return null == BACKEND ? NOOP : BACKEND.file(stage);
+	}
+
+	/**
+	 * Tells whether the running JRE has <i>Java Flight Recorder</i>.
+	 *
+	 * @return <code>true</code> if JFR is available.
+	 */
+	public static boolean isAvailable() {
+		return null != BACKEND;
+	}
+
+	private static Backend lookup() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return (Backend) Class.forName(Profiler.class.getPackage().getName() + ".JfrProfiler").newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (Exception e) {
+			LOG.warn("Could not initialize Java Flight Recorder events", e);
+			return null;
+		} catch (LinkageError e) {
+			LOG.warn("Could not initialize Java Flight Recorder events", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Starts a JFR recording with the <code>profile</code> settings of the
+	 * JRE, and the events of <b>JAuthorTagger</b>.
+	 *
+	 * @return The recording, or <code>null</code> if JFR is not available.
+	 */
+	public static Recording record() {
+		return null == BACKEND ? null : BACKEND.record();
+	}
+
+	/**
+	 * Starts a span of a whole stage.
+	 *
+	 * @param stage
+	 *            - The name of the stage.
+	 * @return The span.
+	 */
+	public static Span stage(String stage) {
+		return null == BACKEND ? NOOP : BACKEND.stage(stage);
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.List;
+
+import hu.juranyi.zsolt.jauthortagger.model.ProgressEvent;
+
+/**
+ * Receiver of the progress of a run. The methods are called on the thread of
+ * the progress reporter, so they should return quickly.
+ *
+ * @author Zsolt Jurányi
+ * @see ProgressReporter
+ *
+ */
+public interface ProgressListener {
+
+	/**
+	 * Receives the final state of the stages when the run has finished.
+	 *
+	 * @param events
+	 *            - The state of the stages which have processed files, in
+	 *            the order of the stages.
+	 */
+	void finished(List<ProgressEvent> events);
+
+	/**
+	 * Receives the current state of the stages, periodically.
+	 *
+	 * @param events
+	 *            - The state of the stages which have processed files, in
+	 *            the order of the stages.
+	 */
+	void progress(List<ProgressEvent> events);
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_READ;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_WRITTEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SEEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SKIPPED;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.model.ProgressEvent;
+
+/**
+ * Reports the progress of a run periodically to listeners, on a background
+ * thread. It reads the metrics the run records anyway, so the stages do not
+ * pay anything for it. The expected number of files of a stage is derived
+ * from the counters: analysis and configuration process every file found by
+ * the enumeration, writing and diff calculation the ones which were not
+ * skipped.
+ *
+ * @author Zsolt Jurányi
+ * @see Metrics
+ * @see ProgressListener
+ *
+ */
+public class ProgressReporter implements Closeable {
+
+	private static final Logger LOG = Log.forClass(ProgressReporter.class);
+	private static final Metrics.Stage[] STAGES = { Metrics.Stage.ENUMERATE, Metrics.Stage.ANALYZE,
+			Metrics.Stage.APPLY, Metrics.Stage.WRITE, Metrics.Stage.DIFF };
+
+	private final Metrics metrics;
+	private final long intervalMillis;
+	private final List<ProgressListener> listeners;
+	private final long[] baseFiles = new long[STAGES.length];
+	private final long baseSeen;
+	private final long baseSkipped;
+	private final long baseBytes;
+	private final long[] lastFiles = new long[STAGES.length];
+	private final long[] startedNanos = new long[STAGES.length];
+	private final long[] changedNanos = new long[STAGES.length];
+	private final CountDownLatch stopped = new CountDownLatch(1);
+	private Thread thread;
+
+	/**
+	 * Creates an instance. Only the progress made after this call is reported,
+	 * so the metrics can be shared with earlier runs.
+	 *
+	 * @param metrics
+	 *            - The metrics the run records into.
+	 * @param intervalMillis
+	 *            - The time between two reports in milliseconds.
+	 * @param listeners
+	 *            - The listeners to report to.
+	 * @throws IllegalArgumentException
+	 *             If the interval is not positive.
+	 */
+	public ProgressReporter(Metrics metrics, long intervalMillis, List<ProgressListener> listeners) {
+		if (intervalMillis < 1) {
+			throw new IllegalArgumentException("Invalid progress interval: " + intervalMillis);
+		}
+		this.metrics = metrics;
+		this.intervalMillis = intervalMillis;
+		this.listeners = new ArrayList<ProgressListener>(listeners);
+		for (int i = 0; i < STAGES.length; i++) {
+			baseFiles[i] = files(STAGES[i]);
+		}
+		baseSeen = metrics.get(FILES_SEEN);
+		baseSkipped = metrics.get(FILES_SKIPPED);
+		baseBytes = bytes();
+		long now = System.nanoTime();
+		for (int i = 0; i < STAGES.length; i++) {
+			startedNanos[i] = now;
+			changedNanos[i] = now;
+		}
+	}
+
+	/**
+	 * Stops the background thread and reports the final state to the
+	 * listeners.
+	 */
+	@Override
+	public void close() {
+		stopped.countDown();
+		if (null != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		List<ProgressEvent> events = snapshot();
+		for (ProgressListener listener : listeners) {
+			try {
+				listener.finished(events);
+			} catch (RuntimeException e) {
+				LOG.warn("Error in progress listener", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the current state of the stages which have processed files.
+	 *
+	 * @return The current state of the stages, in the order of the stages.
+	 */
+	public synchronized List<ProgressEvent> snapshot() {
+		long now = System.nanoTime();
+		long seen = metrics.get(FILES_SEEN) - baseSeen;
+		long notSkipped = seen - (metrics.get(FILES_SKIPPED) - baseSkipped);
+		List<ProgressEvent> events = new ArrayList<ProgressEvent>();
+		for (int i = 0; i < STAGES.length; i++) {
+			long files = files(STAGES[i]) - baseFiles[i];
+			if (0 == files) {
+				startedNanos[i] = now; // the stage starts between this and the next report
+				continue;
+			}
+			boolean changed = files != lastFiles[i];
+			if (changed) {
+				lastFiles[i] = files;
+				changedNanos[i] = now;
+			}
+			long total;
+			if (Metrics.Stage.ENUMERATE == STAGES[i]) {
+				total = -1;
+			} else if (Metrics.Stage.WRITE == STAGES[i] || Metrics.Stage.DIFF == STAGES[i]) {
+				total = Math.max(files, notSkipped);
+			} else {
+				total = Math.max(files, seen);
+			}
+
+			// a finished stage keeps its rate, a stuck one slows down
+			boolean finished = !changed && (files == total || 0 > total);
+			long elapsed = (finished ? changedNanos[i] : now) - startedNanos[i];
+			long bytes = Metrics.Stage.WRITE == STAGES[i] ? bytes() - baseBytes : 0;
+			events.add(new ProgressEvent(STAGES[i], files, total, bytes, elapsed));
+		}
+		return events;
+	}
+
+	/**
+	 * Starts the background thread which reports the progress periodically.
+	 */
+	public void start() {
+		thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					while (!stopped.await(intervalMillis, TimeUnit.MILLISECONDS)) {
+						List<ProgressEvent> events = snapshot();
+						for (ProgressListener listener : listeners) {
+							try {
+								listener.progress(events);
+							} catch (RuntimeException e) {
+								LOG.warn("Error in progress listener", e);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "jauthortagger-progress");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private long bytes() {
+		return metrics.get(BYTES_READ) + metrics.get(BYTES_WRITTEN);
+	}
+
+	private long files(Metrics.Stage stage) {
+		return Metrics.Stage.ENUMERATE == stage ? metrics.get(FILES_SEEN) : metrics.getFileCount(stage);
+	}
+
+}
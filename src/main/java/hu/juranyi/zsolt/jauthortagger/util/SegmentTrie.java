@@ -0,0 +1,226 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Stores strings made of segments (e.g. file paths or package names) as nodes
+ * of a trie, so common prefixes are stored only once. A string is represented
+ * by the <code>int</code> ID of its last node, and it is rebuilt on demand by
+ * walking up to the root.
+ * </p>
+ * <p>
+ * Nodes are kept in parallel <code>int</code> arrays: the parent node and the
+ * segment's ID in a <code>SymbolTable</code>. Children are found through an
+ * open addressing hash table keyed by the parent and the segment, so there is
+ * no object per node. The root (node 0) stands for the empty string. Instances
+ * are not thread safe.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ * @see SymbolTable
+ *
+ */
+public class SegmentTrie {
+
+	/**
+	 * The root node, which stands for the empty string.
+	 */
+	public static final int ROOT = 0;
+
+	private final char separator;
+	private final SymbolTable segments = new SymbolTable();
+	private int[] parents = new int[16];
+	private int[] segmentIds = new int[16];
+	private int size = 1;
+	private int[] children = new int[32]; // node + 1, 0 means empty slot
+
+	/**
+	 * Creates an empty trie.
+	 *
+	 * @param separator
+	 *            - The character separating the segments, e.g.
+	 *            <code>File.separatorChar</code> or <code>'.'</code>.
+	 */
+	public SegmentTrie(char separator) {
+		this.separator = separator;
+		parents[ROOT] = -1;
+		segmentIds[ROOT] = -1;
+	}
+
+	/**
+	 * Returns the node of the given string, and adds the missing nodes. Every
+	 * separator starts a new segment, empty segments included, so
+	 * <code>toString(add(s))</code> always equals <code>s</code>. The empty
+	 * string is the root.
+	 *
+	 * @param s
+	 *            - The string to add.
+	 * @return The node of the string.
+	 */
+	public int add(String s) {
+		return walk(ROOT, s, true);
+	}
+
+	/**
+	 * Returns the child of the given node with the given segment, and adds it
+	 * if it is missing.
+	 *
+	 * @param parent
+	 *            - The parent node.
+	 * @param segment
+	 *            - The segment, it should not contain the separator.
+	 * @return The child node.
+	 */
+	public int addChild(int parent, String segment) {
+		return child(parent, segments.idOf(segment), true);
+	}
+
+	/**
+	 * Returns the node of the given string, or -1 if it is not in the trie.
+	 *
+	 * @param s
+	 *            - The string to look for.
+	 * @return The node of the string or -1.
+	 */
+	public int find(String s) {
+		return walk(ROOT, s, false);
+	}
+
+	/**
+	 * Returns the parent of the given node, -1 for the root.
+	 *
+	 * @param node
+	 *            - The node.
+	 * @return The parent node or -1.
+	 */
+	public int parentOf(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * Returns the last segment of the given node, <code>null</code> for the
+	 * root.
+	 *
+	 * @param node
+	 *            - The node.
+	 * @return The last segment or <code>null</code>.
+	 */
+	public String segmentOf(int node) {
+		return ROOT == node ? null : segments.get(segmentIds[node]);
+	}
+
+	/**
+	 * Returns the number of nodes, including the root.
+	 *
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Rebuilds the string of the given node.
+	 *
+	 * @param node
+	 *            - The node.
+	 * @return The string, empty for the root.
+	 */
+	public String toString(int node) {
+		if (ROOT == node) {
+			return "";
+		}
+		int depth = 0;
+		for (int n = node; ROOT != n; n = parents[n]) {
+			depth++;
+		}
+		String[] path = new String[depth];
+		for (int n = node; ROOT != n; n = parents[n]) {
+			path[--depth] = segments.get(segmentIds[n]);
+		}
+		StringBuilder sb = new StringBuilder(path[0]);
+		for (int i = 1; i < path.length; i++) {
+			sb.append(separator).append(path[i]);
+		}
+		return sb.toString();
+	}
+
+	private int child(int parent, int segmentId, boolean add) {
+		int mask = children.length - 1;
+		int slot = hash(parent, segmentId) & mask;
+		while (0 != children[slot]) {
+			int node = children[slot] - 1;
+			if (parents[node] == parent && segmentIds[node] == segmentId) {
+				return node;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (!add) {
+			return -1;
+		}
+		if (size == parents.length) {
+			parents = Arrays.copyOf(parents, size * 2);
+			segmentIds = Arrays.copyOf(segmentIds, size * 2);
+		}
+		int node = size++;
+		parents[node] = parent;
+		segmentIds[node] = segmentId;
+		children[slot] = node + 1;
+		if (size * 2 > children.length) {
+			rehash();
+		}
+		return node;
+	}
+
+	private int hash(int parent, int segmentId) {
+		int h = parent * 0x9E3779B9 + segmentId;
+		return h ^ (h >>> 16);
+	}
+
+	private void rehash() {
+		children = new int[children.length * 2];
+		int mask = children.length - 1;
+		for (int node = 1; node < size; node++) {
+			int slot = hash(parents[node], segmentIds[node]) & mask;
+			while (0 != children[slot]) {
+				slot = (slot + 1) & mask;
+			}
+			children[slot] = node + 1;
+		}
+	}
+
+	private int walk(int node, String s, boolean add) {
+		if (s.isEmpty()) {
+			return node;
+		}
+		int from = 0;
+		while (-1 != node) {
+			int to = s.indexOf(separator, from);
+			String segment = -1 == to ? s.substring(from) : s.substring(from, to);
+			int segmentId = add ? segments.idOf(segment) : segments.find(segment);
+			node = -1 == segmentId ? -1 : child(node, segmentId, add);
+			if (-1 == to) {
+				break;
+			}
+			from = to + 1;
+		}
+		return node;
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.File;
+import java.io.FileFilter;
+
+/**
+ * <code>FileFilter</code> which accepts the files belonging to one shard of a
+ * run split into several shards. Files are assigned to shards by a hash of
+ * their path relative to a base directory, with <code>/</code> as separator,
+ * so the assignment is stable across machines, checkout locations and
+ * platforms.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ShardFilter implements FileFilter {
+
+	/**
+	 * Calculates which shard the given relative path belongs to.
+	 *
+	 * @param relativePath
+	 *            - The path relative to the base directory, with
+	 *            <code>/</code> as separator.
+	 * @param shardCount
+	 *            - The number of shards.
+	 * @return The index of the shard, starting from 1.
+	 */
+	public static int shardOf(String relativePath, int shardCount) {
+		int h = relativePath.hashCode();
+		h ^= h >>> 16; // spread bits, similar paths differ in the last chars
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return (h & Integer.MAX_VALUE) % shardCount + 1;
+	}
+
+	private final String basePath;
+	private final int shardIndex;
+	private final int shardCount;
+
+	/**
+	 * Creates an instance.
+	 *
+	 * @param baseDir
+	 *            - The directory which paths are relative to.
+	 * @param shardIndex
+	 *            - The index of the accepted shard, starting from 1.
+	 * @param shardCount
+	 *            - The number of shards.
+	 */
+	public ShardFilter(File baseDir, int shardIndex, int shardCount) {
+		this.basePath = baseDir.getAbsolutePath();
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+	}
+
+	@Override
+	public boolean accept(File f) {
+		return shardIndex == shardOf(IOUtils.relativePath(basePath, f), shardCount);
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+/**
+ * Receiver of items produced one by one, e.g. by the enumerator. It makes it
+ * possible to process items while the producer is still working.
+ *
+ * @author Zsolt Jurányi
+ *
+ * @param <T>
+ *            - Type of the items.
+ */
+public interface Sink<T> {
+
+	/**
+	 * Receives the next item. It may block the producer until the item can be
+	 * accepted.
+	 *
+	 * @param item
+	 *            - The item.
+	 */
+	void put(T item);
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns consecutive <code>int</code> IDs to strings, so a value repeated in
+ * many records can be stored as an ID. IDs start from 0 and are never
+ * reused, the string of an ID can be looked up by an array access. Instances
+ * are not thread safe.
+ *
+ * @author Zsolt Jurányi
+ * @see SegmentTrie
+ *
+ */
+public class SymbolTable {
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private String[] symbols = new String[16];
+
+	/**
+	 * Returns the ID of the given string, or -1 if it has no ID yet.
+	 *
+	 * @param symbol
+	 *            - The string.
+	 * @return The ID or -1.
+	 */
+	public int find(String symbol) {
+		Integer id = ids.get(symbol);
+		return null == id ? -1 : id;
+	}
+
+	/**
+	 * Returns the string of the given ID.
+	 *
+	 * @param id
+	 *            - The ID.
+	 * @return The string of the ID.
+	 */
+	public String get(int id) {
+		if (id >= ids.size()) {
+			throw new IndexOutOfBoundsException("No such symbol: " + id);
+		}
+		return symbols[id];
+	}
+
+	/**
+	 * Returns the ID of the given string, and assigns the next ID to it if it
+	 * has no ID yet.
+	 *
+	 * @param symbol
+	 *            - The string, must not be <code>null</code>.
+	 * @return The ID.
+	 */
+	public int idOf(String symbol) {
+		Integer id = ids.get(symbol);
+		if (null == id) {
+			id = ids.size();
+			if (id == symbols.length) {
+				symbols = Arrays.copyOf(symbols, symbols.length * 2);
+			}
+			symbols[id] = symbol;
+			ids.put(symbol, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the number of strings having an ID.
+	 *
+	 * @return The number of strings having an ID.
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+}
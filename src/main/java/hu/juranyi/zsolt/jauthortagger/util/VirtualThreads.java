@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+
+/**
+ * Access to virtual threads without raising the source level of the project.
+ * Virtual threads are looked up via reflection, so the program still builds
+ * and runs on older JREs, where a fixed size thread pool is used instead.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class VirtualThreads {
+
+	private static final Logger LOG = Log.forClass(VirtualThreads.class);
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookup();
+
+	/**
+	 * Tells whether the running JRE supports virtual threads.
+	 *
+	 * @return <code>true</code> if virtual threads are available.
+	 */
+	public static boolean isAvailable() {
+		return null != NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR;
+	}
+
+	private static Method lookup() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates an executor which starts a new virtual thread for each task. If
+	 * virtual threads are not available, a fixed size thread pool is returned.
+	 *
+	 * @param fallbackThreads
+	 *            - Size of the thread pool to use when virtual threads are not
+	 *            available.
+	 * @return The executor.
+	 */
+	public static ExecutorService newExecutor(int fallbackThreads) {
+		if (isAvailable()) {
+			try {
+				return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+			} catch (Exception e) {
+				LOG.warn("Could not create virtual thread executor, using thread pool", e);
+			}
+		}
+		return Executors.newFixedThreadPool(Math.max(1, fallbackThreads));
+	}
+
+}
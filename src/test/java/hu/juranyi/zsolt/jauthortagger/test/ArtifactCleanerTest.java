@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.util.ArtifactCleaner;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the cleanup of sidecar files.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ArtifactCleanerTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	@Test
+	public void sidecarsAreRemovedInWholeTree() {
+		File javaFile = TestUtils.exportResourceFile("Class.java_", "src/a/b/Kept.java");
+		File[] sidecars = new File[] { TestUtils.createEmptyFile("src/a/b/Kept.java.at-save"),
+				TestUtils.createEmptyFile("src/a/Orphan.java.at-test"),
+				TestUtils.createEmptyFile("src/c/d/e/Renamed.java.at-temp") };
+		File other = TestUtils.createEmptyFile("src/c/notes.txt");
+		File src = new File(TestUtils.TEST_DIR, "src");
+
+		ArtifactCleaner dryRun = new ArtifactCleaner(4, true);
+		dryRun.clean(src);
+		assertEquals(sidecars.length, dryRun.getCount());
+		for (File f : sidecars) {
+			assertTrue(f.exists());
+		}
+
+		ArtifactCleaner cleaner = new ArtifactCleaner(4, false);
+		cleaner.clean(src);
+		assertEquals(sidecars.length, cleaner.getCount());
+		assertEquals(0, cleaner.getFailed());
+		for (File f : sidecars) {
+			assertFalse(f.exists());
+		}
+		assertTrue(javaFile.exists());
+		assertTrue(other.exists());
+	}
+
+	@Test
+	public void symlinkedArtifactIsUnlinked() throws IOException {
+		File target = TestUtils.createEmptyFile("elsewhere/keep.txt");
+		File link = new File(TestUtils.TEST_DIR, "p/.authors-shadow");
+		link.getParentFile().mkdirs();
+		Files.createSymbolicLink(link.toPath(), target.getParentFile().getAbsoluteFile().toPath());
+
+		ArtifactCleaner cleaner = new ArtifactCleaner(1, false);
+		cleaner.remove(link);
+		assertFalse(Files.exists(link.toPath(), LinkOption.NOFOLLOW_LINKS));
+		assertTrue(target.exists());
+		assertEquals(0, cleaner.getFailed());
+	}
+
+}
@@ -18,6 +18,7 @@ package hu.juranyi.zsolt.jauthortagger.test;
 
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.SHADOW;
 import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.TEST;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -73,6 +74,11 @@ public class AuthorTagWriterTest {
 		testBackupMode(NO_BACKUP);
 	}
 
+	@Test
+	public void shadowMode() {
+		testBackupMode(SHADOW);
+	}
+
 	@Test
 	public void tagInjecting() {
 		String author = "Test Man";
@@ -169,7 +175,9 @@ public class AuthorTagWriterTest {
 
 		// call writer
 
-		AuthorTagWriter w = new AuthorTagWriter(mode);
+		File shadowDir = new File(TestUtils.TEST_DIR, "shadow");
+		AuthorTagWriter w = (SHADOW == mode) ? new AuthorTagWriter(TestUtils.TEST_DIR, shadowDir)
+				: new AuthorTagWriter(mode);
 		w.writeAuthorTags(javaFile);
 
 		// verify output
@@ -182,6 +190,10 @@ public class AuthorTagWriterTest {
 			outputFile = inputFile;
 		} else if (TEST == mode) {
 			outputFile = Filenames.testFileOf(inputFile);
+		} else if (SHADOW == mode) {
+			outputFile = new File(shadowDir, inputName);
+			assertFalse(Filenames.tempFileOf(inputFile).exists());
+			assertFalse(Filenames.tempFileOf(outputFile).exists());
 		}
 
 		if (!inputFile.equals(outputFile)) {
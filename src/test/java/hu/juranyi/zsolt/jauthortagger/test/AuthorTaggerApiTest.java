@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.api.AuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.api.TaggedSource;
+
+/**
+ * Tests the embeddable <code>AuthorTagger</code> API on in-memory sources.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class AuthorTaggerApiTest {
+
+	private static String source(String pkg, String name, String author) {
+		return "package " + pkg + ";\n\n/**\n * " + name + ".\n *\n * @author " + author + "\n */\npublic class "
+				+ name + " {\n}\n";
+	}
+
+	@Test
+	public void tagsAndSkips() {
+		AuthorTagger tagger = AuthorTagger.builder().add("**", "Test Man").delete("**", "Old*").skip("b.**")
+				.build();
+
+		TaggedSource result = tagger.tag("src/a/Foo.java", source("a", "Foo", "Old Guy"));
+		assertEquals("a.Foo", result.getTypeName());
+		assertEquals(Arrays.asList("Test Man"), result.getAuthors());
+		assertTrue(result.isChanged());
+		assertFalse(result.isSkipped());
+		assertTrue(result.getContent().contains("@author Test Man"));
+		assertFalse(result.getContent().contains("Old Guy"));
+
+		String skipped = source("b", "Bar", "Old Guy");
+		result = tagger.tag("src/b/Bar.java", skipped);
+		assertTrue(result.isSkipped());
+		assertEquals(skipped, result.getContent());
+	}
+
+	@Test
+	public void concurrentUse() throws Exception {
+		final AuthorTagger tagger = AuthorTagger.builder().add("**", "Test Man").build();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<TaggedSource>> results = new ArrayList<Future<TaggedSource>>();
+			for (int i = 0; i < 1000; i++) {
+				final String name = "C" + i;
+				results.add(executor.submit(new Callable<TaggedSource>() {
+
+					@Override
+					public TaggedSource call() {
+						return tagger.tag(name + ".java", source("p", name, "Author " + name));
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				TaggedSource result = results.get(i).get();
+				assertEquals("p.C" + i, result.getTypeName());
+				assertEquals(Arrays.asList("Author C" + i, "Test Man"), result.getAuthors());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
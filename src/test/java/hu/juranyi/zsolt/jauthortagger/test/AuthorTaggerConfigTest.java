@@ -16,21 +16,34 @@
 
 package hu.juranyi.zsolt.jauthortagger.test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
 import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
 
-public class AuthorTaggerConfigTest { // TODO
-
-	// Should test:
-	// - cfg parsing
-	// - $ section: !skip, -, +
-	// - @ section: -, +
-	// - no duplicates in authors
-	// - test on JavaFile objects, no need to write/analyze files
-	// - only the conf file - but we should ease it somehow... parse list<str>
+/**
+ * Tests configuration parsing and applying on <code>JavaFile</code> objects,
+ * without writing or analyzing <code>.java</code> files.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class AuthorTaggerConfigTest {
 
 	@BeforeClass
 	@AfterClass
@@ -38,9 +51,91 @@ public class AuthorTaggerConfigTest { // TODO
 		TestUtils.deleteTestDir();
 	}
 
+	private static AuthorTaggerConfig config(String name, String... lines) throws IOException {
+		File f = TestUtils.createEmptyFile(name);
+		Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+		try {
+			for (String line : lines) {
+				w.write(line + "\n");
+			}
+		} finally {
+			w.close();
+		}
+		return new AuthorTaggerConfig(f);
+	}
+
+	private static JavaFile javaFile(String typeName, String... authors) {
+		JavaFile javaFile = new JavaFile(new File(typeName.replace('.', '/') + ".java"));
+		javaFile.setTypeName(typeName);
+		javaFile.getAuthors().addAll(Arrays.asList(authors));
+		return javaFile;
+	}
+
 	@Test
-	public void test() {
+	public void authorSection() throws IOException {
+		AuthorTaggerConfig config = config("author-section", "@ Me", "\t+some.**", "\t-some.pkg.Old*");
+
+		JavaFile a = javaFile("some.pkg.New", "Other");
+		JavaFile b = javaFile("some.pkg.OldOne", "Me");
+		JavaFile c = javaFile("other.Class");
+		assertTrue(config.apply(a));
+		assertTrue(config.apply(b));
+		assertTrue(config.apply(c));
+
+		assertEquals(Arrays.asList("Other", "Me"), a.getAuthors());
+		assertTrue(b.getAuthors().isEmpty());
+		assertTrue(c.getAuthors().isEmpty());
+	}
+
+	@Test
+	public void classSection() throws IOException {
+		AuthorTaggerConfig config = config("class-section", "Comment line", "$some.**", "\t-*", "\t+Me # comment",
+				"\t+Me", "$Vendor*", "\t!skip");
+
+		JavaFiles javaFiles = new JavaFiles();
+		javaFiles.add(javaFile("some.pkg.Class", "Other", "Someone"));
+		javaFiles.add(javaFile("some.pkg.VendorThing", "Vendor"));
+		javaFiles.add(javaFile("other.Class", "Other"));
+		config.loadAndApply(javaFiles);
+
+		assertEquals(2, javaFiles.size());
+		assertEquals(Arrays.asList("Me"), javaFiles.get(0).getAuthors());
+		assertEquals(Arrays.asList("Other"), javaFiles.get(1).getAuthors());
+	}
+
+	@Test
+	public void missingConfig() {
+		AuthorTaggerConfig config = new AuthorTaggerConfig(new File(TestUtils.TEST_DIR, "no-such-file"));
+		assertTrue(config.load().isEmpty());
+		assertTrue(config.apply(javaFile("some.Class")));
+	}
+
+	@Test
+	public void skipStopsOtherRules() throws IOException {
+		AuthorTaggerConfig config = config("skip", "$**", "!skip", "+Me");
+		JavaFile javaFile = javaFile("some.Class");
+		assertFalse(config.apply(javaFile));
+		assertTrue(javaFile.getAuthors().isEmpty());
+	}
+
+	@Test(timeout = 10000)
+	public void loadedRulesAreReadWithoutLock() throws Exception {
+		final AuthorTaggerConfig config = config("no-lock", "$**", "\t+Me");
+		config.load();
+		final JavaFile javaFile = javaFile("some.Class");
+		Thread worker = new Thread(new Runnable() {
 
+			@Override
+			public void run() {
+				config.apply(javaFile);
+			}
+		});
+		synchronized (config) { // e.g. another thread loading it
+			worker.start();
+			worker.join(5000);
+			assertFalse(worker.isAlive());
+		}
+		assertEquals(Arrays.asList("Me"), javaFile.getAuthors());
 	}
 
 }
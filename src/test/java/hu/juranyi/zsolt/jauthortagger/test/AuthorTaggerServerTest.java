@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.AuthorTaggerServer;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the server mode, which processes commands received on a local port.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class AuthorTaggerServerTest {
+
+	private AuthorTaggerServer server;
+
+	@After
+	public void cleanup() {
+		if (null != server) {
+			server.stop();
+		}
+		TestUtils.deleteTestDir();
+	}
+
+	private String send(String request) throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			socket.getOutputStream().write(request.getBytes("UTF-8"));
+			socket.shutdownOutput();
+			InputStream in = socket.getInputStream();
+			ByteArrayOutputStream response = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while (-1 != (n = in.read(buffer))) {
+				response.write(buffer, 0, n);
+			}
+			return response.toString("UTF-8");
+		}
+	}
+
+	private void startServer() throws InterruptedException {
+		server = new AuthorTaggerServer(0);
+		new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					server.serve();
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		}).start();
+		while (-1 == server.getPort()) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void commands() throws IOException, InterruptedException {
+		TestUtils.exportResourceFile("Class.java_", "src/C.java");
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(Filenames.configFileOf(TestUtils.TEST_DIR)),
+				"UTF-8")) {
+			w.write("$**\n\t+Test Man\n");
+		}
+		String dir = TestUtils.TEST_DIR.getAbsolutePath();
+		startServer();
+
+		assertTrue(send(dir + "\ncheck\n\n").trim().endsWith("exit: 1"));
+		assertEquals("exit: 0", send(dir + "\nnobackup\n--no-report\n\n").trim());
+		assertEquals("exit: 0", send(dir + "\ncheck\n\n").trim());
+
+		String filtered = send(dir + "\nfilter\nsrc/D.java\n\npackage a;\n\npublic class D {\n}\n");
+		assertTrue(filtered.contains("@author Test Man"));
+		assertTrue(filtered.trim().endsWith("exit: 0"));
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the backup store: only changed files are backed up, identical
+ * contents are stored once, and restoring gives back the original bytes.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class BackupStoreTest {
+
+	@BeforeClass
+	@AfterClass
+	public static void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private JavaFile tag(AuthorTagWriter w, File file, String author) {
+		JavaFile javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+		if (!javaFile.getAuthors().contains(author)) {
+			javaFile.getAuthors().add(author);
+		}
+		w.writeAuthorTags(javaFile);
+		return javaFile;
+	}
+
+	@Test
+	public void backupAndRestore() throws IOException {
+		File a = TestUtils.exportResourceFile("Class.java_", "src/A.java");
+		File b = TestUtils.exportResourceFile("Class.java_", "src/B.java");
+		File c = TestUtils.exportResourceFile("Class.java_", "src/C.java");
+		tag(new AuthorTagWriter(NO_BACKUP), c, "Test Man");
+		byte[] original = Files.readAllBytes(a.toPath());
+		long packSize;
+
+		try (BackupStore store = new BackupStore(TestUtils.TEST_DIR)) {
+			AuthorTagWriter w = new AuthorTagWriter(BACKUP, store);
+			tag(w, a, "Test Man");
+			tag(w, b, "Test Man");
+			long lastModified = c.lastModified();
+			JavaFile javaFile = new JavaFile(c);
+			new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+			assertFalse(w.writeAuthorTags(javaFile)); // already tagged
+			assertEquals(lastModified, c.lastModified());
+
+			assertTrue(store.contains(a));
+			assertTrue(store.contains(b));
+			assertFalse(store.contains(c));
+			assertEquals(2, store.getEntries().size());
+			assertEquals(store.getEntries().get(0).getHash(), store.getEntries().get(1).getHash());
+			assertFalse(Filenames.backupFileOf(a).exists());
+			assertFalse(Filenames.tempFileOf(c).exists());
+		}
+		packSize = new File(Filenames.backupStoreOf(TestUtils.TEST_DIR), "pack").length();
+		assertTrue(0 < packSize && packSize < original.length);
+
+		// the second run keeps the first backup
+		try (BackupStore store = new BackupStore(TestUtils.TEST_DIR)) {
+			assertTrue(tag(new AuthorTagWriter(BACKUP, store), a, "Other Man").getAuthors().size() == 2);
+			assertEquals(2, store.getEntries().size());
+		}
+
+		assertTrue(BackupStore.exists(TestUtils.TEST_DIR));
+		try (BackupStore store = new BackupStore(TestUtils.TEST_DIR)) {
+			for (BackupStore.Entry entry : store.getEntries()) {
+				store.restore(entry);
+			}
+			store.delete();
+		}
+		assertArrayEquals(original, Files.readAllBytes(a.toPath()));
+		assertArrayEquals(original, Files.readAllBytes(b.toPath()));
+		assertFalse(BackupStore.exists(TestUtils.TEST_DIR));
+	}
+
+	@Test
+	public void noBackupDropsStore() throws IOException {
+		File a = TestUtils.exportResourceFile("Class.java_", "src/A.java");
+		try (BackupStore store = new BackupStore(TestUtils.TEST_DIR)) {
+			tag(new AuthorTagWriter(BACKUP, store), a, "Test Man");
+		}
+		assertTrue(BackupStore.exists(TestUtils.TEST_DIR));
+		new JAuthorTagger(TestUtils.TEST_DIR, NO_BACKUP).start();
+		assertFalse(BackupStore.exists(TestUtils.TEST_DIR));
+		assertFalse(Filenames.backupStoreOf(TestUtils.TEST_DIR).exists());
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.ConfigRule;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests processing more projects in one run, listed on the command line or in
+ * a workspace file.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class BatchTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			w.write(content);
+		}
+	}
+
+	private static String project(String name) throws IOException {
+		TestUtils.exportResourceFile("Class.java_", name + "/src/C.java");
+		write(new File(TestUtils.TEST_DIR, name + "/.authors"), "$**\n\t+Test Man\n");
+		return new File(TestUtils.TEST_DIR, name).getAbsolutePath();
+	}
+
+	private static int run(String... args) {
+		return JAuthorTagger.run(args, null, new PrintStream(new ByteArrayOutputStream()));
+	}
+
+	@Test
+	public void projectList() throws IOException {
+		String projects = project("p1") + File.pathSeparator + project("p2") + File.pathSeparator + project("p3");
+		assertEquals(1, run(projects, "check"));
+		assertEquals(0, run(projects, "nobackup", "--no-report", "--threads=2"));
+		assertEquals(0, run(projects, "check"));
+	}
+
+	@Test
+	public void workspaceFile() throws IOException {
+		project("p1");
+		project("p2");
+		File workspace = new File(TestUtils.TEST_DIR, "workspace.txt");
+		write(workspace, "# projects\np1\n\np2\n");
+		assertEquals(1, run("@" + workspace.getPath(), "check"));
+		assertEquals(0, run("@" + workspace.getPath(), "nobackup", "--no-report"));
+		assertEquals(0, run("@" + workspace.getPath(), "check"));
+	}
+
+	@Test
+	public void sharedFilters() {
+		assertSame(ConfigRule.add("**", "Test Man").getClassFilter(), ConfigRule.skip("**").getClassFilter());
+		assertSame(ConfigRule.add("a.*", "Test Man").getAuthor(), ConfigRule.add("b.*", new String("Test Man"))
+				.getAuthor());
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.NO_BACKUP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the <code>check</code> command, which compares the authors in the
+ * files with the configuration without writing anything.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class CheckTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private RunOptions project(int fileCount) throws IOException {
+		for (int i = 0; i < fileCount; i++) {
+			TestUtils.exportResourceFile("Class.java_", "src/C" + i + ".java");
+		}
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(Filenames.configFileOf(TestUtils.TEST_DIR)),
+				"UTF-8")) {
+			w.write("$**\n\t+Test Man\n");
+		}
+		RunOptions options = new RunOptions();
+		options.setDiffReport(false);
+		return options;
+	}
+
+	@Test
+	public void mismatchesUntilTagged() throws IOException {
+		RunOptions options = project(2);
+		File file = new File(TestUtils.TEST_DIR, "src/C0.java");
+		long modified = file.lastModified();
+		assertEquals(2, new JAuthorTagger(TestUtils.TEST_DIR, NO_BACKUP, options).check().size());
+		assertEquals(modified, file.lastModified());
+		assertFalse(Filenames.testFileOf(file).exists());
+
+		new JAuthorTagger(TestUtils.TEST_DIR, NO_BACKUP, options).start();
+		assertTrue(new JAuthorTagger(TestUtils.TEST_DIR, NO_BACKUP, options).check().isEmpty());
+	}
+
+	@Test
+	public void failFast() throws IOException {
+		RunOptions options = project(3);
+		options.setFailFast(true);
+		assertEquals(1, new JAuthorTagger(TestUtils.TEST_DIR, NO_BACKUP, options).check().size());
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import difflib.DiffUtils;
+import hu.juranyi.zsolt.jauthortagger.Execution;
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.TaggingStep;
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Checkpoint;
+import hu.juranyi.zsolt.jauthortagger.output.Journal;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Simulates interrupted runs and verifies that the checkpoint tells what to
+ * continue with.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class CheckpointTest {
+
+	/**
+	 * Dies after the files have been processed, before the last batch is
+	 * committed and the checkpoint is deleted.
+	 */
+	private static class DyingTagger extends JAuthorTagger {
+
+		public DyingTagger(File projectDir, RunOptions options) {
+			super(projectDir, BACKUP, options);
+		}
+
+		@Override
+		protected Execution createExecution(TaggingStep step) {
+			final Execution execution = super.createExecution(step);
+			return new Execution() {
+
+				@Override
+				public JavaFiles execute(boolean diff) {
+					execution.execute(diff);
+					throw new IllegalStateException("process dies here");
+				}
+			};
+		}
+	}
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private JavaFile analyzed(File file) {
+		JavaFile javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+		javaFile.getAuthors().add("Test Man");
+		return javaFile;
+	}
+
+	private void assertPlanCompleteAfter(ExecutionMode executionMode) throws IOException {
+		File projectDir = TestUtils.createProject(executionMode.name(), "$**\n\t+Test Man\n");
+		RunOptions options = new RunOptions();
+		options.setExecutionMode(executionMode);
+		options.setBatchSize(2);
+		options.setCheckpoint(true);
+		try {
+			new DyingTagger(projectDir, options).start();
+			fail("The run should have died");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		final List<File> recovered = new ArrayList<File>();
+		Journal.recover(projectDir, new Journal.Listener() {
+
+			@Override
+			public void committed(List<File> files) {
+				recovered.addAll(files);
+			}
+		});
+		Checkpoint checkpoint = new Checkpoint(projectDir, BACKUP, true, recovered);
+		assertTrue(checkpoint.isPlanComplete());
+		assertEquals(4, checkpoint.getDone().size() + checkpoint.getRemaining().size());
+		checkpoint.delete();
+	}
+
+	private File[] files(int count) {
+		File[] files = new File[count];
+		for (int i = 0; i < count; i++) {
+			files[i] = TestUtils.exportResourceFile("Class.java_", "src/C" + i + ".java");
+		}
+		return files;
+	}
+
+	private void write(Journal journal, Checkpoint checkpoint, JavaFile javaFile) throws IOException {
+		AuthorTagWriter w = new AuthorTagWriter(BACKUP);
+		List<String> original = new ArrayList<String>();
+		List<String> modified = new ArrayList<String>();
+		Journal.Batch batch = journal.begin(javaFile.getFile());
+		boolean changed = w.prepareAuthorTags(javaFile, original, modified);
+		javaFile.setDiffResult(new DiffResult("a", "b", original, DiffUtils.diff(original, modified)));
+		checkpoint.prepared(javaFile);
+		journal.prepared(batch, javaFile.getFile(), changed);
+	}
+
+	@Test
+	public void committedFilesAreDone() throws IOException {
+		File[] files = files(3);
+		Checkpoint checkpoint = new Checkpoint(TestUtils.TEST_DIR, BACKUP, false, Collections.<File> emptyList());
+		Journal journal = new Journal(TestUtils.TEST_DIR, new AuthorTagWriter(BACKUP), 2, false, checkpoint);
+		for (int i = 0; i < files.length; i++) {
+			checkpoint.planned(analyzed(files[i]), i == files.length - 1);
+		}
+		for (File file : files) {
+			write(journal, checkpoint, analyzed(file));
+		}
+		// process dies here, the last batch is not committed
+
+		final List<File> recovered = new ArrayList<File>();
+		assertTrue(Journal.recover(TestUtils.TEST_DIR, new Journal.Listener() {
+
+			@Override
+			public void committed(List<File> files) {
+				recovered.addAll(files);
+			}
+		}));
+		assertTrue(recovered.isEmpty());
+		assertTrue(Checkpoint.exists(TestUtils.TEST_DIR));
+
+		checkpoint = new Checkpoint(TestUtils.TEST_DIR, BACKUP, true, recovered);
+		assertTrue(checkpoint.isPlanComplete());
+		JavaFiles done = checkpoint.getDone();
+		assertEquals(2, done.size());
+		assertEquals(files[0].getAbsoluteFile(), done.get(0).getFile().getAbsoluteFile());
+		assertFalse(done.get(0).getDiffResult().isEmpty());
+		JavaFiles remaining = checkpoint.getRemaining();
+		assertEquals(1, remaining.size());
+		assertEquals(files[2].getAbsoluteFile(), remaining.get(0).getFile().getAbsoluteFile());
+		assertEquals(Arrays.asList("Test Man"), remaining.get(0).getAuthors());
+		assertTrue(checkpoint.isPreAnalyzed(remaining.get(0)));
+
+		checkpoint.delete();
+		assertFalse(Checkpoint.exists(TestUtils.TEST_DIR));
+		assertFalse(Filenames.checkpointOf(TestUtils.TEST_DIR, "done").exists());
+	}
+
+	@Test
+	public void perFilePlanIsComplete() throws IOException {
+		assertPlanCompleteAfter(ExecutionMode.PER_FILE);
+	}
+
+	@Test
+	public void pipelinePlanIsComplete() throws IOException {
+		assertPlanCompleteAfter(ExecutionMode.PIPELINE);
+	}
+
+	@Test
+	public void incompletePlanAndTruncatedProgress() throws IOException {
+		File[] files = files(3);
+		Checkpoint checkpoint = new Checkpoint(TestUtils.TEST_DIR, BACKUP, false, Collections.<File> emptyList());
+		Journal journal = new Journal(TestUtils.TEST_DIR, new AuthorTagWriter(BACKUP), 1, false, checkpoint);
+		JavaFile first = analyzed(files[0]);
+		JavaFile second = analyzed(files[1]);
+		checkpoint.planned(first, false);
+		checkpoint.planned(second, false);
+		write(journal, checkpoint, first);
+		write(journal, checkpoint, second);
+		journal.finish();
+		// process dies while the second record is written
+		File doneFile = Filenames.checkpointOf(TestUtils.TEST_DIR, "done");
+		try (RandomAccessFile raf = new RandomAccessFile(doneFile, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+		// the plan is only complete with the end mark, which is written at closing
+		checkpoint = null;
+
+		checkpoint = new Checkpoint(TestUtils.TEST_DIR, BACKUP, true, Collections.<File> emptyList());
+		assertFalse(checkpoint.isPlanComplete());
+		assertEquals(1, checkpoint.getDone().size());
+		assertEquals(null, checkpoint.resumed(new JavaFile(files[0])));
+		JavaFile resumed = checkpoint.resumed(new JavaFile(files[1]));
+		assertEquals(Arrays.asList("Test Man"), resumed.getAuthors());
+		assertTrue(checkpoint.isPreAnalyzed(resumed));
+		JavaFile fresh = new JavaFile(files[2]);
+		assertSame(fresh, checkpoint.resumed(fresh));
+		assertFalse(checkpoint.isPreAnalyzed(fresh));
+		assertNotSame(fresh, resumed);
+		checkpoint.delete();
+	}
+
+}
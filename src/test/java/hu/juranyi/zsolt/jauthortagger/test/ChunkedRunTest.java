@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_CHANGED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SKIPPED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the bounded-memory mode: runs in chunks must write the same files and
+ * the same report as runs which keep every file in memory.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ChunkedRunTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static File project(String name) {
+		TestUtils.exportResourceFile("ClassAD.java_", name + "/src/b/D.java");
+		return TestUtils.createProject(name, "$**\n\t+Test Man\n$Class\n\t!skip\n");
+	}
+
+	private static String report(File projectDir) throws IOException {
+		String report = new String(Files.readAllBytes(Filenames.diffReportOf(projectDir).toPath()),
+				StandardCharsets.UTF_8);
+		return report.replace(projectDir.getAbsolutePath(), "").replaceAll("\\d{4}-\\d\\d-\\d\\d @ [\\d:.]+", "");
+	}
+
+	@Test
+	public void sameReportAsInMemory() throws IOException {
+		File inMemory = project("memory");
+		new JAuthorTagger(inMemory, BackupMode.BACKUP).start();
+
+		File chunked = project("chunked");
+		RunOptions options = new RunOptions();
+		options.setChunkSize(2);
+		Metrics metrics = new Metrics(null);
+		new JAuthorTagger(chunked, BackupMode.BACKUP, options, metrics).start();
+
+		assertEquals(report(inMemory), report(chunked));
+		assertTrue(report(chunked).contains("Test&nbsp;Man"));
+		assertFalse(Filenames.runRecordOf(chunked).exists());
+		assertEquals(1, metrics.get(FILES_SKIPPED));
+		assertEquals(4, metrics.get(FILES_CHANGED));
+		for (String path : new String[] { "src/a/A.java", "src/a/B.java", "src/b/D.java", "src/a/package-info.java" }) {
+			assertTrue(Files.isRegularFile(Filenames.backupFileOf(new File(chunked, path)).toPath()));
+			assertEquals(new String(Files.readAllBytes(new File(inMemory, path).toPath()), StandardCharsets.UTF_8),
+					new String(Files.readAllBytes(new File(chunked, path).toPath()), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void shardsSpillIntoPartialReports() throws IOException {
+		File inMemory = project("memory");
+		new JAuthorTagger(inMemory, BackupMode.TEST).start();
+
+		File chunked = project("chunked");
+		for (int shard = 1; shard <= 2; shard++) {
+			RunOptions options = new RunOptions();
+			options.setChunkSize(1);
+			options.setShard(shard, 2);
+			new JAuthorTagger(chunked, BackupMode.TEST, options).start();
+			assertTrue(Filenames.shardRecordOf(chunked, shard, 2).isFile());
+		}
+		assertTrue(new JAuthorTagger(chunked).mergeShardRecords());
+		assertEquals(report(inMemory).length(), report(chunked).length());
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import difflib.DiffUtils;
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.model.ColumnarJavaFiles;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFileTable;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.util.SegmentTrie;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Verifies that <code>ColumnarJavaFiles</code> gives back the same fields as
+ * the stored <code>JavaFile</code> objects, and behaves like
+ * <code>JavaFiles</code> behind the <code>JavaFileTable</code> interface.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ColumnarJavaFilesTest {
+
+	@BeforeClass
+	@AfterClass
+	public static void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static JavaFile javaFile(String path, String typeName, String... authors) {
+		JavaFile javaFile = new JavaFile(new File(path));
+		javaFile.setTypeName(typeName);
+		javaFile.getAuthors().addAll(Arrays.asList(authors));
+		return javaFile;
+	}
+
+	private static List<JavaFile> sample() {
+		List<String> lines = Arrays.asList("a", "b");
+		List<JavaFile> javaFiles = new ArrayList<JavaFile>();
+		javaFiles.add(javaFile("src/main/java/some/pkg/First.java", "some.pkg.First", "Me", "Other"));
+		javaFiles.add(javaFile("src/main/java/some/pkg/Second.java", "some.pkg.Second", "Me"));
+		javaFiles.add(javaFile("src/main/java/some/pkg/Mismatch.java", "some.pkg.Declared"));
+		javaFiles.add(javaFile("src/main/java/Default.java", "Default", "Other"));
+		javaFiles.add(javaFile(new File("src/other/Abs.java").getAbsolutePath(), "other.Abs"));
+		javaFiles.add(javaFile("src/main/java/broken/Broken.java", null));
+		javaFiles.get(1).setTypeDeclarationStartLine(7);
+		javaFiles.get(2).setDiffResult(new DiffResult("a", "b", lines, DiffUtils.diff(lines, Arrays.asList("a"))));
+		return javaFiles;
+	}
+
+	private static void assertSameRows(JavaFileTable expected, JavaFileTable actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getFile(i), actual.getFile(i));
+			assertEquals(expected.getTypeName(i), actual.getTypeName(i));
+			assertEquals(expected.getAuthors(i), actual.getAuthors(i));
+			assertEquals(expected.getTypeDeclarationStartLine(i), actual.getTypeDeclarationStartLine(i));
+			assertSame(expected.getDiffResult(i), actual.getDiffResult(i));
+			assertEquals(expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+
+	@Test
+	public void configIsAppliedLikeOnJavaFiles() throws IOException {
+		File f = TestUtils.createEmptyFile("columnar-config");
+		Writer w = new OutputStreamWriter(new FileOutputStream(f), "UTF-8");
+		try {
+			w.write("@ Me\n\t+some.**\n\t+*.Default\n$ some.pkg.Second\n\t!skip\n");
+		} finally {
+			w.close();
+		}
+
+		List<JavaFile> sample = sample();
+		ColumnarJavaFiles columns = new ColumnarJavaFiles(sample); // copies the fields
+		JavaFiles rows = new JavaFiles(sample);
+		new AuthorTaggerConfig(f).loadAndApply(rows);
+		new AuthorTaggerConfig(f).loadAndApply(columns);
+		assertEquals(5, columns.size());
+		assertSameRows(rows, columns);
+
+		rows.addAuthor("**", "New");
+		columns.addAuthor("**", "New");
+		rows.delAuthor("some.**", "Oth*");
+		columns.delAuthor("some.**", "Oth*");
+		rows.skip("other.*");
+		columns.skip("other.*");
+		assertEquals(4, columns.size());
+		assertSameRows(rows, columns);
+	}
+
+	@Test
+	public void fieldsAreStored() {
+		List<JavaFile> javaFiles = sample();
+		ColumnarJavaFiles columns = new ColumnarJavaFiles(1);
+		for (JavaFile javaFile : javaFiles) {
+			columns.add(javaFile);
+		}
+		columns.trimToSize();
+		assertSameRows(new JavaFiles(javaFiles), columns);
+		int i = 0;
+		for (JavaFile javaFile : columns) {
+			assertEquals(javaFiles.get(i++), javaFile);
+		}
+		assertEquals(javaFiles.size(), i);
+		assertNull(columns.getTypeName(5));
+		assertEquals("some.pkg.Declared", columns.getTypeName(2));
+	}
+
+	@Test
+	public void pathsShareNodes() {
+		ColumnarJavaFiles columns = new ColumnarJavaFiles();
+		for (int d = 0; d < 10; d++) {
+			for (int c = 0; c < 100; c++) {
+				columns.add(javaFile("src/main/java/pkg" + d + "/Class" + c + ".java", "pkg" + d + ".Class" + c));
+			}
+		}
+		// root, src, main, java and 10 package directories
+		assertEquals(1 + 3 + 10, columns.getPathNodeCount());
+		assertEquals(new File("src/main/java/pkg3/Class42.java"), columns.getFile(342));
+		assertEquals("pkg3.Class42", columns.getTypeName(342));
+	}
+
+	@Test
+	public void rowsAreCopies() {
+		ColumnarJavaFiles columns = new ColumnarJavaFiles(sample());
+		JavaFile javaFile = columns.get(1);
+		javaFile.getAuthors().add("Added");
+		javaFile.setTypeName("some.Renamed");
+		assertEquals(Arrays.asList("Me"), columns.getAuthors(1));
+
+		columns.update(1, javaFile);
+		assertEquals(Arrays.asList("Me", "Added"), columns.getAuthors(1));
+		assertEquals("some.Renamed", columns.getTypeName(1));
+
+		JavaFile removed = columns.remove(0);
+		assertEquals(new File("src/main/java/some/pkg/First.java"), removed.getFile());
+		assertEquals(5, columns.size());
+		assertEquals("some.Renamed", columns.getTypeName(0));
+		assertEquals(7, columns.getTypeDeclarationStartLine(0));
+	}
+
+	@Test
+	public void segmentTrie() {
+		SegmentTrie trie = new SegmentTrie('.');
+		assertEquals(SegmentTrie.ROOT, trie.add(""));
+		int abc = trie.add("a.b.c");
+		int abd = trie.add("a.b.d");
+		assertEquals(trie.parentOf(abc), trie.parentOf(abd));
+		assertEquals(5, trie.size());
+		assertEquals(abc, trie.find("a.b.c"));
+		assertEquals(-1, trie.find("a.b.e"));
+		assertEquals(-1, trie.find("x"));
+		for (String s : Arrays.asList("a", ".a", "a.", "a..b", ".")) {
+			assertEquals(s, trie.toString(trie.add(s)));
+		}
+		for (int i = 0; i < 10000; i++) {
+			trie.add("p" + (i % 100) + ".C" + i);
+		}
+		assertEquals("p7.C1207", trie.toString(trie.find("p7.C1207")));
+		assertTrue(trie.size() < 10200);
+	}
+
+	@Test
+	public void truncate() {
+		List<JavaFile> sample = sample();
+		ColumnarJavaFiles columns = new ColumnarJavaFiles(sample);
+		JavaFiles rows = new JavaFiles(sample);
+		columns.truncate(2);
+		rows.truncate(2);
+		assertEquals(2, columns.size());
+		assertSameRows(rows, columns);
+		columns.add(sample.get(4));
+		assertEquals(sample.get(4).getFile(), columns.getFile(2));
+		try {
+			columns.truncate(4);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertEquals(3, columns.size());
+		}
+	}
+
+}
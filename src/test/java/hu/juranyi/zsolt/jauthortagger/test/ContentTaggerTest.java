@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.input.AuthorTaggerConfig;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.output.ContentTagger;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests <code>ContentTagger</code>, which tags file contents in memory for the
+ * <code>filter</code> command.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ContentTaggerTest {
+
+	private static final String CONTENT = "package a;\r\n\r\n/**\r\n * Foo.\r\n */\r\npublic class Foo {\r\n}\r\n";
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private ContentTagger tagger(String config) throws IOException {
+		File configFile = Filenames.configFileOf(TestUtils.TEST_DIR);
+		configFile.getParentFile().mkdirs();
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(configFile), "UTF-8")) {
+			w.write(config);
+		}
+		return new ContentTagger(new AuthorTaggerConfig(configFile));
+	}
+
+	@Test
+	public void tagsContent() throws IOException {
+		ContentTagger tagger = tagger("$**\n\t+Test Man\n");
+		StringWriter out = new StringWriter();
+		assertTrue(tagger.tag(new File("src/a/Foo.java"), new StringReader(CONTENT), out));
+		assertTrue(out.toString().contains("@author Test Man"));
+		assertFalse(new File(TestUtils.TEST_DIR, "src").exists());
+	}
+
+	@Test
+	public void skippedContentIsUnchanged() throws IOException {
+		ContentTagger tagger = tagger("$**\n\t+Test Man\n$a.Foo\n\t!skip\n");
+		StringWriter out = new StringWriter();
+		assertFalse(tagger.tag(new File("src/a/Foo.java"), new StringReader(CONTENT), out));
+		assertEquals(CONTENT, out.toString());
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import difflib.DiffUtils;
+import difflib.Patch;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+
+/**
+ * Verifies that the compact <code>DiffResult</code> reproduces the same patch
+ * and unified diff as <i>Java DiffUtils</i> does on the full contents.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class DiffResultTest {
+
+	private static List<String> lines(int count) {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			lines.add("line " + i);
+		}
+		return lines;
+	}
+
+	private void assertSameAsDiffUtils(List<String> original, List<String> revised) {
+		Patch<String> patch = DiffUtils.diff(original, revised);
+		List<String> expected = DiffUtils.generateUnifiedDiff("a", "b", original, patch, DiffResult.CONTEXT_SIZE);
+		DiffResult result = new DiffResult("a", "b", original, patch);
+		assertEquals(expected, result.getUnifiedDiff());
+		assertEquals(patch.getDeltas(), result.getPatch().getDeltas());
+		assertEquals(patch.getDeltas().isEmpty(), result.isEmpty());
+	}
+
+	@Test
+	public void identicalContents() {
+		List<String> original = lines(20);
+		assertSameAsDiffUtils(original, new ArrayList<String>(original));
+		assertTrue(new DiffResult("a", "b", original, DiffUtils.diff(original, original)).getUnifiedDiff().isEmpty());
+	}
+
+	@Test
+	public void changesAtEdges() {
+		List<String> original = lines(20);
+		List<String> revised = new ArrayList<String>(original);
+		revised.add(0, "inserted first");
+		revised.remove(20);
+		revised.add("appended last");
+		assertSameAsDiffUtils(original, revised);
+	}
+
+	@Test
+	public void multipleHunks() {
+		List<String> original = lines(100);
+		List<String> revised = new ArrayList<String>(original);
+		revised.set(10, "changed");
+		revised.add(14, "close to previous");
+		revised.remove(50);
+		revised.set(80, "far away");
+		assertSameAsDiffUtils(original, revised);
+	}
+
+	@Test
+	public void onlyContextIsKept() {
+		List<String> original = lines(1000);
+		List<String> revised = new ArrayList<String>(original);
+		revised.set(500, "changed");
+		DiffResult result = new DiffResult("a", "b", original, DiffUtils.diff(original, revised));
+		assertFalse(result.isEmpty());
+		for (String line : result.getUnifiedDiff()) {
+			assertFalse(line.contains("line 10 "));
+		}
+		assertEquals(Collections.singletonList("line 500"), result.getPatch().getDeltas().get(0).getOriginal()
+				.getLines());
+	}
+
+}
@@ -17,10 +17,13 @@
 package hu.juranyi.zsolt.jauthortagger.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -29,6 +32,7 @@ import org.junit.Test;
 import hu.juranyi.zsolt.jauthortagger.input.JavaFileEnumerator;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
 import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.util.ShardFilter;
 import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
 
 /**
@@ -63,4 +67,31 @@ public class JavaFileEnumeratorTest {
 		assertEquals(expectedFiles, enumeratedFiles);
 	}
 
+	@Test
+	public void shardsAreDisjointAndComplete() {
+		TestUtils.deleteTestDir();
+		for (int i = 0; i < 50; i++) {
+			TestUtils.createEmptyFile("src/main/java/pkg" + i % 5 + "/Class" + i + ".java");
+		}
+		File srcDir = new File(TestUtils.TEST_DIR, "src");
+		int total = new JavaFileEnumerator().enumerateJavaFiles(srcDir).size();
+
+		Set<File> enumeratedFiles = new HashSet<File>();
+		int count = 0;
+		for (int shard = 1; shard <= 3; shard++) {
+			JavaFileEnumerator e = new JavaFileEnumerator(new ShardFilter(TestUtils.TEST_DIR, shard, 3));
+			JavaFiles javaFiles = e.enumerateJavaFiles(srcDir);
+			assertTrue(javaFiles.size() < total);
+			for (JavaFile javaFile : javaFiles) {
+				enumeratedFiles.add(javaFile.getFile());
+				count++;
+			}
+		}
+
+		assertEquals(total, count);
+		assertEquals(total, enumeratedFiles.size());
+		assertEquals(1, ShardFilter.shardOf("src/main/java/pkg1/Class1.java", 3));
+		TestUtils.deleteTestDir();
+	}
+
 }
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.BACKUP;
+import static hu.juranyi.zsolt.jauthortagger.model.BackupMode.TEST;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.input.JavaFileAnalyzer;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Journal;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Simulates interrupted runs and verifies that the journal rolls them back or
+ * forward.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class JournalTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private JavaFile analyzed(File file) {
+		JavaFile javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+		javaFile.getAuthors().add("Test Man");
+		return javaFile;
+	}
+
+	private void authors(File file, String... expected) {
+		JavaFile javaFile = new JavaFile(file);
+		new JavaFileAnalyzer().analyzeJavaFile(javaFile);
+		assertEquals(Arrays.asList(expected), javaFile.getAuthors());
+	}
+
+	@Test
+	public void committedBatches() throws IOException {
+		File[] files = new File[3];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = TestUtils.exportResourceFile("Class.java_", "src/C" + i + ".java");
+		}
+		AuthorTagWriter w = new AuthorTagWriter(BACKUP);
+		Journal journal = new Journal(TestUtils.TEST_DIR, w, 2, true, null);
+		for (int i = 0; i < files.length; i++) {
+			Journal.Batch batch = journal.begin(files[i]);
+			journal.prepared(batch, files[i], w.prepareAuthorTags(analyzed(files[i]), null, null));
+		}
+		authors(files[0], "Test Man"); // first batch is full, committed
+		authors(files[2]);
+		journal.finish();
+		for (File file : files) {
+			authors(file, "Test Man");
+			assertTrue(Filenames.backupFileOf(file).exists());
+			assertFalse(Filenames.tempFileOf(file).exists());
+		}
+		assertFalse(Journal.exists(TestUtils.TEST_DIR));
+	}
+
+	@Test
+	public void rollBack() throws IOException {
+		File file = TestUtils.exportResourceFile("Class.java_", "src/A.java");
+		byte[] original = Files.readAllBytes(file.toPath());
+		AuthorTagWriter w = new AuthorTagWriter(BACKUP);
+		Journal journal = new Journal(TestUtils.TEST_DIR, w, 10, false, null);
+		Journal.Batch batch = journal.begin(file);
+		journal.prepared(batch, file, w.prepareAuthorTags(analyzed(file), null, null));
+		// process dies here, before the batch is committed
+
+		assertTrue(Filenames.tempFileOf(file).exists());
+		assertTrue(Journal.recover(TestUtils.TEST_DIR, null));
+		assertFalse(Filenames.tempFileOf(file).exists());
+		assertFalse(Filenames.backupFileOf(file).exists());
+		assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+		assertFalse(Journal.exists(TestUtils.TEST_DIR));
+	}
+
+	@Test
+	public void rollForward() throws IOException {
+		File moved = TestUtils.exportResourceFile("Class.java_", "src/Moved.java");
+		File waiting = TestUtils.exportResourceFile("Class.java_", "src/Waiting.java");
+		byte[] original = Files.readAllBytes(moved.toPath());
+		AuthorTagWriter w = new AuthorTagWriter(BACKUP);
+		w.prepareAuthorTags(analyzed(moved), null, null);
+		w.prepareAuthorTags(analyzed(waiting), null, null);
+		Files.move(moved.toPath(), Filenames.backupFileOf(moved).toPath()); // backup done, move is not
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(Filenames.journalOf(TestUtils.TEST_DIR)),
+				"UTF-8")) {
+			out.write("B BACKUP 0\nW 1 src/Moved.java\nW 1 src/Waiting.java\n");
+			out.write("P 1 1 src/Moved.java\nP 1 1 src/Waiting.java\nC 1\n");
+		}
+
+		assertTrue(Journal.recover(TestUtils.TEST_DIR, null));
+		for (File file : new File[] { moved, waiting }) {
+			authors(file, "Test Man");
+			assertArrayEquals(original, Files.readAllBytes(Filenames.backupFileOf(file).toPath()));
+			assertFalse(Filenames.tempFileOf(file).exists());
+		}
+		assertFalse(Journal.exists(TestUtils.TEST_DIR));
+	}
+
+	@Test
+	public void rollBackTestMode() throws IOException {
+		File file = TestUtils.exportResourceFile("Class.java_", "src/T.java");
+		byte[] original = Files.readAllBytes(file.toPath());
+		File tempFile = Filenames.tempFileOf(Filenames.testFileOf(file));
+		AuthorTagWriter w = new AuthorTagWriter(TEST);
+		Journal journal = new Journal(TestUtils.TEST_DIR, w, 10, true, null);
+		Journal.Batch batch = journal.begin(file);
+		journal.prepared(batch, file, w.prepareAuthorTags(analyzed(file), null, null));
+		// process dies here, before the batch is committed
+
+		assertTrue(tempFile.exists());
+		assertTrue(Journal.recover(TestUtils.TEST_DIR, null));
+		assertFalse(tempFile.exists());
+		assertFalse(Filenames.testFileOf(file).exists());
+		assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+		assertFalse(Journal.exists(TestUtils.TEST_DIR));
+	}
+
+	@Test
+	public void testModeCommit() throws IOException {
+		File file = TestUtils.exportResourceFile("Class.java_", "src/T.java");
+		AuthorTagWriter w = new AuthorTagWriter(TEST);
+		Journal journal = new Journal(TestUtils.TEST_DIR, w, 10, true, null);
+		Journal.Batch batch = journal.begin(file);
+		journal.prepared(batch, file, w.prepareAuthorTags(analyzed(file), null, null));
+		journal.finish();
+		authors(Filenames.testFileOf(file), "Test Man");
+		authors(file);
+		assertFalse(Filenames.tempFileOf(Filenames.testFileOf(file)).exists());
+		assertFalse(Journal.exists(TestUtils.TEST_DIR));
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.util.AsyncLogSink;
+import hu.juranyi.zsolt.jauthortagger.util.Log;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the asynchronous log file, the run-level threshold and the summary
+ * mode of the CLI.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class LogTest {
+
+	@After
+	public void cleanup() {
+		Log.close();
+		Log.setLevel(Log.Level.TRACE);
+		TestUtils.deleteTestDir();
+	}
+
+	private static File logFile() {
+		File file = new File(TestUtils.TEST_DIR, "test.log");
+		file.getParentFile().mkdirs();
+		return file;
+	}
+
+	private static List<String> lines(File file) throws IOException {
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void sinkKeepsOrderAndFlushesOnClose() throws IOException {
+		File file = logFile();
+		AsyncLogSink sink = new AsyncLogSink(file);
+		for (int i = 0; i < 20000; i++) { // more than the queue can hold
+			sink.log("INFO", "LogTest", "line " + i, null);
+		}
+		sink.close();
+		List<String> lines = lines(file);
+		assertEquals(20000, lines.size());
+		for (int i = 0; i < lines.size(); i++) {
+			assertTrue(lines.get(i).endsWith(" [INFO] LogTest - line " + i));
+		}
+	}
+
+	@Test
+	public void levelGate() throws IOException {
+		File file = logFile();
+		Log.setLogFile(file.getPath());
+		Log.setLevel(Log.Level.WARN);
+		Logger logger = Log.forClass(LogTest.class);
+		assertFalse(logger.isInfoEnabled());
+		assertTrue(logger.isWarnEnabled());
+		logger.info("hidden {}", 1);
+		logger.warn("shown {}", 2);
+		Log.summary(logger, "summary");
+		Log.close();
+		List<String> lines = lines(file);
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(0).endsWith(" [WARN] LogTest - shown 2"));
+		assertTrue(lines.get(1).endsWith(" [INFO] LogTest - summary"));
+	}
+
+	@Test
+	public void summaryMode() throws IOException {
+		TestUtils.exportResourceFile("ClassADP.java_", "p/src/a/A.java");
+		TestUtils.exportResourceFile("Class.java_", "p/src/a/C.java");
+		File projectDir = new File(TestUtils.TEST_DIR, "p");
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(new File(projectDir, ".authors")), "UTF-8")) {
+			w.write("$**\n\t+Test Man\n");
+		}
+		File file = logFile();
+		Log.setLogFile(file.getPath());
+		JAuthorTagger.run(new String[] { projectDir.getPath(), "test", "--log=summary" }, System.in,
+				new PrintStream(new ByteArrayOutputStream()));
+		Log.close();
+		List<String> lines = lines(file);
+		assertFalse(lines.isEmpty());
+		boolean seen = false;
+		for (String line : lines) {
+			assertTrue(line, line.contains(" - Summary: "));
+			seen |= line.endsWith(" [INFO] JAuthorTagger - Summary: files_seen = 2");
+		}
+		assertTrue(seen);
+	}
+
+	@Test
+	public void runLevelIsScoped() throws InterruptedException {
+		final Logger logger = Log.forClass(LogTest.class);
+		final boolean[] enabled = new boolean[2];
+		Log.setLevel(Log.Level.INFO);
+		Thread concurrent = new Thread(new Runnable() { // e.g. another request
+
+			@Override
+			public void run() {
+				enabled[1] = logger.isInfoEnabled();
+			}
+		});
+		Log.Level previous = Log.setRunLevel(Log.Level.WARN);
+		Thread started = new Thread(new Runnable() { // e.g. a worker of the run
+
+			@Override
+			public void run() {
+				enabled[0] = logger.isInfoEnabled();
+			}
+		});
+		started.start();
+		concurrent.start();
+		started.join();
+		concurrent.join();
+		assertFalse(logger.isInfoEnabled());
+		assertFalse(enabled[0]);
+		assertTrue(enabled[1]);
+		Log.restoreRunLevel(previous);
+		assertTrue(logger.isInfoEnabled());
+	}
+
+	@Test
+	public void runRestoresLevel() {
+		Log.setLevel(Log.Level.INFO);
+		JAuthorTagger.run(new String[] { new File(TestUtils.TEST_DIR, "missing").getPath(), "test", "--log=error" },
+				System.in, new PrintStream(new ByteArrayOutputStream()));
+		assertTrue(Log.forClass(LogTest.class).isInfoEnabled());
+	}
+
+}
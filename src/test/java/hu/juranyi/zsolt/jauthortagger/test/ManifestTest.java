@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.util.Manifest;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the manifest: a backup run records the changed files only, and
+ * restore works from the manifest alone.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ManifestTest {
+
+	private static final String TAGGED = "package a;\n\n/**\n * B.\n *\n * @author Test Man\n */\npublic class B {\n}\n";
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static List<File> absolute(List<File> files) {
+		List<File> result = new ArrayList<File>();
+		for (File f : files) {
+			result.add(f.getAbsoluteFile());
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	private static String[] sorted(String[] names) {
+		Arrays.sort(names);
+		return names;
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void backupAndRestore() throws IOException {
+		File a = TestUtils.exportResourceFile("ClassADP.java_", "src/a/A.java");
+		File c = TestUtils.exportResourceFile("ClassP.java_", "src/a/C.java");
+		File b = new File(a.getParentFile(), "B.java");
+		write(b, TAGGED);
+		write(Filenames.configFileOf(TestUtils.TEST_DIR), "$**\n\t+Test Man\n");
+		String originalA = read(a);
+		String originalC = read(c);
+		assertTrue(b.setLastModified(1000000000000L));
+
+		new JAuthorTagger(TestUtils.TEST_DIR, BackupMode.BACKUP).start();
+		assertTrue(read(a).contains("@author Test Man"));
+		assertEquals(TAGGED, read(b));
+		assertEquals(1000000000000L, b.lastModified()); // already tagged: not rewritten
+		assertFalse(Filenames.backupFileOf(b).exists());
+		assertTrue(Manifest.exists(TestUtils.TEST_DIR));
+		assertEquals(Arrays.asList(a.getAbsoluteFile(), c.getAbsoluteFile()),
+				absolute(new Manifest(TestUtils.TEST_DIR).read()));
+
+		RunOptions options = new RunOptions();
+		options.setThreads(4);
+		File report = Filenames.diffReportOf(TestUtils.TEST_DIR);
+		report.delete();
+		new JAuthorTagger(TestUtils.TEST_DIR, BackupMode.RESTORE, options).start();
+		assertEquals(originalA, read(a));
+		assertEquals(originalC, read(c));
+		assertEquals(TAGGED, read(b));
+		assertFalse(Filenames.backupFileOf(a).exists());
+		assertFalse(Filenames.backupFileOf(c).exists());
+		assertEquals(Arrays.asList("A.java", "B.java", "C.java"), Arrays.asList(sorted(a.getParentFile().list())));
+		assertFalse(Manifest.exists(TestUtils.TEST_DIR));
+		assertFalse(report.exists()); // no diffs calculated
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_READ;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.BYTES_WRITTEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_CHANGED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SEEN;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Counter.FILES_SKIPPED;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.ANALYZE;
+import static hu.juranyi.zsolt.jauthortagger.util.Metrics.Stage.WRITE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the metrics recorded by tagging runs, and their export over JMX and as
+ * a <i>Prometheus</i> textfile.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class MetricsTest {
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static File project() {
+		return TestUtils.createProject("p", "$**\n\t+Test Man\n$Class\n\t!skip\n");
+	}
+
+	private static void assertCounted(Metrics m) {
+		assertEquals(4, m.get(FILES_SEEN));
+		assertEquals(1, m.get(FILES_SKIPPED));
+		assertEquals(3, m.get(FILES_CHANGED));
+		assertTrue(0 < m.get(BYTES_READ));
+		assertTrue(m.get(BYTES_READ) < m.get(BYTES_WRITTEN));
+		assertEquals(4, m.getFileCount(ANALYZE));
+		assertEquals(3, m.getFileCount(WRITE));
+	}
+
+	@Test
+	public void alreadyTagged() throws IOException {
+		File projectDir = project();
+		new JAuthorTagger(projectDir, BackupMode.NO_BACKUP).start();
+		Metrics m = new Metrics(null);
+		new JAuthorTagger(projectDir, BackupMode.NO_BACKUP, new RunOptions(), m).start();
+		assertEquals(0, m.get(FILES_CHANGED));
+		assertTrue(0 < m.get(BYTES_READ));
+		assertEquals(0, m.get(BYTES_WRITTEN)); // nothing has been written
+	}
+
+	@Test
+	public void sequential() throws IOException {
+		Metrics m = new Metrics(null);
+		new JAuthorTagger(project(), BackupMode.TEST, new RunOptions(), m).start();
+		assertCounted(m);
+		assertEquals(1, m.getRuns());
+		assertTrue(0 < m.getStageNanos(ANALYZE));
+	}
+
+	@Test
+	public void pipeline() throws IOException {
+		RunOptions options = new RunOptions();
+		options.setExecutionMode(ExecutionMode.PIPELINE);
+		options.setThreads(2);
+		Metrics m = new Metrics(null);
+		new JAuthorTagger(project(), BackupMode.NO_BACKUP, options, m).start();
+		assertCounted(m);
+	}
+
+	@Test
+	public void globalOverJmx() throws IOException, JMException {
+		long runs = Metrics.global().getRuns();
+		new JAuthorTagger(project(), BackupMode.TEST).start();
+		Object value = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(Metrics.OBJECT_NAME),
+				"Runs");
+		assertEquals(runs + 1, ((Long) value).longValue());
+	}
+
+	@Test
+	public void textFile() throws IOException {
+		File metricsFile = new File(TestUtils.TEST_DIR, "jauthortagger.prom");
+		String projectDir = project().getPath();
+		JAuthorTagger.run(new String[] { projectDir, "test", "--metrics=" + metricsFile.getPath() }, null,
+				new PrintStream(new ByteArrayOutputStream()));
+		String text = new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8);
+		assertTrue(text.contains("# TYPE jauthortagger_files_seen_total counter\n"));
+		assertTrue(text.contains("jauthortagger_files_seen_total{mode=\"test\"} 4\n"));
+		assertTrue(text.contains("jauthortagger_files_changed_total{mode=\"test\"} 3\n"));
+		assertTrue(text.contains("jauthortagger_file_seconds_bucket{mode=\"test\",stage=\"analyze\",le=\"+Inf\"} 4\n"));
+		assertTrue(text.contains("jauthortagger_file_seconds_count{mode=\"test\",stage=\"write\"} 3\n"));
+	}
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.TaggingStep;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.model.TaggingJob;
+import hu.juranyi.zsolt.jauthortagger.output.AuthorTagWriter;
+import hu.juranyi.zsolt.jauthortagger.output.Checkpoint;
+import hu.juranyi.zsolt.jauthortagger.output.Journal;
+import hu.juranyi.zsolt.jauthortagger.util.BackupStore;
+import hu.juranyi.zsolt.jauthortagger.util.Manifest;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+import hu.juranyi.zsolt.jauthortagger.util.VirtualThreads;
+
+/**
+ * Tests the per-file execution mode: it must write the same files and the same
+ * report as a sequential run, while never writing more files at a time than
+ * allowed.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class PerFileTest {
+
+	/**
+	 * Counts the files being written at the same time.
+	 */
+	private static class CountingTagger extends JAuthorTagger {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+
+		public CountingTagger(File projectDir, RunOptions options) {
+			super(projectDir, BackupMode.BACKUP, options);
+		}
+
+		@Override
+		protected TaggingStep createStep(BackupStore backupStore, Manifest manifest, Journal journal,
+				Checkpoint checkpoint) {
+			return new TaggingStep(this, backupStore, manifest, journal, checkpoint) {
+
+				@Override
+				protected void writeAuthorTags(AuthorTagWriter w, TaggingJob job, boolean diff) {
+					int n = inFlight.incrementAndGet();
+					try {
+						int max;
+						while (n > (max = maxInFlight.get()) && !maxInFlight.compareAndSet(max, n)) {
+							// retry
+						}
+						Thread.sleep(2);
+						super.writeAuthorTags(w, job, diff);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						inFlight.decrementAndGet();
+					}
+				}
+			};
+		}
+	}
+
+	private static final String[] RESOURCES = { "ClassADP.java_", "ClassP.java_", "ClassAD.java_", "ClassA.java_",
+			"ClassD.java_", "Class.java_" };
+	private static final int FILES = 60;
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static File project(String name) throws IOException {
+		for (int i = 0; i < FILES; i++) {
+			TestUtils.exportResourceFile(RESOURCES[i % RESOURCES.length], name + "/src/p" + i % 4 + "/C" + i + ".java");
+		}
+		File projectDir = new File(TestUtils.TEST_DIR, name);
+		try (Writer w = new OutputStreamWriter(new FileOutputStream(new File(projectDir, ".authors")), "UTF-8")) {
+			w.write("$**\n\t+Test Man\n$p3.**\n\t!skip\n");
+		}
+		return projectDir;
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static String report(File projectDir) throws IOException {
+		return read(Filenames.diffReportOf(projectDir)).replace(projectDir.getAbsolutePath(), "")
+				.replaceAll("\\d{4}-\\d\\d-\\d\\d @ [\\d:.]+", "");
+	}
+
+	private void sameOutputAsSequential(int maxOpenFiles) throws IOException {
+		File sequential = project("sequential");
+		new JAuthorTagger(sequential, BackupMode.BACKUP).start();
+
+		File perFile = project("perfile");
+		RunOptions options = new RunOptions();
+		options.setExecutionMode(ExecutionMode.PER_FILE);
+		options.setMaxOpenFiles(maxOpenFiles);
+		CountingTagger tagger = new CountingTagger(perFile, options);
+		tagger.start();
+
+		assertEquals(report(sequential), report(perFile));
+		assertTrue(report(perFile).contains("Test&nbsp;Man"));
+		for (int i = 0; i < FILES; i++) {
+			String path = "src/p" + i % 4 + "/C" + i + ".java";
+			assertEquals(read(new File(sequential, path)), read(new File(perFile, path)));
+		}
+		assertTrue(0 < tagger.maxInFlight.get());
+		assertTrue(tagger.maxInFlight.get() <= maxOpenFiles);
+	}
+
+	@Test
+	public void sameOutputAsSequential() throws IOException {
+		sameOutputAsSequential(4);
+	}
+
+	@Test
+	public void oneFileAtATime() throws IOException {
+		sameOutputAsSequential(1);
+	}
+
+	@Test
+	public void pooledFallback() {
+		ExecutorService executor = VirtualThreads.newExecutor(3);
+		try {
+			if (VirtualThreads.isAvailable()) {
+				assertFalse(executor instanceof ThreadPoolExecutor);
+			} else {
+				assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.util.Pipeline;
+import hu.juranyi.zsolt.jauthortagger.util.Pipeline.Stage;
+
+/**
+ * Tests the pipeline executor: ordering, dropping and error handling with more
+ * workers than queue slots.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class PipelineTest {
+
+	@Test
+	public void keepsOrderAndDrops() throws InterruptedException {
+		Pipeline<int[]> p = new Pipeline<int[]>("test", 2);
+		p.addStage("double", 4, new Stage<int[]>() {
+
+			@Override
+			public boolean process(int[] item) {
+				item[0] *= 2;
+				return true;
+			}
+		});
+		p.addStage("drop", 3, new Stage<int[]>() {
+
+			@Override
+			public boolean process(int[] item) {
+				if (42 == item[0]) {
+					throw new IllegalStateException("dropped by error");
+				}
+				return 0 != item[0] % 5;
+			}
+		});
+		p.start();
+
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			p.put(new int[] { i });
+			int d = i * 2;
+			if (42 != d && 0 != d % 5) {
+				expected.add(d);
+			}
+		}
+
+		List<Integer> actual = new ArrayList<Integer>();
+		for (int[] item : p.finish()) {
+			actual.add(item[0]);
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test(timeout = 10000)
+	public void errorIsRethrown() throws InterruptedException {
+		Pipeline<int[]> p = new Pipeline<int[]>("test", 2);
+		p.addStage("overflow", 1, new Stage<int[]>() {
+
+			@Override
+			public boolean process(int[] item) {
+				if (10 == item[0]) {
+					throw new StackOverflowError("pathological file");
+				}
+				return true;
+			}
+		});
+		p.addStage("pass", 2, new Stage<int[]>() {
+
+			@Override
+			public boolean process(int[] item) {
+				return true;
+			}
+		});
+		p.start();
+		for (int i = 0; i < 1000; i++) {
+			p.put(new int[] { i }); // must not block on the failed stage
+		}
+		try {
+			p.finish();
+			fail("Error should be rethrown");
+		} catch (StackOverflowError e) {
+			assertEquals("pathological file", e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+import hu.juranyi.zsolt.jauthortagger.util.Profiler;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Tests the <i>Java Flight Recorder</i> events of a run recorded with the
+ * <code>--profile</code> option. Skipped on JREs without JFR.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ProfilerTest {
+
+	@Before
+	public void jfrAvailable() {
+		assumeTrue(Profiler.isAvailable());
+	}
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	@Test
+	public void profileOption() throws IOException {
+		File projectDir = TestUtils.createProject("p", "$**\n\t+Test Man\n$Class\n\t!skip\n");
+		JAuthorTagger.run(new String[] { projectDir.getPath(), "test", "--profile" }, null,
+				new PrintStream(new ByteArrayOutputStream()));
+
+		File profileFile = Filenames.profileFileOf(projectDir);
+		assertTrue(profileFile.exists());
+		Map<String, Integer> files = new HashMap<String, Integer>();
+		Map<String, Integer> stages = new HashMap<String, Integer>();
+		for (RecordedEvent e : RecordingFile.readAllEvents(profileFile.toPath())) {
+			String name = e.getEventType().getName();
+			if ("hu.juranyi.zsolt.jauthortagger.File".equals(name)) {
+				increment(files, e.getString("stage"));
+				assertTrue(e.getString("path").endsWith(".java"));
+				assertTrue(0 < e.getLong("bytes"));
+			} else if ("hu.juranyi.zsolt.jauthortagger.Stage".equals(name)) {
+				increment(stages, e.getString("stage"));
+			}
+		}
+		for (String stage : new String[] { "analyze", "apply" }) {
+			assertEquals(stage, Integer.valueOf(4), files.get(stage));
+		}
+		for (String stage : new String[] { "write", "diff" }) {
+			assertEquals(stage, Integer.valueOf(3), files.get(stage)); // one is skipped
+		}
+		for (String stage : new String[] { "enumerate", "report", "run" }) {
+			assertEquals(stage, Integer.valueOf(1), stages.get(stage));
+		}
+	}
+
+	@Test
+	public void filterOutputIsContentOnly() throws IOException {
+		File projectDir = TestUtils.createProject("p", "$**\n\t+Test Man\n$Class\n\t!skip\n");
+		File b = new File(projectDir, "src/a/B.java");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(0, JAuthorTagger.run(new String[] { projectDir.getPath(), "filter", "src/a/B.java", "--profile" },
+				new ByteArrayInputStream(Files.readAllBytes(b.toPath())), new PrintStream(out, true, "UTF-8")));
+
+		String content = out.toString("UTF-8");
+		assertTrue(content.contains("@author Test Man"));
+		assertFalse(content.contains("Profile: "));
+		assertTrue(Filenames.profileFileOf(projectDir).exists());
+	}
+
+	private static void increment(Map<String, Integer> counts, String key) {
+		Integer count = counts.get(key);
+		counts.put(key, null == count ? 1 : count + 1);
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.ExecutionMode;
+import hu.juranyi.zsolt.jauthortagger.model.ProgressEvent;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.output.ConsoleProgressWriter;
+import hu.juranyi.zsolt.jauthortagger.util.Metrics;
+import hu.juranyi.zsolt.jauthortagger.util.ProgressListener;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Tests the progress events of tagging runs and their console format.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ProgressTest {
+
+	private static class Recorder implements ProgressListener {
+		final List<List<ProgressEvent>> progress = new ArrayList<List<ProgressEvent>>();
+		final List<List<ProgressEvent>> finished = new ArrayList<List<ProgressEvent>>();
+
+		@Override
+		public synchronized void finished(List<ProgressEvent> events) {
+			finished.add(events);
+		}
+
+		@Override
+		public synchronized void progress(List<ProgressEvent> events) {
+			progress.add(events);
+		}
+	}
+
+	@After
+	public void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	private static Recorder run(ExecutionMode executionMode) throws IOException {
+		File projectDir = TestUtils.createProject("p", "$**\n\t+Test Man\n$Class\n\t!skip\n");
+		RunOptions options = new RunOptions();
+		options.setExecutionMode(executionMode);
+		options.setProgressInterval(1);
+		Metrics metrics = new Metrics(null);
+		new JAuthorTagger(projectDir, BackupMode.TEST, options, metrics).start(); // earlier run, not reported
+		JAuthorTagger tagger = new JAuthorTagger(projectDir, BackupMode.TEST, options, metrics);
+		Recorder recorder = new Recorder();
+		tagger.addProgressListener(recorder);
+		tagger.start();
+		return recorder;
+	}
+
+	private static void assertFinished(Recorder recorder) {
+		assertEquals(1, recorder.finished.size());
+		List<ProgressEvent> events = recorder.finished.get(0);
+		assertEquals(5, events.size());
+		assertEquals(Metrics.Stage.ENUMERATE, events.get(0).getStage());
+		assertEquals(4, events.get(0).getFiles());
+		assertEquals(-1, events.get(0).getTotalFiles());
+		ProgressEvent analyze = events.get(1);
+		assertEquals(Metrics.Stage.ANALYZE, analyze.getStage());
+		assertEquals(4, analyze.getFiles());
+		assertEquals(4, analyze.getTotalFiles());
+		assertEquals(0, analyze.getEtaSeconds());
+		ProgressEvent write = events.get(3);
+		assertEquals(Metrics.Stage.WRITE, write.getStage());
+		assertEquals(3, write.getFiles());
+		assertEquals(3, write.getTotalFiles());
+		assertTrue(0 < write.getBytes());
+		assertTrue(0 < write.getBytesPerSecond());
+		for (List<ProgressEvent> progress : recorder.progress) {
+			for (ProgressEvent event : progress) {
+				assertTrue(event.getTotalFiles() < 0 || event.getFiles() <= event.getTotalFiles());
+			}
+		}
+	}
+
+	@Test
+	public void sequential() throws IOException {
+		assertFinished(run(ExecutionMode.SEQUENTIAL));
+	}
+
+	@Test
+	public void pipeline() throws IOException {
+		assertFinished(run(ExecutionMode.PIPELINE));
+	}
+
+	@Test
+	public void consoleFormat() {
+		List<ProgressEvent> events = Arrays.asList(new ProgressEvent(Metrics.Stage.ENUMERATE, 100, -1, 0,
+				500000000L), new ProgressEvent(Metrics.Stage.ANALYZE, 50, 100, 0, 1000000000L), new ProgressEvent(
+				Metrics.Stage.WRITE, 30, 90, 3 << 20, 2000000000L));
+		assertEquals("Progress: enumerate 100 200/s | analyze 50/100 50/s ETA 0:01"
+				+ " | write 30/90 15/s 1.5 MB/s ETA 0:04", ConsoleProgressWriter.format(events, false));
+		assertEquals("Finished: enumerate 100 200/s in 0.5 s | analyze 50 50/s in 1.0 s"
+				+ " | write 30 15/s 1.5 MB/s in 2.0 s", ConsoleProgressWriter.format(events, true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroInterval() {
+		new RunOptions().setProgressInterval(0); // would make the reporter spin
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import difflib.DiffUtils;
+import hu.juranyi.zsolt.jauthortagger.input.RunRecordReader;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.DiffResult;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFile;
+import hu.juranyi.zsolt.jauthortagger.model.JavaFiles;
+import hu.juranyi.zsolt.jauthortagger.output.RunRecordWriter;
+import hu.juranyi.zsolt.jauthortagger.util.TestUtils;
+
+/**
+ * Verifies that run records give back what was written into them.
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class RunRecordTest {
+
+	@BeforeClass
+	@AfterClass
+	public static void cleanup() {
+		TestUtils.deleteTestDir();
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		List<String> original = new ArrayList<String>();
+		for (int i = 0; i < 30; i++) {
+			original.add("line " + i + " árvíztűrő");
+		}
+		List<String> revised = new ArrayList<String>(original);
+		revised.add(2, " * @author New Guy");
+		revised.set(20, "changed");
+
+		JavaFile tagged = new JavaFile(new File(TestUtils.TEST_DIR, "src/a/Tagged.java"));
+		tagged.setTypeName("a.Tagged");
+		tagged.setTypeDeclarationStartLine(4);
+		tagged.getAuthors().add("New Guy");
+		tagged.setDiffResult(new DiffResult("x", "y", original, DiffUtils.diff(original, revised)));
+		JavaFile untouched = new JavaFile(new File(TestUtils.TEST_DIR, "src/Untouched.java"));
+
+		File recordFile = TestUtils.createEmptyFile("record");
+		try (RunRecordWriter w = new RunRecordWriter(recordFile, TestUtils.TEST_DIR, BackupMode.TEST)) {
+			w.write(tagged);
+			w.write(untouched);
+			w.finish();
+		}
+
+		JavaFiles javaFiles;
+		try (RunRecordReader r = new RunRecordReader(recordFile, TestUtils.TEST_DIR)) {
+			assertEquals(BackupMode.TEST, r.getBackupMode());
+			javaFiles = r.readAll();
+		}
+		assertEquals(2, javaFiles.size());
+		JavaFile read = javaFiles.get(0);
+		assertEquals(tagged.getFile().getAbsoluteFile(), read.getFile().getAbsoluteFile());
+		assertEquals("a.Tagged", read.getTypeName());
+		assertEquals(4, read.getTypeDeclarationStartLine());
+		assertEquals(tagged.getAuthors(), read.getAuthors());
+		assertEquals(tagged.getDiffResult().getUnifiedDiff(), read.getDiffResult().getUnifiedDiff());
+		assertNull(javaFiles.get(1).getTypeName());
+		assertNull(javaFiles.get(1).getDiffResult());
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import hu.juranyi.zsolt.jauthortagger.JAuthorTagger;
+import hu.juranyi.zsolt.jauthortagger.model.BackupMode;
+import hu.juranyi.zsolt.jauthortagger.model.RunOptions;
+import hu.juranyi.zsolt.jauthortagger.util.CorpusGenerator;
+
+/**
+ * <p>
+ * End-to-end scale test: generates projects with <code>CorpusGenerator</code>
+ * and runs <i>JAuthorTagger</i> on them in every backup mode, measuring wall
+ * time and peak heap usage.
+ * </p>
+ * <p>
+ * It only runs when the <code>scale</code> system property lists the project
+ * sizes, e.g.
+ * <code>mvn test -Dtest=ScaleTest -Dscale=10000,100000,1000000</code>. The
+ * projects are generated into <code>target/scale</code>, the results are
+ * printed and appended to <code>target/scale-results.csv</code>.
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class ScaleTest {
+
+	private static final File SCALE_DIR = new File("target/scale");
+	private static final File RESULTS_FILE = new File("target/scale-results.csv");
+	private static final BackupMode[] MODES = { BackupMode.TEST, BackupMode.SHADOW, BackupMode.BACKUP,
+			BackupMode.RESTORE, BackupMode.NO_BACKUP };
+
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (MemoryType.HEAP == pool.getType()) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (MemoryType.HEAP == pool.getType()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static int countFiles(File dir, String suffix) {
+		int count = 0;
+		for (File f : FileUtils.listFiles(dir, new String[] { suffix }, true)) {
+			if (!f.getPath().contains(".authors-shadow")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void scale() throws IOException {
+		String sizes = System.getProperty("scale");
+		assumeTrue(null != sizes && !sizes.trim().isEmpty());
+		CorpusGenerator generator = new CorpusGenerator();
+		for (String size : sizes.split(",")) {
+			int fileCount = Integer.parseInt(size.trim());
+			File projectDir = new File(SCALE_DIR, Integer.toString(fileCount));
+			FileUtils.deleteDirectory(projectDir);
+			long t = System.nanoTime();
+			generator.generate(projectDir, fileCount);
+			report(fileCount, "GENERATE", System.nanoTime() - t, -1);
+
+			for (BackupMode mode : MODES) {
+				resetPeakHeap();
+				t = System.nanoTime();
+				new JAuthorTagger(projectDir, mode).start();
+				report(fileCount, mode.name(), System.nanoTime() - t, peakHeap());
+				if (BackupMode.TEST == mode) {
+					assertEquals(fileCount, countFiles(projectDir, "java"));
+				} else if (BackupMode.BACKUP == mode) {
+					assertEquals(fileCount, countFiles(projectDir, "at-save"));
+				} else if (BackupMode.RESTORE == mode) {
+					assertEquals(0, countFiles(projectDir, "at-save"));
+				}
+			}
+
+			// bounded-memory mode, compared with the TEST row
+			RunOptions options = new RunOptions();
+			options.setChunkSize(1000);
+			resetPeakHeap();
+			t = System.nanoTime();
+			new JAuthorTagger(projectDir, BackupMode.TEST, options).start();
+			report(fileCount, "TEST_CHUNKED", System.nanoTime() - t, peakHeap());
+			assertEquals(fileCount, countFiles(projectDir, "java"));
+			FileUtils.deleteDirectory(projectDir);
+		}
+	}
+
+	private void report(int fileCount, String step, long nanos, long heap) throws IOException {
+		String line = fileCount + "," + step + "," + nanos / 1000000 + "," + (0 > heap ? "" : heap / 1024 / 1024);
+		System.out.println("scale: " + line);
+		RESULTS_FILE.getParentFile().mkdirs();
+		boolean header = !RESULTS_FILE.exists();
+		try (Writer w = new FileWriter(RESULTS_FILE, true)) {
+			if (header) {
+				w.write("files,step,millis,peakHeapMB\n");
+			}
+			w.write(line + "\n");
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Zsolt Jurányi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package hu.juranyi.zsolt.jauthortagger.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.IOUtils;
+
+import hu.juranyi.zsolt.jauthortagger.model.Filenames;
+
+/**
+ * <p>
+ * Generates synthetic projects of any size for scale tests. The files reuse
+ * the shapes of the test resources (<code>*.java_</code>): classes with and
+ * without package declaration, annotations and existing <code>@author</code>
+ * blocks, and <code>package-info.java</code> files. They are placed in a deep
+ * package hierarchy (20 files per package, 8 subpackages per package), and a
+ * matching <code>.authors</code> configuration is generated with adding,
+ * deleting and skipping rules on subtrees and classes. The output is
+ * deterministic.
+ * </p>
+ * <p>
+ * It can also be run from the command line:
+ * <code>CorpusGenerator &lt;project-dir&gt; &lt;file-count&gt;</code>
+ * </p>
+ *
+ * @author Zsolt Jurányi
+ *
+ */
+public class CorpusGenerator {
+
+	private static final String[] CLASS_SHAPES = { "Class", "ClassA", "ClassAD", "ClassADP", "ClassAP", "ClassD",
+			"ClassDP", "ClassP" };
+	private static final String[] PACKAGE_INFO_SHAPES = { "PkgInf", "PkgInfA", "PkgInfAD", "PkgInfD" };
+	private static final String[] AUTHORS = { "Someone Else", "John Doe", "Jane Roe", "Kovács Péter",
+			"Nagy Anna" };
+	private static final String SAMPLE_PACKAGE = "name.of.the.sample.package";
+	private static final int FILES_PER_PACKAGE = 20;
+	private static final int PACKAGES_PER_RULE = 50;
+
+	public static void main(String[] args) throws IOException {
+		if (2 != args.length) {
+			System.out.println("Usage: CorpusGenerator <project-dir> <file-count>");
+			return;
+		}
+		new CorpusGenerator().generate(new File(args[0]), Integer.parseInt(args[1]));
+	}
+
+	private static String packageName(int packageIndex) {
+		StringBuilder sb = new StringBuilder("com.example");
+		int p = packageIndex;
+		do {
+			sb.append(".n").append(p & 7);
+			p >>>= 3;
+		} while (0 < p);
+		return sb.toString();
+	}
+
+	private static String shape(String name) throws IOException {
+		try (InputStream is = TestUtils.resource(name + ".java_")) {
+			if (null == is) {
+				throw new IOException("Missing resource: " + name + ".java_");
+			}
+			return new String(IOUtils.toByteArray(is), StandardCharsets.UTF_8);
+		}
+	}
+
+	private final String[] classShapes = new String[CLASS_SHAPES.length];
+	private final String[] packageInfoShapes = new String[PACKAGE_INFO_SHAPES.length];
+
+	/**
+	 * Creates an instance and loads the shapes.
+	 *
+	 * @throws IOException
+	 *             If the shapes cannot be loaded.
+	 */
+	public CorpusGenerator() throws IOException {
+		for (int i = 0; i < CLASS_SHAPES.length; i++) {
+			classShapes[i] = shape(CLASS_SHAPES[i]);
+		}
+		for (int i = 0; i < PACKAGE_INFO_SHAPES.length; i++) {
+			packageInfoShapes[i] = shape(PACKAGE_INFO_SHAPES[i]);
+		}
+	}
+
+	/**
+	 * Generates a project: <code>.java</code> files into the
+	 * <code>src</code> directory and the configuration file.
+	 *
+	 * @param projectDir
+	 *            - The project directory.
+	 * @param fileCount
+	 *            - The number of <code>.java</code> files to generate.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void generate(File projectDir, int fileCount) throws IOException {
+		File srcDir = new File(projectDir, "src");
+		int packageCount = (fileCount + FILES_PER_PACKAGE - 1) / FILES_PER_PACKAGE;
+		int written = 0;
+		for (int p = 0; p < packageCount && written < fileCount; p++) {
+			String packageName = packageName(p);
+			File dir = new File(srcDir, packageName.replace('.', File.separatorChar));
+			dir.mkdirs();
+			if (0 == p % 3) {
+				String content = packageInfoShapes[p % packageInfoShapes.length];
+				write(new File(dir, "package-info.java"), personalize(content, packageName, p));
+				written++;
+			}
+			for (int i = 0; i < FILES_PER_PACKAGE && written < fileCount; i++) {
+				int shape = (p + i) % classShapes.length;
+				String typeName = CLASS_SHAPES[shape] + "N" + written;
+				String content = classShapes[shape].replaceFirst("public class \\w+", "public class " + typeName);
+				write(new File(dir, typeName + ".java"), personalize(content, packageName, written));
+				written++;
+			}
+		}
+		writeConfig(Filenames.configFileOf(projectDir), packageCount);
+	}
+
+	private String personalize(String content, String packageName, int index) {
+		return content.replace(SAMPLE_PACKAGE, packageName).replace("Someone Else",
+				AUTHORS[index % AUTHORS.length]);
+	}
+
+	private void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void writeConfig(File configFile, int packageCount) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# generated by CorpusGenerator\n");
+		sb.append("$**\n\t+Zsolt Jurányi\n");
+		for (int p = 0; p < packageCount; p += PACKAGES_PER_RULE) {
+			String packageName = packageName(p);
+			sb.append("$").append(packageName).append(".**\n");
+			sb.append("\t+").append(AUTHORS[p % AUTHORS.length]).append('\n');
+			sb.append("\t-").append(AUTHORS[(p + 1) % AUTHORS.length].substring(0, 4)).append("*\n");
+			if (0 == p % (PACKAGES_PER_RULE * 4)) {
+				sb.append("$").append(packageName).append(".ClassADN*\n\t!skip\n");
+			}
+		}
+		for (int i = 0; i < AUTHORS.length; i++) {
+			sb.append("@").append(AUTHORS[i]).append('\n');
+			sb.append("\t+").append(CLASS_SHAPES[i % CLASS_SHAPES.length]).append("N*").append(i).append('\n');
+		}
+		write(configFile, sb.toString());
+	}
+
+}
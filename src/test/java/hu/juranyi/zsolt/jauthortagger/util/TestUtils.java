@@ -22,6 +22,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -59,6 +60,31 @@ public class TestUtils {
 		return outFile;
 	}
 
+	/**
+	 * Creates a small project in the test directory: two classes and a
+	 * <code>package-info.java</code> in package <code>a</code>, and a class
+	 * named <code>Class</code> in package <code>skipped</code>.
+	 *
+	 * @param name
+	 *            - The name of the project directory.
+	 * @param config
+	 *            - The content of the <code>.authors</code> file.
+	 * @return The project directory.
+	 */
+	public static File createProject(String name, String config) {
+		exportResourceFile("ClassADP.java_", name + "/src/a/A.java");
+		exportResourceFile("ClassP.java_", name + "/src/a/B.java");
+		exportResourceFile("PkgInfA.java_", name + "/src/a/package-info.java");
+		exportResourceFile("Class.java_", name + "/src/skipped/C.java");
+		File projectDir = new File(TEST_DIR, name);
+		try {
+			Files.write(new File(projectDir, ".authors").toPath(), config.getBytes("UTF-8"));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return projectDir;
+	}
+
 	public static void deleteTestDir() {
 		try {
 			FileUtils.deleteDirectory(TEST_DIR);